@@ -0,0 +1,175 @@
+package com.example.config;
+
+// reglages du moteur de consommation jms, lus une fois dans les proprietes systeme
+public class ConsumerConfig {
+
+    public enum Dispatcher {
+        // un thread virtuel par worker, peu couteux tant que les workers attendent le broker
+        VIRTUAL,
+        // un pool de threads plateforme de taille fixe, un thread par worker
+        FIXED
+    }
+
+    public enum OverloadPolicy {
+        // le worker jms attend une place : le broker garde les messages non valides
+        BLOCK,
+        // le plus ancien message en attente est jete pour faire de la place
+        DROP_OLDEST,
+        // le nouveau message est jete
+        SHED
+    }
+
+    public enum AckMode {
+        // un accuse par message, envoye par le client jms
+        AUTO,
+        // session transactionnelle validee tous les N messages ou toutes les T millisecondes
+        TRANSACTED
+    }
+
+    private static final ConsumerConfig INSTANCE = new ConsumerConfig();
+
+    private final int captureConcurrency;
+    private final int trainerConcurrency;
+    private final long receiveTimeoutMs;
+    private final Dispatcher dispatcher;
+    private final AckMode ackMode;
+    private final int commitBatchSize;
+    private final long commitIntervalMs;
+    private final String brokerUrl;
+    private final long reconnectInitialMs;
+    private final long reconnectMaxMs;
+    private final int pipelineCapacity;
+    private final int pipelineBatchSize;
+    private final OverloadPolicy overloadPolicy;
+    private final String managementAddress;
+    private final long metricsWindowMs;
+    private final long brokerPollMs;
+    private final long maxBacklog;
+    private final long maxDeliveryLagMs;
+    private final int longPollThreads;
+    private final int longPollQueueCapacity;
+
+    private ConsumerConfig() {
+        this.captureConcurrency = Math.max(1, Integer.getInteger("pokedex.consumer.captures.concurrency", 4));
+        this.trainerConcurrency = Math.max(1, Integer.getInteger("pokedex.consumer.trainers.concurrency", 1));
+        this.receiveTimeoutMs = Long.getLong("pokedex.consumer.receiveTimeoutMs", 1000L);
+        this.dispatcher = Dispatcher.valueOf(System.getProperty("pokedex.consumer.dispatcher", Dispatcher.VIRTUAL.name()));
+        this.ackMode = AckMode.valueOf(System.getProperty("pokedex.consumer.ackMode", AckMode.TRANSACTED.name()));
+        this.commitBatchSize = Math.max(1, Integer.getInteger("pokedex.consumer.commit.batchSize", 100));
+        this.commitIntervalMs = Math.max(1L, Long.getLong("pokedex.consumer.commit.intervalMs", 50L));
+        this.brokerUrl = System.getProperty("pokedex.consumer.broker.url", "tcp://localhost:61616");
+        this.reconnectInitialMs = Math.max(1L, Long.getLong("pokedex.consumer.reconnect.initialMs", 500L));
+        this.reconnectMaxMs = Math.max(reconnectInitialMs, Long.getLong("pokedex.consumer.reconnect.maxMs", 30_000L));
+        this.pipelineCapacity = Math.max(1, Integer.getInteger("pokedex.consumer.pipeline.capacity", 10_000));
+        this.pipelineBatchSize = Math.max(1, Integer.getInteger("pokedex.consumer.pipeline.batchSize", 256));
+        this.overloadPolicy = OverloadPolicy.valueOf(System.getProperty("pokedex.consumer.pipeline.overloadPolicy", OverloadPolicy.BLOCK.name()));
+        this.managementAddress = System.getProperty("pokedex.consumer.broker.managementAddress", "activemq.management");
+        this.metricsWindowMs = Math.max(1000L, Long.getLong("pokedex.consumer.health.windowMs", 60_000L));
+        this.brokerPollMs = Math.max(100L, Long.getLong("pokedex.consumer.health.brokerPollMs", 5000L));
+        this.maxBacklog = Long.getLong("pokedex.consumer.health.maxBacklog", 10_000L);
+        this.maxDeliveryLagMs = Long.getLong("pokedex.consumer.health.maxDeliveryLagMs", 30_000L);
+        this.longPollThreads = Math.max(1, Integer.getInteger("pokedex.consumer.longPoll.threads", 4));
+        this.longPollQueueCapacity = Math.max(1, Integer.getInteger("pokedex.consumer.longPoll.queueCapacity", 1000));
+    }
+
+    public static ConsumerConfig getInstance() {
+        return INSTANCE;
+    }
+
+    // nombre de sessions (et donc de workers) ouvertes sur la queue captures
+    public int getCaptureConcurrency() {
+        return captureConcurrency;
+    }
+
+    // nombre de sessions ouvertes sur la queue trainers
+    public int getTrainerConcurrency() {
+        return trainerConcurrency;
+    }
+
+    // duree max d'un receive, permet aux workers de voir l'arret du moteur
+    public long getReceiveTimeoutMs() {
+        return receiveTimeoutMs;
+    }
+
+    public Dispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    public AckMode getAckMode() {
+        return ackMode;
+    }
+
+    // nombre max de messages recus avant de valider la transaction
+    public int getCommitBatchSize() {
+        return commitBatchSize;
+    }
+
+    // delai max entre le premier message non valide et le commit
+    public long getCommitIntervalMs() {
+        return commitIntervalMs;
+    }
+
+    public String getBrokerUrl() {
+        return brokerUrl;
+    }
+
+    // delai avant la premiere tentative de reconnexion, double a chaque echec
+    public long getReconnectInitialMs() {
+        return reconnectInitialMs;
+    }
+
+    // delai max entre deux tentatives de reconnexion
+    public long getReconnectMaxMs() {
+        return reconnectMaxMs;
+    }
+
+    // nombre max de messages decodes en attente d'etre appliques
+    public int getPipelineCapacity() {
+        return pipelineCapacity;
+    }
+
+    // nombre max de messages appliques d'un coup au journal et aux agregats
+    public int getPipelineBatchSize() {
+        return pipelineBatchSize;
+    }
+
+    // que faire quand la file du pipeline est pleine
+    public OverloadPolicy getOverloadPolicy() {
+        return overloadPolicy;
+    }
+
+    // adresse des messages de management d'artemis
+    public String getManagementAddress() {
+        return managementAddress;
+    }
+
+    // duree d'une fenetre des mesures par queue (debit, percentiles)
+    public long getMetricsWindowMs() {
+        return metricsWindowMs;
+    }
+
+    // intervalle entre deux lectures de la profondeur des queues sur le broker
+    public long getBrokerPollMs() {
+        return brokerPollMs;
+    }
+
+    // messages en attente sur le broker au-dela desquels le consumer est DEGRADED
+    public long getMaxBacklog() {
+        return maxBacklog;
+    }
+
+    // p99 du delai de livraison au-dela duquel le consumer est DEGRADED
+    public long getMaxDeliveryLagMs() {
+        return maxDeliveryLagMs;
+    }
+
+    // threads qui relisent la page et repondent aux long-polls reveilles
+    public int getLongPollThreads() {
+        return longPollThreads;
+    }
+
+    // long-polls reveilles en attente d'un de ces threads, au-dela la requete recoit un 503
+    public int getLongPollQueueCapacity() {
+        return longPollQueueCapacity;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// compteurs des lectures de management faites sur le broker
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BrokerMonitorStats {
+    private String managementAddress;
+    private Long pollMs;
+    private Long polls;
+    private Long failedPolls;
+    private Long lastPollAt;
+    private Long lastSuccessAt;
+    private String lastError;
+}
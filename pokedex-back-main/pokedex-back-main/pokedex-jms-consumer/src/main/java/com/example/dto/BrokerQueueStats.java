@@ -0,0 +1,24 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// etat d'une queue cote broker a la derniere lecture de management
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BrokerQueueStats {
+    private String queue;
+    private Long updatedAt;
+    private Long messageCount;
+    private Long deliveringCount;
+    private Long consumerCount;
+    private Long messagesAdded;
+    private Long messagesAcknowledged;
+    private Double addedPerSecond;
+    private Double acknowledgedPerSecond;
+    private Double estimatedDrainSeconds; // null si la queue ne se vide pas au rythme actuel
+}
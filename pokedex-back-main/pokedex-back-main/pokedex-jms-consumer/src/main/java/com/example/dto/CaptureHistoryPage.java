@@ -0,0 +1,24 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.List;
+
+// page de l'historique des captures du CaptureStore : le client repasse `before` dans
+// ?before= pour la page suivante, null quand l'historique garde est entierement lu
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CaptureHistoryPage implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private List<MessagePage.SequencedMessage<CaptureMessage>> captures; // du plus recent au plus ancien
+    private Long before;
+    private Long storedCaptures;
+}
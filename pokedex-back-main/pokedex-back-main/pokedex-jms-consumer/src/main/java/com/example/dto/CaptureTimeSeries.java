@@ -0,0 +1,33 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// nombre de captures par tranche de temps fixe (minute ou heure), pour les tableaux de bord
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CaptureTimeSeries implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String bucket;
+    private List<BucketCount> buckets; // de la plus ancienne a la plus recente
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BucketCount implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private LocalDateTime start;
+        private Long captures;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// etat de la connexion au broker et compteurs de reconnexion
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConnectionStats {
+    private String state;
+    private String brokerUrl;
+    private Long stateSince;
+    private Long stateMillis;
+    private Long attempts;
+    private Integer failedAttempts;
+    private Long connections;
+    private Long connectionLosses;
+    // null hors de l'etat WAITING
+    private Long nextAttemptInMs;
+    private Long disconnectedForMs;
+    // null tant qu'aucune reconnexion n'a eu lieu
+    private Long lastReconnectMillis;
+    private Long maxReconnectMillis;
+    private String lastError;
+    private Long reconnectInitialMs;
+    private Long reconnectMaxMs;
+}
@@ -0,0 +1,26 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// message mis en quarantaine : queue d'origine, raison de l'echec et nombre d'occurrences
+// (les copies identiques recues ensuite ne sont pas stockees a nouveau)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeadLetter {
+    private Long id;
+    private String queue;
+    private String messageId;
+    private String reason;
+    private String detail;
+    private Long quarantinedAt;
+    private Long lastSeenAt;
+    private Long occurrences;
+    private Integer sizeBytes;
+    // contenu du message en base64, seulement dans le detail d'une entree
+    private String payload;
+}
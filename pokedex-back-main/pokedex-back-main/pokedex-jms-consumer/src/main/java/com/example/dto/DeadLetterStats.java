@@ -0,0 +1,31 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Map;
+
+// compteurs de la quarantaine des messages illisibles
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeadLetterStats {
+    private Boolean enabled;
+    private String directory;
+    private Integer entries;
+    private Integer maxEntries;
+    private Long storedBytes;
+    private Long maxBytes;
+    private Long quarantined;
+    private Map<String, Long> quarantinedByReason;
+    private Long duplicates; // copies identiques d'une entree deja gardee
+    private Long notStored; // au-dela de maxWritesPerSecond, comptes sans etre ecrits
+    private Integer maxWritesPerSecond;
+    private Long evicted;
+    private Long replayed;
+    private Long deleted;
+    private Long writeErrors;
+}
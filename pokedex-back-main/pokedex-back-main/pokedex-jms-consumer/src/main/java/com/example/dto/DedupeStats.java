@@ -0,0 +1,36 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// compteurs du dedoublonnage des captures par eventId. les champs des filtres de bloom sont
+// null quand le dedoublonnage est desactive
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DedupeStats {
+    private Boolean enabled;
+    private Long checked;
+    private Long withoutEventId;
+    private Long accepted;
+    private Long exactDuplicates;
+    private Long probableDuplicates;
+    private String probablePolicy;
+    private Double duplicateRate;
+    private Double averageNanosPerCapture;
+    private Integer exactSize;
+    private Integer exactIds;
+    private Long windowMs;
+    private Long expectedPerWindow;
+    private Double fpp;
+    private Long rotations;
+    private Integer bloomHashes;
+    private Long bloomBitsPerFilter;
+    private Long currentWindowIds;
+    private Long previousWindowIds;
+    private Double currentExpectedFpp;
+    private Long memoryBytes;
+}
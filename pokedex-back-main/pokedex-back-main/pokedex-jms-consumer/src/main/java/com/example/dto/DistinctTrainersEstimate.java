@@ -0,0 +1,24 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+// nombre approximatif (HyperLogLog) de trainers distincts ayant capture un pokemon, ou
+// n'importe quel pokemon quand pokemonId est null
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DistinctTrainersEstimate implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long pokemonId;
+    private String pokemonName;
+    private Long distinctTrainers;
+    private Double standardError; // erreur relative type, 0.023 = 2.3 %
+}
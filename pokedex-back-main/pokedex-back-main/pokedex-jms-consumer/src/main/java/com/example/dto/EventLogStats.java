@@ -0,0 +1,29 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// compteurs du journal durable : segments, ajouts, duree et debit du rejeu au demarrage
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventLogStats {
+    private Boolean enabled;
+    private String directory;
+    private String fsyncPolicy;
+    private Integer segmentSizeBytes;
+    private Integer segments;
+    private Integer maxSegments;
+    private Long appendedRecords;
+    private Long appendedBytes;
+    private Long deletedSegments;
+    private Long corruptedRecords;
+    private Long replayedRecords;
+    private Long replayedBytes;
+    private Long replayMillis;
+    private Double replayRecordsPerSecond;
+    private Long startupMillis;
+}
@@ -0,0 +1,67 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// profondeur, debit et latence de chaque etape du pipeline d'ingestion
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestPipelineStats {
+    private Boolean running;
+    private Integer batchSize;
+    private Receive receive;
+    private Queue queue;
+    private Apply apply;
+
+    // reception et decodage, somme des workers du moteur
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Receive {
+        private Long messages;
+        private Double messagesPerSecond;
+        private Double averageDecodeMillis;
+        private Double maxDecodeMillis;
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Queue {
+        private String overloadPolicy;
+        private Integer capacity;
+        private Integer depth;
+        private Long maxDepth;
+        private Long submitted;
+        private Long droppedOldest;
+        private Long shed;
+        private Long abandoned; // soumissions abandonnees apres l'arret du pipeline
+        private Long missingFromViews; // messages valides absents des vues jusqu'au prochain demarrage
+        private Long blockedSubmits;
+        private Double blockedMillis;
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Apply {
+        private Long batches;
+        private Long messages;
+        private Long captures;
+        private Long trainers;
+        private Long errors;
+        private Double averageBatchSize;
+        private Double messagesPerSecond;
+        private Double averageQueueMillis;
+        private Double maxQueueMillis;
+        private Double averageBatchMillis;
+        private Double maxBatchMillis;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// abonnes du flux sse et evenements envoyes, sautes ou perdus par deconnexion
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class LiveFeedStats {
+    private Integer subscribers;
+    private Integer maxSubscribers;
+    private Integer bufferSize;
+    private String dropPolicy;
+    private Long publishedEvents;
+    private Long sentEvents;
+    private Long droppedEvents;
+    private Long slowDisconnects;
+    private Long totalSubscribed;
+    private Long rejectedSubscribers;
+}
@@ -0,0 +1,34 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.List;
+
+// messages recus apres un curseur : le client repasse `cursor` dans ?after= pour la suite
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessagePage<T> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private List<SequencedMessage<T>> messages; // du plus ancien au plus recent
+    private Long cursor;
+    private Long missedMessages; // messages deja sortis du journal recent depuis le curseur
+    private Long epoch; // demarrage du consumer qui a numerote les messages, a repasser dans ?epoch=
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SequencedMessage<T> implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private Long sequence;
+        private T message;
+    }
+}
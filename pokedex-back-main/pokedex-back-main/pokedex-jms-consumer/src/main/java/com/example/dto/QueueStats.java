@@ -0,0 +1,37 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// mesures d'une queue cote consumer, tous workers confondus, sur la fenetre en cours et la
+// precedente
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueueStats {
+    private String queue;
+    private Long messages;
+    private Long windowMessages;
+    private Double windowSeconds;
+    private Double messagesPerSecond;
+    private Long lastMessageAt;
+    private Long lastMessageAgeMs;
+    private Long lastBrokerTimestamp;
+    private Percentiles processingMillis;
+    private Percentiles deliveryLagMillis;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Percentiles {
+        private Double p50;
+        private Double p90;
+        private Double p99;
+        private Double p999;
+        private Double max;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.List;
+
+// top K approximatif (Space-Saving) des pokemons ou des trainers les plus captures
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopCaptures implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String category;
+    private Long observedCaptures;
+    private Integer sketchCapacity;
+    private Long errorBound; // erreur max sur un compteur : observedCaptures / sketchCapacity
+    private List<HeavyHitter> top;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class HeavyHitter implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private Long id;
+        private String name;
+        private Long estimatedCount; // jamais en dessous de la vraie valeur
+        private Long maxError;
+        private Long guaranteedCount; // estimatedCount - maxError, jamais au dessus de la vraie valeur
+    }
+}
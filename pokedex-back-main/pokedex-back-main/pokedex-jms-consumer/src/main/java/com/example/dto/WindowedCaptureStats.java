@@ -0,0 +1,38 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// captures sur une fenetre de temps glissante (derniere minute, heure, jour)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class WindowedCaptureStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String window;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private Long totalCaptures;
+    private List<WindowCount> trainers; // captures par trainer, ordre decroissant
+    private List<WindowCount> pokemons; // captures par pokemon, ordre decroissant
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class WindowCount implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private Long id;
+        private String name;
+        private Long count;
+    }
+}
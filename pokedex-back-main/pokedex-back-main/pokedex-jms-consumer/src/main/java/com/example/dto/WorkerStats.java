@@ -0,0 +1,29 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// compteurs d'un worker du moteur de consommation (une session jms sur une queue)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkerStats {
+    private String queue;
+    private Integer worker;
+    private Boolean running;
+    private Long messages;
+    private Long errors;
+    private Long commits;
+    private Long rollbacks;
+    private Long redelivered;
+    // sessions rouvertes apres une erreur jms
+    private Long sessionRestarts;
+    private Double messagesPerCommit;
+    private Double messagesPerSecond;
+    private Double averageProcessingMillis;
+    private Double maxProcessingMillis;
+    private Long lastMessageAt;
+}
@@ -0,0 +1,249 @@
+package com.example.messaging;
+
+import com.example.config.ConsumerConfig;
+import com.example.dto.BrokerMonitorStats;
+import com.example.dto.BrokerQueueStats;
+import org.apache.activemq.artemis.api.core.management.ResourceNames;
+import org.apache.activemq.artemis.api.jms.management.JMSManagementHelper;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TemporaryQueue;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// lit periodiquement l'etat des queues cote broker avec les messages de management d'artemis
+// (une requete par attribut sur l'adresse de management, la reponse arrive sur une queue
+// temporaire). la lecture se fait sur une connexion a part, depuis un thread de fond : l'api
+// rest ne renvoie que le dernier resultat et ne sollicite jamais le broker
+public class BrokerMonitor {
+
+    private static final Logger logger = Logger.getLogger(BrokerMonitor.class.getName());
+    private static final BrokerMonitor INSTANCE = new BrokerMonitor(ConsumerConfig.getInstance());
+
+    private static final String[] ATTRIBUTES = {"messageCount", "deliveringCount", "consumerCount", "messagesAdded", "messagesAcknowledged"};
+
+    private final ConsumerConfig config;
+    private final Map<String, QueueState> queues = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+    private ConnectionFactory connectionFactory;
+    private List<String> queueNames;
+    // connexion de management, ouverte a la premiere lecture et refaite apres une erreur
+    private Connection connection;
+    private Session session;
+    private MessageProducer producer;
+    private MessageConsumer replies;
+    private TemporaryQueue replyQueue;
+
+    private volatile long lastPollAt;
+    private volatile long lastSuccessAt;
+    private volatile String lastError;
+    private volatile long polls;
+    private volatile long failedPolls;
+
+    private BrokerMonitor(ConsumerConfig config) {
+        this.config = config;
+    }
+
+    public static BrokerMonitor getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized void start(ConnectionFactory connectionFactory, List<String> queueNames) {
+        if (scheduler != null) {
+            return;
+        }
+        this.connectionFactory = connectionFactory;
+        this.queueNames = queueNames;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "broker-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::poll, 0, config.getBrokerPollMs(), TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = scheduler;
+            scheduler = null;
+        }
+        if (current == null) {
+            return;
+        }
+        current.shutdownNow();
+        try {
+            current.awaitTermination(config.getBrokerPollMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        disconnect();
+    }
+
+    // appele uniquement sur le thread du scheduler
+    private void poll() {
+        long now = System.currentTimeMillis();
+        lastPollAt = now;
+        polls++;
+        try {
+            if (connection == null) {
+                connect();
+            }
+            for (String queueName : queueNames) {
+                long[] values = new long[ATTRIBUTES.length];
+                for (int i = 0; i < ATTRIBUTES.length; i++) {
+                    values[i] = readAttribute(queueName, ATTRIBUTES[i]);
+                }
+                queues.computeIfAbsent(queueName, QueueState::new).update(now, values);
+            }
+            lastSuccessAt = now;
+            lastError = null;
+        } catch (Exception e) {
+            failedPolls++;
+            lastError = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            logger.log(Level.FINE, "unable to read queue state from artemis", e);
+            disconnect();
+        }
+    }
+
+    private void connect() throws JMSException {
+        connection = connectionFactory.createConnection();
+        session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        producer = session.createProducer(session.createQueue(config.getManagementAddress()));
+        replyQueue = session.createTemporaryQueue();
+        replies = session.createConsumer(replyQueue);
+        connection.start();
+    }
+
+    private long readAttribute(String queueName, String attribute) throws Exception {
+        Message request = session.createMessage();
+        JMSManagementHelper.putAttribute(request, ResourceNames.QUEUE + queueName, attribute);
+        request.setJMSReplyTo(replyQueue);
+        producer.send(request);
+        Message reply = replies.receive(config.getBrokerPollMs());
+        if (reply == null) {
+            throw new IllegalStateException("no management reply for " + queueName + "." + attribute);
+        }
+        Object result = JMSManagementHelper.getResult(reply);
+        if (!JMSManagementHelper.hasOperationSucceeded(reply) || !(result instanceof Number)) {
+            throw new IllegalStateException("unable to read " + queueName + "." + attribute + ": " + result);
+        }
+        return ((Number) result).longValue();
+    }
+
+    private void disconnect() {
+        if (connection != null) {
+            try {
+                // fermer la connexion ferme aussi la session et la queue temporaire
+                connection.close();
+            } catch (JMSException e) {
+                logger.log(Level.FINE, "error closing management connection", e);
+            }
+        }
+        connection = null;
+        session = null;
+        producer = null;
+        replies = null;
+        replyQueue = null;
+    }
+
+    // profondeur des queues a la derniere lecture ; null si le broker n'a jamais repondu
+    public BrokerQueueStats getQueueStats(String queueName) {
+        QueueState state = queues.get(queueName);
+        return state == null ? null : state.getStats();
+    }
+
+    // plus grand nombre de messages en attente sur les queues suivies, -1 si inconnu
+    public long getMaxBacklog() {
+        long max = -1;
+        for (QueueState state : queues.values()) {
+            max = Math.max(max, state.messageCount);
+        }
+        return max;
+    }
+
+    // vrai si la derniere lecture a reussi
+    public boolean isFresh() {
+        return lastSuccessAt != 0 && lastSuccessAt == lastPollAt;
+    }
+
+    public BrokerMonitorStats getStats() {
+        long pollAt = lastPollAt;
+        long successAt = lastSuccessAt;
+        return new BrokerMonitorStats(
+                config.getManagementAddress(),
+                config.getBrokerPollMs(),
+                polls,
+                failedPolls,
+                pollAt == 0 ? null : pollAt,
+                successAt == 0 ? null : successAt,
+                lastError
+        );
+    }
+
+    private static final class QueueState {
+        private final String queueName;
+        private volatile long updatedAt;
+        private volatile long messageCount;
+        private volatile long deliveringCount;
+        private volatile long consumerCount;
+        private volatile long messagesAdded;
+        private volatile long messagesAcknowledged;
+        // debits calcules entre deux lectures
+        private volatile double addedPerSecond;
+        private volatile double acknowledgedPerSecond;
+
+        private QueueState(String queueName) {
+            this.queueName = queueName;
+        }
+
+        private void update(long now, long[] values) {
+            long previousAt = updatedAt;
+            long previousAdded = messagesAdded;
+            long previousAcknowledged = messagesAcknowledged;
+            messageCount = values[0];
+            deliveringCount = values[1];
+            consumerCount = values[2];
+            messagesAdded = values[3];
+            messagesAcknowledged = values[4];
+            // les compteurs repartent de zero si le broker redemarre
+            if (previousAt != 0 && now > previousAt && values[3] >= previousAdded && values[4] >= previousAcknowledged) {
+                double seconds = (now - previousAt) / 1000.0;
+                addedPerSecond = (values[3] - previousAdded) / seconds;
+                acknowledgedPerSecond = (values[4] - previousAcknowledged) / seconds;
+            }
+            updatedAt = now;
+        }
+
+        private BrokerQueueStats getStats() {
+            long count = messageCount;
+            // temps pour vider la queue au rythme actuel, null si elle ne se vide pas
+            double drainRate = acknowledgedPerSecond - addedPerSecond;
+            return new BrokerQueueStats(
+                    queueName,
+                    updatedAt,
+                    count,
+                    deliveringCount,
+                    consumerCount,
+                    messagesAdded,
+                    messagesAcknowledged,
+                    addedPerSecond,
+                    acknowledgedPerSecond,
+                    count == 0 ? 0.0 : drainRate > 0 ? count / drainRate : null
+            );
+        }
+    }
+}
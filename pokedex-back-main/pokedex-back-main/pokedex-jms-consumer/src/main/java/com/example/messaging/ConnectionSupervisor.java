@@ -0,0 +1,239 @@
+package com.example.messaging;
+
+import com.example.config.ConsumerConfig;
+import com.example.dto.ConnectionStats;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// gere la connexion au broker en arriere-plan : le demarrage de l'application n'attend pas
+// artemis, une connexion qui echoue est retentee avec un delai exponentiel et aleatoire
+// (pour que plusieurs consumers ne se reconnectent pas tous en meme temps), et une connexion
+// perdue (ExceptionListener) est refaite puis les workers sont relances.
+// toutes les transitions passent par un seul thread, il n'y a donc jamais deux tentatives
+// en parallele
+public class ConnectionSupervisor {
+
+    private static final Logger logger = Logger.getLogger(ConnectionSupervisor.class.getName());
+    private static final ConnectionSupervisor INSTANCE = new ConnectionSupervisor(ConsumerEngine.getInstance());
+
+    public enum State {
+        // pas encore demarre ou arrete
+        STOPPED,
+        // tentative de connexion en cours
+        CONNECTING,
+        // connecte, les workers consomment
+        CONNECTED,
+        // en attente de la prochaine tentative
+        WAITING
+    }
+
+    // ouvre les consumers sur une connexion toute neuve
+    @FunctionalInterface
+    public interface Subscriber {
+        void subscribe(ConsumerEngine engine) throws JMSException;
+    }
+
+    private final ConsumerEngine engine;
+    private final ConsumerConfig config;
+
+    private ScheduledExecutorService scheduler;
+    private ConnectionFactory connectionFactory;
+    private Subscriber subscriber;
+    private Connection connection;
+    // incremente a chaque connexion : une erreur d'une ancienne connexion est ignoree
+    private long generation;
+
+    private volatile State state = State.STOPPED;
+    private volatile long stateSince = System.currentTimeMillis();
+    private volatile int failedAttempts;
+    private volatile long attempts;
+    private volatile long connections;
+    private volatile long connectionLosses;
+    private volatile long nextAttemptAt;
+    private volatile long disconnectedAt;
+    private volatile long lastReconnectMillis = -1;
+    private volatile long maxReconnectMillis;
+    private volatile String lastError;
+
+    ConnectionSupervisor(ConsumerEngine engine) {
+        this.engine = engine;
+        this.config = engine.getConfig();
+    }
+
+    public static ConnectionSupervisor getInstance() {
+        return INSTANCE;
+    }
+
+    // lance la premiere tentative en arriere-plan et retourne tout de suite
+    public synchronized void start(ConnectionFactory connectionFactory, Subscriber subscriber) {
+        if (scheduler != null) {
+            return;
+        }
+        this.connectionFactory = connectionFactory;
+        this.subscriber = subscriber;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jms-connection");
+            thread.setDaemon(true);
+            return thread;
+        });
+        disconnectedAt = System.currentTimeMillis();
+        scheduler.execute(this::connect);
+    }
+
+    public void stop() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = scheduler;
+            scheduler = null;
+        }
+        if (current == null) {
+            return;
+        }
+        current.shutdownNow();
+        try {
+            current.awaitTermination(config.getReceiveTimeoutMs() * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        disconnect();
+        setState(State.STOPPED);
+    }
+
+    // appele uniquement sur le thread du scheduler
+    private void connect() {
+        setState(State.CONNECTING);
+        attempts++;
+        try {
+            Connection newConnection = connectionFactory.createConnection();
+            connection = newConnection;
+            long current = ++generation;
+            // l'ExceptionListener est appele sur un thread du client jms : on ne fait que
+            // planifier la reconnexion sur notre thread
+            newConnection.setExceptionListener(e -> onConnectionLost(current, e));
+            newConnection.start();
+            engine.start(newConnection);
+            subscriber.subscribe(engine);
+        } catch (Exception e) {
+            disconnect();
+            failedAttempts++;
+            lastError = e.getMessage();
+            long delay = nextDelay();
+            logger.log(Level.WARNING, "Unable to connect to artemis (" + config.getBrokerUrl() + "), attempt "
+                    + failedAttempts + ", retrying in " + delay + " ms: " + e.getMessage());
+            schedule(delay);
+            return;
+        }
+        long reconnectMillis = System.currentTimeMillis() - disconnectedAt;
+        if (connections > 0) {
+            lastReconnectMillis = reconnectMillis;
+            maxReconnectMillis = Math.max(maxReconnectMillis, reconnectMillis);
+        }
+        connections++;
+        failedAttempts = 0;
+        setState(State.CONNECTED);
+        logger.info("Connected to artemis (" + config.getBrokerUrl() + ") after " + reconnectMillis + " ms");
+    }
+
+    private void onConnectionLost(long lostGeneration, JMSException e) {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = scheduler;
+        }
+        if (current == null) {
+            return;
+        }
+        try {
+            current.execute(() -> {
+                if (lostGeneration != generation || state != State.CONNECTED) {
+                    return;
+                }
+                logger.log(Level.WARNING, "Connection to artemis lost, reconnecting: " + e.getMessage());
+                connectionLosses++;
+                lastError = e.getMessage();
+                disconnectedAt = System.currentTimeMillis();
+                disconnect();
+                // premiere tentative apres le delai initial, puis backoff
+                schedule(nextDelay());
+            });
+        } catch (RejectedExecutionException ignored) {
+            // arret en cours
+        }
+    }
+
+    // arrete les workers et ferme la connexion courante
+    private void disconnect() {
+        engine.stop();
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (JMSException e) {
+                logger.log(Level.FINE, "error closing jms connection", e);
+            }
+            connection = null;
+        }
+    }
+
+    private void schedule(long delay) {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = scheduler;
+        }
+        if (current == null) {
+            return;
+        }
+        nextAttemptAt = System.currentTimeMillis() + delay;
+        setState(State.WAITING);
+        try {
+            current.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {
+            // arret en cours
+        }
+    }
+
+    // initialMs * 2^echecs, plafonne a maxMs, puis tire au hasard entre la moitie et le tout
+    private long nextDelay() {
+        int exponent = Math.min(failedAttempts, 30);
+        long ceiling = Math.min(config.getReconnectMaxMs(), config.getReconnectInitialMs() << exponent);
+        long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+    }
+
+    private void setState(State newState) {
+        state = newState;
+        stateSince = System.currentTimeMillis();
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public ConnectionStats getStats() {
+        long now = System.currentTimeMillis();
+        return new ConnectionStats(
+                state.name(),
+                config.getBrokerUrl(),
+                stateSince,
+                now - stateSince,
+                attempts,
+                failedAttempts,
+                connections,
+                connectionLosses,
+                state == State.WAITING ? Math.max(0L, nextAttemptAt - now) : null,
+                state == State.CONNECTED ? 0L : now - disconnectedAt,
+                lastReconnectMillis < 0 ? null : lastReconnectMillis,
+                maxReconnectMillis,
+                lastError,
+                config.getReconnectInitialMs(),
+                config.getReconnectMaxMs()
+        );
+    }
+}
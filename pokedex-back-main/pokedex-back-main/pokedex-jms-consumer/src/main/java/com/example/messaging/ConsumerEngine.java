@@ -0,0 +1,453 @@
+package com.example.messaging;
+
+import com.example.config.ConsumerConfig;
+import com.example.dto.QueueStats;
+import com.example.dto.WorkerStats;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.Session;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// moteur de consommation : N workers par queue, chacun avec sa session et sa boucle de
+// receive. les workers tournent sur des threads virtuels ou sur un pool fixe selon la config.
+// en mode transactionnel un worker valide sa session tous les N messages ou toutes les
+// T millisecondes, et l'annule si un message ne peut pas etre traite.
+//
+// livraison at-least-once : les messages du lot sont journalises, puis la session est validee,
+// puis ils sont appliques aux vues en memoire. si le commit echoue, le broker relivre le lot :
+// les vues ne l'ont pas encore vu, et le journal n'est pas rempli deux fois (ids des messages
+// journalises mais non valides). seul un crash entre journal et commit fait relire un message
+// deja journalise ; les captures sont alors ecartees par leur eventId, les creations de
+// trainer par leur trainerId.
+//
+// une erreur jms (receive, commit, rollback) ne tue pas le worker : il ferme sa session, ce qui
+// rend ses messages non valides au broker, et en rouvre une avec un delai croissant. une
+// connexion perdue est signalee a part par l'ExceptionListener au ConnectionSupervisor, qui
+// arrete le moteur et relance les workers
+public class ConsumerEngine {
+
+    private static final Logger logger = Logger.getLogger(ConsumerEngine.class.getName());
+    private static final ConsumerEngine INSTANCE = new ConsumerEngine();
+    private static final int MAX_PERSISTED_NOT_COMMITTED = 10_000;
+
+    private final ConsumerConfig config = ConsumerConfig.getInstance();
+    private final List<Worker> workers = new CopyOnWriteArrayList<>();
+    // mesures par queue, gardees quand les workers sont recrees apres une reconnexion
+    private final Map<String, QueueMetrics> queueMetrics = new ConcurrentHashMap<>();
+    // ids des messages journalises dont le commit a echoue : le broker peut les relivrer a
+    // n'importe quel worker de la queue, qui ne les journalise pas une seconde fois. borne, les
+    // plus anciens sont oublies
+    private final Set<String> persistedNotCommitted = new LinkedHashSet<>();
+
+    private ExecutorService executor;
+    private Connection connection;
+    private volatile boolean running;
+
+    ConsumerEngine() {}
+
+    public static ConsumerEngine getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized void start(Connection connection) {
+        this.connection = connection;
+        if (config.getDispatcher() == ConsumerConfig.Dispatcher.VIRTUAL) {
+            executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("jms-worker-", 0).factory());
+        } else {
+            AtomicInteger threadNumber = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(config.getCaptureConcurrency() + config.getTrainerConcurrency(), runnable -> {
+                Thread thread = new Thread(runnable, "jms-worker-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        running = true;
+    }
+
+    // ouvre `concurrency` sessions sur la queue et lance un worker par session
+    public synchronized void subscribe(String queueName, int concurrency, MessageHandler handler) throws JMSException {
+        boolean transacted = config.getAckMode() == ConsumerConfig.AckMode.TRANSACTED;
+        for (int i = 0; i < concurrency; i++) {
+            QueueMetrics metrics = queueMetrics.computeIfAbsent(queueName, name -> new QueueMetrics(name, config.getMetricsWindowMs()));
+            Worker worker = new Worker(queueName, i, handler, transacted, metrics);
+            worker.openSession();
+            workers.add(worker);
+            executor.execute(worker);
+        }
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            // les workers sortent au plus tard apres un timeout de receive
+            if (!executor.awaitTermination(config.getReceiveTimeoutMs() * 2, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+        for (Worker worker : workers) {
+            worker.close();
+        }
+        workers.clear();
+        executor = null;
+    }
+
+    public ConsumerConfig getConfig() {
+        return config;
+    }
+
+    public List<WorkerStats> getWorkerStats() {
+        List<WorkerStats> stats = new ArrayList<>(workers.size());
+        for (Worker worker : workers) {
+            stats.add(worker.getStats());
+        }
+        return stats;
+    }
+
+    private void rememberPersisted(List<Uncommitted> messages) {
+        synchronized (persistedNotCommitted) {
+            for (Uncommitted message : messages) {
+                if (message.messageId != null) {
+                    persistedNotCommitted.add(message.messageId);
+                }
+            }
+            Iterator<String> oldest = persistedNotCommitted.iterator();
+            while (persistedNotCommitted.size() > MAX_PERSISTED_NOT_COMMITTED) {
+                oldest.next();
+                oldest.remove();
+            }
+        }
+    }
+
+    private boolean isPersisted(String messageId) {
+        synchronized (persistedNotCommitted) {
+            return messageId != null && persistedNotCommitted.contains(messageId);
+        }
+    }
+
+    private void forgetPersisted(List<Uncommitted> messages) {
+        synchronized (persistedNotCommitted) {
+            if (persistedNotCommitted.isEmpty()) {
+                return;
+            }
+            for (Uncommitted message : messages) {
+                if (message.messageId != null) {
+                    persistedNotCommitted.remove(message.messageId);
+                }
+            }
+        }
+    }
+
+    // debit, age du dernier message et percentiles de latence de chaque queue
+    public Map<String, QueueStats> getQueueMetrics() {
+        Map<String, QueueStats> result = new LinkedHashMap<>();
+        for (QueueMetrics metrics : queueMetrics.values()) {
+            QueueStats stats = metrics.getStats();
+            result.put(stats.getQueue(), stats);
+        }
+        return result;
+    }
+
+    private final class Worker implements Runnable {
+        private final String queueName;
+        private final int index;
+        // remplaces apres une erreur jms, close() les lit depuis le thread qui arrete le moteur
+        private volatile Session session;
+        private volatile MessageConsumer consumer;
+        private final MessageHandler handler;
+        private final boolean transacted;
+        private final QueueMetrics metrics;
+
+        // messages recus depuis le dernier commit
+        private final List<Uncommitted> uncommitted = new ArrayList<>();
+        private long commitDeadline;
+
+        // un seul thread ecrit les compteurs, les lectures viennent de l'api rest
+        private final AtomicLong messages = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong commits = new AtomicLong();
+        private final AtomicLong committedMessages = new AtomicLong();
+        private final AtomicLong rollbacks = new AtomicLong();
+        private final AtomicLong redelivered = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLong sessionRestarts = new AtomicLong();
+        private volatile long startedAt;
+        private volatile long lastMessageAt;
+        private volatile boolean active;
+
+        private Worker(String queueName, int index, MessageHandler handler, boolean transacted, QueueMetrics metrics) {
+            this.queueName = queueName;
+            this.index = index;
+            this.handler = handler;
+            this.transacted = transacted;
+            this.metrics = metrics;
+        }
+
+        private void openSession() throws JMSException {
+            Session newSession = transacted
+                    ? connection.createSession(true, Session.SESSION_TRANSACTED)
+                    : connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            try {
+                consumer = newSession.createConsumer(newSession.createQueue(queueName));
+            } catch (JMSException | RuntimeException e) {
+                closeQuietly(newSession);
+                throw e;
+            }
+            session = newSession;
+        }
+
+        @Override
+        public void run() {
+            startedAt = System.currentTimeMillis();
+            active = true;
+            try {
+                while (running) {
+                    try {
+                        Message message = consumer.receive(nextReceiveTimeout());
+                        if (message != null) {
+                            process(message);
+                        }
+                        if (transacted && !uncommitted.isEmpty()
+                                && (uncommitted.size() >= config.getCommitBatchSize() || System.currentTimeMillis() >= commitDeadline)) {
+                            commit();
+                        }
+                    } catch (JMSException | RuntimeException e) {
+                        if (!running) {
+                            // la session est fermee par l'arret, le broker relivrera le lot
+                            uncommitted.clear();
+                            break;
+                        }
+                        logger.log(Level.WARNING, "worker " + index + " on " + queueName
+                                + " hit a jms error, reopening its session", e);
+                        reopenSession();
+                    }
+                }
+                // arret propre : on valide ce qui a deja ete traite
+                if (transacted && !uncommitted.isEmpty()) {
+                    commit();
+                }
+            } catch (JMSException | RuntimeException e) {
+                logger.log(Level.WARNING, "worker " + index + " on " + queueName + " could not commit on shutdown,"
+                        + " the broker will redeliver the uncommitted messages", e);
+            } catch (InterruptedException e) {
+                // arret force du moteur pendant l'attente d'une nouvelle session
+                Thread.currentThread().interrupt();
+            } finally {
+                active = false;
+            }
+        }
+
+        // ferme la session fautive : le broker relivrera ses messages non valides, deja
+        // retenus dans persistedNotCommitted s'ils ont ete journalises. puis en ouvre une
+        // nouvelle, avec le meme delai croissant que les reconnexions, jusqu'a l'arret du moteur
+        private void reopenSession() throws InterruptedException {
+            uncommitted.clear();
+            closeQuietly(session);
+            sessionRestarts.incrementAndGet();
+            long delay = config.getReconnectInitialMs();
+            while (running) {
+                Thread.sleep(delay);
+                if (!running) {
+                    return;
+                }
+                try {
+                    openSession();
+                    logger.info("worker " + index + " on " + queueName + " reopened its session");
+                    return;
+                } catch (JMSException | RuntimeException e) {
+                    delay = Math.min(delay * 2, config.getReconnectMaxMs());
+                    logger.log(Level.WARNING, "worker " + index + " on " + queueName + " could not reopen its session,"
+                            + " retrying in " + delay + " ms: " + e.getMessage());
+                }
+            }
+        }
+
+        // on n'attend pas plus longtemps que l'echeance du commit en cours
+        private long nextReceiveTimeout() {
+            if (!transacted || uncommitted.isEmpty()) {
+                return config.getReceiveTimeoutMs();
+            }
+            return Math.max(1L, Math.min(config.getReceiveTimeoutMs(), commitDeadline - System.currentTimeMillis()));
+        }
+
+        private void process(Message message) throws JMSException {
+            boolean isRedelivery = message.getJMSRedelivered();
+            if (isRedelivery) {
+                redelivered.incrementAndGet();
+                // un message rejoue est traite seul pour qu'un message empoisonne ne fasse
+                // pas annuler encore et encore les messages sains du meme lot
+                if (transacted && !uncommitted.isEmpty()) {
+                    commit();
+                }
+            }
+
+            long brokerTimestamp = message.getJMSTimestamp();
+            String messageId = message.getJMSMessageID();
+            long start = System.nanoTime();
+            MessageEffect effect;
+            try {
+                effect = handler.handle(message);
+            } catch (Exception e) {
+                errors.incrementAndGet();
+                logger.log(Level.SEVERE, "error processing message from " + queueName
+                        + (transacted ? ", rolling back " + (uncommitted.size() + 1) + " message(s) for redelivery" : ""), e);
+                if (transacted) {
+                    rollback();
+                }
+                return;
+            } finally {
+                record(System.nanoTime() - start, brokerTimestamp);
+            }
+
+            if (!transacted) {
+                if (effect != null) {
+                    effect.persist();
+                    apply(effect);
+                }
+                return;
+            }
+            if (uncommitted.isEmpty()) {
+                commitDeadline = System.currentTimeMillis() + config.getCommitIntervalMs();
+            }
+            uncommitted.add(new Uncommitted(messageId, effect));
+            if (isRedelivery) {
+                commit();
+            }
+        }
+
+        private void commit() throws JMSException {
+            int persisted = 0;
+            try {
+                for (Uncommitted message : uncommitted) {
+                    // deja journalise lors d'une livraison dont le commit a echoue
+                    if (message.effect != null && !isPersisted(message.messageId)) {
+                        message.effect.persist();
+                    }
+                    persisted++;
+                }
+            } catch (RuntimeException e) {
+                errors.incrementAndGet();
+                logger.log(Level.SEVERE, "error persisting " + uncommitted.size() + " message(s) from " + queueName
+                        + ", rolling back for redelivery", e);
+                rememberPersisted(uncommitted.subList(0, persisted));
+                rollback();
+                return;
+            }
+            try {
+                session.commit();
+            } catch (JMSException | RuntimeException e) {
+                // le broker va relivrer le lot : il est journalise mais pas encore applique
+                rememberPersisted(uncommitted);
+                uncommitted.clear();
+                rollbacks.incrementAndGet();
+                throw e;
+            }
+            forgetPersisted(uncommitted);
+            commits.incrementAndGet();
+            committedMessages.addAndGet(uncommitted.size());
+            for (Uncommitted message : uncommitted) {
+                try {
+                    apply(message.effect);
+                } catch (RuntimeException e) {
+                    // le message est valide et journalise : il reviendra au prochain demarrage
+                    errors.incrementAndGet();
+                    logger.log(Level.SEVERE, "message from " + queueName + " committed but not applied to the"
+                            + " in-memory views, it will be restored from the event log on restart", e);
+                }
+            }
+            uncommitted.clear();
+        }
+
+        private void rollback() throws JMSException {
+            uncommitted.clear();
+            session.rollback();
+            rollbacks.incrementAndGet();
+        }
+
+        private void apply(MessageEffect effect) {
+            if (effect != null) {
+                effect.apply();
+            }
+        }
+
+        private void record(long elapsed, long brokerTimestamp) {
+            metrics.record(elapsed, brokerTimestamp);
+            messages.incrementAndGet();
+            totalNanos.addAndGet(elapsed);
+            maxNanos.accumulateAndGet(elapsed, Math::max);
+            lastMessageAt = System.currentTimeMillis();
+        }
+
+        private void close() {
+            closeQuietly(session);
+        }
+
+        // fermer la session ferme aussi son consumer
+        private void closeQuietly(Session target) {
+            if (target == null) {
+                return;
+            }
+            try {
+                target.close();
+            } catch (JMSException | RuntimeException e) {
+                logger.log(Level.FINE, "error closing worker session", e);
+            }
+        }
+
+        private WorkerStats getStats() {
+            long count = messages.get();
+            double uptimeSeconds = startedAt == 0 ? 0.0 : (System.currentTimeMillis() - startedAt) / 1000.0;
+            return new WorkerStats(
+                    queueName,
+                    index,
+                    active,
+                    count,
+                    errors.get(),
+                    commits.get(),
+                    rollbacks.get(),
+                    redelivered.get(),
+                    sessionRestarts.get(),
+                    commits.get() == 0 ? 0.0 : committedMessages.get() / (double) commits.get(),
+                    uptimeSeconds <= 0 ? 0.0 : count / uptimeSeconds,
+                    count == 0 ? 0.0 : totalNanos.get() / (double) count / 1_000_000.0,
+                    maxNanos.get() / 1_000_000.0,
+                    lastMessageAt == 0 ? null : lastMessageAt
+            );
+        }
+    }
+
+    private static final class Uncommitted {
+        private final String messageId;
+        private final MessageEffect effect;
+
+        private Uncommitted(String messageId, MessageEffect effect) {
+            this.messageId = messageId;
+            this.effect = effect;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.example.messaging;
+
+import com.example.config.ConsumerConfig;
+import com.example.dto.CaptureMessage;
+import com.example.dto.IngestPipelineStats;
+import com.example.dto.TrainerMessage;
+import com.example.dto.WorkerStats;
+import com.example.service.EventLog;
+import com.example.service.MessageLogService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// pipeline entre la reception jms et les vues en memoire :
+// 1. reception et decodage sur les workers du ConsumerEngine (une session par worker, ce qui
+//    garde l'ordre des groupes JMSXGroupID), puis ajout au journal durable au commit
+// 2. file bornee de messages decodes, alimentee par tous les workers apres le commit jms
+// 3. un thread d'application qui vide la file par lots et les applique au journal recent,
+//    au store et aux agregats
+// le decodage reste avant la file : un message illisible doit etre mis en quarantaine au lieu
+// d'etre journalise, et cette decision est prise avant le commit. il est reparti sur les N
+// workers au lieu de charger le thread d'application, qui est seul.
+//
+// un agregat lent ne bloque donc plus la livraison du broker tant que la file n'est pas
+// pleine. quand elle l'est, la politique choisit entre attendre (BLOCK), jeter le plus ancien
+// (DROP_OLDEST) ou jeter le nouveau (SHED).
+// ATTENTION : avec DROP_OLDEST et SHED, un message jete est deja valide aupres du broker et
+// ne sera pas relivre. il est dans le journal durable mais manque aux vues en memoire
+// (derniers messages, store, agregats, flux live) jusqu'au prochain demarrage. ces pertes
+// sont comptees (missingFromViews), loguees et rendent /api/health DEGRADED
+public class IngestPipeline {
+
+    private static final Logger logger = Logger.getLogger(IngestPipeline.class.getName());
+    private static final long DROP_WARNING_INTERVAL_MS = 10_000L;
+    private static final IngestPipeline INSTANCE = new IngestPipeline(ConsumerConfig.getInstance(), ConsumerEngine.getInstance());
+
+    private final int capacity;
+    private final int batchSize;
+    private final ConsumerConfig.OverloadPolicy overloadPolicy;
+    private final ConsumerEngine engine;
+    private final BlockingQueue<Item> queue;
+
+    private Thread applier;
+    private volatile boolean running;
+    // vrai une fois le thread d'application arrete : plus rien ne videra la file
+    private volatile boolean stopped;
+    private volatile long startedAt;
+
+    // file
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong droppedOldest = new AtomicLong();
+    private final AtomicLong shed = new AtomicLong();
+    private final AtomicLong abandoned = new AtomicLong();
+    private final AtomicLong lastDropWarningAt = new AtomicLong();
+    private final AtomicLong blockedSubmits = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+    private final AtomicLong maxDepth = new AtomicLong();
+    // application, un seul thread ecrit ces compteurs
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong appliedItems = new AtomicLong();
+    private final AtomicLong appliedCaptures = new AtomicLong();
+    private final AtomicLong appliedTrainers = new AtomicLong();
+    private final AtomicLong applyErrors = new AtomicLong();
+    private final AtomicLong applyNanos = new AtomicLong();
+    private final AtomicLong maxApplyNanos = new AtomicLong();
+    private final AtomicLong queueNanos = new AtomicLong();
+    private final AtomicLong maxQueueNanos = new AtomicLong();
+
+    private IngestPipeline(ConsumerConfig config, ConsumerEngine engine) {
+        this(config.getPipelineCapacity(), config.getPipelineBatchSize(), config.getOverloadPolicy(), engine);
+    }
+
+    IngestPipeline(int capacity, int batchSize, ConsumerConfig.OverloadPolicy overloadPolicy, ConsumerEngine engine) {
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.overloadPolicy = overloadPolicy;
+        this.engine = engine;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    public static IngestPipeline getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        stopped = false;
+        startedAt = System.currentTimeMillis();
+        applier = new Thread(this::applyLoop, "ingest-apply");
+        applier.setDaemon(true);
+        applier.start();
+    }
+
+    // arrete le thread d'application apres avoir applique ce qui reste dans la file
+    public void stop() {
+        Thread current;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            current = applier;
+            applier = null;
+        }
+        try {
+            current.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            stopped = true;
+        }
+    }
+
+    public void submitCaptures(List<CaptureMessage> captures) {
+        submit(new Item(captures, null));
+    }
+
+    public void submitTrainer(TrainerMessage trainer) {
+        submit(new Item(null, trainer));
+    }
+
+    // message encode qui ne vient pas d'une session jms (rejeu d'un message en quarantaine) :
+    // decode, journalise puis soumis comme un message recu. leve MalformedMessageException
+    // si le message est toujours illisible, sans rien journaliser
+    public void ingest(byte[] bytes) {
+        if (MessageCodec.readType(bytes) == MessageCodec.TYPE_TRAINER) {
+            TrainerMessage trainer = MessageCodec.decodeTrainer(bytes);
+            EventLog.getInstance().append(bytes);
+            submitTrainer(trainer);
+        } else {
+            List<CaptureMessage> captures = MessageCodec.decodeCaptures(bytes);
+            EventLog.getInstance().append(bytes);
+            submitCaptures(captures);
+        }
+    }
+
+    // appele apres le commit jms : le message ne sera pas relivre, une soumission perdue ne
+    // revient qu'au prochain rejeu du journal
+    private void submit(Item item) {
+        submitted.incrementAndGet();
+        if (!queue.offer(item)) {
+            switch (overloadPolicy) {
+                case BLOCK:
+                    if (!putCommitted(item)) {
+                        abandoned.incrementAndGet();
+                        warnMissingFromViews();
+                        return;
+                    }
+                    break;
+                case DROP_OLDEST:
+                    while (!queue.offer(item)) {
+                        if (queue.poll() != null) {
+                            droppedOldest.incrementAndGet();
+                            warnMissingFromViews();
+                        }
+                    }
+                    break;
+                default:
+                    shed.incrementAndGet();
+                    warnMissingFromViews();
+                    return;
+            }
+        }
+        maxDepth.accumulateAndGet(queue.size(), Math::max);
+    }
+
+    // attend une place meme si le thread est interrompu (arret force des workers) : le message
+    // est deja valide, l'abandonner le ferait manquer aux vues. n'abandonne que si le thread
+    // d'application est arrete, la file ne se viderait plus. l'interruption est remise ensuite
+    private boolean putCommitted(Item item) {
+        long start = System.nanoTime();
+        blockedSubmits.incrementAndGet();
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    if (queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                    if (stopped) {
+                        return false;
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            blockedNanos.addAndGet(System.nanoTime() - start);
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // au plus un avertissement par intervalle, avec le total
+    private void warnMissingFromViews() {
+        long now = System.currentTimeMillis();
+        long last = lastDropWarningAt.get();
+        if (now - last >= DROP_WARNING_INTERVAL_MS && lastDropWarningAt.compareAndSet(last, now)) {
+            logger.warning("ingest pipeline full (" + overloadPolicy.name() + "): " + getMissingFromViews()
+                    + " committed message(s) are missing from the in-memory views until the next restart");
+        }
+    }
+
+    // messages valides aupres du broker qui n'atteindront pas les vues en memoire
+    public long getMissingFromViews() {
+        return droppedOldest.get() + shed.get() + abandoned.get();
+    }
+
+    private void applyLoop() {
+        List<Item> batch = new ArrayList<>(batchSize);
+        List<CaptureMessage> captures = new ArrayList<>();
+        while (true) {
+            try {
+                Item first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                apply(batch, captures);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                applyErrors.incrementAndGet();
+                logger.log(Level.SEVERE, "error applying " + batch.size() + " ingested message(s)", e);
+            } finally {
+                batch.clear();
+                captures.clear();
+            }
+        }
+    }
+
+    // les captures du lot sont ajoutees en une fois, dans l'ordre de la file
+    private void apply(List<Item> batch, List<CaptureMessage> captures) {
+        long start = System.nanoTime();
+        MessageLogService messageLogService = MessageLogService.getInstance();
+        long trainers = 0;
+        for (Item item : batch) {
+            long waited = start - item.enqueuedAt;
+            queueNanos.addAndGet(waited);
+            maxQueueNanos.accumulateAndGet(waited, Math::max);
+            if (item.captures != null) {
+                captures.addAll(item.captures);
+            } else {
+                // une creation de trainer coupe le lot pour garder l'ordre entre les deux types
+                messageLogService.addCaptureMessages(captures);
+                appliedCaptures.addAndGet(captures.size());
+                captures.clear();
+                messageLogService.addTrainerMessage(item.trainer);
+                trainers++;
+            }
+        }
+        messageLogService.addCaptureMessages(captures);
+        appliedCaptures.addAndGet(captures.size());
+        appliedTrainers.addAndGet(trainers);
+        appliedItems.addAndGet(batch.size());
+        batches.incrementAndGet();
+        long elapsed = System.nanoTime() - start;
+        applyNanos.addAndGet(elapsed);
+        maxApplyNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    // profondeur, debit et latence de chaque etape
+    public IngestPipelineStats getStats() {
+        double uptimeSeconds = startedAt == 0 ? 0.0 : (System.currentTimeMillis() - startedAt) / 1000.0;
+
+        // reception et decodage : somme des workers du moteur
+        long received = 0;
+        double processingMillis = 0.0;
+        double maxProcessingMillis = 0.0;
+        for (WorkerStats worker : engine.getWorkerStats()) {
+            received += worker.getMessages();
+            processingMillis += worker.getAverageProcessingMillis() * worker.getMessages();
+            maxProcessingMillis = Math.max(maxProcessingMillis, worker.getMaxProcessingMillis());
+        }
+        IngestPipelineStats.Receive receive = new IngestPipelineStats.Receive(
+                received,
+                uptimeSeconds <= 0 ? 0.0 : received / uptimeSeconds,
+                received == 0 ? 0.0 : processingMillis / received,
+                maxProcessingMillis
+        );
+
+        IngestPipelineStats.Queue queueStats = new IngestPipelineStats.Queue(
+                overloadPolicy.name(),
+                capacity,
+                queue.size(),
+                maxDepth.get(),
+                submitted.get(),
+                droppedOldest.get(),
+                shed.get(),
+                abandoned.get(),
+                getMissingFromViews(),
+                blockedSubmits.get(),
+                blockedNanos.get() / 1_000_000.0
+        );
+
+        long items = appliedItems.get();
+        long batchCount = batches.get();
+        IngestPipelineStats.Apply apply = new IngestPipelineStats.Apply(
+                batchCount,
+                items,
+                appliedCaptures.get(),
+                appliedTrainers.get(),
+                applyErrors.get(),
+                batchCount == 0 ? 0.0 : items / (double) batchCount,
+                uptimeSeconds <= 0 ? 0.0 : items / uptimeSeconds,
+                items == 0 ? 0.0 : queueNanos.get() / (double) items / 1_000_000.0,
+                maxQueueNanos.get() / 1_000_000.0,
+                batchCount == 0 ? 0.0 : applyNanos.get() / (double) batchCount / 1_000_000.0,
+                maxApplyNanos.get() / 1_000_000.0
+        );
+
+        return new IngestPipelineStats(running, batchSize, receive, queueStats, apply);
+    }
+
+    // message decode en attente d'application : un lot de captures ou une creation de trainer
+    private static final class Item {
+        private final List<CaptureMessage> captures;
+        private final TrainerMessage trainer;
+        private final long enqueuedAt = System.nanoTime();
+
+        private Item(List<CaptureMessage> captures, TrainerMessage trainer) {
+            this.captures = captures;
+            this.trainer = trainer;
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.example.messaging;
 
+import com.example.config.ConsumerConfig;
 import com.example.dto.CaptureMessage;
 import com.example.dto.TrainerMessage;
+import com.example.service.DeadLetterStore;
+import com.example.service.EventLog;
 import com.example.service.MessageLogService;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
@@ -9,8 +12,8 @@ import jakarta.ejb.Singleton;
 import jakarta.ejb.Startup;
 
 import javax.jms.*;
-import java.io.ByteArrayInputStream;
-import java.io.ObjectInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -21,164 +24,168 @@ public class JmsMessageListener {
     
     private static final Logger logger = Logger.getLogger(JmsMessageListener.class.getName());
     
-    private static final String BROKER_URL = "tcp://localhost:61616";
     private static final String CAPTURES_QUEUE = "captures";
     private static final String TRAINERS_QUEUE = "trainers";
     
-    private Connection connection;
-    private Session session;
-    private MessageConsumer capturesConsumer;
-    private MessageConsumer trainersConsumer;
+    private final ConnectionSupervisor connectionSupervisor;
+    private final BrokerMonitor brokerMonitor;
+    private final IngestPipeline ingestPipeline;
+    private final EventLog eventLog;
+    private final DeadLetterStore deadLetterStore;
+    
+    public JmsMessageListener() {
+        this(ConnectionSupervisor.getInstance(), BrokerMonitor.getInstance(), IngestPipeline.getInstance(),
+                EventLog.getInstance(), DeadLetterStore.getInstance());
+    }
+    
+    JmsMessageListener(ConnectionSupervisor connectionSupervisor, BrokerMonitor brokerMonitor, IngestPipeline ingestPipeline,
+                       EventLog eventLog, DeadLetterStore deadLetterStore) {
+        this.connectionSupervisor = connectionSupervisor;
+        this.brokerMonitor = brokerMonitor;
+        this.ingestPipeline = ingestPipeline;
+        this.eventLog = eventLog;
+        this.deadLetterStore = deadLetterStore;
+    }
     
     @PostConstruct
     public void init() {
         logger.info("Initializing jms message listener...");
-        connect();
+        // l'etat en memoire est reconstruit depuis le journal avant de recevoir de nouveaux messages
+        eventLog.open(this::replayMessage);
+        deadLetterStore.open();
+        ingestPipeline.start();
+        // la connexion est faite en arriere-plan, et refaite si artemis est absent ou tombe :
+        // le demarrage n'attend pas le broker
+        String brokerUrl = ConsumerConfig.getInstance().getBrokerUrl();
+        connectionSupervisor.start(
+                new org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory(brokerUrl),
+                this::subscribe);
+        // profondeur des queues cote broker, lue sur une connexion a part pour /api/health
+        brokerMonitor.start(
+                new org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory(brokerUrl),
+                List.of(CAPTURES_QUEUE, TRAINERS_QUEUE));
     }
     
-    private void connect() {
-        try {
-            ConnectionFactory connectionFactory = new org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory(BROKER_URL);
-
-            connection = connectionFactory.createConnection();
-            connection.start();
-            
-            session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
-   
-            // queue pour les captures de pokemon
-            Queue capturesQueue = session.createQueue(CAPTURES_QUEUE);
-            capturesConsumer = session.createConsumer(capturesQueue);
-            capturesConsumer.setMessageListener(message -> {
-                try {
-                    handleCaptureMessage(message);
-                } catch (Exception e) {
-                    logger.log(Level.SEVERE, "error processing capture message", e);
-                }
-            });
-            
-            // queue pour les trainers qui s'inscrivent
-            Queue trainersQueue = session.createQueue(TRAINERS_QUEUE);
-            trainersConsumer = session.createConsumer(trainersQueue);
-            trainersConsumer.setMessageListener(message -> {
-                try {
-                    handleTrainerMessage(message);
-                } catch (Exception e) {
-                    logger.log(Level.SEVERE, "error processing trainer message", e);
-                }
-            });
-            
-            logger.info("Jms message listener initialized successfully. waiting for messages on queues: " + CAPTURES_QUEUE + " and " + TRAINERS_QUEUE);
-            
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "Unable to connect to artemis (" + BROKER_URL + "). application will continue without jms. Error: " + e.getMessage());
-            logger.log(Level.SEVERE, "Jms connection error details", e);
-        }
+    // appele a chaque (re)connexion, sur une connexion neuve
+    private void subscribe(ConsumerEngine engine) throws JMSException {
+        // les captures portent un JMSXGroupID par voie de trainers : artemis livre un groupe
+        // a un seul worker, l'ordre des captures d'un trainer est donc conserve
+        int captureConcurrency = engine.getConfig().getCaptureConcurrency();
+        engine.subscribe(CAPTURES_QUEUE, captureConcurrency, this::handleCaptureMessage);
+        
+        // queue pour les trainers qui s'inscrivent
+        int trainerConcurrency = engine.getConfig().getTrainerConcurrency();
+        engine.subscribe(TRAINERS_QUEUE, trainerConcurrency, this::handleTrainerMessage);
+        
+        logger.info("Jms message listener initialized successfully. waiting for messages on queues: " + CAPTURES_QUEUE
+                + " (" + captureConcurrency + " workers) and " + TRAINERS_QUEUE + " (" + trainerConcurrency + " workers), "
+                + engine.getConfig().getDispatcher().name().toLowerCase() + " dispatcher, "
+                + engine.getConfig().getAckMode().name().toLowerCase() + " acknowledgement");
     }
 
-    private void handleCaptureMessage(Message message) {
+    // un message illisible est mis en quarantaine au commit au lieu d'etre relivre : le
+    // decodage echouerait de la meme facon a chaque livraison. les autres exceptions remontent
+    // au worker du moteur qui les compte et annule la transaction ; l'ajout au journal n'est
+    // fait qu'au commit
+    MessageEffect handleCaptureMessage(Message message) throws JMSException {
+        if (!(message instanceof BytesMessage)) {
+            return quarantineUnsupported(CAPTURES_QUEUE, message);
+        }
+        byte[] bytes = readBody((BytesMessage) message);
+        // un message peut contenir une seule capture ou un batch de captures
+        List<CaptureMessage> captureMessages;
         try {
-            if (message instanceof ObjectMessage) {
-                ObjectMessage objectMessage = (ObjectMessage) message;
-                Object obj = objectMessage.getObject();
-                
-                if (obj instanceof CaptureMessage) {
-                    CaptureMessage captureMessage = (CaptureMessage) obj;
-                    
-                    // log le message de capture recu
-                    logger.info(String.format(
-                        "capture message received - trainer: %s (id: %d) caught %s (id: %d) on %s",
-                        captureMessage.getTrainerName(),
-                        captureMessage.getTrainerId(),
-                        captureMessage.getPokemonName(),
-                        captureMessage.getPokemonId(),
-                        captureMessage.getCaptureDate()
-                    ));
-                    
-                    MessageLogService.getInstance().addCaptureMessage(captureMessage);
-                    
-                } else {
-                    logger.warning("capture message received but unexpected type: " + obj.getClass().getName());
-                }
-            } else if (message instanceof BytesMessage) {
-                BytesMessage bytesMessage = (BytesMessage) message;
-                byte[] bytes = new byte[(int) bytesMessage.getBodyLength()];
-                bytesMessage.readBytes(bytes);
-                
-                try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
-                    Object obj = ois.readObject();
-                    if (obj instanceof CaptureMessage) {
-                        CaptureMessage captureMessage = (CaptureMessage) obj;
-                        
-                        logger.info(String.format(
-                            "Capture message received (bytes) - trainer: %s (id: %d) caught %s (id: %d)",
-                            captureMessage.getTrainerName(),
-                            captureMessage.getTrainerId(),
-                            captureMessage.getPokemonName(),
-                            captureMessage.getPokemonId()
-                        ));
-                        
-                        MessageLogService.getInstance().addCaptureMessage(captureMessage);
-                    }
-                }
-            } else {
-                logger.warning("Unsupported message type: " + message.getClass().getName());
+            captureMessages = MessageCodec.decodeCaptures(bytes);
+        } catch (RuntimeException e) {
+            return quarantine(CAPTURES_QUEUE, message, bytes, e);
+        }
+        
+        // log les messages de capture recus
+        if (logger.isLoggable(Level.FINE)) {
+            for (CaptureMessage captureMessage : captureMessages) {
+                logger.fine(String.format(
+                    "capture message received - trainer: %s (id: %d) caught %s (id: %d) on %s",
+                    captureMessage.getTrainerName(),
+                    captureMessage.getTrainerId(),
+                    captureMessage.getPokemonName(),
+                    captureMessage.getPokemonId(),
+                    captureMessage.getCaptureDate()
+                ));
             }
-            
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "Error processing jms capture message", e);
         }
+        
+        // journalise avant le commit : un message accuse est toujours dans le journal.
+        // l'application aux vues en memoire, apres le commit, est faite par lots par le pipeline
+        return new MessageEffect(
+                () -> eventLog.append(bytes),
+                () -> ingestPipeline.submitCaptures(captureMessages));
     }
     
-    private void handleTrainerMessage(Message message) {
+    MessageEffect handleTrainerMessage(Message message) throws JMSException {
+        if (!(message instanceof BytesMessage)) {
+            return quarantineUnsupported(TRAINERS_QUEUE, message);
+        }
+        byte[] bytes = readBody((BytesMessage) message);
+        TrainerMessage trainerMessage;
         try {
-            if (message instanceof ObjectMessage) {
-                ObjectMessage objectMessage = (ObjectMessage) message;
-                Object obj = objectMessage.getObject();
-                
-                if (obj instanceof TrainerMessage) {
-                    TrainerMessage trainerMessage = (TrainerMessage) obj;
-                    
-                    // log le message de creation de trainer
-                    logger.info(String.format(
-                        "Trainer created - %s (id: %d, email: %s) on %s",
-                        trainerMessage.getTrainerName(),
-                        trainerMessage.getTrainerId(),
-                        trainerMessage.getTrainerEmail(),
-                        trainerMessage.getRegistrationDate()
-                    ));
-                    
-                    MessageLogService.getInstance().addTrainerMessage(trainerMessage);
-                    
-                } else {
-                    logger.warning("Trainer message received but unexpected type: " + obj.getClass().getName());
-                }
-            } else if (message instanceof BytesMessage) {
-                BytesMessage bytesMessage = (BytesMessage) message;
-                byte[] bytes = new byte[(int) bytesMessage.getBodyLength()];
-                bytesMessage.readBytes(bytes);
-                
-                try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
-                    Object obj = ois.readObject();
-                    if (obj instanceof TrainerMessage) {
-                        TrainerMessage trainerMessage = (TrainerMessage) obj;
-                        
-                        logger.info(String.format(
-                            "Trainer created (bytes) - %s (id: %d, email: %s)",
-                            trainerMessage.getTrainerName(),
-                            trainerMessage.getTrainerId(),
-                            trainerMessage.getTrainerEmail()
-                        ));
-                        
-                        MessageLogService.getInstance().addTrainerMessage(trainerMessage);
-                    }
-                }
-            } else {
-                logger.warning("Unsupported message type: " + message.getClass().getName());
-            }
-            
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "Error processing jms trainer message", e);
+            trainerMessage = MessageCodec.decodeTrainer(bytes);
+        } catch (RuntimeException e) {
+            return quarantine(TRAINERS_QUEUE, message, bytes, e);
         }
+        
+        // log le message de creation de trainer
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine(String.format(
+                "Trainer created - %s (id: %d, email: %s) on %s",
+                trainerMessage.getTrainerName(),
+                trainerMessage.getTrainerId(),
+                trainerMessage.getTrainerEmail(),
+                trainerMessage.getRegistrationDate()
+            ));
+        }
+        
+        return new MessageEffect(
+                () -> eventLog.append(bytes),
+                () -> ingestPipeline.submitTrainer(trainerMessage));
+    }
+    
+    // message relu depuis le journal au demarrage
+    private void replayMessage(byte[] bytes) {
+        if (MessageCodec.readType(bytes) == MessageCodec.TYPE_TRAINER) {
+            MessageLogService.getInstance().addTrainerMessage(MessageCodec.decodeTrainer(bytes));
+        } else {
+            MessageLogService.getInstance().addCaptureMessages(MessageCodec.decodeCaptures(bytes));
+        }
+    }
+    
+    // les messages arrivent en BytesMessage encodes par MessageCodec
+    private byte[] readBody(BytesMessage message) throws JMSException {
+        byte[] bytes = new byte[(int) message.getBodyLength()];
+        message.readBytes(bytes);
+        return bytes;
+    }
+    
+    // message non decodable : acquitte et garde en quarantaine au commit
+    private MessageEffect quarantine(String queue, Message message, byte[] bytes, RuntimeException e) throws JMSException {
+        DeadLetterStore.FailureReason reason = e instanceof MessageCodec.MalformedMessageException
+                ? DeadLetterStore.FailureReason.valueOf(((MessageCodec.MalformedMessageException) e).getReason().name())
+                : DeadLetterStore.FailureReason.DECODE_ERROR;
+        String detail = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+        String messageId = message.getJMSMessageID();
+        return new MessageEffect(() -> deadLetterStore.quarantine(queue, messageId, reason, detail, bytes), null);
+    }
+    
+    // la serialisation java (ObjectMessage) n'est plus acceptee : on garde le texte d'un
+    // TextMessage, rien pour les autres types
+    private MessageEffect quarantineUnsupported(String queue, Message message) throws JMSException {
+        byte[] bytes = message instanceof TextMessage && ((TextMessage) message).getText() != null
+                ? ((TextMessage) message).getText().getBytes(StandardCharsets.UTF_8)
+                : new byte[0];
+        String detail = "unsupported jms message type " + message.getClass().getName();
+        String messageId = message.getJMSMessageID();
+        return new MessageEffect(
+                () -> deadLetterStore.quarantine(queue, messageId, DeadLetterStore.FailureReason.UNSUPPORTED_JMS_TYPE, detail, bytes),
+                null);
     }
     
     @PreDestroy
@@ -186,18 +193,11 @@ public class JmsMessageListener {
         try {
             logger.info("Cleaning up jms message listener...");
             
-            if (capturesConsumer != null) {
-                capturesConsumer.close();
-            }
-            if (trainersConsumer != null) {
-                trainersConsumer.close();
-            }
-            if (session != null) {
-                session.close();
-            }
-            if (connection != null) {
-                connection.close();
-            }
+            brokerMonitor.stop();
+            connectionSupervisor.stop();
+            // applique ce qui a deja ete valide avant de fermer le journal
+            ingestPipeline.stop();
+            eventLog.close();
             
             logger.info("Jms message listener cleaned up successfully");
             
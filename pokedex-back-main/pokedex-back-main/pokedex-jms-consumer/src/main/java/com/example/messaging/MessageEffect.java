@@ -0,0 +1,27 @@
+package com.example.messaging;
+
+// effet d'un message recu, en deux temps : persist (journal durable, quarantaine) est joue
+// avant le commit jms, apply (vues en memoire) seulement une fois le commit reussi. un commit
+// qui echoue ne laisse donc rien dans les vues, et le message relivre n'y est ajoute qu'une fois
+public final class MessageEffect {
+
+    private final Runnable persist;
+    private final Runnable apply;
+
+    public MessageEffect(Runnable persist, Runnable apply) {
+        this.persist = persist;
+        this.apply = apply;
+    }
+
+    void persist() {
+        if (persist != null) {
+            persist.run();
+        }
+    }
+
+    void apply() {
+        if (apply != null) {
+            apply.run();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.messaging;
+
+import javax.jms.Message;
+
+// traitement d'un message recu par un worker du moteur de consommation : le message est
+// decode tout de suite, l'effet retourne est persiste avant le commit de la transaction et
+// applique aux vues en memoire apres (at-least-once : un rollback relivre le message, le
+// journal et les vues ne le voient qu'une fois tant que le consumer ne redemarre pas)
+@FunctionalInterface
+public interface MessageHandler {
+
+    MessageEffect handle(Message message) throws Exception;
+}
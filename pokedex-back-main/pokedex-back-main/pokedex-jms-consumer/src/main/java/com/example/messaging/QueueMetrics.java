@@ -0,0 +1,126 @@
+package com.example.messaging;
+
+import com.example.dto.QueueStats;
+import com.example.service.LatencyHistogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// mesures d'une queue, tous workers confondus, gardees d'une connexion a l'autre.
+// les histogrammes sont tournes tous les windowMs : les percentiles et le debit portent sur
+// la fenetre en cours et la precedente, soit entre une et deux fenetres de messages recents
+class QueueMetrics {
+
+    private final String queueName;
+    private final long windowMs;
+    private final AtomicLong messages = new AtomicLong();
+    private volatile long lastMessageAt;
+    private volatile long lastBrokerTimestamp;
+
+    private volatile Window current;
+    private volatile Window previous;
+
+    QueueMetrics(String queueName, long windowMs) {
+        this.queueName = queueName;
+        this.windowMs = windowMs;
+        this.current = new Window(System.currentTimeMillis());
+        this.previous = current;
+    }
+
+    // processingNanos : temps de traitement du message par le worker
+    // brokerTimestamp : JMSTimestamp du message (heure d'envoi par le producteur), 0 si absent
+    void record(long processingNanos, long brokerTimestamp) {
+        long now = System.currentTimeMillis();
+        Window window = windowAt(now);
+        window.processing.record(processingNanos);
+        if (brokerTimestamp > 0) {
+            // horloges du producteur et du consumer supposees synchronisees
+            window.deliveryLag.record((now - brokerTimestamp) * 1_000_000L);
+            lastBrokerTimestamp = brokerTimestamp;
+        }
+        messages.incrementAndGet();
+        lastMessageAt = now;
+    }
+
+    private Window windowAt(long now) {
+        Window window = current;
+        if (now - window.startedAt < windowMs) {
+            return window;
+        }
+        synchronized (this) {
+            window = current;
+            if (now - window.startedAt >= windowMs) {
+                // un writer en retard peut encore ecrire dans l'ancienne fenetre, qui reste lue
+                previous = window;
+                window = new Window(now);
+                current = window;
+            }
+            return window;
+        }
+    }
+
+    QueueStats getStats() {
+        long now = System.currentTimeMillis();
+        Window currentWindow = windowAt(now);
+        Window previousWindow = previous;
+        boolean sameWindow = previousWindow == currentWindow;
+        // la fenetre precedente a recu les messages jusqu'au debut de la fenetre en cours ; elle
+        // est ignoree si elle a commence plus de deux fenetres avant (queue restee inactive)
+        boolean usePrevious = !sameWindow && currentWindow.startedAt - previousWindow.startedAt < 2 * windowMs;
+        LatencyHistogram[] processing = usePrevious
+                ? new LatencyHistogram[]{previousWindow.processing, currentWindow.processing}
+                : new LatencyHistogram[]{currentWindow.processing};
+        LatencyHistogram[] deliveryLag = usePrevious
+                ? new LatencyHistogram[]{previousWindow.deliveryLag, currentWindow.deliveryLag}
+                : new LatencyHistogram[]{currentWindow.deliveryLag};
+        long since = usePrevious ? previousWindow.startedAt : currentWindow.startedAt;
+
+        long windowMessages = 0;
+        for (LatencyHistogram histogram : processing) {
+            windowMessages += histogram.getCount();
+        }
+        double windowSeconds = Math.max(1L, now - since) / 1000.0;
+
+        long lastAt = lastMessageAt;
+        long lastBrokerAt = lastBrokerTimestamp;
+        return new QueueStats(
+                queueName,
+                messages.get(),
+                windowMessages,
+                windowSeconds,
+                windowMessages / windowSeconds,
+                lastAt == 0 ? null : lastAt,
+                lastAt == 0 ? null : now - lastAt,
+                lastBrokerAt == 0 ? null : lastBrokerAt,
+                percentiles(processing),
+                percentiles(deliveryLag)
+        );
+    }
+
+    private static QueueStats.Percentiles percentiles(LatencyHistogram[] histograms) {
+        long max = 0;
+        for (LatencyHistogram histogram : histograms) {
+            max = Math.max(max, histogram.getMax());
+        }
+        return new QueueStats.Percentiles(
+                millis(LatencyHistogram.percentile(0.5, histograms)),
+                millis(LatencyHistogram.percentile(0.9, histograms)),
+                millis(LatencyHistogram.percentile(0.99, histograms)),
+                millis(LatencyHistogram.percentile(0.999, histograms)),
+                millis(max)
+        );
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static final class Window {
+        private final long startedAt;
+        private final LatencyHistogram processing = new LatencyHistogram();
+        private final LatencyHistogram deliveryLag = new LatencyHistogram();
+
+        private Window(long startedAt) {
+            this.startedAt = startedAt;
+        }
+    }
+}
@@ -2,7 +2,6 @@ package com.example.rest;
 
 import com.example.dto.AggregatedCaptureStats;
 import com.example.service.CaptureAggregator;
-import com.example.service.MessageLogService;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
@@ -14,21 +13,17 @@ import java.util.List;
 @Produces(MediaType.APPLICATION_JSON)
 public class AggregatedStatsResource {
     
-    private final MessageLogService messageLogService;
     private final CaptureAggregator captureAggregator;
     
     public AggregatedStatsResource() {
-        this.messageLogService = MessageLogService.getInstance();
         this.captureAggregator = CaptureAggregator.getInstance();
     }
     
-    // retourne les statistiques agregees pour tous les trainers
+    // retourne les statistiques agregees pour tous les trainers, tenues a jour a chaque capture recue
     @GET
     @Path("/stats")
     public Response getAllAggregatedStats() {
-        List<AggregatedCaptureStats> stats = captureAggregator.aggregateAllTrainers(
-                messageLogService.getAllCaptureMessages()
-        );
+        List<AggregatedCaptureStats> stats = captureAggregator.getAllTrainerStats();
         return Response.ok(stats).build();
     }
     
@@ -41,10 +36,7 @@ public class AggregatedStatsResource {
                     .entity("trainerId is required").build();
         }
         
-        AggregatedCaptureStats stats = captureAggregator.aggregateByTrainer(
-                trainerId,
-                messageLogService.getAllCaptureMessages()
-        );
+        AggregatedCaptureStats stats = captureAggregator.getTrainerStats(trainerId);
         
         if (stats == null) {
             return Response.status(Response.Status.NOT_FOUND)
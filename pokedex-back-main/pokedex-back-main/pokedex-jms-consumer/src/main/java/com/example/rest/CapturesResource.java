@@ -1,8 +1,12 @@
 package com.example.rest;
 
+import com.example.dto.CaptureHistoryPage;
 import com.example.dto.CaptureMessage;
+import com.example.service.CaptureStore;
 import com.example.service.MessageLogService;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.Suspended;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 
@@ -15,39 +19,82 @@ import java.util.Map;
 @Produces(MediaType.APPLICATION_JSON)
 public class CapturesResource {
     
+    private static final int MAX_HISTORY_LIMIT = 1000;
+    
     private final MessageLogService messageLogService;
+    private final CaptureStore captureStore;
     
     public CapturesResource() {
         this.messageLogService = MessageLogService.getInstance();
+        this.captureStore = CaptureStore.getInstance();
     }
 
-    // retourne toutes les captures
+    // retourne toutes les captures, ou avec ?after=<sequence> seulement celles recues apres ce
+    // curseur ; waitMs > 0 attend la prochaine si aucune n'est encore arrivee (long-poll)
     @GET
-    public Response getAllCaptures() {
-        List<CaptureMessage> messages = messageLogService.getAllCaptureMessages();
-        return Response.ok(messages).build();
+    public void getAllCaptures(@QueryParam("after") Long after,
+                       @QueryParam("epoch") Long epoch,
+                       @QueryParam("limit") Integer limit,
+                       @QueryParam("waitMs") @DefaultValue("0") long waitMs,
+                       @Suspended AsyncResponse response) {
+        if (after == null) {
+            List<CaptureMessage> messages = messageLogService.getAllCaptureMessages();
+            response.resume(Response.ok(messages).build());
+            return;
+        }
+        CursorReads.read(after, epoch, limit, waitMs, messageLogService.getMaxMessages(),
+                messageLogService.getEpoch(), messageLogService.getCaptureSequenceEnd(),
+                messageLogService::getCaptureMessagesAfter, messageLogService::awaitCaptureMessagesAfter, response);
     }
 
     // retourne les n captures les plus recentes
     @GET
     @Path("/recent")
     public Response getRecentCaptures(@QueryParam("limit") @DefaultValue("10") int limit) {
-        if (limit < 1 || limit > 100) {
+        int maxMessages = messageLogService.getMaxMessages();
+        if (limit < 1 || limit > maxMessages) {
             return Response.status(Response.Status.BAD_REQUEST)
-                    .entity("Limit must be between 1 and 100").build();
+                    .entity("Limit must be between 1 and " + maxMessages).build();
         }
         
         List<CaptureMessage> messages = messageLogService.getCaptureMessages(limit);
         return Response.ok(messages).build();
     }
 
+    // retourne l'historique complet des captures garde hors tas, du plus recent au plus ancien ;
+    // ?before= reprend a la page suivante, trainerId et pokemonId filtrent
+    @GET
+    @Path("/history")
+    public Response getCaptureHistory(@QueryParam("before") Long before,
+                                      @QueryParam("limit") @DefaultValue("100") int limit,
+                                      @QueryParam("trainerId") Long trainerId,
+                                      @QueryParam("pokemonId") Long pokemonId) {
+        if (limit < 1 || limit > MAX_HISTORY_LIMIT) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Limit must be between 1 and " + MAX_HISTORY_LIMIT).build();
+        }
+        if (before != null && before < 0) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("before must be positive").build();
+        }
+        CaptureHistoryPage page = messageLogService.getCaptureHistory(before == null ? Long.MAX_VALUE : before,
+                limit, trainerId, pokemonId);
+        return Response.ok(page).build();
+    }
+
     // retourne les statistiques des captures
     @GET
     @Path("/stats")
     public Response getStats() {
         Map<String, Object> stats = new HashMap<>();
         stats.put("totalMessages", messageLogService.getTotalCaptureCount());
-        stats.put("maxMessages", 100);
+        stats.put("maxMessages", messageLogService.getMaxMessages());
+        // historique complet hors tas
+        stats.put("storedCaptures", captureStore.size());
+        stats.put("storeCapacity", captureStore.capacity());
+        stats.put("totalCaptures", captureStore.totalAppended());
+        stats.put("storeOffHeapBytes", captureStore.offHeapBytes());
+        stats.put("dictionaryNames", captureStore.dictionarySize());
         
         return Response.ok(stats).build();
     }
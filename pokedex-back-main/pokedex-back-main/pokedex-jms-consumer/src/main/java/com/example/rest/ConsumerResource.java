@@ -0,0 +1,76 @@
+package com.example.rest;
+
+import com.example.config.ConsumerConfig;
+import com.example.dto.WorkerStats;
+import com.example.messaging.ConnectionSupervisor;
+import com.example.messaging.ConsumerEngine;
+import com.example.messaging.IngestPipeline;
+import com.example.service.CaptureDeduplicator;
+import com.example.service.EventLog;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// endpoint rest pour suivre les workers du moteur de consommation jms
+@Path("/consumer")
+@Produces(MediaType.APPLICATION_JSON)
+public class ConsumerResource {
+
+    private final ConsumerEngine consumerEngine;
+
+    public ConsumerResource() {
+        this.consumerEngine = ConsumerEngine.getInstance();
+    }
+
+    // retourne la configuration du moteur et les compteurs de chaque worker
+    @GET
+    @Path("/workers")
+    public Response getWorkers() {
+        ConsumerConfig config = consumerEngine.getConfig();
+        List<WorkerStats> workers = consumerEngine.getWorkerStats();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("dispatcher", config.getDispatcher().name());
+        stats.put("capturesConcurrency", config.getCaptureConcurrency());
+        stats.put("trainersConcurrency", config.getTrainerConcurrency());
+        stats.put("ackMode", config.getAckMode().name());
+        stats.put("commitBatchSize", config.getCommitBatchSize());
+        stats.put("commitIntervalMs", config.getCommitIntervalMs());
+        stats.put("workers", workers);
+
+        return Response.ok(stats).build();
+    }
+
+    // retourne les compteurs du journal durable : segments, ajouts, duree et debit du rejeu
+    @GET
+    @Path("/log")
+    public Response getEventLog() {
+        return Response.ok(EventLog.getInstance().getStats()).build();
+    }
+
+    // retourne l'etat de la connexion au broker : tentatives, pertes, temps de reconnexion
+    @GET
+    @Path("/connection")
+    public Response getConnection() {
+        return Response.ok(ConnectionSupervisor.getInstance().getStats()).build();
+    }
+
+    // retourne la profondeur, le debit et la latence de chaque etape du pipeline d'ingestion
+    @GET
+    @Path("/pipeline")
+    public Response getPipeline() {
+        return Response.ok(IngestPipeline.getInstance().getStats()).build();
+    }
+
+    // retourne les compteurs du dedoublonnage des captures : doublons exacts et probables,
+    // taux de doublons, cout par capture et memoire des filtres
+    @GET
+    @Path("/dedupe")
+    public Response getDedupe() {
+        return Response.ok(CaptureDeduplicator.getInstance().getStats()).build();
+    }
+}
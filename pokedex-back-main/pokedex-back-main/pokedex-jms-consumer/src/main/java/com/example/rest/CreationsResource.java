@@ -3,6 +3,8 @@ package com.example.rest;
 import com.example.dto.TrainerMessage;
 import com.example.service.MessageLogService;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.Suspended;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 
@@ -21,20 +23,32 @@ public class CreationsResource {
         this.messageLogService = MessageLogService.getInstance();
     }
 
-    // retourne toutes les creations de trainer
+    // retourne toutes les creations de trainer, ou avec ?after=<sequence> seulement celles recues apres ce
+    // curseur ; waitMs > 0 attend la prochaine si aucune n'est encore arrivee (long-poll)
     @GET
-    public Response getAllCreations() {
-        List<TrainerMessage> messages = messageLogService.getAllTrainerMessages();
-        return Response.ok(messages).build();
+    public void getAllCreations(@QueryParam("after") Long after,
+                       @QueryParam("epoch") Long epoch,
+                       @QueryParam("limit") Integer limit,
+                       @QueryParam("waitMs") @DefaultValue("0") long waitMs,
+                       @Suspended AsyncResponse response) {
+        if (after == null) {
+            List<TrainerMessage> messages = messageLogService.getAllTrainerMessages();
+            response.resume(Response.ok(messages).build());
+            return;
+        }
+        CursorReads.read(after, epoch, limit, waitMs, messageLogService.getMaxMessages(),
+                messageLogService.getEpoch(), messageLogService.getTrainerSequenceEnd(),
+                messageLogService::getTrainerMessagesAfter, messageLogService::awaitTrainerMessagesAfter, response);
     }
 
     // retourne les n creations les plus recentes
     @GET
     @Path("/recent")
     public Response getRecentCreations(@QueryParam("limit") @DefaultValue("10") int limit) {
-        if (limit < 1 || limit > 100) {
+        int maxMessages = messageLogService.getMaxMessages();
+        if (limit < 1 || limit > maxMessages) {
             return Response.status(Response.Status.BAD_REQUEST)
-                    .entity("Limit must be between 1 and 100").build();
+                    .entity("Limit must be between 1 and " + maxMessages).build();
         }
         
         List<TrainerMessage> messages = messageLogService.getTrainerMessages(limit);
@@ -47,7 +61,7 @@ public class CreationsResource {
     public Response getStats() {
         Map<String, Object> stats = new HashMap<>();
         stats.put("totalMessages", messageLogService.getTotalTrainerCount());
-        stats.put("maxMessages", 100);
+        stats.put("maxMessages", messageLogService.getMaxMessages());
         
         return Response.ok(stats).build();
     }
@@ -0,0 +1,100 @@
+package com.example.rest;
+
+import com.example.config.ConsumerConfig;
+import com.example.dto.MessagePage;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.core.Response;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+// lecture des messages apres un curseur (?after=), avec long-poll : si rien n'est arrive apres
+// le curseur, la requete est suspendue jusqu'au prochain message ou jusqu'a waitMs, sans
+// bloquer de thread du serveur.
+// le reveil arrive sur le thread qui publie le message (ingest-apply) : la relecture de la page
+// et l'ecriture de la reponse partent sur un pool borne, pour ne jamais ralentir l'ingestion
+final class CursorReads {
+
+    static final long MAX_WAIT_MS = 30_000L;
+
+    private static final Executor RESUME_EXECUTOR = createResumeExecutor(ConsumerConfig.getInstance());
+
+    private CursorReads() {}
+
+    @FunctionalInterface
+    interface PageReader<T> {
+        MessagePage<T> read(long after, int limit);
+    }
+
+    // limit null = maxMessages. epoch est celui d'une page precedente (null si le client ne
+    // l'a pas garde), currentEpoch et end ceux de l'execution courante
+    static <T> void read(long after, Long epoch, Integer limit, long waitMs, int maxMessages,
+                         long currentEpoch, long end,
+                         PageReader<T> reader, LongFunction<CompletableFuture<Void>> awaiter,
+                         AsyncResponse response) {
+        read(after, epoch, limit, waitMs, maxMessages, currentEpoch, end, reader, awaiter, response, RESUME_EXECUTOR);
+    }
+
+    static <T> void read(long after, Long epoch, Integer limit, long waitMs, int maxMessages,
+                         long currentEpoch, long end,
+                         PageReader<T> reader, LongFunction<CompletableFuture<Void>> awaiter,
+                         AsyncResponse response, Executor resumeExecutor) {
+        int count = limit == null ? maxMessages : limit;
+        if (count < 1 || count > maxMessages) {
+            response.resume(Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Limit must be between 1 and " + maxMessages).build());
+            return;
+        }
+        if (waitMs < 0 || waitMs > MAX_WAIT_MS) {
+            response.resume(Response.status(Response.Status.BAD_REQUEST)
+                    .entity("waitMs must be between 0 and " + MAX_WAIT_MS).build());
+            return;
+        }
+        // apres un redemarrage les sequences repartent de 0 : un curseur d'une autre execution,
+        // ou au-dela du dernier message numerote, attendrait des messages qui ne viendront pas
+        // ou sauterait des messages. le client doit repartir de after=-1
+        if ((epoch != null && epoch != currentEpoch) || after >= end) {
+            response.resume(Response.status(Response.Status.GONE)
+                    .entity("Cursor " + after + " does not belong to this consumer run (epoch " + currentEpoch
+                            + "), read again from after=-1").build());
+            return;
+        }
+        MessagePage<T> page = reader.read(after, count);
+        if (waitMs == 0 || !page.getMessages().isEmpty() || page.getMissedMessages() > 0) {
+            response.resume(Response.ok(page).build());
+            return;
+        }
+        // thenRun ne fait que passer la main au pool, sur le thread qui a reveille la requete
+        awaiter.apply(after)
+                .completeOnTimeout(null, waitMs, TimeUnit.MILLISECONDS)
+                .thenRun(() -> resume(resumeExecutor, response, () -> Response.ok(reader.read(after, count)).build()));
+    }
+
+    private static void resume(Executor executor, AsyncResponse response, Supplier<Response> page) {
+        try {
+            executor.execute(() -> response.resume(page.get()));
+        } catch (RejectedExecutionException e) {
+            response.resume(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .entity("Too many long-polls waiting for an answer, retry the read").build());
+        }
+    }
+
+    private static Executor createResumeExecutor(ConsumerConfig config) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadPoolExecutor(config.getLongPollThreads(), config.getLongPollThreads(), 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.getLongPollQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "long-poll-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
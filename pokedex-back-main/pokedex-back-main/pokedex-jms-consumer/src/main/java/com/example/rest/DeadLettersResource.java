@@ -0,0 +1,83 @@
+package com.example.rest;
+
+import com.example.dto.DeadLetter;
+import com.example.messaging.IngestPipeline;
+import com.example.service.DeadLetterStore;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.util.List;
+
+// messages mis en quarantaine car illisibles : consultation, rejeu et suppression
+@Path("/deadletters")
+@Produces(MediaType.APPLICATION_JSON)
+public class DeadLettersResource {
+
+    private final DeadLetterStore deadLetterStore;
+
+    public DeadLettersResource() {
+        this.deadLetterStore = DeadLetterStore.getInstance();
+    }
+
+    // retourne les n messages les plus recents, sans leur contenu
+    @GET
+    public Response getDeadLetters(@QueryParam("limit") @DefaultValue("50") int limit) {
+        int maxEntries = deadLetterStore.getMaxEntries();
+        if (limit < 1 || limit > maxEntries) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Limit must be between 1 and " + maxEntries).build();
+        }
+        List<DeadLetter> deadLetters = deadLetterStore.list(limit);
+        return Response.ok(deadLetters).build();
+    }
+
+    // retourne les compteurs par raison d'echec et le remplissage du store
+    @GET
+    @Path("/stats")
+    public Response getStats() {
+        return Response.ok(deadLetterStore.getStats()).build();
+    }
+
+    // retourne un message avec son contenu en base64
+    @GET
+    @Path("/{id}")
+    public Response getDeadLetter(@PathParam("id") long id) {
+        DeadLetter deadLetter = deadLetterStore.get(id);
+        if (deadLetter == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("no quarantined message with id: " + id).build();
+        }
+        return Response.ok(deadLetter).build();
+    }
+
+    // repasse le message dans le pipeline d'ingestion, par exemple apres une mise a jour du
+    // consumer ; il reste en quarantaine s'il est toujours illisible
+    @POST
+    @Path("/{id}/replay")
+    public Response replay(@PathParam("id") long id) {
+        try {
+            DeadLetter deadLetter = deadLetterStore.replay(id, IngestPipeline.getInstance()::ingest);
+            if (deadLetter == null) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity("no quarantined message with id: " + id).build();
+            }
+            return Response.ok(deadLetter).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.CONFLICT)
+                    .entity("message is still unreadable: " + e.getMessage()).build();
+        }
+    }
+
+    // supprime le message de la quarantaine
+    @DELETE
+    @Path("/{id}")
+    public Response delete(@PathParam("id") long id) {
+        DeadLetter deadLetter = deadLetterStore.delete(id);
+        if (deadLetter == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("no quarantined message with id: " + id).build();
+        }
+        return Response.ok(deadLetter).build();
+    }
+}
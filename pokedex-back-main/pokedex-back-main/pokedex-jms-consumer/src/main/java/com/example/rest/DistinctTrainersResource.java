@@ -0,0 +1,71 @@
+package com.example.rest;
+
+import com.example.dto.DistinctTrainersEstimate;
+import com.example.service.DistinctTrainers;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// nombre approximatif de trainers distincts par pokemon (HyperLogLog)
+@Path("/aggregated/distinct")
+@Produces(MediaType.APPLICATION_JSON)
+public class DistinctTrainersResource {
+
+    private final DistinctTrainers distinctTrainers;
+
+    public DistinctTrainersResource() {
+        this.distinctTrainers = DistinctTrainers.getInstance();
+    }
+
+    // retourne l'estimation globale et celle de chaque pokemon
+    @GET
+    public Response getAll() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("global", distinctTrainers.getGlobal());
+        result.put("pokemons", distinctTrainers.getAllPokemons());
+        return Response.ok(result).build();
+    }
+
+    // retourne l'estimation pour un pokemon
+    @GET
+    @Path("/pokemon/{pokemonId}")
+    public Response getPokemon(@PathParam("pokemonId") Long pokemonId) {
+        if (pokemonId == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("pokemonId is required").build();
+        }
+        DistinctTrainersEstimate estimate = distinctTrainers.getPokemon(pokemonId);
+        if (estimate == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("no captures found for pokemon id: " + pokemonId).build();
+        }
+        return Response.ok(estimate).build();
+    }
+
+    // retourne tous les registres en binaire, a garder ou a fusionner dans une autre instance
+    @GET
+    @Path("/checkpoint")
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    public Response getCheckpoint() {
+        return Response.ok(distinctTrainers.checkpoint()).build();
+    }
+
+    // fusionne le checkpoint d'une autre instance dans les registres courants
+    @POST
+    @Path("/merge")
+    @Consumes(MediaType.APPLICATION_OCTET_STREAM)
+    public Response merge(byte[] checkpoint) {
+        try {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("mergedPokemons", distinctTrainers.merge(checkpoint));
+            result.put("global", distinctTrainers.getGlobal());
+            return Response.ok(result).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(e.getMessage()).build();
+        }
+    }
+}
@@ -1,22 +1,160 @@
 package com.example.rest;
 
+import com.example.config.ConsumerConfig;
+import com.example.dto.DeadLetterStats;
+import com.example.dto.QueueStats;
+import com.example.dto.WorkerStats;
+import com.example.messaging.BrokerMonitor;
+import com.example.messaging.ConnectionSupervisor;
+import com.example.messaging.ConsumerEngine;
+import com.example.messaging.IngestPipeline;
+import com.example.service.DeadLetterStore;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
+// etat du consumer : UP, DEGRADED (connecte mais en retard, ou une partie des workers
+// arretes) ou DOWN (pas de connexion au broker, ou une queue sans aucun worker actif, repond
+// 503), avec le detail par queue pour dimensionner les consumers sur le retard reel
 @Path("/health")
 @Produces(MediaType.APPLICATION_JSON)
 public class HealthResource {
 
+    private final ConnectionSupervisor connectionSupervisor;
+    private final ConsumerEngine consumerEngine;
+    private final BrokerMonitor brokerMonitor;
+    private final IngestPipeline ingestPipeline;
+
+    public HealthResource() {
+        this(ConnectionSupervisor.getInstance(), ConsumerEngine.getInstance(), BrokerMonitor.getInstance(),
+                IngestPipeline.getInstance());
+    }
+
+    HealthResource(ConnectionSupervisor connectionSupervisor, ConsumerEngine consumerEngine, BrokerMonitor brokerMonitor,
+                   IngestPipeline ingestPipeline) {
+        this.connectionSupervisor = connectionSupervisor;
+        this.consumerEngine = consumerEngine;
+        this.brokerMonitor = brokerMonitor;
+        this.ingestPipeline = ingestPipeline;
+    }
+
+    // retourne l'etat et les raisons d'une degradation
     @GET
     public Response health() {
-        Map<String, String> health = new HashMap<>();
-        health.put("status", "UP");
+        Map<String, Object> health = new LinkedHashMap<>();
+        List<String> reasons = new ArrayList<>();
+        String status = evaluate(reasons);
+        health.put("status", status);
+        health.put("service", "JMS Consumer API");
+        health.put("reasons", reasons);
+        return response(status, health);
+    }
+
+    // retourne l'etat avec la connexion, le detail par queue (cote consumer et cote broker),
+    // le pipeline d'ingestion et la quarantaine
+    @GET
+    @Path("/details")
+    public Response details() {
+        List<String> reasons = new ArrayList<>();
+        String status = evaluate(reasons);
+        Map<String, QueueStats> consumerQueues = consumerEngine.getQueueMetrics();
+        Map<String, int[]> workers = countWorkers();
+
+        Map<String, Object> queues = new LinkedHashMap<>();
+        for (String queueName : List.of("captures", "trainers")) {
+            int[] count = workers.getOrDefault(queueName, new int[2]);
+            Map<String, Object> queueWorkers = new LinkedHashMap<>();
+            queueWorkers.put("active", count[0]);
+            queueWorkers.put("total", count[1]);
+            Map<String, Object> queue = new LinkedHashMap<>();
+            queue.put("workers", queueWorkers);
+            queue.put("consumer", consumerQueues.get(queueName));
+            queue.put("broker", brokerMonitor.getQueueStats(queueName));
+            queues.put(queueName, queue);
+        }
+
+        DeadLetterStats deadLetters = DeadLetterStore.getInstance().getStats();
+        Map<String, Object> quarantine = new LinkedHashMap<>();
+        quarantine.put("entries", deadLetters.getEntries());
+        quarantine.put("quarantined", deadLetters.getQuarantined());
+
+        Map<String, Object> health = new LinkedHashMap<>();
+        health.put("status", status);
         health.put("service", "JMS Consumer API");
-        
-        return Response.ok(health).build();
+        health.put("reasons", reasons);
+        health.put("connection", connectionSupervisor.getStats());
+        health.put("queues", queues);
+        health.put("brokerMonitor", brokerMonitor.getStats());
+        health.put("pipeline", ingestPipeline.getStats().getQueue());
+        health.put("deadLetters", quarantine);
+        return response(status, health);
+    }
+
+    private String evaluate(List<String> reasons) {
+        ConsumerConfig config = consumerEngine.getConfig();
+        if (connectionSupervisor.getState() != ConnectionSupervisor.State.CONNECTED) {
+            reasons.add("not connected to the broker (" + connectionSupervisor.getState().name() + ")");
+            return "DOWN";
+        }
+        // un worker sorti de sa boucle ne consomme plus : une queue sans worker actif n'est
+        // plus lue du tout, meme si le broker n'a pas encore accumule de retard
+        boolean queueStopped = false;
+        for (Map.Entry<String, int[]> queue : countWorkers().entrySet()) {
+            int active = queue.getValue()[0];
+            int total = queue.getValue()[1];
+            if (active == 0) {
+                reasons.add("no active worker on " + queue.getKey() + " (0/" + total + ")");
+                queueStopped = true;
+            } else if (active < total) {
+                reasons.add(active + "/" + total + " workers active on " + queue.getKey());
+            }
+        }
+        long backlog = brokerMonitor.getMaxBacklog();
+        if (backlog > config.getMaxBacklog()) {
+            reasons.add(backlog + " messages waiting on the broker (max " + config.getMaxBacklog() + ")");
+        }
+        if (!brokerMonitor.isFresh()) {
+            reasons.add("broker queue depth unavailable");
+        }
+        for (QueueStats queue : consumerEngine.getQueueMetrics().values()) {
+            double p99 = queue.getDeliveryLagMillis().getP99();
+            if (p99 > config.getMaxDeliveryLagMs()) {
+                reasons.add("p99 delivery lag on " + queue.getQueue() + " is " + Math.round(p99)
+                        + " ms (max " + config.getMaxDeliveryLagMs() + ")");
+            }
+        }
+        // messages valides jetes par le pipeline (DROP_OLDEST, SHED) : perdus pour les vues
+        long missing = ingestPipeline.getMissingFromViews();
+        if (missing > 0) {
+            reasons.add(missing + " committed message(s) missing from the in-memory views until restart"
+                    + " (ingest pipeline full)");
+        }
+        if (queueStopped) {
+            return "DOWN";
+        }
+        return reasons.isEmpty() ? "UP" : "DEGRADED";
+    }
+
+    // workers actifs et workers ouverts de chaque queue souscrite
+    private Map<String, int[]> countWorkers() {
+        Map<String, int[]> counts = new LinkedHashMap<>();
+        for (WorkerStats worker : consumerEngine.getWorkerStats()) {
+            int[] count = counts.computeIfAbsent(worker.getQueue(), queue -> new int[2]);
+            if (Boolean.TRUE.equals(worker.getRunning())) {
+                count[0]++;
+            }
+            count[1]++;
+        }
+        return counts;
+    }
+
+    private Response response(String status, Map<String, Object> health) {
+        Response.Status httpStatus = "DOWN".equals(status) ? Response.Status.SERVICE_UNAVAILABLE : Response.Status.OK;
+        return Response.status(httpStatus).entity(health).build();
     }
 }
@@ -0,0 +1,73 @@
+package com.example.rest;
+
+import com.example.service.LiveFeed;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.*;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+import jakarta.ws.rs.ext.Providers;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+
+// flux server-sent events des captures et creations de trainer, au fil de leur reception
+@Path("/live")
+public class LiveFeedResource {
+
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+    private final LiveFeed liveFeed;
+
+    @Context
+    private Providers providers;
+
+    public LiveFeedResource() {
+        this.liveFeed = LiveFeed.getInstance();
+    }
+
+    // s'abonne au flux ; type=capture ou type=trainer pour ne recevoir qu'un type de message.
+    // le header Last-Event-ID reprend apres le dernier evenement recu
+    @GET
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void subscribe(@Context SseEventSink sink, @Context Sse sse,
+                          @QueryParam("type") String type,
+                          @HeaderParam(HttpHeaders.LAST_EVENT_ID_HEADER) String lastEventId) {
+        LiveFeed.EventType eventType;
+        Long resumeAfter;
+        try {
+            eventType = type == null ? null : LiveFeed.EventType.valueOf(type.toUpperCase());
+            resumeAfter = lastEventId == null ? null : Long.valueOf(lastEventId);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("type must be capture or trainer, Last-Event-ID must be a number");
+        }
+        if (!liveFeed.subscribe(sink, sse, eventType, resumeAfter, this::toJson)) {
+            throw new ServiceUnavailableException("too many live feed subscribers");
+        }
+    }
+
+    // retourne les compteurs du flux : abonnes, evenements envoyes et perdus
+    @GET
+    @Path("/stats")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getStats() {
+        return Response.ok(liveFeed.getStats()).build();
+    }
+
+    // meme conversion json que les autres endpoints, faite une seule fois par message
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private String toJson(Object payload) {
+        Class type = payload.getClass();
+        MessageBodyWriter writer = providers.getMessageBodyWriter(type, type, NO_ANNOTATIONS, MediaType.APPLICATION_JSON_TYPE);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try {
+            writer.writeTo(payload, type, type, NO_ANNOTATIONS, MediaType.APPLICATION_JSON_TYPE, new MultivaluedHashMap<>(), out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.rest;
+
+import com.example.service.CaptureHeavyHitters;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// top K approximatif des pokemons et trainers les plus captures, avec les bornes d'erreur
+@Path("/aggregated/top")
+@Produces(MediaType.APPLICATION_JSON)
+public class TopCapturesResource {
+
+    private final CaptureHeavyHitters heavyHitters;
+
+    public TopCapturesResource() {
+        this.heavyHitters = CaptureHeavyHitters.getInstance();
+    }
+
+    // retourne les k pokemons et les k trainers les plus captures
+    @GET
+    public Response getTop(@QueryParam("k") @DefaultValue("10") int k) {
+        Response invalid = checkK(k);
+        if (invalid != null) {
+            return invalid;
+        }
+        Map<String, Object> top = new LinkedHashMap<>();
+        top.put("pokemons", heavyHitters.getTopPokemons(k));
+        top.put("trainers", heavyHitters.getTopTrainers(k));
+        return Response.ok(top).build();
+    }
+
+    // retourne les k pokemons les plus captures
+    @GET
+    @Path("/pokemons")
+    public Response getTopPokemons(@QueryParam("k") @DefaultValue("10") int k) {
+        Response invalid = checkK(k);
+        return invalid != null ? invalid : Response.ok(heavyHitters.getTopPokemons(k)).build();
+    }
+
+    // retourne les k trainers les plus actifs
+    @GET
+    @Path("/trainers")
+    public Response getTopTrainers(@QueryParam("k") @DefaultValue("10") int k) {
+        Response invalid = checkK(k);
+        return invalid != null ? invalid : Response.ok(heavyHitters.getTopTrainers(k)).build();
+    }
+
+    private Response checkK(int k) {
+        int capacity = heavyHitters.getCapacity();
+        if (k < 1 || k > capacity) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("k must be between 1 and " + capacity).build();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.rest;
+
+import com.example.dto.WindowedCaptureStats;
+import com.example.service.CaptureWindows;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// statistiques de captures sur la derniere minute, heure et jour
+@Path("/aggregated/windows")
+@Produces(MediaType.APPLICATION_JSON)
+public class WindowedStatsResource {
+
+    private final CaptureWindows captureWindows;
+
+    public WindowedStatsResource() {
+        this.captureWindows = CaptureWindows.getInstance();
+    }
+
+    // retourne les trois fenetres, avec les `limit` trainers et pokemons les plus captures
+    @GET
+    public Response getAllWindows(@QueryParam("limit") @DefaultValue("10") int limit) {
+        List<WindowedCaptureStats> windows = new ArrayList<>();
+        for (CaptureWindows.Window window : CaptureWindows.Window.values()) {
+            windows.add(captureWindows.getWindow(window, limit));
+        }
+        return Response.ok(windows).build();
+    }
+
+    // retourne une fenetre : minute, hour ou day
+    @GET
+    @Path("/{window}")
+    public Response getWindow(@PathParam("window") String window, @QueryParam("limit") @DefaultValue("10") int limit) {
+        CaptureWindows.Window selected;
+        try {
+            selected = CaptureWindows.Window.valueOf(window.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("window must be one of minute, hour, day").build();
+        }
+        return Response.ok(captureWindows.getWindow(selected, limit)).build();
+    }
+
+    // retourne les captures d'un trainer sur chaque fenetre
+    @GET
+    @Path("/trainer/{trainerId}")
+    public Response getTrainerWindows(@PathParam("trainerId") Long trainerId) {
+        if (trainerId == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("trainerId is required").build();
+        }
+        return Response.ok(captureWindows.getTrainerWindows(trainerId)).build();
+    }
+
+    // retourne les captures d'un pokemon sur chaque fenetre
+    @GET
+    @Path("/pokemon/{pokemonId}")
+    public Response getPokemonWindows(@PathParam("pokemonId") Long pokemonId) {
+        if (pokemonId == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("pokemonId is required").build();
+        }
+        return Response.ok(captureWindows.getPokemonWindows(pokemonId)).build();
+    }
+
+    // nombre de captures par minute sur la derniere heure
+    @GET
+    @Path("/series/minutes")
+    public Response getMinuteSeries() {
+        return Response.ok(captureWindows.getMinuteSeries()).build();
+    }
+
+    // nombre de captures par heure sur le dernier jour
+    @GET
+    @Path("/series/hours")
+    public Response getHourSeries() {
+        return Response.ok(captureWindows.getHourSeries()).build();
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.service;
+
+import java.util.Arrays;
+
+// filtre de Bloom sur des ids long : un bitset de m bits et k positions par id, derivees d'un
+// seul hash 64 bits (double hachage). "absent" est certain, "present" est faux avec une
+// probabilite ~fpp tant qu'on n'y a pas mis plus de expectedInsertions ids. non thread-safe
+public class BloomFilter {
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final long expectedInsertions;
+    private long insertions;
+
+    public BloomFilter(long expectedInsertions, double fpp) {
+        this.expectedInsertions = Math.max(1L, expectedInsertions);
+        // m = -n ln(p) / ln(2)^2 et k = m/n ln(2)
+        long m = (long) Math.ceil(-this.expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        this.bits = new long[(int) Math.max(1L, (m + 63) >>> 6)];
+        this.bitCount = (long) bits.length << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / this.expectedInsertions * Math.log(2)));
+    }
+
+    public boolean mightContain(long id) {
+        long hash = hash(id);
+        long h1 = hash;
+        long h2 = (hash >>> 32) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void put(long id) {
+        long hash = hash(id);
+        long h1 = hash;
+        long h2 = (hash >>> 32) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        insertions++;
+    }
+
+    public void clear() {
+        Arrays.fill(bits, 0L);
+        insertions = 0;
+    }
+
+    // plein : au-dela, le taux de faux positifs depasse celui demande
+    public boolean isFull() {
+        return insertions >= expectedInsertions;
+    }
+
+    public long getInsertions() {
+        return insertions;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    // taux de faux positifs attendu avec le remplissage actuel : (1 - e^(-kn/m))^k
+    public double expectedFpp() {
+        return Math.pow(1 - Math.exp(-hashCount * (double) insertions / bitCount), hashCount);
+    }
+
+    // finaliseur 64 bits de MurmurHash3, comme HyperLogLog
+    private static long hash(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
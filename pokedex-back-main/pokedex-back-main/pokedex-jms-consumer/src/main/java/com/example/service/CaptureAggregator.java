@@ -4,86 +4,189 @@ import com.example.dto.AggregatedCaptureStats;
 import com.example.dto.CaptureMessage;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-//  regroupe plusieurs messages de capture en statistiques agregees
+//  regroupe les messages de capture en statistiques agregees, mises a jour a chaque
+//  message recu : une lecture ne reparcourt plus l'historique
+//
+//  les compteurs sont des tables primitives (LongObjectHashMap des trainers, LongIntHashMap
+//  pokemon -> nombre de captures) : une paire trainer/pokemon coute une case long + int.
+//  les noms sont des ids du NameDictionary partage avec le CaptureStore
 public class CaptureAggregator {
-    
-    private static final CaptureAggregator INSTANCE = new CaptureAggregator();
-    
-    private CaptureAggregator() {}
-    
+
+    // les trainers sont repartis sur plusieurs verrous pour que les workers ne s'attendent pas
+    private static final int STRIPES = 16;
+
+    private static final CaptureAggregator INSTANCE = new CaptureAggregator(NameDictionary.getInstance());
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final NameDictionary names;
+    // id pokemon -> id de son nom, un seul nom par pokemon pour tous les trainers
+    private final LongIntHashMap pokemonNames = new LongIntHashMap(1024);
+    private final AtomicInteger trainerCount = new AtomicInteger();
+    // incremente a chaque capture, sert a savoir si la liste triee en cache est a jour
+    private final AtomicLong version = new AtomicLong();
+    private volatile CachedList allTrainers = new CachedList(-1, Collections.emptyList());
+
+    CaptureAggregator(NameDictionary names) {
+        this.names = names;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
     public static CaptureAggregator getInstance() {
         return INSTANCE;
     }
-    
-    // agrege les captures par trainer : regroupe tous les messages de capture d'un trainer
-    // et calcule le nombre total de captures et le nombre par pokemon
-    public AggregatedCaptureStats aggregateByTrainer(Long trainerId, List<CaptureMessage> captures) {
-        if (captures == null || captures.isEmpty()) {
-            return null;
-        }
-        
-        // filtrer les captures du trainer specifie
-        List<CaptureMessage> trainerCaptures = captures.stream()
-                .filter(c -> c.getTrainerId().equals(trainerId))
-                .collect(Collectors.toList());
-        
-        if (trainerCaptures.isEmpty()) {
-            return null;
-        }
-        
-        // recuperer le nom du trainer depuis le premier message
-        String trainerName = trainerCaptures.get(0).getTrainerName();
-        
-        // compter les captures par pokemon
-        Map<Long, Map<String, Integer>> pokemonCounts = new HashMap<>();
-        for (CaptureMessage capture : trainerCaptures) {
-            Long pokemonId = capture.getPokemonId();
-            String pokemonName = capture.getPokemonName();
-            
-            pokemonCounts.computeIfAbsent(pokemonId, k -> new HashMap<>())
-                    .put(pokemonName, pokemonCounts.get(pokemonId).getOrDefault(pokemonName, 0) + 1);
-        }
-        
-        // convertir en liste de PokemonCaptureCount
-        List<AggregatedCaptureStats.PokemonCaptureCount> counts = pokemonCounts.entrySet().stream()
-                .map(entry -> {
-                    Long pokemonId = entry.getKey();
-                    Map<String, Integer> nameCount = entry.getValue();
-                    // prendre le premier nom (tous les noms devraient etre identiques pour le meme pokemon)
-                    String pokemonName = nameCount.keySet().iterator().next();
-                    Integer count = nameCount.values().stream().mapToInt(Integer::intValue).sum();
-                    
-                    return new AggregatedCaptureStats.PokemonCaptureCount(pokemonId, pokemonName, count);
-                })
-                .sorted((a, b) -> b.getCount().compareTo(a.getCount())) // trier par nombre de captures decroissant
-                .collect(Collectors.toList());
-        
-        AggregatedCaptureStats stats = new AggregatedCaptureStats();
-        stats.setTrainerId(trainerId);
-        stats.setTrainerName(trainerName);
-        stats.setTotalCaptures(trainerCaptures.size());
-        stats.setPokemonCounts(counts);
-        
-        return stats;
+
+    // ajoute une capture aux compteurs de son trainer
+    public void record(CaptureMessage capture) {
+        if (capture == null || capture.getTrainerId() == null) {
+            return;
+        }
+        long trainerId = capture.getTrainerId();
+        long pokemonId = capture.getPokemonId() == null ? 0L : capture.getPokemonId();
+        Stripe stripe = stripeOf(trainerId);
+        synchronized (stripe) {
+            TrainerCounters trainer = stripe.trainers.get(trainerId);
+            if (trainer == null) {
+                trainer = stripe.trainers.computeIfAbsent(trainerId, TrainerCounters::new);
+                trainerCount.incrementAndGet();
+            }
+            if (trainer.trainerNameId == NameDictionary.NO_NAME) {
+                // recuperer le nom du trainer depuis le premier message
+                trainer.trainerNameId = names.idOf(capture.getTrainerName());
+            }
+            trainer.total++;
+            if (trainer.pokemonCounts.addTo(pokemonId, 1) == 1) {
+                // premiere capture de ce pokemon par ce trainer : enregistrer son nom si besoin
+                registerPokemonName(pokemonId, capture.getPokemonName());
+            }
+        }
+        version.incrementAndGet();
+    }
+
+    public void recordAll(List<CaptureMessage> captures) {
+        for (CaptureMessage capture : captures) {
+            record(capture);
+        }
     }
-    
-    // agrege les captures de tous les trainers : regroupe tous les messages et cree des stats par trainer
-    public List<AggregatedCaptureStats> aggregateAllTrainers(List<CaptureMessage> captures) {
-        if (captures == null || captures.isEmpty()) {
-            return Collections.emptyList();
-        }
-        
-        // grouper les captures par trainer id
-        Map<Long, List<CaptureMessage>> capturesByTrainer = captures.stream()
-                .collect(Collectors.groupingBy(CaptureMessage::getTrainerId));
-        
-        // agreger pour chaque trainer
-        return capturesByTrainer.entrySet().stream()
-                .map(entry -> aggregateByTrainer(entry.getKey(), entry.getValue()))
-                .filter(Objects::nonNull)
-                .sorted((a, b) -> b.getTotalCaptures().compareTo(a.getTotalCaptures())) // trier par nombre total decroissant
-                .collect(Collectors.toList());
+
+    private void registerPokemonName(long pokemonId, String pokemonName) {
+        if (pokemonName == null) {
+            return;
+        }
+        synchronized (pokemonNames) {
+            if (pokemonNames.get(pokemonId, NameDictionary.NO_NAME) == NameDictionary.NO_NAME) {
+                pokemonNames.put(pokemonId, names.idOf(pokemonName));
+            }
+        }
+    }
+
+    // statistiques de tous les trainers, triees par nombre total decroissant ; la liste
+    // n'est reconstruite que si des captures sont arrivees depuis la derniere lecture
+    public List<AggregatedCaptureStats> getAllTrainerStats() {
+        long current = version.get();
+        CachedList cached = allTrainers;
+        if (cached.version == current) {
+            return cached.stats;
+        }
+        List<AggregatedCaptureStats> snapshots = new ArrayList<>(trainerCount.get());
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.trainers.forEachValue(trainer -> snapshots.add(snapshot(trainer)));
+            }
+        }
+        // tri par nombre total decroissant sur des long : total dans les 32 bits de poids fort,
+        // position dans la liste dans les 32 bits de poids faible
+        long[] order = new long[snapshots.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = ((long) snapshots.get(i).getTotalCaptures() << 32) | i;
+        }
+        Arrays.sort(order);
+        List<AggregatedCaptureStats> sorted = new ArrayList<>(order.length);
+        for (int i = order.length - 1; i >= 0; i--) {
+            sorted.add(snapshots.get((int) order[i]));
+        }
+        List<AggregatedCaptureStats> result = Collections.unmodifiableList(sorted);
+        allTrainers = new CachedList(current, result);
+        return result;
+    }
+
+    // statistiques d'un trainer, null s'il n'a aucune capture
+    public AggregatedCaptureStats getTrainerStats(Long trainerId) {
+        Stripe stripe = stripeOf(trainerId);
+        synchronized (stripe) {
+            TrainerCounters trainer = stripe.trainers.get(trainerId);
+            return trainer == null ? null : snapshot(trainer);
+        }
+    }
+
+    // nom d'un pokemon vu dans une capture, null s'il est inconnu
+    public String getPokemonName(long pokemonId) {
+        synchronized (pokemonNames) {
+            return names.nameOf(pokemonNames.get(pokemonId, NameDictionary.NO_NAME));
+        }
+    }
+
+    public String getTrainerName(long trainerId) {
+        Stripe stripe = stripeOf(trainerId);
+        synchronized (stripe) {
+            TrainerCounters trainer = stripe.trainers.get(trainerId);
+            return trainer == null ? null : names.nameOf(trainer.trainerNameId);
+        }
+    }
+
+    public int getTrainerCount() {
+        return trainerCount.get();
+    }
+
+    // appele sous le verrou du stripe du trainer ; le snapshot reste valide tant que le
+    // total du trainer n'a pas change
+    private AggregatedCaptureStats snapshot(TrainerCounters trainer) {
+        if (trainer.cachedTotal == trainer.total) {
+            return trainer.cached;
+        }
+        long[] pokemonIds = trainer.pokemonCounts.keysByValueDescending(0); // trier par nombre de captures decroissant
+        List<AggregatedCaptureStats.PokemonCaptureCount> counts = new ArrayList<>(pokemonIds.length);
+        for (long pokemonId : pokemonIds) {
+            counts.add(new AggregatedCaptureStats.PokemonCaptureCount(pokemonId, getPokemonName(pokemonId), trainer.pokemonCounts.get(pokemonId, 0)));
+        }
+        trainer.cached = new AggregatedCaptureStats(trainer.trainerId, names.nameOf(trainer.trainerNameId), trainer.total, counts);
+        trainer.cachedTotal = trainer.total;
+        return trainer.cached;
+    }
+
+    private Stripe stripeOf(long trainerId) {
+        return stripes[LongIntHashMap.mix(trainerId) & (STRIPES - 1)];
+    }
+
+    private static final class Stripe {
+        private final LongObjectHashMap<TrainerCounters> trainers = new LongObjectHashMap<>();
+    }
+
+    // compteurs d'un trainer, proteges par le verrou de son stripe
+    private static final class TrainerCounters {
+        private final long trainerId;
+        private int trainerNameId = NameDictionary.NO_NAME;
+        private int total;
+        private final LongIntHashMap pokemonCounts = new LongIntHashMap();
+        private AggregatedCaptureStats cached;
+        private int cachedTotal = -1;
+
+        private TrainerCounters(long trainerId) {
+            this.trainerId = trainerId;
+        }
+    }
+
+    private static final class CachedList {
+        private final long version;
+        private final List<AggregatedCaptureStats> stats;
+
+        private CachedList(long version, List<AggregatedCaptureStats> stats) {
+            this.version = version;
+            this.stats = stats;
+        }
     }
 }
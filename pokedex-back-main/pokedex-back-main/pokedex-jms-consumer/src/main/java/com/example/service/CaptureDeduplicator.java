@@ -0,0 +1,184 @@
+package com.example.service;
+
+import com.example.dto.CaptureMessage;
+import com.example.dto.DedupeStats;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// ecarte les captures deja recues (meme eventId) : un message renvoye par le producteur ou
+// relivre par le broker apres un crash n'est compte qu'une fois dans les vues en memoire.
+//
+// deux niveaux :
+// - un ensemble exact des exactSize derniers ids (table primitive + file circulaire pour
+//   oublier les plus anciens) : un id present est un doublon certain ;
+// - deux filtres de Bloom tournants, chacun couvrant une fenetre de windowMs (ou
+//   expectedPerWindow ids), qui se souviennent de bien plus d'ids pour peu de memoire.
+// un id absent de l'ensemble exact mais vu par un filtre de Bloom est un doublon probable,
+// plus ancien que l'ensemble exact, ou un faux positif (probabilite ~fpp). la politique
+// choisit de l'accepter (ACCEPT, par defaut) ou de le rejeter (DROP) ; il est compte a part.
+// les captures sans eventId (anciens producteurs) passent toujours
+public class CaptureDeduplicator {
+
+    public enum ProbablePolicy {
+        // un doublon probable est rejete : au pire un faux positif fait perdre une vraie capture
+        DROP,
+        // un doublon probable est garde : au pire un vieux doublon est compte deux fois
+        ACCEPT
+    }
+
+    private static final CaptureDeduplicator INSTANCE = new CaptureDeduplicator(
+            Boolean.parseBoolean(System.getProperty("pokedex.consumer.dedupe.enabled", "true")),
+            Integer.getInteger("pokedex.consumer.dedupe.exactSize", 100_000),
+            Long.getLong("pokedex.consumer.dedupe.windowMs", 600_000L),
+            Long.getLong("pokedex.consumer.dedupe.expectedPerWindow", 1_000_000L),
+            Double.parseDouble(System.getProperty("pokedex.consumer.dedupe.fpp", "0.001")),
+            ProbablePolicy.valueOf(System.getProperty("pokedex.consumer.dedupe.probablePolicy", ProbablePolicy.ACCEPT.name()).toUpperCase()));
+
+    private final boolean enabled;
+    private final int exactSize;
+    private final long windowMs;
+    private final long expectedPerWindow;
+    private final double fpp;
+    private final ProbablePolicy probablePolicy;
+
+    // ensemble exact : id -> 1, et les ids dans l'ordre d'arrivee pour oublier le plus ancien
+    private final LongIntHashMap recentIds;
+    private final long[] recentOrder;
+    private int recentNext;
+    private int recentCount;
+
+    private BloomFilter current;
+    private BloomFilter previous;
+    private long currentSince;
+
+    private long checked;
+    private long withoutEventId;
+    private long accepted;
+    private long exactDuplicates;
+    private long probableDuplicates;
+    private long rotations;
+    private long filterNanos;
+
+    CaptureDeduplicator(boolean enabled, int exactSize, long windowMs, long expectedPerWindow,
+                        double fpp, ProbablePolicy probablePolicy) {
+        this.enabled = enabled;
+        this.exactSize = Math.max(1, exactSize);
+        this.windowMs = windowMs;
+        this.expectedPerWindow = Math.max(1L, expectedPerWindow);
+        this.fpp = fpp;
+        this.probablePolicy = probablePolicy;
+        this.recentIds = new LongIntHashMap(enabled ? this.exactSize : 1);
+        this.recentOrder = new long[enabled ? this.exactSize : 1];
+        if (enabled) {
+            this.current = new BloomFilter(this.expectedPerWindow, fpp);
+            this.previous = new BloomFilter(this.expectedPerWindow, fpp);
+        }
+        this.currentSince = System.currentTimeMillis();
+    }
+
+    public static CaptureDeduplicator getInstance() {
+        return INSTANCE;
+    }
+
+    // retourne les captures qui n'ont pas encore ete vues, dans l'ordre ; la liste recue est
+    // retournee telle quelle s'il n'y a aucun doublon
+    public synchronized List<CaptureMessage> filter(List<CaptureMessage> messages) {
+        if (!enabled) {
+            return messages;
+        }
+        long start = System.nanoTime();
+        rotateIfNeeded(System.currentTimeMillis());
+        List<CaptureMessage> kept = null;
+        for (int i = 0; i < messages.size(); i++) {
+            CaptureMessage message = messages.get(i);
+            boolean duplicate = message != null && isDuplicate(message);
+            if (duplicate && kept == null) {
+                // premier doublon : on copie ce qui precede
+                kept = new ArrayList<>(messages.subList(0, i));
+            } else if (!duplicate && kept != null) {
+                kept.add(message);
+            }
+        }
+        filterNanos += System.nanoTime() - start;
+        return kept != null ? kept : messages;
+    }
+
+    private boolean isDuplicate(CaptureMessage message) {
+        Long eventId = message.getEventId();
+        if (eventId == null) {
+            withoutEventId++;
+            return false;
+        }
+        long id = eventId;
+        checked++;
+        if (recentIds.get(id, 0) != 0) {
+            exactDuplicates++;
+            return true;
+        }
+        if (current.mightContain(id) || previous.mightContain(id)) {
+            probableDuplicates++;
+            if (probablePolicy == ProbablePolicy.DROP) {
+                return true;
+            }
+        }
+        remember(id);
+        accepted++;
+        return false;
+    }
+
+    private void remember(long id) {
+        if (recentCount == exactSize) {
+            recentIds.remove(recentOrder[recentNext], 0);
+        } else {
+            recentCount++;
+        }
+        recentOrder[recentNext] = id;
+        recentNext = recentNext + 1 == exactSize ? 0 : recentNext + 1;
+        recentIds.put(id, 1);
+        current.put(id);
+    }
+
+    // le filtre courant devient le precedent quand sa fenetre est finie ou qu'il est plein ;
+    // l'ancien precedent est vide et reutilise
+    private void rotateIfNeeded(long now) {
+        if (now - currentSince < windowMs && !current.isFull()) {
+            return;
+        }
+        BloomFilter oldest = previous;
+        oldest.clear();
+        previous = current;
+        current = oldest;
+        currentSince = now;
+        rotations++;
+    }
+
+    public synchronized DedupeStats getStats() {
+        long rejected = exactDuplicates + (probablePolicy == ProbablePolicy.DROP ? probableDuplicates : 0);
+        return new DedupeStats(
+                enabled,
+                checked,
+                withoutEventId,
+                accepted,
+                exactDuplicates,
+                probableDuplicates,
+                probablePolicy.name(),
+                checked == 0 ? 0.0 : rejected / (double) checked,
+                checked + withoutEventId == 0 ? 0.0 : filterNanos / (double) (checked + withoutEventId),
+                exactSize,
+                recentCount,
+                windowMs,
+                expectedPerWindow,
+                fpp,
+                rotations,
+                enabled ? current.getHashCount() : null,
+                enabled ? current.getBitCount() : null,
+                enabled ? current.getInsertions() : null,
+                enabled ? previous.getInsertions() : null,
+                enabled ? current.expectedFpp() : null,
+                // deux filtres, plus la file et la table de l'ensemble exact (cle long + valeur int)
+                enabled ? 2 * current.getBitCount() / 8
+                        + (long) exactSize * 8 + (long) LongIntHashMap.capacityFor(exactSize) * 12 : null
+        );
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.service;
+
+import com.example.dto.CaptureMessage;
+import com.example.dto.TopCaptures;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// pokemons et trainers les plus captures, en memoire constante quel que soit le nombre de
+// captures ou d'ids distincts : un sketch Space-Saving par categorie
+public class CaptureHeavyHitters {
+
+    private static final CaptureHeavyHitters INSTANCE = new CaptureHeavyHitters(
+            CaptureAggregator.getInstance(),
+            Integer.getInteger("pokedex.consumer.top.capacity", 1000));
+
+    private final CaptureAggregator captureAggregator;
+    private final SpaceSavingSketch pokemons;
+    private final SpaceSavingSketch trainers;
+
+    CaptureHeavyHitters(CaptureAggregator captureAggregator, int capacity) {
+        this.captureAggregator = captureAggregator;
+        this.pokemons = new SpaceSavingSketch(capacity);
+        this.trainers = new SpaceSavingSketch(capacity);
+    }
+
+    public static CaptureHeavyHitters getInstance() {
+        return INSTANCE;
+    }
+
+    public void record(CaptureMessage capture) {
+        if (capture == null || capture.getTrainerId() == null) {
+            return;
+        }
+        trainers.offer(capture.getTrainerId());
+        pokemons.offer(capture.getPokemonId() == null ? 0L : capture.getPokemonId());
+    }
+
+    public void recordAll(List<CaptureMessage> captures) {
+        for (CaptureMessage capture : captures) {
+            record(capture);
+        }
+    }
+
+    public TopCaptures getTopPokemons(int k) {
+        return top("pokemons", pokemons, k, false);
+    }
+
+    public TopCaptures getTopTrainers(int k) {
+        return top("trainers", trainers, k, true);
+    }
+
+    public int getCapacity() {
+        return pokemons.getCapacity();
+    }
+
+    private TopCaptures top(String category, SpaceSavingSketch sketch, int k, boolean trainer) {
+        SpaceSavingSketch.Entry[] entries = sketch.top(k);
+        List<TopCaptures.HeavyHitter> top = new ArrayList<>(entries.length);
+        for (SpaceSavingSketch.Entry entry : entries) {
+            String name = trainer ? captureAggregator.getTrainerName(entry.getKey()) : captureAggregator.getPokemonName(entry.getKey());
+            top.add(new TopCaptures.HeavyHitter(entry.getKey(), name, entry.getCount(), entry.getError(),
+                    entry.getCount() - entry.getError()));
+        }
+        return new TopCaptures(category, sketch.getObserved(), sketch.getCapacity(), sketch.getErrorBound(), top);
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.service;
+
+import com.example.dto.CaptureMessage;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// historique des captures hors du tas java : des enregistrements de taille fixe (40 octets)
+// dans des ByteBuffer directs alloues par blocs a la demande. les noms sont remplaces par
+// leur id dans un NameDictionary. une fois la capacite atteinte les plus anciennes
+// captures sont ecrasees
+//
+// enregistrement : [sequence][trainerId][pokemonId][date epoch millis][id nom trainer][id nom pokemon]
+// la sequence sert de seqlock : -1 pendant l'ecriture, puis le numero de l'enregistrement + 1
+// (0 = case jamais ecrite)
+public class CaptureStore {
+
+    public static final int RECORD_SIZE = 40;
+    public static final long NO_DATE = Long.MIN_VALUE;
+
+    private static final int SEQUENCE_OFFSET = 0;
+    private static final int TRAINER_ID_OFFSET = 8;
+    private static final int POKEMON_ID_OFFSET = 16;
+    private static final int DATE_OFFSET = 24;
+    private static final int TRAINER_NAME_OFFSET = 32;
+    private static final int POKEMON_NAME_OFFSET = 36;
+    private static final long WRITING = -1L;
+    // 65536 enregistrements par bloc, soit 2.5 Mo
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_RECORDS = 1 << CHUNK_SHIFT;
+
+    private static final VarHandle SEQUENCE = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private static final CaptureStore INSTANCE = new CaptureStore(
+            Long.getLong("pokedex.consumer.store.capacity", 1_000_000L));
+
+    private final long capacity;
+    private final AtomicReferenceArray<ByteBuffer> chunks;
+    private final NameDictionary names = NameDictionary.getInstance();
+    // prochain numero d'enregistrement a attribuer
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    CaptureStore(long capacity) {
+        // la capacite est arrondie au bloc superieur
+        int chunkCount = (int) Math.max(1, (capacity + CHUNK_RECORDS - 1) >>> CHUNK_SHIFT);
+        this.capacity = (long) chunkCount << CHUNK_SHIFT;
+        this.chunks = new AtomicReferenceArray<>(chunkCount);
+    }
+
+    public static CaptureStore getInstance() {
+        return INSTANCE;
+    }
+
+    // lecture des enregistrements sans allocation d'objet par capture ; retourne false pour
+    // arreter le parcours
+    @FunctionalInterface
+    public interface CaptureVisitor {
+        boolean visit(long sequence, long trainerId, long pokemonId, long captureMillis, int trainerNameId, int pokemonNameId);
+    }
+
+    public void append(CaptureMessage message) {
+        write(nextSequence.getAndIncrement(), message);
+    }
+
+    // reserve les numeros de tout le batch en une seule operation atomique
+    public void appendAll(List<CaptureMessage> messages) {
+        long first = nextSequence.getAndAdd(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            write(first + i, messages.get(i));
+        }
+    }
+
+    private void write(long sequence, CaptureMessage message) {
+        ByteBuffer chunk = chunkFor(sequence);
+        int offset = offsetOf(sequence);
+        long stamp = sequence + 1;
+        while (true) {
+            long current = (long) SEQUENCE.getVolatile(chunk, offset + SEQUENCE_OFFSET);
+            if (current > stamp) {
+                // un ecrivain plus recent a deja reutilise la place
+                return;
+            }
+            if (current == WRITING) {
+                Thread.onSpinWait();
+                continue;
+            }
+            if (SEQUENCE.compareAndSet(chunk, offset + SEQUENCE_OFFSET, current, WRITING)) {
+                break;
+            }
+        }
+        chunk.putLong(offset + TRAINER_ID_OFFSET, message.getTrainerId() == null ? 0L : message.getTrainerId());
+        chunk.putLong(offset + POKEMON_ID_OFFSET, message.getPokemonId() == null ? 0L : message.getPokemonId());
+        chunk.putLong(offset + DATE_OFFSET, toEpochMillis(message.getCaptureDate()));
+        chunk.putInt(offset + TRAINER_NAME_OFFSET, names.idOf(message.getTrainerName()));
+        chunk.putInt(offset + POKEMON_NAME_OFFSET, names.idOf(message.getPokemonName()));
+        // publie l'enregistrement complet
+        SEQUENCE.setRelease(chunk, offset + SEQUENCE_OFFSET, stamp);
+    }
+
+    // parcourt les enregistrements de numero < before encore presents, du plus recent au plus
+    // ancien, tant que le visiteur retourne true ; un enregistrement en cours d'ecriture ou
+    // ecrase pendant la lecture est ignore. retourne le nombre d'enregistrements lus
+    public long forEachBefore(long before, CaptureVisitor visitor) {
+        long end = Math.min(before, nextSequence.get());
+        long start = Math.max(0L, nextSequence.get() - capacity);
+        long visited = 0;
+        for (long sequence = end - 1; sequence >= start; sequence--) {
+            ByteBuffer chunk = chunks.get((int) ((sequence % capacity) >>> CHUNK_SHIFT));
+            if (chunk == null) {
+                continue;
+            }
+            int offset = offsetOf(sequence);
+            long stamp = sequence + 1;
+            if ((long) SEQUENCE.getAcquire(chunk, offset + SEQUENCE_OFFSET) != stamp) {
+                continue;
+            }
+            long trainerId = chunk.getLong(offset + TRAINER_ID_OFFSET);
+            long pokemonId = chunk.getLong(offset + POKEMON_ID_OFFSET);
+            long captureMillis = chunk.getLong(offset + DATE_OFFSET);
+            int trainerNameId = chunk.getInt(offset + TRAINER_NAME_OFFSET);
+            int pokemonNameId = chunk.getInt(offset + POKEMON_NAME_OFFSET);
+            VarHandle.loadLoadFence();
+            if ((long) SEQUENCE.getVolatile(chunk, offset + SEQUENCE_OFFSET) != stamp) {
+                continue;
+            }
+            visited++;
+            if (!visitor.visit(sequence, trainerId, pokemonId, captureMillis, trainerNameId, pokemonNameId)) {
+                break;
+            }
+        }
+        return visited;
+    }
+
+    private ByteBuffer chunkFor(long sequence) {
+        int index = (int) ((sequence % capacity) >>> CHUNK_SHIFT);
+        ByteBuffer chunk = chunks.get(index);
+        if (chunk == null) {
+            // aligne sur 8 octets pour les acces atomiques a la sequence
+            ByteBuffer allocated = ByteBuffer.allocateDirect(CHUNK_RECORDS * RECORD_SIZE + 8)
+                    .alignedSlice(8)
+                    .order(ByteOrder.nativeOrder());
+            chunk = chunks.compareAndSet(index, null, allocated) ? allocated : chunks.get(index);
+        }
+        return chunk;
+    }
+
+    private int offsetOf(long sequence) {
+        return (int) ((sequence % capacity) & (CHUNK_RECORDS - 1)) * RECORD_SIZE;
+    }
+
+    public String nameOf(int nameId) {
+        return names.nameOf(nameId);
+    }
+
+    // nombre de captures gardees
+    public long size() {
+        return Math.min(nextSequence.get(), capacity);
+    }
+
+    // nombre total de captures ajoutees depuis le demarrage
+    public long totalAppended() {
+        return nextSequence.get();
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    public long offHeapBytes() {
+        long bytes = 0;
+        for (int i = 0; i < chunks.length(); i++) {
+            if (chunks.get(i) != null) {
+                bytes += (long) CHUNK_RECORDS * RECORD_SIZE;
+            }
+        }
+        return bytes;
+    }
+
+    public int dictionarySize() {
+        return names.size();
+    }
+
+    static long toEpochMillis(LocalDateTime date) {
+        return date == null ? NO_DATE : date.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    static LocalDateTime fromEpochMillis(long captureMillis) {
+        return captureMillis == NO_DATE ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(captureMillis), ZoneOffset.UTC);
+    }
+}
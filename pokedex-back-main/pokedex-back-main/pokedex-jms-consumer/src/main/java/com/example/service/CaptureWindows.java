@@ -0,0 +1,166 @@
+package com.example.service;
+
+import com.example.dto.CaptureMessage;
+import com.example.dto.CaptureTimeSeries;
+import com.example.dto.WindowedCaptureStats;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// agregats des captures sur des fenetres de temps, alimentes a chaque capture recue :
+// - une tranche par seconde sur la derniere minute (derniere minute, glissante a la seconde)
+// - une tranche par minute sur la derniere heure (derniere heure, serie par minute)
+// - une tranche par heure sur le dernier jour (dernier jour, serie par heure)
+// les captures sont rangees selon leur captureDate (meme convention que le CaptureStore :
+// date locale lue comme UTC), une capture sans date selon l'heure de reception
+public class CaptureWindows {
+
+    private static final long SECOND_MILLIS = 1_000L;
+    private static final long MINUTE_MILLIS = 60 * SECOND_MILLIS;
+    private static final long HOUR_MILLIS = 60 * MINUTE_MILLIS;
+
+    public enum Window {
+        MINUTE, HOUR, DAY
+    }
+
+    private static final CaptureWindows INSTANCE = new CaptureWindows(
+            CaptureAggregator.getInstance(),
+            () -> CaptureStore.toEpochMillis(LocalDateTime.now()),
+            Math.max(60, Integer.getInteger("pokedex.consumer.windows.minuteBuckets", 60)),
+            Math.max(24, Integer.getInteger("pokedex.consumer.windows.hourBuckets", 24)));
+
+    private final CaptureAggregator captureAggregator;
+    private final LongSupplier clock;
+    private final TimeBucketRing seconds;
+    private final TimeBucketRing minutes;
+    private final TimeBucketRing hours;
+    // captures trop anciennes pour la plus longue fenetre (relecture du journal au demarrage...)
+    private final AtomicLong expired = new AtomicLong();
+
+    CaptureWindows(CaptureAggregator captureAggregator, LongSupplier clock, int minuteBuckets, int hourBuckets) {
+        this.captureAggregator = captureAggregator;
+        this.clock = clock;
+        this.seconds = new TimeBucketRing(SECOND_MILLIS, 60);
+        this.minutes = new TimeBucketRing(MINUTE_MILLIS, minuteBuckets);
+        this.hours = new TimeBucketRing(HOUR_MILLIS, hourBuckets);
+    }
+
+    public static CaptureWindows getInstance() {
+        return INSTANCE;
+    }
+
+    public void record(CaptureMessage capture) {
+        if (capture == null || capture.getTrainerId() == null) {
+            return;
+        }
+        long now = clock.getAsLong();
+        long captureMillis = CaptureStore.toEpochMillis(capture.getCaptureDate());
+        if (captureMillis == CaptureStore.NO_DATE) {
+            captureMillis = now;
+        }
+        long trainerId = capture.getTrainerId();
+        long pokemonId = capture.getPokemonId() == null ? 0L : capture.getPokemonId();
+        seconds.add(captureMillis, now, trainerId, pokemonId);
+        minutes.add(captureMillis, now, trainerId, pokemonId);
+        if (!hours.add(captureMillis, now, trainerId, pokemonId)) {
+            expired.incrementAndGet();
+        }
+    }
+
+    public void recordAll(List<CaptureMessage> captures) {
+        for (CaptureMessage capture : captures) {
+            record(capture);
+        }
+    }
+
+    // captures de la fenetre, avec au plus `limit` trainers et pokemons (tous si limit <= 0)
+    public WindowedCaptureStats getWindow(Window window, int limit) {
+        TimeBucketRing.WindowCounts counts = ringOf(window).sum(clock.getAsLong(), bucketsOf(window));
+        return new WindowedCaptureStats(
+                window.name().toLowerCase(),
+                toDate(counts.getFromMillis()),
+                toDate(counts.getToMillis()),
+                counts.getTotal(),
+                toCounts(counts.getTrainers(), limit, true),
+                toCounts(counts.getPokemons(), limit, false));
+    }
+
+    // captures d'un trainer sur chaque fenetre
+    public Map<String, Object> getTrainerWindows(long trainerId) {
+        long now = clock.getAsLong();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("trainerId", trainerId);
+        result.put("trainerName", captureAggregator.getTrainerName(trainerId));
+        for (Window window : Window.values()) {
+            result.put(window.name().toLowerCase(), ringOf(window).trainerCount(now, bucketsOf(window), trainerId));
+        }
+        return result;
+    }
+
+    public Map<String, Object> getPokemonWindows(long pokemonId) {
+        long now = clock.getAsLong();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("pokemonId", pokemonId);
+        result.put("pokemonName", captureAggregator.getPokemonName(pokemonId));
+        for (Window window : Window.values()) {
+            result.put(window.name().toLowerCase(), ringOf(window).pokemonCount(now, bucketsOf(window), pokemonId));
+        }
+        return result;
+    }
+
+    public CaptureTimeSeries getMinuteSeries() {
+        return series("minute", minutes);
+    }
+
+    public CaptureTimeSeries getHourSeries() {
+        return series("hour", hours);
+    }
+
+    public long getExpiredCaptures() {
+        return expired.get();
+    }
+
+    private CaptureTimeSeries series(String name, TimeBucketRing ring) {
+        long now = clock.getAsLong();
+        long[] totals = ring.series(now);
+        long start = ring.seriesStartMillis(now);
+        List<CaptureTimeSeries.BucketCount> buckets = new ArrayList<>(totals.length);
+        for (int i = 0; i < totals.length; i++) {
+            buckets.add(new CaptureTimeSeries.BucketCount(toDate(start + i * ring.getBucketMillis()), totals[i]));
+        }
+        return new CaptureTimeSeries(name, buckets);
+    }
+
+    private List<WindowedCaptureStats.WindowCount> toCounts(LongIntHashMap counts, int limit, boolean trainers) {
+        long[] ids = counts.keysByValueDescending(limit);
+        List<WindowedCaptureStats.WindowCount> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            String name = trainers ? captureAggregator.getTrainerName(id) : captureAggregator.getPokemonName(id);
+            result.add(new WindowedCaptureStats.WindowCount(id, name, (long) counts.get(id, 0)));
+        }
+        return result;
+    }
+
+    private TimeBucketRing ringOf(Window window) {
+        switch (window) {
+            case MINUTE:
+                return seconds;
+            case HOUR:
+                return minutes;
+            default:
+                return hours;
+        }
+    }
+
+    // chaque fenetre somme les 60 dernieres secondes, 60 dernieres minutes ou 24 dernieres heures
+    private int bucketsOf(Window window) {
+        return window == Window.DAY ? 24 : 60;
+    }
+
+    private static LocalDateTime toDate(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L), 0, ZoneOffset.UTC);
+    }
+}
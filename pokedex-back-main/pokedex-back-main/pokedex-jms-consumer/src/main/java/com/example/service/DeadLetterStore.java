@@ -0,0 +1,448 @@
+package com.example.service;
+
+import com.example.dto.DeadLetter;
+import com.example.dto.DeadLetterStats;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+// quarantaine locale des messages illisibles : au lieu d'etre relivres et relogues avec leur
+// pile d'appel, ils sont acquittes et gardes sur disque (un fichier par message) pour etre
+// inspectes puis rejoues ou supprimes via l'api.
+//
+// un flot de messages empoisonnes reste peu couteux pour la reception :
+// - une copie identique d'un message deja en quarantaine ne fait qu'incrementer un compteur ;
+// - les ecritures sur disque sont limitees par seconde (seau a jetons), au-dela le message
+//   est seulement compte ;
+// - le log est limite a une ligne par raison et par intervalle, sans pile d'appel.
+// le nombre d'entrees et la taille totale sont bornes, les plus anciennes sont supprimees
+//
+// fichier : [magic][version][date][raison][queue][messageId][detail][crc32][taille][message]
+public class DeadLetterStore {
+
+    private static final Logger logger = Logger.getLogger(DeadLetterStore.class.getName());
+
+    public enum FailureReason {
+        // raisons de MessageCodec.Reason
+        BAD_MAGIC,
+        UNSUPPORTED_VERSION,
+        UNKNOWN_TYPE,
+        TRUNCATED,
+        INVALID_FIELD,
+        // erreur inattendue pendant le decodage
+        DECODE_ERROR,
+        // message jms qui n'est pas un BytesMessage
+        UNSUPPORTED_JMS_TYPE
+    }
+
+    private static final int MAGIC = 0x504B444C;
+    private static final int VERSION = 1;
+    private static final int MAX_DETAIL_LENGTH = 1000;
+    private static final String FILE_PREFIX = "dead-";
+    private static final String FILE_SUFFIX = ".msg";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private static final DeadLetterStore INSTANCE = new DeadLetterStore(
+            Paths.get(System.getProperty("pokedex.consumer.deadletter.dir",
+                    Paths.get(System.getProperty("user.home"), ".pokedex", "consumer-dlq").toString())),
+            Integer.getInteger("pokedex.consumer.deadletter.maxEntries", 1000),
+            Integer.getInteger("pokedex.consumer.deadletter.maxMb", 64) * 1024L * 1024L,
+            Integer.getInteger("pokedex.consumer.deadletter.maxWritesPerSecond", 50),
+            Long.getLong("pokedex.consumer.deadletter.logIntervalMs", 10_000L));
+
+    private final Path directory;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final int maxWritesPerSecond;
+    private final long logIntervalMs;
+
+    // entrees par id croissant : la premiere est la plus ancienne
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>();
+    // empreinte du contenu -> id de l'entree, pour reconnaitre les copies
+    private final Map<Long, Long> byFingerprint = new HashMap<>();
+    private boolean enabled;
+    private long nextId = 1;
+    private long storedBytes;
+
+    private final long[] quarantined = new long[FailureReason.values().length];
+    private final long[] lastLoggedAt = new long[FailureReason.values().length];
+    private final long[] unlogged = new long[FailureReason.values().length];
+    private long duplicates;
+    private long notStored;
+    private long evicted;
+    private long replayed;
+    private long deleted;
+    private long writeErrors;
+
+    // seau a jetons des ecritures sur disque
+    private double writeTokens;
+    private long lastRefillNanos = System.nanoTime();
+
+    DeadLetterStore(Path directory, int maxEntries, long maxBytes, int maxWritesPerSecond, long logIntervalMs) {
+        this.directory = directory;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxBytes = maxBytes;
+        this.maxWritesPerSecond = Math.max(1, maxWritesPerSecond);
+        this.logIntervalMs = logIntervalMs;
+        this.writeTokens = this.maxWritesPerSecond;
+    }
+
+    public static DeadLetterStore getInstance() {
+        return INSTANCE;
+    }
+
+    // recharge les entrees deja sur disque ; sans repertoire utilisable les messages
+    // empoisonnes sont seulement comptes
+    public synchronized void open() {
+        if (enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            for (Path file : listFiles()) {
+                loadEntry(file);
+            }
+            enabled = true;
+            evictIfNeeded();
+            logger.info("dead letter store opened in " + directory + " with " + entries.size() + " quarantined message(s)");
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "unable to open dead letter store in " + directory + ", poison messages will only be counted", e);
+        }
+    }
+
+    // met un message en quarantaine ; appele au commit de la transaction qui l'acquitte
+    public synchronized void quarantine(String queue, String messageId, FailureReason reason, String detail, byte[] payload) {
+        long now = System.currentTimeMillis();
+        quarantined[reason.ordinal()]++;
+        log(queue, reason, detail, now);
+
+        long fingerprint = fingerprint(queue, reason, payload);
+        Long existingId = byFingerprint.get(fingerprint);
+        Entry existing = existingId == null ? null : entries.get(existingId);
+        if (existing != null && existing.size == payload.length) {
+            existing.occurrences++;
+            existing.lastSeenAt = now;
+            duplicates++;
+            return;
+        }
+        if (!enabled || !takeWriteToken()) {
+            notStored++;
+            return;
+        }
+
+        Entry entry = new Entry(nextId++, queue, messageId, reason, truncate(detail), now, payload.length, fingerprint);
+        try {
+            entry.fileSize = write(entry, payload);
+        } catch (IOException e) {
+            writeErrors++;
+            notStored++;
+            logger.log(Level.WARNING, "unable to write quarantined message to " + directory + ": " + e.getMessage());
+            return;
+        }
+        add(entry);
+        evictIfNeeded();
+    }
+
+    // entrees du plus recent au plus ancien, sans leur contenu
+    public synchronized List<DeadLetter> list(int limit) {
+        List<DeadLetter> result = new ArrayList<>(Math.min(limit, entries.size()));
+        for (Entry entry : entries.values()) {
+            result.add(entry.toDto(null));
+        }
+        Collections.reverse(result);
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    // une entree avec son contenu en base64 ; null si elle n'existe pas
+    public DeadLetter get(long id) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(id);
+        }
+        if (entry == null) {
+            return null;
+        }
+        byte[] payload = readPayload(entry);
+        return payload == null ? null : entry.toDto(Base64.getEncoder().encodeToString(payload));
+    }
+
+    // repasse le message au handler puis le retire de la quarantaine ; si le handler leve
+    // une exception l'entree est gardee. retourne null si l'entree n'existe pas
+    public DeadLetter replay(long id, Consumer<byte[]> handler) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(id);
+        }
+        if (entry == null) {
+            return null;
+        }
+        byte[] payload = readPayload(entry);
+        if (payload == null) {
+            return null;
+        }
+        handler.accept(payload);
+        synchronized (this) {
+            if (remove(id) != null) {
+                replayed++;
+            }
+        }
+        return entry.toDto(null);
+    }
+
+    public synchronized DeadLetter delete(long id) {
+        Entry entry = remove(id);
+        if (entry == null) {
+            return null;
+        }
+        deleted++;
+        return entry.toDto(null);
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized DeadLetterStats getStats() {
+        Map<String, Long> byReason = new LinkedHashMap<>();
+        long total = 0;
+        for (FailureReason reason : FailureReason.values()) {
+            byReason.put(reason.name(), quarantined[reason.ordinal()]);
+            total += quarantined[reason.ordinal()];
+        }
+        return new DeadLetterStats(
+                enabled,
+                directory.toString(),
+                entries.size(),
+                maxEntries,
+                storedBytes,
+                maxBytes,
+                total,
+                byReason,
+                duplicates,
+                notStored,
+                maxWritesPerSecond,
+                evicted,
+                replayed,
+                deleted,
+                writeErrors
+        );
+    }
+
+    // une ligne par raison et par intervalle, avec le nombre de messages non logues entre-temps
+    private void log(String queue, FailureReason reason, String detail, long now) {
+        int index = reason.ordinal();
+        if (lastLoggedAt[index] != 0 && now - lastLoggedAt[index] < logIntervalMs) {
+            unlogged[index]++;
+            return;
+        }
+        long skipped = unlogged[index];
+        lastLoggedAt[index] = now;
+        unlogged[index] = 0;
+        logger.warning("message from " + queue + " quarantined (" + reason.name() + ": " + detail + ")"
+                + (skipped > 0 ? ", " + skipped + " more with this reason in the last " + logIntervalMs + " ms" : ""));
+    }
+
+    private boolean takeWriteToken() {
+        long now = System.nanoTime();
+        writeTokens = Math.min(maxWritesPerSecond, writeTokens + (now - lastRefillNanos) * maxWritesPerSecond / 1e9);
+        lastRefillNanos = now;
+        if (writeTokens < 1) {
+            return false;
+        }
+        writeTokens--;
+        return true;
+    }
+
+    private void add(Entry entry) {
+        entries.put(entry.id, entry);
+        byFingerprint.put(entry.fingerprint, entry.id);
+        storedBytes += entry.fileSize;
+        nextId = Math.max(nextId, entry.id + 1);
+    }
+
+    private Entry remove(long id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return null;
+        }
+        byFingerprint.remove(entry.fingerprint, id);
+        storedBytes -= entry.fileSize;
+        try {
+            Files.deleteIfExists(fileOf(id));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "unable to delete quarantined message " + fileOf(id), e);
+        }
+        return entry;
+    }
+
+    private void evictIfNeeded() {
+        while (!entries.isEmpty() && (entries.size() > maxEntries || storedBytes > maxBytes)) {
+            remove(entries.keySet().iterator().next());
+            evicted++;
+        }
+    }
+
+    // ecrit dans un fichier temporaire puis le renomme : un fichier .msg est toujours complet
+    private long write(Entry entry, byte[] payload) throws IOException {
+        Path file = fileOf(entry.id);
+        Path tmp = file.resolveSibling(file.getFileName() + TMP_SUFFIX);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(entry.quarantinedAt);
+            out.writeUTF(entry.reason.name());
+            out.writeUTF(entry.queue);
+            out.writeUTF(entry.messageId == null ? "" : entry.messageId);
+            out.writeUTF(entry.detail);
+            out.writeInt((int) checksum(payload));
+            out.writeInt(payload.length);
+            out.write(payload);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return Files.size(file);
+    }
+
+    private void loadEntry(Path file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("not a dead letter file of version " + VERSION);
+            }
+            long quarantinedAt = in.readLong();
+            FailureReason reason = FailureReason.valueOf(in.readUTF());
+            String queue = in.readUTF();
+            String messageId = in.readUTF();
+            String detail = in.readUTF();
+            in.readInt();
+            byte[] payload = new byte[in.readInt()];
+            in.readFully(payload);
+            Entry entry = new Entry(idOf(file), queue, messageId.isEmpty() ? null : messageId, reason, detail,
+                    quarantinedAt, payload.length, fingerprint(queue, reason, payload));
+            entry.fileSize = Files.size(file);
+            add(entry);
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "skipping unreadable dead letter file " + file + ": " + e.getMessage());
+        }
+    }
+
+    private byte[] readPayload(Entry entry) {
+        Path file = fileOf(entry.id);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            in.readInt();
+            in.readInt();
+            in.readLong();
+            in.readUTF();
+            in.readUTF();
+            in.readUTF();
+            in.readUTF();
+            int checksum = in.readInt();
+            byte[] payload = new byte[in.readInt()];
+            in.readFully(payload);
+            if ((int) checksum(payload) != checksum) {
+                throw new IOException("checksum mismatch");
+            }
+            return payload;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "unable to read quarantined message " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private List<Path> listFiles() throws IOException {
+        List<Path> found = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_PREFIX + "*")) {
+            for (Path file : stream) {
+                if (file.getFileName().toString().endsWith(TMP_SUFFIX)) {
+                    // ecriture interrompue
+                    Files.deleteIfExists(file);
+                } else if (file.getFileName().toString().endsWith(FILE_SUFFIX)) {
+                    found.add(file);
+                }
+            }
+        }
+        // l'id est sur 20 chiffres : l'ordre alphabetique est l'ordre de mise en quarantaine
+        Collections.sort(found);
+        return found;
+    }
+
+    private Path fileOf(long id) {
+        return directory.resolve(String.format("%s%020d%s", FILE_PREFIX, id, FILE_SUFFIX));
+    }
+
+    private static long idOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+    }
+
+    // crc32 et taille du contenu, queue et raison : deux messages identiques ont la meme empreinte
+    private static long fingerprint(String queue, FailureReason reason, byte[] payload) {
+        long hash = checksum(payload);
+        hash = hash * 31 + payload.length;
+        hash = hash * 31 + queue.hashCode();
+        return hash * 31 + reason.ordinal();
+    }
+
+    private static long checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return crc.getValue();
+    }
+
+    private static String truncate(String detail) {
+        if (detail == null) {
+            return "";
+        }
+        return detail.length() > MAX_DETAIL_LENGTH ? detail.substring(0, MAX_DETAIL_LENGTH) : detail;
+    }
+
+    private static final class Entry {
+        private final long id;
+        private final String queue;
+        private final String messageId;
+        private final FailureReason reason;
+        private final String detail;
+        private final long quarantinedAt;
+        private final int size;
+        private final long fingerprint;
+        private long fileSize;
+        // copies recues depuis, gardees en memoire seulement
+        private long occurrences = 1;
+        private long lastSeenAt;
+
+        private Entry(long id, String queue, String messageId, FailureReason reason, String detail,
+                      long quarantinedAt, int size, long fingerprint) {
+            this.id = id;
+            this.queue = queue;
+            this.messageId = messageId;
+            this.reason = reason;
+            this.detail = detail;
+            this.quarantinedAt = quarantinedAt;
+            this.lastSeenAt = quarantinedAt;
+            this.size = size;
+            this.fingerprint = fingerprint;
+        }
+
+        private DeadLetter toDto(String payload) {
+            return new DeadLetter(id, queue, messageId, reason.name(), detail, quarantinedAt, lastSeenAt,
+                    occurrences, size, payload);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.service;
+
+import com.example.dto.CaptureMessage;
+import com.example.dto.DistinctTrainersEstimate;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+// nombre de trainers distincts par pokemon et au total, estime par des HyperLogLog mis a jour
+// a chaque capture. un pokemon coute 2^p octets quel que soit son nombre de trainers
+//
+// checkpoint : [MAGIC][VERSION][hll global][nombre de pokemons]{[pokemonId][hll]}*, fusionnable
+// dans une autre instance du consumer
+public class DistinctTrainers {
+
+    private static final int MAGIC = 0x504B484C;
+    private static final byte VERSION = 1;
+
+    private static final DistinctTrainers INSTANCE = new DistinctTrainers(
+            CaptureAggregator.getInstance(),
+            Integer.getInteger("pokedex.consumer.hll.precision", 11),
+            Integer.getInteger("pokedex.consumer.hll.globalPrecision", 14));
+
+    private final CaptureAggregator captureAggregator;
+    private final int precision;
+    private final HyperLogLog global;
+    // pokemonId -> hll, protege par son propre verrou ; chaque hll a le sien pour les mises a jour
+    private final LongObjectHashMap<HyperLogLog> pokemons = new LongObjectHashMap<>(1024);
+
+    DistinctTrainers(CaptureAggregator captureAggregator, int precision, int globalPrecision) {
+        this.captureAggregator = captureAggregator;
+        this.precision = precision;
+        this.global = new HyperLogLog(globalPrecision);
+        // verifie la precision des pokemons des le demarrage
+        new HyperLogLog(precision);
+    }
+
+    public static DistinctTrainers getInstance() {
+        return INSTANCE;
+    }
+
+    public void record(CaptureMessage capture) {
+        if (capture == null || capture.getTrainerId() == null) {
+            return;
+        }
+        long trainerId = capture.getTrainerId();
+        global.offer(trainerId);
+        pokemon(capture.getPokemonId() == null ? 0L : capture.getPokemonId()).offer(trainerId);
+    }
+
+    public void recordAll(List<CaptureMessage> captures) {
+        for (CaptureMessage capture : captures) {
+            record(capture);
+        }
+    }
+
+    public DistinctTrainersEstimate getGlobal() {
+        return new DistinctTrainersEstimate(null, null, global.estimate(), global.standardError());
+    }
+
+    // null si le pokemon n'a jamais ete capture
+    public DistinctTrainersEstimate getPokemon(long pokemonId) {
+        HyperLogLog hll;
+        synchronized (pokemons) {
+            hll = pokemons.get(pokemonId);
+        }
+        return hll == null ? null : estimateOf(pokemonId, hll);
+    }
+
+    // estimation pour chaque pokemon, par nombre de trainers decroissant
+    public List<DistinctTrainersEstimate> getAllPokemons() {
+        Snapshot snapshot = snapshot();
+        List<DistinctTrainersEstimate> result = new ArrayList<>(snapshot.ids.length);
+        for (int i = 0; i < snapshot.ids.length; i++) {
+            result.add(estimateOf(snapshot.ids[i], snapshot.hlls[i]));
+        }
+        result.sort((a, b) -> Long.compare(b.getDistinctTrainers(), a.getDistinctTrainers()));
+        return result;
+    }
+
+    public int getPokemonCount() {
+        synchronized (pokemons) {
+            return pokemons.size();
+        }
+    }
+
+    // copie de tous les registres, pour les garder ou les fusionner dans une autre instance
+    public byte[] checkpoint() {
+        Snapshot snapshot = snapshot();
+        int size = 4 + 1 + global.serializedSize() + 4;
+        for (HyperLogLog hll : snapshot.hlls) {
+            size += 8 + hll.serializedSize();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).put(VERSION);
+        global.writeTo(buffer);
+        buffer.putInt(snapshot.ids.length);
+        for (int i = 0; i < snapshot.ids.length; i++) {
+            buffer.putLong(snapshot.ids[i]);
+            snapshot.hlls[i].writeTo(buffer);
+        }
+        return buffer.array();
+    }
+
+    // fusionne un checkpoint dans les registres courants ; retourne le nombre de pokemons lus
+    public int merge(byte[] checkpoint) {
+        ByteBuffer buffer = ByteBuffer.wrap(checkpoint);
+        try {
+            if (buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+                throw new IllegalArgumentException("not a distinct trainers checkpoint");
+            }
+            // tout est lu et verifie avant de modifier quoi que ce soit
+            HyperLogLog otherGlobal = HyperLogLog.readFrom(buffer);
+            int count = buffer.getInt();
+            // chaque pokemon occupe au moins [id][precision][registres] : un nombre plus grand
+            // que ce que le reste du checkpoint peut contenir est rejete avant toute allocation
+            int maxCount = buffer.remaining() / (Long.BYTES + 1 + (1 << precision));
+            if (count < 0 || count > maxCount) {
+                throw new IllegalArgumentException("invalid pokemon count " + count + " for " + buffer.remaining() + " remaining bytes");
+            }
+            long[] ids = new long[count];
+            HyperLogLog[] hlls = new HyperLogLog[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = buffer.getLong();
+                hlls[i] = HyperLogLog.readFrom(buffer);
+                if (hlls[i].getPrecision() != precision) {
+                    throw new IllegalArgumentException("pokemon precision " + hlls[i].getPrecision() + " does not match " + precision);
+                }
+            }
+            global.merge(otherGlobal);
+            for (int i = 0; i < count; i++) {
+                pokemon(ids[i]).merge(hlls[i]);
+            }
+            return count;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated checkpoint", e);
+        }
+    }
+
+    private HyperLogLog pokemon(long pokemonId) {
+        synchronized (pokemons) {
+            return pokemons.computeIfAbsent(pokemonId, id -> new HyperLogLog(precision));
+        }
+    }
+
+    // liste des pokemons et de leur hll, prise sous le verrou de la table
+    private Snapshot snapshot() {
+        synchronized (pokemons) {
+            Snapshot snapshot = new Snapshot(pokemons.size());
+            int[] next = new int[1];
+            pokemons.forEach((pokemonId, hll) -> {
+                snapshot.ids[next[0]] = pokemonId;
+                snapshot.hlls[next[0]++] = hll;
+            });
+            return snapshot;
+        }
+    }
+
+    private DistinctTrainersEstimate estimateOf(long pokemonId, HyperLogLog hll) {
+        return new DistinctTrainersEstimate(pokemonId, captureAggregator.getPokemonName(pokemonId), hll.estimate(), hll.standardError());
+    }
+
+    private static final class Snapshot {
+        private final long[] ids;
+        private final HyperLogLog[] hlls;
+
+        private Snapshot(int size) {
+            this.ids = new long[size];
+            this.hlls = new HyperLogLog[size];
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.example.service;
+
+import com.example.dto.EventLogStats;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+// journal durable des messages recus : les messages encodes par MessageCodec sont ajoutes
+// a la suite dans des segments de taille fixe ecrits via MappedByteBuffer. au demarrage
+// le journal est relu pour reconstruire l'etat en memoire (journal recent, store, agregats)
+//
+// segment : en-tete [magic][version][writePos] puis des enregistrements [taille][crc32][message]
+public class EventLog {
+
+    private static final Logger logger = Logger.getLogger(EventLog.class.getName());
+
+    public enum FsyncPolicy {
+        // force sur disque a chaque ajout
+        ALWAYS,
+        // force sur disque periodiquement depuis un thread de fond
+        BATCH,
+        // laisse le systeme ecrire les pages quand il le souhaite
+        NONE
+    }
+
+    private static final int MAGIC = 0x504B4C47;
+    private static final int VERSION = 1;
+    private static final int WRITE_POS_OFFSET = 8;
+    private static final int DATA_START = 16;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final EventLog INSTANCE = new EventLog(
+            Paths.get(System.getProperty("pokedex.consumer.eventlog.dir",
+                    Paths.get(System.getProperty("user.home"), ".pokedex", "consumer-log").toString())),
+            Integer.getInteger("pokedex.consumer.eventlog.segmentSizeMb", 16) * 1024 * 1024,
+            Integer.getInteger("pokedex.consumer.eventlog.retention.maxSegments", 64),
+            Long.getLong("pokedex.consumer.eventlog.retention.hours", 168L),
+            FsyncPolicy.valueOf(System.getProperty("pokedex.consumer.eventlog.fsync", FsyncPolicy.BATCH.name())),
+            Long.getLong("pokedex.consumer.eventlog.fsyncIntervalMs", 1000L));
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final long retentionMillis;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalMs;
+
+    private ScheduledExecutorService syncer;
+    private final List<Path> segments = new ArrayList<>();
+    private MappedByteBuffer active;
+    private long activeIndex;
+    private int writePos;
+    private boolean dirty;
+    private boolean opened;
+
+    private long appendedRecords;
+    private long appendedBytes;
+    private long deletedSegments;
+    private long corruptedRecords;
+    private long replayedRecords;
+    private long replayedBytes;
+    private long replayMillis;
+    private long startupMillis;
+
+    EventLog(Path directory, int segmentSize, int maxSegments, long retentionHours,
+             FsyncPolicy fsyncPolicy, long fsyncIntervalMs) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = Math.max(1, maxSegments);
+        this.retentionMillis = TimeUnit.HOURS.toMillis(retentionHours);
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalMs = fsyncIntervalMs;
+    }
+
+    public static EventLog getInstance() {
+        return INSTANCE;
+    }
+
+    // relit tous les segments dans l'ordre puis ouvre le dernier pour y ajouter la suite ;
+    // chaque message relu est passe au handler
+    public synchronized void open(Consumer<byte[]> handler) {
+        if (opened) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+            segments.addAll(listSegments());
+            applyRetention();
+
+            long replayStart = System.nanoTime();
+            for (Path segment : segments) {
+                try {
+                    replaySegment(segment, handler);
+                } catch (IOException e) {
+                    corruptedRecords++;
+                    logger.log(Level.SEVERE, "unable to replay event log segment " + segment, e);
+                }
+            }
+            replayMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - replayStart);
+
+            if (segments.isEmpty()) {
+                rollNewSegment(0);
+            } else {
+                Path last = segments.get(segments.size() - 1);
+                activeIndex = indexOf(last);
+                active = map(last);
+                writePos = (int) Math.max(DATA_START, Math.min(active.getLong(WRITE_POS_OFFSET), segmentSize));
+            }
+            opened = true;
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.SEVERE, "unable to open event log in " + directory + ", received messages will not be persisted", e);
+            active = null;
+            return;
+        } finally {
+            startupMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+
+        if (fsyncPolicy == FsyncPolicy.BATCH) {
+            syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "event-log-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncer.scheduleWithFixedDelay(this::syncIfDirty, fsyncIntervalMs, fsyncIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        logger.info(String.format("event log opened in %d ms: %d records (%d bytes) replayed from %d segments in %d ms (%.0f records/s)",
+                startupMillis, replayedRecords, replayedBytes, segments.size(), replayMillis, getReplayRecordsPerSecond()));
+    }
+
+    // ajoute un message encode a la fin du journal
+    public synchronized void append(byte[] message) {
+        if (active == null) {
+            return;
+        }
+        int recordSize = RECORD_HEADER_SIZE + message.length;
+        if (DATA_START + recordSize > segmentSize) {
+            logger.warning("message of " + message.length + " bytes is larger than an event log segment, not persisted");
+            return;
+        }
+        try {
+            if (writePos + recordSize > segmentSize) {
+                rollNewSegment(activeIndex + 1);
+                applyRetention();
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "unable to create a new event log segment, message not persisted", e);
+            return;
+        }
+
+        active.putInt(writePos, message.length);
+        active.putInt(writePos + 4, (int) checksum(message));
+        active.put(writePos + RECORD_HEADER_SIZE, message);
+        // la position d'ecriture n'avance qu'une fois l'enregistrement complet
+        writePos += recordSize;
+        active.putLong(WRITE_POS_OFFSET, writePos);
+        appendedRecords++;
+        appendedBytes += message.length;
+
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            active.force();
+        } else {
+            dirty = true;
+        }
+    }
+
+    private void replaySegment(Path segment, Consumer<byte[]> handler) throws IOException {
+        MappedByteBuffer buffer = map(segment);
+        int end = (int) Math.min(buffer.getLong(WRITE_POS_OFFSET), segmentSize);
+        int position = DATA_START;
+        while (position + RECORD_HEADER_SIZE <= end) {
+            int length = buffer.getInt(position);
+            int checksum = buffer.getInt(position + 4);
+            if (length < 0 || position + RECORD_HEADER_SIZE + length > end) {
+                corruptedRecords++;
+                logger.severe("truncated record at offset " + position + " in " + segment + ", skipping the rest of the segment");
+                break;
+            }
+            byte[] message = new byte[length];
+            buffer.get(position + RECORD_HEADER_SIZE, message);
+            position += RECORD_HEADER_SIZE + length;
+            if ((int) checksum(message) != checksum) {
+                corruptedRecords++;
+                logger.severe("corrupted record in " + segment + ", skipping it");
+                continue;
+            }
+            try {
+                handler.accept(message);
+            } catch (RuntimeException e) {
+                corruptedRecords++;
+                logger.log(Level.WARNING, "unable to replay a record from " + segment, e);
+                continue;
+            }
+            replayedRecords++;
+            replayedBytes += length;
+        }
+    }
+
+    private void rollNewSegment(long index) throws IOException {
+        if (active != null && fsyncPolicy != FsyncPolicy.NONE) {
+            active.force();
+        }
+        Path segment = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+        MappedByteBuffer buffer = map(segment);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(WRITE_POS_OFFSET, DATA_START);
+        segments.add(segment);
+        active = buffer;
+        activeIndex = index;
+        writePos = DATA_START;
+    }
+
+    // supprime les segments les plus anciens au-dela du nombre max ou de la duree de retention,
+    // le segment actif est toujours garde
+    private void applyRetention() {
+        long oldestAllowed = System.currentTimeMillis() - retentionMillis;
+        while (segments.size() > 1) {
+            Path oldest = segments.get(0);
+            boolean tooMany = segments.size() > maxSegments;
+            boolean tooOld;
+            try {
+                tooOld = Files.getLastModifiedTime(oldest).toMillis() < oldestAllowed;
+            } catch (IOException e) {
+                tooOld = false;
+            }
+            if (!tooMany && !tooOld) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(oldest);
+                deletedSegments++;
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "unable to delete event log segment " + oldest, e);
+                break;
+            }
+            segments.remove(0);
+        }
+    }
+
+    private MappedByteBuffer map(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // le mapping reste valide apres la fermeture du channel
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            if (buffer.getInt(0) != 0 && (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)) {
+                throw new IOException(segment + " is not an event log segment of version " + VERSION);
+            }
+            return buffer;
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> found = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path segment : stream) {
+                found.add(segment);
+            }
+        }
+        // le nom contient l'index sur 20 chiffres : l'ordre alphabetique est l'ordre d'ecriture
+        Collections.sort(found);
+        return found;
+    }
+
+    private static long indexOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private synchronized void syncIfDirty() {
+        if (active != null && dirty) {
+            active.force();
+            dirty = false;
+        }
+    }
+
+    private static long checksum(byte[] message) {
+        CRC32 crc = new CRC32();
+        crc.update(message);
+        return crc.getValue();
+    }
+
+    private double getReplayRecordsPerSecond() {
+        return replayMillis == 0 ? replayedRecords : replayedRecords * 1000.0 / replayMillis;
+    }
+
+    public synchronized EventLogStats getStats() {
+        return new EventLogStats(
+                active != null,
+                directory.toString(),
+                fsyncPolicy.name(),
+                segmentSize,
+                segments.size(),
+                maxSegments,
+                appendedRecords,
+                appendedBytes,
+                deletedSegments,
+                corruptedRecords,
+                replayedRecords,
+                replayedBytes,
+                replayMillis,
+                getReplayRecordsPerSecond(),
+                startupMillis
+        );
+    }
+
+    public synchronized void close() {
+        if (syncer != null) {
+            syncer.shutdownNow();
+        }
+        if (active != null && fsyncPolicy != FsyncPolicy.NONE) {
+            active.force();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.service;
+
+import java.nio.ByteBuffer;
+
+// estimation du nombre de valeurs distinctes (HyperLogLog, Flajolet et al.) avec 2^p registres
+// d'un octet : les p premiers bits du hash choisissent le registre, qui garde le plus grand
+// rang (nombre de zeros en tete + 1) vu dans le reste du hash. erreur type 1.04 / sqrt(2^p)
+//
+// deux HyperLogLog de meme precision se fusionnent par max registre a registre, ce qui donne
+// le meme resultat que si toutes les valeurs avaient ete vues par un seul
+public class HyperLogLog {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 16;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public synchronized void offer(long value) {
+        long hash = hash(value);
+        int index = (int) (hash >>> (64 - precision));
+        int rank = Math.min(Long.numberOfLeadingZeros(hash << precision), 64 - precision) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    public synchronized long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // petites cardinalites : comptage lineaire sur les registres vides
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public synchronized void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("cannot merge precision " + other.precision + " into " + precision);
+        }
+        byte[] otherRegisters = other.copyRegisters();
+        for (int i = 0; i < registers.length; i++) {
+            if (otherRegisters[i] > registers[i]) {
+                registers[i] = otherRegisters[i];
+            }
+        }
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public double standardError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    // taille de la forme serialisee : [precision][registres]
+    public int serializedSize() {
+        return 1 + registers.length;
+    }
+
+    public synchronized void writeTo(ByteBuffer buffer) {
+        buffer.put((byte) precision);
+        buffer.put(registers);
+    }
+
+    public static HyperLogLog readFrom(ByteBuffer buffer) {
+        HyperLogLog hll = new HyperLogLog(buffer.get());
+        buffer.get(hll.registers);
+        for (byte register : hll.registers) {
+            if (register < 0 || register > 64 - hll.precision + 1) {
+                throw new IllegalArgumentException("invalid register value " + register);
+            }
+        }
+        return hll;
+    }
+
+    private synchronized byte[] copyRegisters() {
+        return registers.clone();
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+    // finaliseur 64 bits de MurmurHash3 : des ids consecutifs donnent des hash independants
+    private static long hash(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
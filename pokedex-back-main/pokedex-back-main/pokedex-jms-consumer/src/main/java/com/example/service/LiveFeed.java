@@ -0,0 +1,266 @@
+package com.example.service;
+
+import com.example.dto.CaptureMessage;
+import com.example.dto.LiveFeedStats;
+import com.example.dto.TrainerMessage;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// flux des messages recus, pousse aux abonnes server-sent events
+//
+// chaque message est publie une seule fois dans un RingBuffer partage, numerote par sa
+// sequence (c'est l'id de l'evenement sse). chaque abonne a son curseur dans ce buffer et son
+// thread virtuel qui lui envoie les evenements un par un : la reception jms ne fait qu'un
+// ajout et un reveil, quel que soit le nombre d'abonnes. un abonne ne peut pas avoir plus de
+// BUFFER_SIZE evenements en retard : au-dela, selon la politique, les plus anciens sont
+// sautes (DROP_OLDEST) ou l'abonne est deconnecte (DISCONNECT)
+public class LiveFeed {
+
+    private static final Logger LOGGER = Logger.getLogger(LiveFeed.class.getName());
+
+    public enum DropPolicy {
+        DROP_OLDEST, DISCONNECT
+    }
+
+    public enum EventType {
+        CAPTURE, TRAINER
+    }
+
+    private static final LiveFeed INSTANCE = new LiveFeed(
+            Integer.getInteger("pokedex.consumer.live.bufferSize", 256),
+            Integer.getInteger("pokedex.consumer.live.maxSubscribers", 10_000),
+            DropPolicy.valueOf(System.getProperty("pokedex.consumer.live.dropPolicy", "DROP_OLDEST").toUpperCase()),
+            Long.getLong("pokedex.consumer.live.heartbeatMs", 15_000L));
+
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final DropPolicy dropPolicy;
+    private final long heartbeatMs;
+    private final RingBuffer<FeedEvent> events;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    // reveille les abonnes en attente quand un evenement est publie
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+
+    private final AtomicInteger subscriberNumber = new AtomicInteger();
+    private final AtomicLong totalSubscribed = new AtomicLong();
+    private final AtomicLong rejectedSubscribers = new AtomicLong();
+    private final AtomicLong sentEvents = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong slowDisconnects = new AtomicLong();
+
+    LiveFeed(int bufferSize, int maxSubscribers, DropPolicy dropPolicy, long heartbeatMs) {
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.dropPolicy = dropPolicy;
+        this.heartbeatMs = heartbeatMs;
+        this.events = new RingBuffer<>(bufferSize);
+    }
+
+    public static LiveFeed getInstance() {
+        return INSTANCE;
+    }
+
+    public void publishCapture(CaptureMessage message) {
+        events.add(new FeedEvent(EventType.CAPTURE, message));
+        wakeUp();
+    }
+
+    public void publishCaptures(List<CaptureMessage> messages) {
+        for (CaptureMessage message : messages) {
+            events.add(new FeedEvent(EventType.CAPTURE, message));
+        }
+        wakeUp();
+    }
+
+    public void publishTrainer(TrainerMessage message) {
+        events.add(new FeedEvent(EventType.TRAINER, message));
+        wakeUp();
+    }
+
+    private void wakeUp() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ajoute un abonne ; type null = tous les messages. lastEventId permet de reprendre apres
+    // une deconnexion si les evenements manques sont encore dans le buffer. retourne false si
+    // le nombre max d'abonnes est atteint
+    public boolean subscribe(SseEventSink sink, Sse sse, EventType type, Long lastEventId, Function<Object, String> encoder) {
+        if (subscribers.size() >= maxSubscribers) {
+            rejectedSubscribers.incrementAndGet();
+            return false;
+        }
+        long head = events.totalAdded();
+        long cursor = lastEventId != null ? Math.min(Math.max(lastEventId + 1, 0L), head) : head;
+        Subscriber subscriber = new Subscriber(sink, sse, type, cursor, encoder);
+        subscribers.add(subscriber);
+        totalSubscribed.incrementAndGet();
+        Thread.ofVirtual().name("live-feed-" + subscriberNumber.incrementAndGet()).start(subscriber);
+        return true;
+    }
+
+    public LiveFeedStats getStats() {
+        return new LiveFeedStats(
+                subscribers.size(),
+                maxSubscribers,
+                bufferSize,
+                dropPolicy.name(),
+                events.totalAdded(),
+                sentEvents.get(),
+                droppedEvents.get(),
+                slowDisconnects.get(),
+                totalSubscribed.get(),
+                rejectedSubscribers.get()
+        );
+    }
+
+    private final class Subscriber implements Runnable {
+        private final SseEventSink sink;
+        private final Sse sse;
+        private final EventType type;
+        private final Function<Object, String> encoder;
+        private long cursor;
+
+        private Subscriber(SseEventSink sink, Sse sse, EventType type, long cursor, Function<Object, String> encoder) {
+            this.sink = sink;
+            this.sse = sse;
+            this.type = type;
+            this.cursor = cursor;
+            this.encoder = encoder;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!sink.isClosed()) {
+                    if (!awaitEvents()) {
+                        // rien depuis heartbeatMs : un commentaire pour detecter les clients partis
+                        send(sse.newEventBuilder().comment("heartbeat").build());
+                        continue;
+                    }
+                    if (!catchUp()) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                // client deconnecte ou erreur d'ecriture
+                LOGGER.log(Level.FINE, "live feed subscriber closed", e);
+            } finally {
+                subscribers.remove(this);
+                close();
+            }
+        }
+
+        // attend un evenement apres le curseur ; false si heartbeatMs s'est ecoule sans rien
+        private boolean awaitEvents() throws InterruptedException {
+            if (events.totalAdded() > cursor) {
+                return true;
+            }
+            lock.lock();
+            try {
+                long remaining = TimeUnit.MILLISECONDS.toNanos(heartbeatMs);
+                while (events.totalAdded() <= cursor) {
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    remaining = published.awaitNanos(remaining);
+                }
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // envoie les evenements en attente ; false si l'abonne a ete deconnecte car trop lent
+        private boolean catchUp() throws Exception {
+            long head = events.totalAdded();
+            while (cursor < head) {
+                if (head - cursor > bufferSize) {
+                    if (dropPolicy == DropPolicy.DISCONNECT) {
+                        slowDisconnects.incrementAndGet();
+                        return false;
+                    }
+                    droppedEvents.addAndGet(head - bufferSize - cursor);
+                    cursor = head - bufferSize;
+                }
+                long sequence = cursor++;
+                FeedEvent event = events.get(sequence);
+                if (event == null) {
+                    // ecrase entre la lecture de head et celle de l'evenement
+                    droppedEvents.incrementAndGet();
+                    continue;
+                }
+                if (type == null || type == event.type) {
+                    send(sse.newEventBuilder()
+                            .id(Long.toString(sequence))
+                            .name(event.type.name().toLowerCase())
+                            .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                            .data(String.class, event.json(encoder))
+                            .build());
+                    sentEvents.incrementAndGet();
+                }
+                head = events.totalAdded();
+            }
+            return true;
+        }
+
+        // attend la fin de l'envoi : un client lent fait prendre du retard a son curseur au
+        // lieu de remplir une file sans limite dans le serveur
+        private void send(OutboundSseEvent event) throws Exception {
+            sink.send(event).toCompletableFuture().get();
+        }
+
+        private void close() {
+            try {
+                sink.close();
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "error closing live feed sink", e);
+            }
+        }
+    }
+
+    private static final class FeedEvent {
+        private final EventType type;
+        private final Object payload;
+        // json encode une seule fois, par le premier abonne qui envoie l'evenement
+        private volatile String json;
+
+        private FeedEvent(EventType type, Object payload) {
+            this.type = type;
+            this.payload = payload;
+        }
+
+        private String json(Function<Object, String> encoder) {
+            String encoded = json;
+            if (encoded == null) {
+                encoded = encoder.apply(payload);
+                json = encoded;
+            }
+            return encoded;
+        }
+    }
+}
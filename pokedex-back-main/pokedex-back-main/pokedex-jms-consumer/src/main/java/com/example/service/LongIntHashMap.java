@@ -0,0 +1,213 @@
+package com.example.service;
+
+import java.util.Arrays;
+
+// table de hachage long -> int a adressage ouvert (sondage lineaire) : les cles et les
+// valeurs sont dans deux tableaux primitifs, sans objet par entree ni boxing. la cle 0
+// sert a marquer une case vide, elle est donc gardee a part. non thread-safe
+public class LongIntHashMap {
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    @FunctionalInterface
+    public interface EntryVisitor {
+        void visit(long key, int value);
+    }
+
+    public LongIntHashMap() {
+        this(8);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public int get(long key, int defaultValue) {
+        if (key == 0L) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+        int slot = slotOf(key);
+        while (keys[slot] != 0L) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    public void put(long key, int value) {
+        if (key == 0L) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return;
+        }
+        int slot = slotOf(key);
+        while (keys[slot] != 0L) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        insert(slot, key, value);
+    }
+
+    // ajoute delta a la valeur de la cle (0 si absente) et retourne la nouvelle valeur
+    public int addTo(long key, int delta) {
+        if (key == 0L) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue += delta;
+            return zeroValue;
+        }
+        int slot = slotOf(key);
+        while (keys[slot] != 0L) {
+            if (keys[slot] == key) {
+                values[slot] += delta;
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        insert(slot, key, delta);
+        return delta;
+    }
+
+    // retire la cle et retourne sa valeur (defaultValue si absente). les entrees suivantes
+    // du meme groupe sont decalees pour ne pas laisser de trou dans le sondage
+    public int remove(long key, int defaultValue) {
+        if (key == 0L) {
+            if (!hasZeroKey) {
+                return defaultValue;
+            }
+            int value = zeroValue;
+            hasZeroKey = false;
+            // addTo repart de zero si la cle revient
+            zeroValue = 0;
+            size--;
+            return value;
+        }
+        int slot = slotOf(key);
+        while (keys[slot] != key) {
+            if (keys[slot] == 0L) {
+                return defaultValue;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int value = values[slot];
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != 0L) {
+            int ideal = slotOf(keys[next]);
+            // l'entree peut remonter dans le trou si sa case ideale n'est pas entre le trou et elle
+            if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = 0L;
+        size--;
+        return value;
+    }
+
+    public void forEach(EntryVisitor visitor) {
+        if (hasZeroKey) {
+            visitor.visit(0L, zeroValue);
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0L) {
+                visitor.visit(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    // cles triees par valeur decroissante, les `limit` premieres (toutes si limit <= 0). le tri
+    // porte sur des long : valeur dans les 32 bits de poids fort, case dans ceux de poids faible
+    public long[] keysByValueDescending(int limit) {
+        long[] keyBySlot = new long[size];
+        long[] order = new long[size];
+        int[] next = new int[1];
+        forEach((key, value) -> {
+            int i = next[0]++;
+            keyBySlot[i] = key;
+            order[i] = ((long) value << 32) | i;
+        });
+        Arrays.sort(order);
+        int count = limit > 0 ? Math.min(limit, size) : size;
+        long[] sorted = new long[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = keyBySlot[(int) order[size - 1 - i]];
+        }
+        return sorted;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void insert(int slot, long key, int value) {
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        if (size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0L) {
+                int slot = slotOf(key);
+                while (keys[slot] != 0L) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int slotOf(long key) {
+        return mix(key) & mask;
+    }
+
+    // melange les bits de la cle : des ids consecutifs ne doivent pas tomber dans des cases voisines
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    static int capacityFor(int expectedSize) {
+        int capacity = 8;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.service;
+
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+// table de hachage long -> objet a adressage ouvert, meme principe que LongIntHashMap :
+// les cles restent des long primitifs. non thread-safe
+public class LongObjectHashMap<V> {
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+    private V zeroValue;
+
+    public LongObjectHashMap() {
+        this(8);
+    }
+
+    public LongObjectHashMap(int expectedSize) {
+        allocate(LongIntHashMap.capacityFor(expectedSize));
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0L) {
+            return zeroValue;
+        }
+        int slot = slotOf(key);
+        while (keys[slot] != 0L) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(long key, LongFunction<V> factory) {
+        if (key == 0L) {
+            if (zeroValue == null) {
+                zeroValue = factory.apply(key);
+                size++;
+            }
+            return zeroValue;
+        }
+        int slot = slotOf(key);
+        while (keys[slot] != 0L) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        V value = factory.apply(key);
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        if (size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return value;
+    }
+
+    @FunctionalInterface
+    public interface EntryVisitor<V> {
+        void visit(long key, V value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryVisitor<V> visitor) {
+        if (zeroValue != null) {
+            visitor.visit(0L, zeroValue);
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0L) {
+                visitor.visit(keys[slot], (V) values[slot]);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<V> consumer) {
+        if (zeroValue != null) {
+            consumer.accept(zeroValue);
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0L) {
+                consumer.accept((V) values[slot]);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0L) {
+                int slot = slotOf(key);
+                while (keys[slot] != 0L) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int slotOf(long key) {
+        return LongIntHashMap.mix(key) & mask;
+    }
+}
@@ -1,71 +1,163 @@
 package com.example.service;
 
+import com.example.dto.CaptureHistoryPage;
 import com.example.dto.CaptureMessage;
+import com.example.dto.MessagePage;
 import com.example.dto.TrainerMessage;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 // service pour stocker les messages jms en memoire (captures et trainers)
 public class MessageLogService {
     
+    private static final int MAX_MESSAGES = Integer.getInteger("pokedex.consumer.log.maxMessages", 100);
+    // declare apres MAX_MESSAGES : le constructeur en a besoin
     private static final MessageLogService INSTANCE = new MessageLogService();
-    private static final int MAX_MESSAGES = 100;
     
-    // liste des messages de capture
-    private final List<CaptureMessage> captureMessages;
-    // liste des messages de creation de trainer
-    private final List<TrainerMessage> trainerMessages;
+    // les MAX_MESSAGES derniers messages de capture, sans verrou entre workers jms et lecteurs rest ;
+    // l'historique complet est garde hors tas dans le CaptureStore
+    private final RingBuffer<CaptureMessage> captureMessages;
+    // ecarte les captures deja recues avant de les compter
+    private final CaptureDeduplicator captureDeduplicator = CaptureDeduplicator.getInstance();
+    private final CaptureStore captureStore = CaptureStore.getInstance();
+    private final CaptureAggregator captureAggregator = CaptureAggregator.getInstance();
+    private final CaptureWindows captureWindows = CaptureWindows.getInstance();
+    private final CaptureHeavyHitters captureHeavyHitters = CaptureHeavyHitters.getInstance();
+    private final DistinctTrainers distinctTrainers = DistinctTrainers.getInstance();
+    private final LiveFeed liveFeed = LiveFeed.getInstance();
+    // les MAX_MESSAGES derniers messages de creation de trainer
+    private final RingBuffer<TrainerMessage> trainerMessages;
+    // trainers deja recus : une creation journalisee puis relivree apres un crash (commit jms
+    // perdu) n'est ajoutee qu'une fois, un trainer n'etant cree qu'une fois
+    private final LongIntHashMap receivedTrainers = new LongIntHashMap(1024);
+    // les sequences repartent de 0 a chaque demarrage : l'epoch distingue les curseurs de
+    // chaque execution
+    private final long epoch = System.currentTimeMillis();
     
     private MessageLogService() {
-        this.captureMessages = Collections.synchronizedList(new ArrayList<>());
-        this.trainerMessages = Collections.synchronizedList(new ArrayList<>());
+        this.captureMessages = new RingBuffer<>(MAX_MESSAGES);
+        this.trainerMessages = new RingBuffer<>(MAX_MESSAGES);
     }
     
     public static MessageLogService getInstance() {
         return INSTANCE;
     }
     
-    // ajoute un message de capture, supprime le plus ancien si depasse la limite
+    // ajoute un message de capture, ecrase le plus ancien si depasse la limite
     public void addCaptureMessage(CaptureMessage message) {
         if (message == null) return;
-        synchronized (captureMessages) {
-            captureMessages.add(message);
-            if (captureMessages.size() > MAX_MESSAGES) {
-                captureMessages.remove(0);
+        if (captureDeduplicator.filter(Collections.singletonList(message)).isEmpty()) return;
+        captureMessages.add(message);
+        captureStore.append(message);
+        captureAggregator.record(message);
+        captureWindows.record(message);
+        captureHeavyHitters.record(message);
+        distinctTrainers.record(message);
+        liveFeed.publishCapture(message);
+    }
+    
+    // ajoute un batch de captures en reservant toutes les places d'un coup
+    public void addCaptureMessages(List<CaptureMessage> messages) {
+        if (messages == null || messages.isEmpty()) return;
+        List<CaptureMessage> nonNull = new ArrayList<>(messages.size());
+        for (CaptureMessage message : messages) {
+            if (message != null) {
+                nonNull.add(message);
             }
         }
+        nonNull = captureDeduplicator.filter(nonNull);
+        if (nonNull.isEmpty()) return;
+        captureMessages.addAll(nonNull);
+        captureStore.appendAll(nonNull);
+        captureAggregator.recordAll(nonNull);
+        captureWindows.recordAll(nonNull);
+        captureHeavyHitters.recordAll(nonNull);
+        distinctTrainers.recordAll(nonNull);
+        liveFeed.publishCaptures(nonNull);
     }
     
-    // ajoute un message de trainer, supprime le plus ancien si depasse la limite
+    // ajoute un message de trainer, ecrase le plus ancien si depasse la limite
     public void addTrainerMessage(TrainerMessage message) {
         if (message == null) return;
-        synchronized (trainerMessages) {
-            trainerMessages.add(message);
-            if (trainerMessages.size() > MAX_MESSAGES) {
-                trainerMessages.remove(0);
+        if (message.getTrainerId() != null) {
+            synchronized (receivedTrainers) {
+                if (receivedTrainers.get(message.getTrainerId(), 0) != 0) return;
+                receivedTrainers.put(message.getTrainerId(), 1);
             }
         }
+        trainerMessages.add(message);
+        liveFeed.publishTrainer(message);
     }
     
+    // du plus recent au plus ancien
     public List<CaptureMessage> getCaptureMessages(int limit) {
-        synchronized (captureMessages) {
-            int size = captureMessages.size();
-            int fromIndex = limit > 0 && limit < size ? size - limit : 0;
-            List<CaptureMessage> result = new ArrayList<>(captureMessages.subList(fromIndex, size));
-            Collections.reverse(result);
-            return result;
-        }
+        return captureMessages.snapshot(limit);
     }
     
     public List<TrainerMessage> getTrainerMessages(int limit) {
-        synchronized (trainerMessages) {
-            int size = trainerMessages.size();
-            int fromIndex = limit > 0 && limit < size ? size - limit : 0;
-            List<TrainerMessage> result = new ArrayList<>(trainerMessages.subList(fromIndex, size));
-            Collections.reverse(result);
-            return result;
+        return trainerMessages.snapshot(limit);
+    }
+    
+    // captures de sequence > after (numero attribue a la reception, croissant), au plus limit
+    public MessagePage<CaptureMessage> getCaptureMessagesAfter(long after, int limit) {
+        return toPage(captureMessages.readAfter(after, limit));
+    }
+    
+    public MessagePage<TrainerMessage> getTrainerMessagesAfter(long after, int limit) {
+        return toPage(trainerMessages.readAfter(after, limit));
+    }
+    
+    // termine quand une capture de sequence > after est recue
+    public CompletableFuture<Void> awaitCaptureMessagesAfter(long after) {
+        return captureMessages.awaitAfter(after);
+    }
+    
+    public CompletableFuture<Void> awaitTrainerMessagesAfter(long after) {
+        return trainerMessages.awaitAfter(after);
+    }
+    
+    public long getEpoch() {
+        return epoch;
+    }
+    
+    // sequence de la prochaine capture recue : tout curseur valide est plus petit
+    public long getCaptureSequenceEnd() {
+        return captureMessages.totalAdded();
+    }
+    
+    public long getTrainerSequenceEnd() {
+        return trainerMessages.totalAdded();
+    }
+    
+    private <T> MessagePage<T> toPage(RingBuffer.Range<T> range) {
+        List<MessagePage.SequencedMessage<T>> messages = new ArrayList<>(range.getValues().size());
+        for (int i = 0; i < range.getValues().size(); i++) {
+            messages.add(new MessagePage.SequencedMessage<>(range.getSequences()[i], range.getValues().get(i)));
         }
+        return new MessagePage<>(messages, range.getCursor(), range.getMissed(), epoch);
+    }
+    
+    // historique du CaptureStore : captures de numero < before, du plus recent au plus ancien,
+    // au plus limit, filtrees par trainer et/ou pokemon si demande. les captures relues n'ont
+    // pas d'eventId, le store ne le garde pas
+    public CaptureHistoryPage getCaptureHistory(long before, int limit, Long trainerId, Long pokemonId) {
+        List<MessagePage.SequencedMessage<CaptureMessage>> captures = new ArrayList<>(Math.min(limit, 1024));
+        long[] last = {-1L};
+        captureStore.forEachBefore(before, (sequence, trainer, pokemon, captureMillis, trainerNameId, pokemonNameId) -> {
+            last[0] = sequence;
+            if ((trainerId != null && trainer != trainerId) || (pokemonId != null && pokemon != pokemonId)) {
+                return true;
+            }
+            CaptureMessage message = new CaptureMessage(trainer == 0L ? null : trainer, captureStore.nameOf(trainerNameId),
+                    pokemon == 0L ? null : pokemon, captureStore.nameOf(pokemonNameId), CaptureStore.fromEpochMillis(captureMillis));
+            captures.add(new MessagePage.SequencedMessage<>(sequence, message));
+            return captures.size() < limit;
+        });
+        // page incomplete : tout l'historique garde a ete parcouru
+        Long next = captures.size() < limit || last[0] <= 0 ? null : last[0];
+        return new CaptureHistoryPage(captures, next, captureStore.size());
     }
     
     public List<CaptureMessage> getAllCaptureMessages() {
@@ -84,6 +176,10 @@ public class MessageLogService {
         return trainerMessages.size();
     }
     
+    public int getMaxMessages() {
+        return MAX_MESSAGES;
+    }
+    
     public long getTotalCount() {
         return captureMessages.size() + trainerMessages.size();
     }
@@ -0,0 +1,61 @@
+package com.example.service;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+// dictionnaire des noms (trainers, pokemons) : chaque nom distinct recoit un id entier,
+// les enregistrements du store ne gardent que cet id. la lecture d'un nom par son id ne
+// prend pas de verrou
+public class NameDictionary {
+
+    public static final int NO_NAME = -1;
+
+    // dictionnaire partage par le store et les agregats : chaque nom n'est garde qu'une fois
+    private static final NameDictionary SHARED = new NameDictionary();
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[1024];
+    private int size;
+
+    public static NameDictionary getInstance() {
+        return SHARED;
+    }
+
+    public int idOf(String name) {
+        if (name == null) {
+            return NO_NAME;
+        }
+        Integer id = ids.get(name);
+        return id != null ? id : register(name);
+    }
+
+    private synchronized int register(String name) {
+        Integer existing = ids.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        String[] current = names;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        int id = size;
+        current[id] = name;
+        // le tableau est publie avant l'id : un lecteur qui voit l'id voit aussi le nom
+        names = current;
+        size++;
+        ids.put(name, id);
+        return id;
+    }
+
+    public String nameOf(int id) {
+        if (id == NO_NAME) {
+            return null;
+        }
+        String[] current = names;
+        return id < current.length ? current[id] : null;
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
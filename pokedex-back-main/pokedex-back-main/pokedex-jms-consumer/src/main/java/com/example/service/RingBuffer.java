@@ -0,0 +1,205 @@
+package com.example.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// buffer circulaire sans verrou qui garde les N derniers elements : chaque ecriture reserve
+// un numero de sequence et publie son element dans la case seq % N, en O(1). les lecteurs
+// ne bloquent jamais les ecrivains, ils verifient le numero de sequence de chaque case
+// pour ignorer un element ecrase pendant la lecture
+public class RingBuffer<T> {
+
+    private final int capacity;
+    private final AtomicReferenceArray<Entry<T>> slots;
+    // prochain numero de sequence a attribuer
+    private final AtomicLong nextSequence = new AtomicLong();
+    // lecteurs en attente d'un element apres leur curseur (long-poll)
+    private final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    public RingBuffer(int capacity) {
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    public void add(T value) {
+        publish(nextSequence.getAndIncrement(), value);
+        wakeUpWaiters();
+    }
+
+    // reserve toutes les sequences du batch en une seule operation atomique
+    public void addAll(List<T> values) {
+        long first = nextSequence.getAndAdd(values.size());
+        // seuls les `capacity` derniers elements du batch peuvent rester dans le buffer
+        int skip = Math.max(0, values.size() - capacity);
+        for (int i = skip; i < values.size(); i++) {
+            publish(first + i, values.get(i));
+        }
+        wakeUpWaiters();
+    }
+
+    private void publish(long sequence, T value) {
+        int index = (int) (sequence % capacity);
+        Entry<T> entry = new Entry<>(sequence, value);
+        while (true) {
+            Entry<T> current = slots.get(index);
+            // un ecrivain plus recent a deja pris la case : notre element est deja perime
+            if (current != null && current.sequence > sequence) {
+                return;
+            }
+            if (slots.compareAndSet(index, current, entry)) {
+                return;
+            }
+        }
+    }
+
+    // les `limit` elements les plus recents, du plus recent au plus ancien (tous si limit <= 0)
+    public List<T> snapshot(int limit) {
+        long end = nextSequence.get();
+        int count = (int) Math.min(end, capacity);
+        if (limit > 0 && limit < count) {
+            count = limit;
+        }
+        List<T> result = new ArrayList<>(count);
+        for (long sequence = end - 1; sequence >= end - count; sequence--) {
+            Entry<T> entry = slots.get((int) (sequence % capacity));
+            // case pas encore publiee ou deja reecrite par une sequence plus recente
+            if (entry != null && entry.sequence == sequence) {
+                result.add(entry.value);
+            }
+        }
+        return result;
+    }
+
+    // element de numero `sequence`, null s'il n'est pas encore publie ou deja ecrase
+    public T get(long sequence) {
+        if (sequence < 0) {
+            return null;
+        }
+        Entry<T> entry = slots.get((int) (sequence % capacity));
+        return entry != null && entry.sequence == sequence ? entry.value : null;
+    }
+
+    // elements de sequence > after, du plus ancien au plus recent, au plus `limit`. si le
+    // curseur est plus ancien que le buffer, les elements ecrases sont comptes dans missed.
+    // la lecture s'arrete a la premiere case reservee mais pas encore publiee, pour qu'un
+    // lecteur qui reprend a son curseur ne la saute pas
+    public Range<T> readAfter(long after, int limit) {
+        long end = nextSequence.get();
+        long from = Math.max(after + 1, 0L);
+        long sequence = Math.max(from, end - capacity);
+        long missed = sequence - from;
+        int count = (int) Math.min(Math.max(end - sequence, 0L), limit);
+        List<T> values = new ArrayList<>(count);
+        long[] sequences = new long[count];
+        while (sequence < end && values.size() < limit) {
+            Entry<T> entry = slots.get((int) (sequence % capacity));
+            if (entry == null || entry.sequence < sequence) {
+                break;
+            }
+            if (entry.sequence > sequence) {
+                // ecrase pendant la lecture
+                missed++;
+            } else {
+                sequences[values.size()] = sequence;
+                values.add(entry.value);
+            }
+            sequence++;
+        }
+        return new Range<>(Arrays.copyOf(sequences, values.size()), values, sequence - 1, missed);
+    }
+
+    // termine quand un element de sequence > after est publie
+    public CompletableFuture<Void> awaitAfter(long after) {
+        Waiter waiter = new Waiter(after);
+        waiters.removeIf(w -> w.future.isDone());
+        waiters.add(waiter);
+        // un element a pu arriver avant l'enregistrement
+        if (nextSequence.get() > after + 1) {
+            waiter.future.complete(null);
+        }
+        return waiter.future;
+    }
+
+    private void wakeUpWaiters() {
+        if (waiters.isEmpty()) {
+            return;
+        }
+        long end = nextSequence.get();
+        for (Waiter waiter : waiters) {
+            if (end > waiter.after + 1) {
+                waiter.future.complete(null);
+                waiters.remove(waiter);
+            }
+        }
+    }
+
+    // nombre d'elements actuellement gardes
+    public int size() {
+        return (int) Math.min(nextSequence.get(), capacity);
+    }
+
+    // nombre total d'elements ajoutes depuis le demarrage
+    public long totalAdded() {
+        return nextSequence.get();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    // resultat de readAfter : `cursor` est la valeur de after a passer a la lecture suivante
+    public static final class Range<T> {
+        private final long[] sequences;
+        private final List<T> values;
+        private final long cursor;
+        private final long missed;
+
+        private Range(long[] sequences, List<T> values, long cursor, long missed) {
+            this.sequences = sequences;
+            this.values = values;
+            this.cursor = cursor;
+            this.missed = missed;
+        }
+
+        // sequence de chaque element de values
+        public long[] getSequences() {
+            return sequences;
+        }
+
+        public List<T> getValues() {
+            return values;
+        }
+
+        public long getCursor() {
+            return cursor;
+        }
+
+        public long getMissed() {
+            return missed;
+        }
+    }
+
+    private static final class Waiter {
+        private final long after;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Waiter(long after) {
+            this.after = after;
+        }
+    }
+
+    private static final class Entry<T> {
+        private final long sequence;
+        private final T value;
+
+        private Entry(long sequence, T value) {
+            this.sequence = sequence;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.service;
+
+// top K approximatif en memoire constante (algorithme Space-Saving, Metwally et al.) : on
+// garde au plus `capacity` compteurs. une cle inconnue quand tout est plein prend la place
+// du plus petit compteur et herite de sa valeur, qui devient son erreur max.
+//
+// garanties : count - error <= vraie valeur <= count, et error <= observed / capacity. toute
+// cle vue plus de observed / capacity fois est forcement dans le sketch
+//
+// le plus petit compteur est trouve par un tas binaire sur les cases : une mise a jour coute
+// O(log capacity)
+public class SpaceSavingSketch {
+
+    private final int capacity;
+    private final long[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    // tas min des cases par compteur, et position de chaque case dans le tas
+    private final int[] heap;
+    private final int[] heapPos;
+    // cle -> case
+    private final LongIntHashMap slots;
+    private int size;
+    private long observed;
+
+    public SpaceSavingSketch(int capacity) {
+        this.capacity = capacity;
+        this.keys = new long[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.heap = new int[capacity];
+        this.heapPos = new int[capacity];
+        this.slots = new LongIntHashMap(capacity);
+    }
+
+    public synchronized void offer(long key) {
+        observed++;
+        int slot = slots.get(key, -1);
+        if (slot >= 0) {
+            counts[slot]++;
+            siftDown(heapPos[slot]);
+            return;
+        }
+        if (size < capacity) {
+            slot = size++;
+            keys[slot] = key;
+            counts[slot] = 1;
+            errors[slot] = 0;
+            heap[slot] = slot;
+            heapPos[slot] = slot;
+            slots.put(key, slot);
+            siftUp(slot);
+            return;
+        }
+        // remplace la cle la moins comptee
+        slot = heap[0];
+        slots.remove(keys[slot], -1);
+        keys[slot] = key;
+        errors[slot] = counts[slot];
+        counts[slot]++;
+        slots.put(key, slot);
+        siftDown(0);
+    }
+
+    // les k cles les plus comptees, par compteur decroissant
+    public synchronized Entry[] top(int k) {
+        LongIntHashMap bySlot = new LongIntHashMap(size);
+        for (int slot = 0; slot < size; slot++) {
+            // les compteurs depassent rarement un int, mais le tri doit rester correct
+            bySlot.put(slot, (int) Math.min(counts[slot], Integer.MAX_VALUE));
+        }
+        long[] sorted = bySlot.keysByValueDescending(k);
+        Entry[] result = new Entry[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            int slot = (int) sorted[i];
+            result[i] = new Entry(keys[slot], counts[slot], errors[slot]);
+        }
+        return result;
+    }
+
+    public synchronized long getObserved() {
+        return observed;
+    }
+
+    // erreur max sur n'importe quel compteur : observed / capacity
+    public synchronized long getErrorBound() {
+        return observed / capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void siftUp(int position) {
+        int slot = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (counts[heap[parent]] <= counts[slot]) {
+                break;
+            }
+            move(heap[parent], position);
+            position = parent;
+        }
+        move(slot, position);
+    }
+
+    private void siftDown(int position) {
+        int slot = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) {
+                child++;
+            }
+            if (counts[slot] <= counts[heap[child]]) {
+                break;
+            }
+            move(heap[child], position);
+            position = child;
+        }
+        move(slot, position);
+    }
+
+    private void move(int slot, int position) {
+        heap[position] = slot;
+        heapPos[slot] = position;
+    }
+
+    public static final class Entry {
+        private final long key;
+        private final long count;
+        private final long error;
+
+        private Entry(long key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public long getKey() {
+            return key;
+        }
+
+        // estimation, jamais en dessous de la vraie valeur
+        public long getCount() {
+            return count;
+        }
+
+        // surestimation max de count
+        public long getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.service;
+
+// compteurs de captures par tranche de temps fixe (minute, heure...) dans un buffer circulaire
+// de N tranches : la tranche d'un instant est floor(t / largeur) % N. une tranche trop ancienne
+// est remise a zero quand le temps la reutilise, la memoire ne depend donc que de N et du
+// nombre de trainers/pokemons distincts par tranche. une lecture sur une fenetre parcourt
+// au plus N tranches, jamais le journal
+public class TimeBucketRing {
+
+    private final long bucketMillis;
+    private final Bucket[] buckets;
+
+    public TimeBucketRing(long bucketMillis, int bucketCount) {
+        this.bucketMillis = bucketMillis;
+        this.buckets = new Bucket[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new Bucket();
+        }
+    }
+
+    // ajoute une capture dans la tranche de son instant ; retourne false si elle est plus
+    // ancienne que la plus vieille tranche gardee. une date dans le futur (horloges decalees)
+    // est rangee dans la tranche courante
+    public boolean add(long captureMillis, long nowMillis, long trainerId, long pokemonId) {
+        long now = indexOf(nowMillis);
+        long index = Math.min(indexOf(captureMillis), now);
+        if (index <= now - buckets.length) {
+            return false;
+        }
+        Bucket bucket = bucketAt(index);
+        synchronized (bucket) {
+            if (bucket.index > index) {
+                // un autre worker a deja fait tourner le buffer au-dela de cette capture
+                return false;
+            }
+            if (bucket.index != index) {
+                // la tranche contient une periode plus ancienne : on repart de zero
+                bucket.reset(index);
+            }
+            bucket.total++;
+            bucket.trainers.addTo(trainerId, 1);
+            bucket.pokemons.addTo(pokemonId, 1);
+        }
+        return true;
+    }
+
+    // somme des `count` dernieres tranches (la tranche courante comprise)
+    public WindowCounts sum(long nowMillis, int count) {
+        long now = indexOf(nowMillis);
+        int bucketCount = Math.min(count, buckets.length);
+        WindowCounts window = new WindowCounts((now - bucketCount + 1) * bucketMillis, (now + 1) * bucketMillis);
+        for (long index = now - bucketCount + 1; index <= now; index++) {
+            Bucket bucket = bucketAt(index);
+            synchronized (bucket) {
+                if (bucket.index != index) {
+                    continue;
+                }
+                window.total += bucket.total;
+                bucket.trainers.forEach(window.trainers::addTo);
+                bucket.pokemons.forEach(window.pokemons::addTo);
+            }
+        }
+        return window;
+    }
+
+    // nombre de captures d'un trainer sur les `count` dernieres tranches, sans fusionner les tables
+    public long trainerCount(long nowMillis, int count, long trainerId) {
+        return keyCount(nowMillis, count, trainerId, true);
+    }
+
+    public long pokemonCount(long nowMillis, int count, long pokemonId) {
+        return keyCount(nowMillis, count, pokemonId, false);
+    }
+
+    private long keyCount(long nowMillis, int count, long key, boolean trainer) {
+        long now = indexOf(nowMillis);
+        int bucketCount = Math.min(count, buckets.length);
+        long total = 0;
+        for (long index = now - bucketCount + 1; index <= now; index++) {
+            Bucket bucket = bucketAt(index);
+            synchronized (bucket) {
+                if (bucket.index == index) {
+                    total += (trainer ? bucket.trainers : bucket.pokemons).get(key, 0);
+                }
+            }
+        }
+        return total;
+    }
+
+    // total de chaque tranche, de la plus ancienne a la plus recente (0 pour une tranche vide)
+    public long[] series(long nowMillis) {
+        long now = indexOf(nowMillis);
+        long[] totals = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            long index = now - buckets.length + 1 + i;
+            Bucket bucket = bucketAt(index);
+            synchronized (bucket) {
+                totals[i] = bucket.index == index ? bucket.total : 0;
+            }
+        }
+        return totals;
+    }
+
+    // debut de la plus ancienne tranche renvoyee par series()
+    public long seriesStartMillis(long nowMillis) {
+        return (indexOf(nowMillis) - buckets.length + 1) * bucketMillis;
+    }
+
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+
+    public int getBucketCount() {
+        return buckets.length;
+    }
+
+    private long indexOf(long millis) {
+        return Math.floorDiv(millis, bucketMillis);
+    }
+
+    private Bucket bucketAt(long index) {
+        return buckets[(int) Math.floorMod(index, (long) buckets.length)];
+    }
+
+    // resultat d'une lecture : total et compteurs fusionnes par trainer et par pokemon
+    public static final class WindowCounts {
+        private final long fromMillis;
+        private final long toMillis;
+        private long total;
+        private final LongIntHashMap trainers = new LongIntHashMap();
+        private final LongIntHashMap pokemons = new LongIntHashMap();
+
+        private WindowCounts(long fromMillis, long toMillis) {
+            this.fromMillis = fromMillis;
+            this.toMillis = toMillis;
+        }
+
+        public long getFromMillis() {
+            return fromMillis;
+        }
+
+        public long getToMillis() {
+            return toMillis;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public LongIntHashMap getTrainers() {
+            return trainers;
+        }
+
+        public LongIntHashMap getPokemons() {
+            return pokemons;
+        }
+    }
+
+    private static final class Bucket {
+        private long index = Long.MIN_VALUE;
+        private long total;
+        private LongIntHashMap trainers = new LongIntHashMap();
+        private LongIntHashMap pokemons = new LongIntHashMap();
+
+        private void reset(long newIndex) {
+            index = newIndex;
+            total = 0;
+            trainers = new LongIntHashMap();
+            pokemons = new LongIntHashMap();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.messaging;
+
+import com.example.config.ConsumerConfig;
+import com.example.dto.ConnectionStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.ExceptionListener;
+import javax.jms.JMSException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// delai initial de 20 ms plafonne a 160 ms : apres n echecs, la tentative suivante part entre
+// min(160, 20 * 2^n) / 2 et min(160, 20 * 2^n)
+class ConnectionSupervisorTest {
+
+    private static final long INITIAL_MS = 20L;
+    private static final long MAX_MS = 160L;
+    // marge pour le retard du scheduler, jamais pour l'avance
+    private static final long SLACK_MS = 150L;
+
+    private ConsumerEngine engine;
+    private ConnectionFactory connectionFactory;
+    private ConnectionSupervisor supervisor;
+
+    @BeforeEach
+    void setUp() {
+        ConsumerConfig config = mock(ConsumerConfig.class);
+        when(config.getReconnectInitialMs()).thenReturn(INITIAL_MS);
+        when(config.getReconnectMaxMs()).thenReturn(MAX_MS);
+        when(config.getReceiveTimeoutMs()).thenReturn(100L);
+        when(config.getBrokerUrl()).thenReturn("tcp://broker:61616");
+        engine = mock(ConsumerEngine.class);
+        when(engine.getConfig()).thenReturn(config);
+        connectionFactory = mock(ConnectionFactory.class);
+        supervisor = new ConnectionSupervisor(engine);
+    }
+
+    @AfterEach
+    void tearDown() {
+        supervisor.stop();
+    }
+
+    private static void waitUntil(long timeoutMs, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met within " + timeoutMs + " ms");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void testFailedAttemptsAreRetriedWithAJitteredExponentialBackoff() throws Exception {
+        // given : le broker refuse toutes les connexions
+        List<Long> attemptTimes = new CopyOnWriteArrayList<>();
+        when(connectionFactory.createConnection()).thenAnswer(invocation -> {
+            attemptTimes.add(System.nanoTime());
+            throw new JMSException("connection refused");
+        });
+
+        // when
+        supervisor.start(connectionFactory, subscribed -> { });
+        waitUntil(5000, () -> attemptTimes.size() >= 6);
+        supervisor.stop();
+
+        // then : chaque ecart respecte la borne basse et le plafond, a la marge du scheduler pres
+        for (int failures = 1; failures < 6; failures++) {
+            long ceiling = Math.min(MAX_MS, INITIAL_MS << failures);
+            long gapMs = (attemptTimes.get(failures) - attemptTimes.get(failures - 1)) / 1_000_000L;
+            assertTrue(gapMs >= ceiling / 2, "retry " + failures + " after " + gapMs + " ms, expected at least " + ceiling / 2);
+            assertTrue(gapMs <= ceiling + SLACK_MS, "retry " + failures + " after " + gapMs + " ms, expected at most " + ceiling);
+        }
+        ConnectionStats stats = supervisor.getStats();
+        assertEquals("connection refused", stats.getLastError());
+        assertEquals(0L, stats.getConnections());
+        verify(engine, never()).start(any());
+    }
+
+    @Test
+    void testSuccessfulAttemptResetsTheBackoffAndSubscribes() throws Exception {
+        // given : deux refus, puis le broker accepte
+        Connection connection = mock(Connection.class);
+        when(connectionFactory.createConnection())
+                .thenThrow(new JMSException("connection refused"), new JMSException("connection refused"))
+                .thenReturn(connection);
+        AtomicInteger subscriptions = new AtomicInteger();
+
+        // when
+        supervisor.start(connectionFactory, subscribed -> subscriptions.incrementAndGet());
+        waitUntil(5000, () -> supervisor.getState() == ConnectionSupervisor.State.CONNECTED);
+
+        // then
+        ConnectionStats stats = supervisor.getStats();
+        assertEquals(3L, stats.getAttempts());
+        assertEquals(0, stats.getFailedAttempts());
+        assertEquals(1L, stats.getConnections());
+        assertNull(stats.getNextAttemptInMs());
+        assertNull(stats.getLastReconnectMillis());
+        assertEquals(1, subscriptions.get());
+        verify(connection).start();
+        verify(engine).start(connection);
+    }
+
+    @Test
+    void testLostConnectionIsReplacedAndTheWorkersRestarted() throws Exception {
+        // given : une premiere connexion etablie
+        Connection first = mock(Connection.class);
+        Connection second = mock(Connection.class);
+        when(connectionFactory.createConnection()).thenReturn(first, second);
+        AtomicInteger subscriptions = new AtomicInteger();
+        supervisor.start(connectionFactory, subscribed -> subscriptions.incrementAndGet());
+        waitUntil(5000, () -> supervisor.getState() == ConnectionSupervisor.State.CONNECTED);
+        ArgumentCaptor<ExceptionListener> listener = ArgumentCaptor.forClass(ExceptionListener.class);
+        verify(first).setExceptionListener(listener.capture());
+
+        // when : le client jms signale la perte de la connexion
+        listener.getValue().onException(new JMSException("connection reset"));
+        waitUntil(5000, () -> supervisor.getStats().getConnections() == 2L);
+
+        // then : l'ancienne connexion est fermee, les workers repartent sur la nouvelle
+        verify(first).close();
+        verify(engine).start(second);
+        assertEquals(2, subscriptions.get());
+        ConnectionStats stats = supervisor.getStats();
+        assertEquals(1L, stats.getConnectionLosses());
+        assertEquals("connection reset", stats.getLastError());
+        assertNotNull(stats.getLastReconnectMillis());
+        assertTrue(stats.getLastReconnectMillis() >= INITIAL_MS / 2);
+
+        // une erreur tardive de l'ancienne connexion n'entraine pas de nouvelle reconnexion
+        listener.getValue().onException(new JMSException("late error"));
+        Thread.sleep(INITIAL_MS * 3);
+        assertEquals(1L, supervisor.getStats().getConnectionLosses());
+        assertEquals(ConnectionSupervisor.State.CONNECTED, supervisor.getState());
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.messaging;
+
+import com.example.dto.WorkerStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// config par defaut : sessions transactionnelles, commit tous les 100 messages ou 50 ms
+class ConsumerEngineTest {
+
+    private final BlockingQueue<Message> broker = new LinkedBlockingQueue<>();
+    private final List<String> persisted = new CopyOnWriteArrayList<>();
+    private final List<String> applied = new CopyOnWriteArrayList<>();
+    private Connection connection;
+    private ConsumerEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        connection = mock(Connection.class);
+        engine = new ConsumerEngine();
+        engine.start(connection);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.stop();
+    }
+
+    // session dont le consumer lit la file partagee `broker`
+    private Session session() throws JMSException {
+        Session session = mock(Session.class);
+        MessageConsumer consumer = mock(MessageConsumer.class);
+        when(session.createQueue(anyString())).thenReturn(mock(Queue.class));
+        when(session.createConsumer(any())).thenReturn(consumer);
+        when(consumer.receive(anyLong())).thenAnswer(invocation -> broker.poll(invocation.getArgument(0), TimeUnit.MILLISECONDS));
+        return session;
+    }
+
+    private static Message message(String id) throws JMSException {
+        Message message = mock(Message.class);
+        when(message.getJMSMessageID()).thenReturn(id);
+        return message;
+    }
+
+    private MessageEffect effect(Message message) throws JMSException {
+        String id = message.getJMSMessageID();
+        return new MessageEffect(() -> persisted.add(id), () -> applied.add(id));
+    }
+
+    private WorkerStats worker() {
+        return engine.getWorkerStats().get(0);
+    }
+
+    private static void waitUntil(long timeoutMs, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met within " + timeoutMs + " ms");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void testMessagesAreCommittedInOneBatchThenApplied() throws Exception {
+        // given
+        Session session = session();
+        when(connection.createSession(true, Session.SESSION_TRANSACTED)).thenReturn(session);
+        broker.addAll(List.of(message("m1"), message("m2"), message("m3")));
+
+        // when
+        engine.subscribe("captures", 1, this::effect);
+        waitUntil(2000, () -> applied.size() == 3);
+
+        // then : un seul commit pour les trois messages, journalises avant d'etre appliques
+        verify(session, times(1)).commit();
+        verify(session, never()).rollback();
+        assertEquals(List.of("m1", "m2", "m3"), persisted);
+        assertEquals(List.of("m1", "m2", "m3"), applied);
+        assertEquals(1L, worker().getCommits());
+        assertEquals(3.0, worker().getMessagesPerCommit());
+    }
+
+    @Test
+    void testFailingMessageRollsBackTheBatchWithoutApplyingIt() throws Exception {
+        // given
+        Session session = session();
+        when(connection.createSession(true, Session.SESSION_TRANSACTED)).thenReturn(session);
+        broker.addAll(List.of(message("m1"), message("poison")));
+
+        // when
+        engine.subscribe("captures", 1, message -> {
+            if ("poison".equals(message.getJMSMessageID())) {
+                throw new IllegalStateException("cannot handle");
+            }
+            return effect(message);
+        });
+        waitUntil(2000, () -> worker().getRollbacks() == 1);
+
+        // then : m1, recu dans la meme transaction, n'est ni journalise ni applique
+        verify(session, times(1)).rollback();
+        verify(session, never()).commit();
+        assertTrue(persisted.isEmpty());
+        assertTrue(applied.isEmpty());
+        assertEquals(1L, worker().getErrors());
+    }
+
+    @Test
+    void testFailedCommitReopensTheSessionAndConsumptionResumes() throws Exception {
+        // given : le premier commit echoue, la session suivante fonctionne
+        Session failing = session();
+        doThrow(new JMSException("commit failed")).when(failing).commit();
+        Session healthy = session();
+        when(connection.createSession(true, Session.SESSION_TRANSACTED)).thenReturn(failing, healthy);
+        broker.add(message("m1"));
+
+        // when
+        engine.subscribe("captures", 1, this::effect);
+        waitUntil(2000, () -> worker().getSessionRestarts() == 1);
+        broker.add(message("m2"));
+        waitUntil(5000, () -> applied.contains("m2"));
+
+        // then : la session fautive est fermee (le broker relivrera m1), le worker tourne toujours
+        verify(failing).close();
+        verify(healthy, times(1)).commit();
+        assertEquals(List.of("m1", "m2"), persisted);
+        assertEquals(List.of("m2"), applied);
+        assertTrue(worker().getRunning());
+    }
+
+    @Test
+    void testRedeliveredMessageAlreadyPersistedIsNotJournaledTwice() throws Exception {
+        // given : m1 est journalise mais son commit echoue, puis le broker le relivre
+        Session failing = session();
+        doThrow(new JMSException("commit failed")).when(failing).commit();
+        Session healthy = session();
+        when(connection.createSession(true, Session.SESSION_TRANSACTED)).thenReturn(failing, healthy);
+        broker.add(message("m1"));
+
+        // when
+        engine.subscribe("captures", 1, this::effect);
+        waitUntil(2000, () -> worker().getSessionRestarts() == 1);
+        Message redelivery = message("m1");
+        when(redelivery.getJMSRedelivered()).thenReturn(true);
+        broker.add(redelivery);
+        waitUntil(5000, () -> applied.contains("m1"));
+
+        // then
+        assertEquals(List.of("m1"), persisted);
+        assertEquals(List.of("m1"), applied);
+        assertEquals(1L, worker().getRedelivered());
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.messaging;
+
+import com.example.config.ConsumerConfig;
+import com.example.dto.IngestPipelineStats;
+import com.example.dto.TrainerMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestPipelineTest {
+
+    private static IngestPipeline createPipeline(int capacity, ConsumerConfig.OverloadPolicy policy) {
+        return new IngestPipeline(capacity, 10, policy, ConsumerEngine.getInstance());
+    }
+
+    private static TrainerMessage trainer(long id) {
+        return new TrainerMessage(id, "trainer-" + id, "trainer" + id + "@pokedex.com");
+    }
+
+    private static IngestPipelineStats.Queue queue(IngestPipeline pipeline) {
+        return pipeline.getStats().getQueue();
+    }
+
+    private static void waitUntil(long timeoutMs, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met within " + timeoutMs + " ms");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void testShedDropsTheNewMessageWhenTheQueueIsFull() {
+        // given : pas de thread d'application, la file se remplit
+        IngestPipeline pipeline = createPipeline(2, ConsumerConfig.OverloadPolicy.SHED);
+
+        // when
+        for (long id = 1; id <= 5; id++) {
+            pipeline.submitTrainer(trainer(id));
+        }
+
+        // then
+        IngestPipelineStats.Queue queue = queue(pipeline);
+        assertEquals(2, queue.getDepth());
+        assertEquals(5L, queue.getSubmitted());
+        assertEquals(3L, queue.getShed());
+        assertEquals(3L, queue.getMissingFromViews());
+        assertEquals(0L, queue.getDroppedOldest());
+    }
+
+    @Test
+    void testDropOldestMakesRoomForTheNewMessage() {
+        // given
+        IngestPipeline pipeline = createPipeline(2, ConsumerConfig.OverloadPolicy.DROP_OLDEST);
+
+        // when
+        for (long id = 1; id <= 5; id++) {
+            pipeline.submitTrainer(trainer(id));
+        }
+
+        // then
+        IngestPipelineStats.Queue queue = queue(pipeline);
+        assertEquals(2, queue.getDepth());
+        assertEquals(3L, queue.getDroppedOldest());
+        assertEquals(0L, queue.getShed());
+        assertEquals(2L, queue.getMaxDepth());
+    }
+
+    @Test
+    void testBlockWaitsUntilTheApplierMakesRoom() throws Exception {
+        // given
+        IngestPipeline pipeline = createPipeline(2, ConsumerConfig.OverloadPolicy.BLOCK);
+        pipeline.submitTrainer(trainer(1_000_001L));
+        pipeline.submitTrainer(trainer(1_000_002L));
+        Thread submitter = new Thread(() -> pipeline.submitTrainer(trainer(1_000_003L)));
+        submitter.start();
+        waitUntil(5_000, () -> queue(pipeline).getBlockedSubmits() == 1L);
+        assertTrue(submitter.isAlive());
+
+        // when
+        pipeline.start();
+        submitter.join(TimeUnit.SECONDS.toMillis(5));
+
+        // then
+        assertFalse(submitter.isAlive());
+        waitUntil(5_000, () -> pipeline.getStats().getApply().getTrainers() == 3L);
+        pipeline.stop();
+        IngestPipelineStats.Queue queue = queue(pipeline);
+        assertEquals(0, queue.getDepth());
+        assertEquals(0L, queue.getShed());
+        assertEquals(0L, queue.getDroppedOldest());
+        assertEquals(0L, pipeline.getStats().getApply().getErrors());
+    }
+
+    @Test
+    void testInterruptedBlockedSubmitStillQueuesTheCommittedMessage() throws Exception {
+        // given : le worker bloque est interrompu, comme par l'arret force du moteur
+        IngestPipeline pipeline = createPipeline(1, ConsumerConfig.OverloadPolicy.BLOCK);
+        pipeline.submitTrainer(trainer(2_000_001L));
+        boolean[] interruptedAfter = new boolean[1];
+        Thread submitter = new Thread(() -> {
+            pipeline.submitTrainer(trainer(2_000_002L));
+            interruptedAfter[0] = Thread.currentThread().isInterrupted();
+        });
+        submitter.start();
+        waitUntil(5_000, () -> queue(pipeline).getBlockedSubmits() == 1L);
+
+        // when
+        submitter.interrupt();
+        Thread.sleep(200);
+        assertTrue(submitter.isAlive());
+        pipeline.start();
+        submitter.join(TimeUnit.SECONDS.toMillis(5));
+
+        // then : le message n'est pas perdu et l'interruption est rendue au thread
+        assertFalse(submitter.isAlive());
+        assertTrue(interruptedAfter[0]);
+        waitUntil(5_000, () -> pipeline.getStats().getApply().getTrainers() == 2L);
+        pipeline.stop();
+        assertEquals(0L, pipeline.getMissingFromViews());
+    }
+
+    @Test
+    void testBlockedSubmitIsAbandonedAndCountedOnceThePipelineStopped() throws Exception {
+        // given : file pleine et thread d'application arrete
+        IngestPipeline pipeline = createPipeline(1, ConsumerConfig.OverloadPolicy.BLOCK);
+        pipeline.start();
+        pipeline.stop();
+        pipeline.submitTrainer(trainer(3_000_001L));
+
+        // when
+        Thread submitter = new Thread(() -> pipeline.submitTrainer(trainer(3_000_002L)));
+        submitter.start();
+        submitter.join(TimeUnit.SECONDS.toMillis(5));
+
+        // then
+        assertFalse(submitter.isAlive());
+        assertEquals(1L, queue(pipeline).getAbandoned());
+        assertEquals(1L, pipeline.getMissingFromViews());
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.messaging;
+
+import com.example.dto.CaptureMessage;
+import com.example.dto.TrainerMessage;
+import com.example.service.DeadLetterStore;
+import com.example.service.EventLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.ObjectMessage;
+import javax.jms.TextMessage;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class JmsMessageListenerTest {
+
+    private IngestPipeline ingestPipeline;
+    private EventLog eventLog;
+    private DeadLetterStore deadLetterStore;
+    private JmsMessageListener listener;
+
+    @BeforeEach
+    void setUp() {
+        ingestPipeline = mock(IngestPipeline.class);
+        eventLog = mock(EventLog.class);
+        deadLetterStore = mock(DeadLetterStore.class);
+        listener = new JmsMessageListener(mock(ConnectionSupervisor.class), mock(BrokerMonitor.class), ingestPipeline,
+                eventLog, deadLetterStore);
+    }
+
+    private static BytesMessage bytesMessage(String id, byte[] body) throws JMSException {
+        BytesMessage message = mock(BytesMessage.class);
+        when(message.getJMSMessageID()).thenReturn(id);
+        when(message.getBodyLength()).thenReturn((long) body.length);
+        when(message.readBytes(any(byte[].class))).thenAnswer(invocation -> {
+            byte[] target = invocation.getArgument(0);
+            System.arraycopy(body, 0, target, 0, body.length);
+            return body.length;
+        });
+        return message;
+    }
+
+    private static CaptureMessage capture(long pokemonId) {
+        return new CaptureMessage(1L, "ash", pokemonId, "pikachu", LocalDateTime.of(2024, 5, 1, 10, 0));
+    }
+
+    @Test
+    void testValidCapturesAreJournaledThenSubmittedToThePipeline() throws Exception {
+        // given
+        byte[] body = MessageCodec.encodeCaptureBatch(List.of(capture(25L), capture(26L)));
+
+        // when
+        MessageEffect effect = listener.handleCaptureMessage(bytesMessage("m1", body));
+        effect.persist();
+        effect.apply();
+
+        // then
+        verify(eventLog).append(body);
+        verify(ingestPipeline).submitCaptures(argThat(captures -> captures.size() == 2
+                && captures.get(1).getPokemonId() == 26L));
+        verifyNoInteractions(deadLetterStore);
+    }
+
+    @Test
+    void testMalformedCaptureIsQuarantinedOnlyWhenPersisted() throws Exception {
+        // given : mauvais octet magique
+        byte[] body = MessageCodec.encodeCapture(capture(25L));
+        body[0] = 0x00;
+
+        // when
+        MessageEffect effect = listener.handleCaptureMessage(bytesMessage("m1", body));
+
+        // then : rien n'est ecrit avant le commit
+        verifyNoInteractions(deadLetterStore);
+        effect.persist();
+        effect.apply();
+        verify(deadLetterStore).quarantine(eq("captures"), eq("m1"), eq(DeadLetterStore.FailureReason.BAD_MAGIC),
+                anyString(), eq(body));
+        verifyNoInteractions(eventLog, ingestPipeline);
+    }
+
+    @Test
+    void testTruncatedTrainerIsQuarantinedWithItsReason() throws Exception {
+        // given
+        byte[] encoded = MessageCodec.encodeTrainer(new TrainerMessage(7L, "misty", "misty@pokedex.com"));
+        byte[] body = Arrays.copyOf(encoded, encoded.length - 3);
+
+        // when
+        MessageEffect effect = listener.handleTrainerMessage(bytesMessage("t1", body));
+        effect.persist();
+        effect.apply();
+
+        // then
+        verify(deadLetterStore).quarantine(eq("trainers"), eq("t1"), eq(DeadLetterStore.FailureReason.TRUNCATED),
+                anyString(), eq(body));
+        verifyNoInteractions(eventLog, ingestPipeline);
+    }
+
+    @Test
+    void testTextMessageIsQuarantinedWithItsText() throws Exception {
+        // given
+        TextMessage message = mock(TextMessage.class);
+        when(message.getJMSMessageID()).thenReturn("m2");
+        when(message.getText()).thenReturn("{\"pokemonId\":25}");
+
+        // when
+        MessageEffect effect = listener.handleCaptureMessage(message);
+        effect.persist();
+        effect.apply();
+
+        // then
+        verify(deadLetterStore).quarantine(eq("captures"), eq("m2"), eq(DeadLetterStore.FailureReason.UNSUPPORTED_JMS_TYPE),
+                contains("unsupported jms message type"), eq("{\"pokemonId\":25}".getBytes(StandardCharsets.UTF_8)));
+        verifyNoInteractions(eventLog, ingestPipeline);
+    }
+
+    @Test
+    void testObjectMessageIsQuarantinedWithoutDeserializingIt() throws Exception {
+        // given
+        ObjectMessage message = mock(ObjectMessage.class);
+        when(message.getJMSMessageID()).thenReturn("t2");
+
+        // when
+        MessageEffect effect = listener.handleTrainerMessage(message);
+        effect.persist();
+
+        // then : le corps n'est jamais lu
+        verify(message, never()).getObject();
+        verify(deadLetterStore).quarantine(eq("trainers"), eq("t2"), eq(DeadLetterStore.FailureReason.UNSUPPORTED_JMS_TYPE),
+                anyString(), eq(new byte[0]));
+        verifyNoInteractions(eventLog, ingestPipeline);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.messaging;
+
+import com.example.dto.QueueStats;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueueMetricsTest {
+
+    @Test
+    void testStatsReportProcessingAndDeliveryLagPercentiles() {
+        // given
+        QueueMetrics metrics = new QueueMetrics("captures", 60_000L);
+        long sentAt = System.currentTimeMillis() - 200;
+
+        // when : 99 messages traites en 1 ms, un en 100 ms
+        for (int i = 0; i < 99; i++) {
+            metrics.record(1_000_000L, sentAt);
+        }
+        metrics.record(100_000_000L, sentAt);
+
+        // then
+        QueueStats stats = metrics.getStats();
+        assertEquals("captures", stats.getQueue());
+        assertEquals(100L, stats.getMessages());
+        assertEquals(100L, stats.getWindowMessages());
+        assertEquals(1.0, stats.getProcessingMillis().getP50(), 0.032);
+        assertEquals(1.0, stats.getProcessingMillis().getP99(), 0.032);
+        assertEquals(100.0, stats.getProcessingMillis().getMax());
+        assertEquals(100.0, stats.getProcessingMillis().getP999(), 3.2);
+        // envoye il y a au moins 200 ms
+        assertTrue(stats.getDeliveryLagMillis().getP50() >= 200 * 0.968);
+        assertEquals(sentAt, stats.getLastBrokerTimestamp());
+        assertNotNull(stats.getLastMessageAgeMs());
+    }
+
+    @Test
+    void testMessageWithoutTimestampHasNoDeliveryLag() {
+        // given
+        QueueMetrics metrics = new QueueMetrics("trainers", 60_000L);
+
+        // when
+        metrics.record(1_000_000L, 0L);
+
+        // then
+        QueueStats stats = metrics.getStats();
+        assertEquals(1L, stats.getWindowMessages());
+        assertEquals(0.0, stats.getDeliveryLagMillis().getP99());
+        assertNull(stats.getLastBrokerTimestamp());
+    }
+
+    @Test
+    void testEmptyQueueHasNoLastMessage() {
+        // given
+        QueueMetrics metrics = new QueueMetrics("captures", 60_000L);
+
+        // then
+        QueueStats stats = metrics.getStats();
+        assertEquals(0L, stats.getMessages());
+        assertNull(stats.getLastMessageAt());
+        assertNull(stats.getLastMessageAgeMs());
+        assertEquals(0.0, stats.getMessagesPerSecond());
+    }
+
+    @Test
+    void testOldWindowsLeaveThePercentilesButNotTheTotal() throws Exception {
+        // given : fenetres de 50 ms
+        QueueMetrics metrics = new QueueMetrics("captures", 50L);
+        metrics.record(100_000_000L, 0L);
+
+        // when : la queue reste inactive plus de deux fenetres, puis recoit un message rapide
+        Thread.sleep(60);
+        metrics.getStats();
+        Thread.sleep(120);
+        metrics.record(1_000_000L, 0L);
+
+        // then : seul le message recent compte dans la fenetre
+        QueueStats stats = metrics.getStats();
+        assertEquals(2L, stats.getMessages());
+        assertEquals(1L, stats.getWindowMessages());
+        assertEquals(1.0, stats.getProcessingMillis().getMax(), 0.032);
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.rest;
+
+import com.example.dto.MessagePage;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CursorReadsTest {
+
+    private static final long EPOCH = 1_700_000_000_000L;
+
+    @Mock
+    private AsyncResponse response;
+
+    private static MessagePage<String> page(long after) {
+        return new MessagePage<>(List.of(new MessagePage.SequencedMessage<>(after + 1, "message")), after + 1, 0L, EPOCH);
+    }
+
+    private Response resumed() {
+        ArgumentCaptor<Response> captor = ArgumentCaptor.forClass(Response.class);
+        verify(response, timeout(1000)).resume(captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    void testCursorOfTheCurrentRunIsRead() {
+        // given : 10 messages numerotes depuis le demarrage
+        long end = 10;
+
+        // when
+        CursorReads.read(4L, EPOCH, null, 0L, 100, EPOCH, end,
+                (after, limit) -> page(after), after -> new CompletableFuture<>(), response);
+
+        // then
+        Response resumed = resumed();
+        assertEquals(200, resumed.getStatus());
+        assertEquals(5L, ((MessagePage<?>) resumed.getEntity()).getCursor());
+    }
+
+    @Test
+    void testCursorFromAnotherRunIsGone() {
+        // given : le client a garde l'epoch d'une execution precedente
+        long end = 10;
+
+        // when
+        CursorReads.read(4L, EPOCH - 1, null, 25_000L, 100, EPOCH, end,
+                (after, limit) -> fail("must not read"), after -> fail("must not wait"), response);
+
+        // then
+        assertEquals(410, resumed().getStatus());
+    }
+
+    @Test
+    void testCursorBeyondTheLastSequenceIsGoneWithoutEpoch() {
+        // given : redemarrage, seulement 3 messages depuis ; le client etait a 41
+        long end = 3;
+
+        // when
+        CursorReads.read(41L, null, null, 25_000L, 100, EPOCH, end,
+                (after, limit) -> fail("must not read"), after -> fail("must not wait"), response);
+
+        // then
+        assertEquals(410, resumed().getStatus());
+    }
+
+    @Test
+    void testUpToDateCursorWaitsForTheNextMessage() {
+        // given : le client a deja lu le dernier message
+        long end = 10;
+        CompletableFuture<Void> next = new CompletableFuture<>();
+
+        // when
+        CursorReads.read(9L, EPOCH, null, 25_000L, 100, EPOCH, end,
+                (after, limit) -> new MessagePage<>(List.of(), after, 0L, EPOCH), after -> next, response);
+
+        // then
+        verify(response, never()).resume(any(Response.class));
+        next.complete(null);
+        assertEquals(200, resumed().getStatus());
+    }
+
+    @Test
+    void testWokenUpReadRunsOnTheResumeExecutorNotOnTheWakingThread() {
+        // given : un pool qui garde les taches au lieu de les lancer
+        List<Runnable> tasks = new ArrayList<>();
+        Executor executor = tasks::add;
+        CompletableFuture<Void> next = new CompletableFuture<>();
+        AtomicReference<Thread> readThread = new AtomicReference<>();
+
+        // when : le reveil arrive sur ce thread, comme depuis ingest-apply
+        CursorReads.read(9L, EPOCH, null, 25_000L, 100, EPOCH, 10,
+                (after, limit) -> {
+                    readThread.set(Thread.currentThread());
+                    return new MessagePage<>(List.of(), after, 0L, EPOCH);
+                }, after -> next, response, executor);
+        readThread.set(null);
+        next.complete(null);
+
+        // then : rien n'est lu ni ecrit avant que le pool lance la tache
+        assertNull(readThread.get());
+        verify(response, never()).resume(any(Response.class));
+        assertEquals(1, tasks.size());
+        tasks.get(0).run();
+        assertEquals(200, resumed().getStatus());
+    }
+
+    @Test
+    void testFullResumeExecutorAnswersServiceUnavailable() {
+        // given
+        Executor full = task -> {
+            throw new RejectedExecutionException("full");
+        };
+        CompletableFuture<Void> next = new CompletableFuture<>();
+        CursorReads.read(9L, EPOCH, null, 25_000L, 100, EPOCH, 10,
+                (after, limit) -> new MessagePage<>(List.of(), after, 0L, EPOCH), after -> next, response, full);
+
+        // when
+        next.complete(null);
+
+        // then
+        assertEquals(503, resumed().getStatus());
+    }
+}
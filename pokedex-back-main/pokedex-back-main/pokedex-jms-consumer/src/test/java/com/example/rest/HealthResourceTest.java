@@ -0,0 +1,125 @@
+package com.example.rest;
+
+import com.example.config.ConsumerConfig;
+import com.example.dto.WorkerStats;
+import com.example.messaging.BrokerMonitor;
+import com.example.messaging.ConnectionSupervisor;
+import com.example.messaging.ConsumerEngine;
+import com.example.messaging.IngestPipeline;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class HealthResourceTest {
+
+    private ConnectionSupervisor connectionSupervisor;
+    private ConsumerEngine consumerEngine;
+    private BrokerMonitor brokerMonitor;
+    private IngestPipeline ingestPipeline;
+    private HealthResource resource;
+
+    @BeforeEach
+    void setUp() {
+        connectionSupervisor = mock(ConnectionSupervisor.class);
+        consumerEngine = mock(ConsumerEngine.class);
+        brokerMonitor = mock(BrokerMonitor.class);
+        ingestPipeline = mock(IngestPipeline.class);
+        when(connectionSupervisor.getState()).thenReturn(ConnectionSupervisor.State.CONNECTED);
+        when(consumerEngine.getConfig()).thenReturn(ConsumerConfig.getInstance());
+        when(consumerEngine.getQueueMetrics()).thenReturn(Map.of());
+        when(brokerMonitor.getMaxBacklog()).thenReturn(0L);
+        when(brokerMonitor.isFresh()).thenReturn(true);
+        resource = new HealthResource(connectionSupervisor, consumerEngine, brokerMonitor, ingestPipeline);
+    }
+
+    private static WorkerStats worker(String queue, int index, boolean running) {
+        WorkerStats stats = new WorkerStats();
+        stats.setQueue(queue);
+        stats.setWorker(index);
+        stats.setRunning(running);
+        return stats;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> body(Response response) {
+        return (Map<String, Object>) response.getEntity();
+    }
+
+    @Test
+    void testUpWhenEveryWorkerIsActive() {
+        // given
+        when(consumerEngine.getWorkerStats()).thenReturn(List.of(
+                worker("captures", 0, true), worker("captures", 1, true), worker("trainers", 0, true)));
+
+        // when
+        Response response = resource.health();
+
+        // then
+        assertEquals(200, response.getStatus());
+        assertEquals("UP", body(response).get("status"));
+    }
+
+    @Test
+    void testDegradedWhenSomeWorkersOfAQueueStopped() {
+        // given
+        when(consumerEngine.getWorkerStats()).thenReturn(List.of(
+                worker("captures", 0, true), worker("captures", 1, false), worker("trainers", 0, true)));
+
+        // when
+        Response response = resource.health();
+
+        // then
+        assertEquals(200, response.getStatus());
+        assertEquals("DEGRADED", body(response).get("status"));
+        assertEquals(List.of("1/2 workers active on captures"), body(response).get("reasons"));
+    }
+
+    @Test
+    void testDownWhenAQueueHasNoActiveWorker() {
+        // given : le seul worker de trainers est sorti, le broker n'a pas encore de retard
+        when(consumerEngine.getWorkerStats()).thenReturn(List.of(
+                worker("captures", 0, true), worker("trainers", 0, false)));
+
+        // when
+        Response response = resource.health();
+
+        // then
+        assertEquals(503, response.getStatus());
+        assertEquals("DOWN", body(response).get("status"));
+        assertEquals(List.of("no active worker on trainers (0/1)"), body(response).get("reasons"));
+    }
+
+    @Test
+    void testDegradedWhenThePipelineDroppedCommittedMessages() {
+        // given
+        when(consumerEngine.getWorkerStats()).thenReturn(List.of(worker("captures", 0, true)));
+        when(ingestPipeline.getMissingFromViews()).thenReturn(3L);
+
+        // when
+        Response response = resource.health();
+
+        // then
+        assertEquals("DEGRADED", body(response).get("status"));
+        assertEquals(List.of("3 committed message(s) missing from the in-memory views until restart (ingest pipeline full)"),
+                body(response).get("reasons"));
+    }
+
+    @Test
+    void testDownWhenNotConnected() {
+        // given
+        when(connectionSupervisor.getState()).thenReturn(ConnectionSupervisor.State.WAITING);
+
+        // when
+        Response response = resource.health();
+
+        // then
+        assertEquals(503, response.getStatus());
+        assertEquals("DOWN", body(response).get("status"));
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void testNoFalseNegativesAndFalsePositivesNearTheRequestedRate() {
+        // given
+        BloomFilter filter = new BloomFilter(50_000, 0.01);
+
+        // when
+        for (long id = 0; id < 50_000; id++) {
+            filter.put(id);
+        }
+
+        // then
+        for (long id = 0; id < 50_000; id++) {
+            assertTrue(filter.mightContain(id), "id " + id);
+        }
+        int falsePositives = 0;
+        for (long id = 1_000_000; id < 1_100_000; id++) {
+            if (filter.mightContain(id)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives / 100_000.0 < 0.02, "false positive rate " + falsePositives / 100_000.0);
+        assertTrue(filter.isFull());
+        assertEquals(0.01, filter.expectedFpp(), 0.005);
+    }
+
+    @Test
+    void testClearForgetsEverything() {
+        // given
+        BloomFilter filter = new BloomFilter(100, 0.01);
+        filter.put(1L);
+        filter.put(2L);
+
+        // when
+        filter.clear();
+
+        // then
+        assertFalse(filter.mightContain(1L));
+        assertFalse(filter.mightContain(2L));
+        assertEquals(0L, filter.getInsertions());
+        assertFalse(filter.isFull());
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.service;
+
+import com.example.dto.CaptureMessage;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CaptureDeduplicatorTest {
+
+    private static CaptureMessage capture(Long eventId) {
+        CaptureMessage message = new CaptureMessage(1L, "Sacha", 25L, "Pikachu", LocalDateTime.now());
+        message.setEventId(eventId);
+        return message;
+    }
+
+    private static List<Long> eventIds(List<CaptureMessage> messages) {
+        List<Long> ids = new ArrayList<>();
+        for (CaptureMessage message : messages) {
+            ids.add(message.getEventId());
+        }
+        return ids;
+    }
+
+    @Test
+    void testExactDuplicatesAreDroppedAndCapturesWithoutIdKept() {
+        // given
+        CaptureDeduplicator deduplicator = new CaptureDeduplicator(true, 100, 60_000L, 1_000L, 0.001,
+                CaptureDeduplicator.ProbablePolicy.ACCEPT);
+        List<CaptureMessage> first = List.of(capture(1L), capture(2L));
+
+        // when
+        List<CaptureMessage> kept = deduplicator.filter(first);
+        List<CaptureMessage> redelivered = deduplicator.filter(List.of(capture(2L), capture(3L), capture(3L), capture(null)));
+
+        // then
+        assertSame(first, kept);
+        assertEquals(Arrays.asList(3L, null), eventIds(redelivered));
+        assertEquals(2L, deduplicator.getStats().getExactDuplicates());
+        assertEquals(1L, deduplicator.getStats().getWithoutEventId());
+    }
+
+    @Test
+    void testIdForgottenByTheExactSetIsCaughtByTheBloomFilter() {
+        // given : l'ensemble exact ne garde qu'un id
+        CaptureDeduplicator drop = new CaptureDeduplicator(true, 1, 60_000L, 1_000L, 0.001,
+                CaptureDeduplicator.ProbablePolicy.DROP);
+        CaptureDeduplicator accept = new CaptureDeduplicator(true, 1, 60_000L, 1_000L, 0.001,
+                CaptureDeduplicator.ProbablePolicy.ACCEPT);
+        for (CaptureDeduplicator deduplicator : List.of(drop, accept)) {
+            deduplicator.filter(List.of(capture(10L)));
+            deduplicator.filter(List.of(capture(11L)));
+        }
+
+        // when
+        List<CaptureMessage> dropped = drop.filter(List.of(capture(10L)));
+        List<CaptureMessage> accepted = accept.filter(List.of(capture(10L)));
+
+        // then
+        assertTrue(dropped.isEmpty());
+        assertEquals(List.of(10L), eventIds(accepted));
+        assertEquals(1L, drop.getStats().getProbableDuplicates());
+        assertEquals(1L, accept.getStats().getProbableDuplicates());
+    }
+
+    @Test
+    void testRotationForgetsIdsOlderThanTwoWindows() {
+        // given : une fenetre nulle fait tourner les filtres a chaque appel
+        CaptureDeduplicator deduplicator = new CaptureDeduplicator(true, 1, 0L, 1_000L, 0.001,
+                CaptureDeduplicator.ProbablePolicy.DROP);
+        deduplicator.filter(List.of(capture(1L)));
+        deduplicator.filter(List.of(capture(2L)));
+        deduplicator.filter(List.of(capture(3L)));
+
+        // when
+        List<CaptureMessage> kept = deduplicator.filter(List.of(capture(1L)));
+
+        // then
+        assertEquals(List.of(1L), eventIds(kept));
+        assertEquals(0L, deduplicator.getStats().getProbableDuplicates());
+        assertEquals(4L, deduplicator.getStats().getRotations());
+    }
+
+    @Test
+    void testDisabledDeduplicatorKeepsEverything() {
+        // given
+        CaptureDeduplicator deduplicator = new CaptureDeduplicator(false, 100, 60_000L, 1_000L, 0.001,
+                CaptureDeduplicator.ProbablePolicy.DROP);
+        List<CaptureMessage> messages = List.of(capture(1L), capture(1L));
+
+        // when
+        List<CaptureMessage> kept = deduplicator.filter(messages);
+
+        // then
+        assertSame(messages, kept);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.service;
+
+import com.example.dto.CaptureMessage;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CaptureStoreTest {
+
+    private static CaptureMessage capture(long trainerId, long pokemonId, LocalDateTime date) {
+        return new CaptureMessage(trainerId, "trainer-" + trainerId, pokemonId, "pokemon-" + pokemonId, date);
+    }
+
+    @Test
+    void testRecordsAreReadBackNewestFirst() {
+        // given
+        CaptureStore store = new CaptureStore(10);
+        LocalDateTime date = LocalDateTime.of(2024, 5, 1, 12, 30, 15, 250_000_000);
+        store.append(capture(1L, 25L, date));
+        store.appendAll(List.of(capture(2L, 4L, date.plusMinutes(1)), capture(3L, 7L, null)));
+        List<String> visited = new ArrayList<>();
+
+        // when
+        long count = store.forEachBefore(Long.MAX_VALUE, (sequence, trainerId, pokemonId, captureMillis, trainerNameId, pokemonNameId) -> {
+            visited.add(sequence + ":" + trainerId + ":" + pokemonId + ":" + store.nameOf(trainerNameId) + ":"
+                    + store.nameOf(pokemonNameId) + ":" + CaptureStore.fromEpochMillis(captureMillis));
+            return true;
+        });
+
+        // then
+        assertEquals(3L, count);
+        assertEquals(List.of(
+                "2:3:7:trainer-3:pokemon-7:null",
+                "1:2:4:trainer-2:pokemon-4:" + date.plusMinutes(1),
+                "0:1:25:trainer-1:pokemon-25:" + date), visited);
+    }
+
+    @Test
+    void testReadStartsBeforeTheCursorAndStopsWhenTheVisitorSaysSo() {
+        // given
+        CaptureStore store = new CaptureStore(10);
+        for (long i = 0; i < 10; i++) {
+            store.append(capture(i, i, null));
+        }
+        List<Long> sequences = new ArrayList<>();
+
+        // when
+        store.forEachBefore(6L, (sequence, trainerId, pokemonId, captureMillis, trainerNameId, pokemonNameId) -> {
+            sequences.add(sequence);
+            return sequences.size() < 3;
+        });
+
+        // then
+        assertEquals(List.of(5L, 4L, 3L), sequences);
+    }
+
+    @Test
+    void testOverwrittenRecordsAreNoLongerRead() {
+        // given : la capacite est arrondie a un bloc de 65 536 enregistrements
+        CaptureStore store = new CaptureStore(10);
+        long capacity = store.capacity();
+        for (long i = 0; i < capacity + 5; i++) {
+            store.append(capture(i + 1, 1L, null));
+        }
+        long[] oldest = {-1L, -1L};
+
+        // when
+        long count = store.forEachBefore(Long.MAX_VALUE, (sequence, trainerId, pokemonId, captureMillis, trainerNameId, pokemonNameId) -> {
+            oldest[0] = sequence;
+            oldest[1] = trainerId;
+            return true;
+        });
+
+        // then
+        assertEquals(capacity, count);
+        assertEquals(capacity, store.size());
+        assertEquals(5L, oldest[0]);
+        assertEquals(6L, oldest[1]);
+    }
+}
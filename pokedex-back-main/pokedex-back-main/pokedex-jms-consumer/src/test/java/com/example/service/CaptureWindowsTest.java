@@ -0,0 +1,63 @@
+package com.example.service;
+
+import com.example.dto.CaptureMessage;
+import com.example.dto.WindowedCaptureStats;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CaptureWindowsTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 1, 10, 1, 20);
+
+    private final long[] now = {CaptureStore.toEpochMillis(NOW)};
+    private final CaptureWindows windows = new CaptureWindows(new CaptureAggregator(NameDictionary.getInstance()),
+            () -> now[0], 60, 24);
+
+    private void capture(long trainerId, long pokemonId, LocalDateTime date) {
+        windows.record(new CaptureMessage(trainerId, "trainer-" + trainerId, pokemonId, "pokemon-" + pokemonId, date));
+    }
+
+    @Test
+    void testLastMinuteSlidesAcrossTheMinuteBoundary() {
+        // given : 10:01:20, une capture 30 s avant (minute precedente) et une 70 s avant
+        capture(1L, 25L, NOW.minusSeconds(30));
+        capture(1L, 25L, NOW.minusSeconds(5));
+        capture(2L, 4L, NOW.minusSeconds(70));
+
+        // when
+        WindowedCaptureStats minute = windows.getWindow(CaptureWindows.Window.MINUTE, 10);
+
+        // then
+        assertEquals(2L, minute.getTotalCaptures());
+        assertEquals(1, minute.getTrainers().size());
+        assertEquals(1L, minute.getTrainers().get(0).getId());
+        assertEquals(2L, minute.getTrainers().get(0).getCount());
+        assertEquals(NOW.minusSeconds(59), minute.getFrom());
+        assertEquals(NOW.plusSeconds(1), minute.getTo());
+        assertEquals(3L, windows.getWindow(CaptureWindows.Window.HOUR, 10).getTotalCaptures());
+    }
+
+    @Test
+    void testCaptureLeavesTheLastMinuteSixtySecondsLater() {
+        // given
+        capture(1L, 25L, NOW);
+
+        // when
+        now[0] += 59_000L;
+        long stillCounted = windows.getWindow(CaptureWindows.Window.MINUTE, 10).getTotalCaptures();
+        now[0] += 1_000L;
+        long expired = windows.getWindow(CaptureWindows.Window.MINUTE, 10).getTotalCaptures();
+
+        // then
+        assertEquals(1L, stillCounted);
+        assertEquals(0L, expired);
+        Map<String, Object> trainer = windows.getTrainerWindows(1L);
+        assertEquals(0L, trainer.get("minute"));
+        assertEquals(1L, trainer.get("hour"));
+        assertEquals(1L, trainer.get("day"));
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.service;
+
+import com.example.dto.DeadLetter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadLetterStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private DeadLetterStore createStore(int maxEntries, int maxWritesPerSecond) {
+        DeadLetterStore store = new DeadLetterStore(tempDir, maxEntries, 1024L * 1024L, maxWritesPerSecond, 10_000L);
+        store.open();
+        return store;
+    }
+
+    private static void quarantine(DeadLetterStore store, String messageId, byte[] payload) {
+        store.quarantine("captures", messageId, DeadLetterStore.FailureReason.BAD_MAGIC, "bad magic", payload);
+    }
+
+    @Test
+    void testEntriesAreReloadedAfterARestart() {
+        // given
+        DeadLetterStore store = createStore(10, 100);
+        quarantine(store, "ID:1", new byte[]{1, 2, 3});
+        quarantine(store, "ID:2", new byte[]{4, 5});
+
+        // when
+        DeadLetterStore reopened = createStore(10, 100);
+
+        // then
+        List<DeadLetter> entries = reopened.list(10);
+        assertEquals(2, entries.size());
+        assertEquals("ID:2", entries.get(0).getMessageId());
+        assertEquals("ID:1", entries.get(1).getMessageId());
+        assertEquals("BAD_MAGIC", entries.get(1).getReason());
+        DeadLetter first = reopened.get(entries.get(1).getId());
+        assertArrayEquals(new byte[]{1, 2, 3}, Base64.getDecoder().decode(first.getPayload()));
+        // une copie recue apres le redemarrage est reconnue
+        quarantine(reopened, "ID:3", new byte[]{1, 2, 3});
+        assertEquals(2, reopened.list(10).size());
+        assertEquals(1L, reopened.getStats().getDuplicates());
+    }
+
+    @Test
+    void testIdenticalCopiesAreOnlyCounted() {
+        // given
+        DeadLetterStore store = createStore(10, 100);
+
+        // when
+        for (int i = 0; i < 5; i++) {
+            quarantine(store, "ID:" + i, new byte[]{9, 9, 9});
+        }
+
+        // then
+        List<DeadLetter> entries = store.list(10);
+        assertEquals(1, entries.size());
+        assertEquals(5L, entries.get(0).getOccurrences());
+        assertEquals(4L, store.getStats().getDuplicates());
+    }
+
+    @Test
+    void testOldestEntriesAreEvictedBeyondMaxEntries() {
+        // given
+        DeadLetterStore store = createStore(2, 100);
+
+        // when
+        for (int i = 0; i < 3; i++) {
+            quarantine(store, "ID:" + i, new byte[]{(byte) i});
+        }
+
+        // then
+        List<DeadLetter> entries = store.list(10);
+        assertEquals(2, entries.size());
+        assertEquals("ID:2", entries.get(0).getMessageId());
+        assertEquals("ID:1", entries.get(1).getMessageId());
+        assertEquals(1L, store.getStats().getEvicted());
+        assertEquals(2, createStore(2, 100).list(10).size());
+    }
+
+    @Test
+    void testWritesBeyondTheRateLimitAreOnlyCounted() {
+        // given
+        DeadLetterStore store = createStore(100, 2);
+
+        // when
+        for (int i = 0; i < 10; i++) {
+            quarantine(store, "ID:" + i, new byte[]{(byte) i});
+        }
+
+        // then
+        int stored = store.list(100).size();
+        assertTrue(stored >= 2 && stored < 10, stored + " stored");
+        assertEquals(10L - stored, store.getStats().getNotStored());
+    }
+
+    @Test
+    void testReplayKeepsTheEntryWhenTheHandlerFails() {
+        // given
+        DeadLetterStore store = createStore(10, 100);
+        quarantine(store, "ID:1", new byte[]{7});
+        long id = store.list(1).get(0).getId();
+
+        // when
+        assertThrows(IllegalStateException.class, () -> store.replay(id, payload -> {
+            throw new IllegalStateException("still unreadable");
+        }));
+        List<byte[]> handled = new ArrayList<>();
+        DeadLetter replayed = store.replay(id, handled::add);
+
+        // then
+        assertNotNull(replayed);
+        assertEquals(1, handled.size());
+        assertArrayEquals(new byte[]{7}, handled.get(0));
+        assertTrue(store.list(10).isEmpty());
+        assertNull(store.replay(id, handled::add));
+        assertTrue(createStore(10, 100).list(10).isEmpty());
+        assertEquals(1L, store.getStats().getReplayed());
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.service;
+
+import com.example.dto.CaptureMessage;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistinctTrainersTest {
+
+    private static DistinctTrainers createDistinctTrainers() {
+        return new DistinctTrainers(new CaptureAggregator(NameDictionary.getInstance()), 11, 14);
+    }
+
+    private static void capture(DistinctTrainers distinctTrainers, long trainerId, long pokemonId) {
+        distinctTrainers.record(new CaptureMessage(trainerId, "trainer-" + trainerId, pokemonId, "pokemon-" + pokemonId,
+                LocalDateTime.now()));
+    }
+
+    @Test
+    void testCheckpointMergesIntoAnotherInstance() {
+        // given : deux instances qui ont vu des trainers differents
+        DistinctTrainers first = createDistinctTrainers();
+        DistinctTrainers second = createDistinctTrainers();
+        for (long trainerId = 1; trainerId <= 50; trainerId++) {
+            capture(first, trainerId, 25L);
+            capture(second, trainerId + 50, 25L);
+            capture(second, trainerId, 4L);
+        }
+
+        // when
+        int merged = first.merge(second.checkpoint());
+
+        // then
+        assertEquals(2, merged);
+        assertEquals(100L, first.getPokemon(25L).getDistinctTrainers(), 3);
+        assertEquals(50L, first.getPokemon(4L).getDistinctTrainers(), 2);
+        assertEquals(100L, first.getGlobal().getDistinctTrainers(), 3);
+    }
+
+    @Test
+    void testPokemonCountLargerThanTheCheckpointIsRejected() {
+        // given : un checkpoint valide dont le nombre de pokemons est gonfle
+        DistinctTrainers source = createDistinctTrainers();
+        capture(source, 1L, 25L);
+        byte[] checkpoint = source.checkpoint();
+        int countOffset = checkpoint.length - (8 + 1 + (1 << 11)) - 4;
+        byte[] oneTooMany = Arrays.copyOf(checkpoint, checkpoint.length);
+        ByteBuffer.wrap(oneTooMany).putInt(countOffset, 2);
+        byte[] huge = Arrays.copyOf(checkpoint, checkpoint.length);
+        ByteBuffer.wrap(huge).putInt(countOffset, Integer.MAX_VALUE);
+        DistinctTrainers target = createDistinctTrainers();
+
+        // when / then
+        assertThrows(IllegalArgumentException.class, () -> target.merge(oneTooMany));
+        assertThrows(IllegalArgumentException.class, () -> target.merge(huge));
+        assertEquals(0, target.getPokemonCount());
+        assertEquals(1, target.merge(checkpoint));
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventLogTest {
+
+    // en-tete de segment et d'enregistrement, voir EventLog
+    private static final int DATA_START = 16;
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    @TempDir
+    Path tempDir;
+
+    private EventLog createLog(int segmentSize, int maxSegments) {
+        return new EventLog(tempDir, segmentSize, maxSegments, 24L, EventLog.FsyncPolicy.NONE, 1000L);
+    }
+
+    private static byte[] message(int value) {
+        byte[] message = new byte[40];
+        message[0] = (byte) value;
+        message[39] = (byte) (value >> 8);
+        return message;
+    }
+
+    private static int valueOf(byte[] message) {
+        return (message[0] & 0xff) | (message[39] & 0xff) << 8;
+    }
+
+    private List<Integer> replay(EventLog log) {
+        List<Integer> values = new ArrayList<>();
+        log.open(message -> values.add(valueOf(message)));
+        return values;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.sorted().toList();
+        }
+    }
+
+    @Test
+    void testReplayReturnsEveryRecordInOrderAcrossSegments() throws Exception {
+        // given : 5 enregistrements de 48 octets par segment de 256
+        EventLog log = createLog(256, 100);
+        replay(log);
+        for (int i = 0; i < 30; i++) {
+            log.append(message(i));
+        }
+        log.close();
+
+        // when
+        EventLog reopened = createLog(256, 100);
+        List<Integer> replayed = replay(reopened);
+
+        // then
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, replayed);
+        assertEquals(6, segments().size());
+        assertEquals(30L, reopened.getStats().getReplayedRecords());
+        assertEquals(0L, reopened.getStats().getCorruptedRecords());
+    }
+
+    @Test
+    void testAppendAfterReopenContinuesTheLastSegment() {
+        // given
+        EventLog log = createLog(1024, 100);
+        replay(log);
+        log.append(message(1));
+        log.close();
+        EventLog reopened = createLog(1024, 100);
+        replay(reopened);
+
+        // when
+        reopened.append(message(2));
+        reopened.close();
+
+        // then
+        assertEquals(List.of(1, 2), replay(createLog(1024, 100)));
+    }
+
+    @Test
+    void testRecordWithBadChecksumIsSkipped() throws Exception {
+        // given
+        EventLog log = createLog(1024, 100);
+        replay(log);
+        log.append(message(1));
+        log.append(message(2));
+        log.append(message(3));
+        log.close();
+        // un octet du deuxieme message est modifie sur disque
+        try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.WRITE)) {
+            long offset = DATA_START + RECORD_HEADER_SIZE + 40 + RECORD_HEADER_SIZE + 10;
+            channel.write(ByteBuffer.wrap(new byte[]{42}), offset);
+        }
+
+        // when
+        EventLog reopened = createLog(1024, 100);
+        List<Integer> replayed = replay(reopened);
+
+        // then
+        assertEquals(List.of(1, 3), replayed);
+        assertEquals(1L, reopened.getStats().getCorruptedRecords());
+    }
+
+    @Test
+    void testTruncatedRecordStopsTheReplayOfItsSegment() throws Exception {
+        // given
+        EventLog log = createLog(1024, 100);
+        replay(log);
+        log.append(message(1));
+        log.append(message(2));
+        log.close();
+        // la taille du deuxieme enregistrement depasse la position d'ecriture
+        try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, 500), DATA_START + RECORD_HEADER_SIZE + 40);
+        }
+
+        // when
+        EventLog reopened = createLog(1024, 100);
+        List<Integer> replayed = replay(reopened);
+
+        // then
+        assertEquals(List.of(1), replayed);
+        assertEquals(1L, reopened.getStats().getCorruptedRecords());
+    }
+
+    @Test
+    void testRetentionKeepsOnlyTheNewestSegments() throws Exception {
+        // given
+        EventLog log = createLog(256, 2);
+        replay(log);
+
+        // when
+        for (int i = 0; i < 30; i++) {
+            log.append(message(i));
+        }
+        log.close();
+
+        // then : les 2 derniers segments gardent les enregistrements 20 a 29
+        assertEquals(2, segments().size());
+        assertEquals(4L, log.getStats().getDeletedSegments());
+        assertEquals(List.of(20, 21, 22, 23, 24, 25, 26, 27, 28, 29), replay(createLog(256, 2)));
+    }
+
+    @Test
+    void testHandlerFailureSkipsOnlyThatRecord() {
+        // given
+        EventLog log = createLog(1024, 100);
+        replay(log);
+        log.append(message(1));
+        log.append(message(2));
+        log.close();
+        List<Integer> values = new ArrayList<>();
+
+        // when
+        EventLog reopened = createLog(1024, 100);
+        reopened.open(message -> {
+            if (valueOf(message) == 1) {
+                throw new IllegalArgumentException("unreadable");
+            }
+            values.add(valueOf(message));
+        });
+
+        // then
+        assertEquals(List.of(2), values);
+        assertEquals(1L, reopened.getStats().getReplayedRecords());
+        assertEquals(1L, reopened.getStats().getCorruptedRecords());
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    @Test
+    void testEstimateIsWithinThreeStandardErrors() {
+        // given
+        HyperLogLog hll = new HyperLogLog(14);
+
+        // when : chaque valeur est vue deux fois, seules les distinctes comptent
+        for (long value = 1; value <= 200_000; value++) {
+            hll.offer(value);
+            hll.offer(value);
+        }
+
+        // then
+        double relativeError = Math.abs(hll.estimate() - 200_000) / 200_000.0;
+        assertTrue(relativeError <= 3 * hll.standardError(), "relative error " + relativeError);
+    }
+
+    @Test
+    void testSmallCardinalityIsNearlyExact() {
+        // given
+        HyperLogLog hll = new HyperLogLog(14);
+
+        // when
+        for (long value = 1; value <= 100; value++) {
+            hll.offer(value * 7919);
+        }
+
+        // then
+        assertEquals(100, hll.estimate(), 2);
+        assertEquals(0, new HyperLogLog(14).estimate());
+    }
+
+    @Test
+    void testMergeEstimatesTheUnion() {
+        // given : deux ensembles qui se recouvrent sur 25 000 valeurs
+        HyperLogLog left = new HyperLogLog(12);
+        HyperLogLog right = new HyperLogLog(12);
+        HyperLogLog union = new HyperLogLog(12);
+        for (long value = 0; value < 75_000; value++) {
+            left.offer(value);
+            union.offer(value);
+        }
+        for (long value = 50_000; value < 100_000; value++) {
+            right.offer(value);
+            union.offer(value);
+        }
+
+        // when
+        left.merge(right);
+
+        // then : meme registres que si un seul avait tout vu
+        assertEquals(union.estimate(), left.estimate());
+        assertThrows(IllegalArgumentException.class, () -> left.merge(new HyperLogLog(10)));
+    }
+
+    @Test
+    void testSerializationRoundTrip() {
+        // given
+        HyperLogLog hll = new HyperLogLog(10);
+        for (long value = 0; value < 5_000; value++) {
+            hll.offer(value);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(hll.serializedSize());
+
+        // when
+        hll.writeTo(buffer);
+        buffer.flip();
+        HyperLogLog read = HyperLogLog.readFrom(buffer);
+
+        // then
+        assertEquals(10, read.getPrecision());
+        assertEquals(hll.estimate(), read.estimate());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void testInvalidInputIsRejected() {
+        // given
+        byte[] badRegister = new byte[1 + (1 << 4)];
+        badRegister[0] = 4;
+        badRegister[3] = 100;
+        byte[] badPrecision = new byte[]{30};
+
+        // when / then
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(3));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(17));
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.readFrom(ByteBuffer.wrap(badRegister)));
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.readFrom(ByteBuffer.wrap(badPrecision)));
+    }
+}
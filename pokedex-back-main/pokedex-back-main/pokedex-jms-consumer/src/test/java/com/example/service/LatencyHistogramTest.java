@@ -0,0 +1,111 @@
+package com.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testEmptyHistogramReturnsZero() {
+        // given
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        // then
+        assertEquals(0L, LatencyHistogram.percentile(0.99, histogram));
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0L, histogram.getMax());
+    }
+
+    @Test
+    void testSmallValuesAreExact() {
+        // given
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        // when
+        for (long value = 0; value < 16; value++) {
+            histogram.record(value);
+        }
+        histogram.record(-5);
+
+        // then : une valeur negative compte comme 0
+        assertEquals(17L, histogram.getCount());
+        assertEquals(0L, LatencyHistogram.percentile(0.1, histogram));
+        assertEquals(7L, LatencyHistogram.percentile(0.5, histogram));
+        assertEquals(15L, LatencyHistogram.percentile(1.0, histogram));
+    }
+
+    @Test
+    void testPercentilesStayWithinTheRelativeError() {
+        // given : 1 a 1 000 000 microsecondes
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1_000_000; micros++) {
+            histogram.record(micros * 1000);
+        }
+
+        // then
+        for (double quantile : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            double expected = quantile * 1_000_000_000L;
+            double actual = LatencyHistogram.percentile(quantile, histogram);
+            assertEquals(expected, actual, expected * 0.032, "quantile " + quantile);
+        }
+        assertEquals(1_000_000_000L, histogram.getMax());
+        // le milieu de la derniere case, jamais au-dessus du max observe
+        long top = LatencyHistogram.percentile(1.0, histogram);
+        assertTrue(top <= 1_000_000_000L);
+        assertEquals(1_000_000_000L, top, 1_000_000_000L * 0.032);
+    }
+
+    @Test
+    void testPercentileCombinesSeveralHistograms() {
+        // given
+        LatencyHistogram fast = new LatencyHistogram();
+        LatencyHistogram slow = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            fast.record(1_000);
+        }
+        for (int i = 0; i < 10; i++) {
+            slow.record(1_000_000);
+        }
+
+        // then
+        assertEquals(1_000, LatencyHistogram.percentile(0.9, fast, slow), 32);
+        assertEquals(1_000_000, LatencyHistogram.percentile(0.95, fast, slow), 32_000);
+    }
+
+    @Test
+    void testConcurrentRecordsAreAllCounted() throws Exception {
+        // given
+        LatencyHistogram histogram = new LatencyHistogram();
+        int threads = 4;
+        int perThread = 100_000;
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] writers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long offset = t;
+            writers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < perThread; i++) {
+                    histogram.record(i * 10L + offset);
+                }
+            });
+            writers[t].start();
+        }
+
+        // when
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        // then
+        assertEquals((long) threads * perThread, histogram.getCount());
+        assertEquals((perThread - 1) * 10L + threads - 1, histogram.getMax());
+    }
+}
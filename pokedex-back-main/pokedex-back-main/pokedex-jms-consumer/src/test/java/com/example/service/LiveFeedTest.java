@@ -0,0 +1,154 @@
+package com.example.service;
+
+import com.example.dto.TrainerMessage;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// buffer de 4 evenements : un abonne bloque sur son premier envoi prend 10 evenements de retard
+class LiveFeedTest {
+
+    private static final int BUFFER_SIZE = 4;
+
+    // ids des evenements envoyes a l'abonne, dans l'ordre
+    private final List<String> sentIds = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    // le client ne lit plus tant que ce future n'est pas termine
+    private final CompletableFuture<Void> client = new CompletableFuture<>();
+    private Sse sse;
+    private SseEventSink sink;
+
+    @BeforeEach
+    void setUp() {
+        OutboundSseEvent.Builder builder = mock(OutboundSseEvent.Builder.class, Answers.RETURNS_SELF);
+        when(builder.id(anyString())).thenAnswer(invocation -> {
+            sentIds.add(invocation.getArgument(0));
+            return builder;
+        });
+        when(builder.build()).thenReturn(mock(OutboundSseEvent.class));
+        sse = mock(Sse.class);
+        when(sse.newEventBuilder()).thenReturn(builder);
+        sink = mock(SseEventSink.class);
+        when(sink.isClosed()).thenAnswer(invocation -> closed.get());
+        doAnswer(invocation -> {
+            closed.set(true);
+            return null;
+        }).when(sink).close();
+        when(sink.send(any())).thenAnswer(invocation -> client);
+    }
+
+    private static TrainerMessage trainer(long id) {
+        return new TrainerMessage(id, "trainer-" + id, "trainer" + id + "@pokedex.com");
+    }
+
+    private boolean subscribe(LiveFeed feed) {
+        return feed.subscribe(sink, sse, null, null, payload -> "{}");
+    }
+
+    // le premier evenement part et bloque l'abonne, puis 10 autres sont publies derriere lui
+    private void fallBehind(LiveFeed feed) throws InterruptedException {
+        feed.publishTrainer(trainer(0));
+        waitUntil(2000, () -> sentIds.size() == 1);
+        for (long id = 1; id <= 10; id++) {
+            feed.publishTrainer(trainer(id));
+        }
+    }
+
+    private static void waitUntil(long timeoutMs, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met within " + timeoutMs + " ms");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void testDropOldestSkipsTheEventsNoLongerInTheBuffer() throws Exception {
+        // given
+        LiveFeed feed = new LiveFeed(BUFFER_SIZE, 10, LiveFeed.DropPolicy.DROP_OLDEST, 60_000L);
+        assertTrue(subscribe(feed));
+        fallBehind(feed);
+
+        // when : le client reprend sa lecture
+        client.complete(null);
+        waitUntil(2000, () -> feed.getStats().getSentEvents() == 5L);
+
+        // then : seuls les 4 derniers evenements sont envoyes, les 6 autres sont comptes
+        assertEquals(List.of("0", "7", "8", "9", "10"), sentIds);
+        assertEquals(6L, feed.getStats().getDroppedEvents());
+        assertEquals(5L, feed.getStats().getSentEvents());
+        assertEquals(0L, feed.getStats().getSlowDisconnects());
+        assertEquals(1, feed.getStats().getSubscribers());
+        assertFalse(closed.get());
+        closed.set(true);
+    }
+
+    @Test
+    void testDisconnectClosesTheSlowSubscriberInsteadOfSkippingEvents() throws Exception {
+        // given
+        LiveFeed feed = new LiveFeed(BUFFER_SIZE, 10, LiveFeed.DropPolicy.DISCONNECT, 60_000L);
+        assertTrue(subscribe(feed));
+        fallBehind(feed);
+
+        // when
+        client.complete(null);
+        waitUntil(2000, () -> feed.getStats().getSubscribers() == 0);
+
+        // then : aucun evenement saute, l'abonne reprendra avec Last-Event-ID
+        assertEquals(List.of("0"), sentIds);
+        assertEquals(1L, feed.getStats().getSlowDisconnects());
+        assertEquals(0L, feed.getStats().getDroppedEvents());
+        verify(sink).close();
+    }
+
+    @Test
+    void testSubscriberWithinTheBufferReceivesEveryEvent() throws Exception {
+        // given : un retard de 4 evenements tient dans le buffer
+        LiveFeed feed = new LiveFeed(BUFFER_SIZE, 10, LiveFeed.DropPolicy.DISCONNECT, 60_000L);
+        assertTrue(subscribe(feed));
+        feed.publishTrainer(trainer(0));
+        waitUntil(2000, () -> sentIds.size() == 1);
+        for (long id = 1; id <= BUFFER_SIZE; id++) {
+            feed.publishTrainer(trainer(id));
+        }
+
+        // when
+        client.complete(null);
+        waitUntil(2000, () -> sentIds.size() == BUFFER_SIZE + 1);
+
+        // then
+        assertEquals(List.of("0", "1", "2", "3", "4"), sentIds);
+        assertEquals(0L, feed.getStats().getSlowDisconnects());
+        assertEquals(0L, feed.getStats().getDroppedEvents());
+        closed.set(true);
+    }
+
+    @Test
+    void testSubscribersBeyondTheLimitAreRejected() throws Exception {
+        // given
+        LiveFeed feed = new LiveFeed(BUFFER_SIZE, 1, LiveFeed.DropPolicy.DROP_OLDEST, 60_000L);
+        assertTrue(subscribe(feed));
+
+        // when
+        boolean accepted = subscribe(feed);
+
+        // then
+        assertFalse(accepted);
+        assertEquals(1L, feed.getStats().getRejectedSubscribers());
+        assertEquals(1L, feed.getStats().getTotalSubscribed());
+        closed.set(true);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongIntHashMapTest {
+
+    @Test
+    void testRemoveKeepsCollidingKeysReachable() {
+        // given : une petite table pleine de cles proches, avec des groupes de sondage qui se chevauchent
+        LongIntHashMap map = new LongIntHashMap(4);
+        for (long key = 1; key <= 200; key++) {
+            map.put(key, (int) key * 10);
+        }
+
+        // when : on retire une cle sur trois
+        for (long key = 1; key <= 200; key += 3) {
+            assertEquals((int) key * 10, map.remove(key, -1));
+        }
+
+        // then
+        for (long key = 1; key <= 200; key++) {
+            int expected = (key - 1) % 3 == 0 ? -1 : (int) key * 10;
+            assertEquals(expected, map.get(key, -1), "key " + key);
+        }
+        assertEquals(200 - 67, map.size());
+        assertEquals(-1, map.remove(1, -1));
+    }
+
+    @Test
+    void testBehavesLikeAHashMapUnderRandomOperations() {
+        // given
+        LongIntHashMap map = new LongIntHashMap(8);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        // when : peu de cles differentes, dont 0 et des negatives, pour beaucoup de collisions
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(301) - 150;
+            switch (random.nextInt(3)) {
+                case 0:
+                    int value = random.nextInt(1000) + 1;
+                    map.put(key, value);
+                    expected.put(key, value);
+                    break;
+                case 1:
+                    assertEquals(expected.merge(key, 2, Integer::sum).intValue(), map.addTo(key, 2));
+                    break;
+                default:
+                    Integer removed = expected.remove(key);
+                    assertEquals(removed == null ? -1 : removed, map.remove(key, -1));
+                    break;
+            }
+        }
+
+        // then
+        assertEquals(expected.size(), map.size());
+        for (long key = -150; key <= 150; key++) {
+            assertEquals(expected.getOrDefault(key, -1).intValue(), map.get(key, -1), "key " + key);
+        }
+        Map<Long, Integer> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertEquals(expected, visited);
+    }
+
+    @Test
+    void testZeroKeyIsStoredAsARegularKey() {
+        // given
+        LongIntHashMap map = new LongIntHashMap();
+
+        // when
+        map.put(0L, 7);
+        map.addTo(0L, 3);
+
+        // then
+        assertEquals(10, map.get(0L, -1));
+        assertEquals(1, map.size());
+        assertEquals(10, map.remove(0L, -1));
+        assertEquals(-1, map.get(0L, -1));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void testKeysByValueDescending() {
+        // given
+        LongIntHashMap map = new LongIntHashMap();
+        map.put(1L, 5);
+        map.put(2L, 50);
+        map.put(3L, 20);
+        map.put(0L, 30);
+
+        // when
+        long[] top = map.keysByValueDescending(3);
+
+        // then
+        assertArrayEquals(new long[]{2L, 0L, 3L}, top);
+        assertEquals(4, map.keysByValueDescending(0).length);
+    }
+}
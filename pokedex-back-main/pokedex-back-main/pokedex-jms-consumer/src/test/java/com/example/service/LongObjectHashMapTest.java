@@ -0,0 +1,57 @@
+package com.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongObjectHashMapTest {
+
+    @Test
+    void testComputeIfAbsentCreatesEachValueOnceAcrossRehashes() {
+        // given
+        LongObjectHashMap<List<Long>> map = new LongObjectHashMap<>(2);
+        int[] created = new int[1];
+
+        // when
+        for (long key = -500; key <= 500; key++) {
+            for (int i = 0; i < 2; i++) {
+                map.computeIfAbsent(key, k -> {
+                    created[0]++;
+                    return new ArrayList<>();
+                }).add(key);
+            }
+        }
+
+        // then
+        assertEquals(1001, created[0]);
+        assertEquals(1001, map.size());
+        for (long key = -500; key <= 500; key++) {
+            assertEquals(List.of(key, key), map.get(key));
+        }
+        assertNull(map.get(501L));
+    }
+
+    @Test
+    void testForEachVisitsTheZeroKey() {
+        // given
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        map.computeIfAbsent(0L, k -> "zero");
+        map.computeIfAbsent(42L, k -> "answer");
+
+        // when
+        Map<Long, String> visited = new HashMap<>();
+        map.forEach(visited::put);
+        List<String> values = new ArrayList<>();
+        map.forEachValue(values::add);
+
+        // then
+        assertEquals(Map.of(0L, "zero", 42L, "answer"), visited);
+        assertEquals(2, values.size());
+        assertTrue(values.containsAll(List.of("zero", "answer")));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// journal recent de MessageLogService : RingBuffer contre l'ancienne liste synchronisee
+// (add + remove(0) une fois pleine, copie inversee a la lecture). 3 threads ajoutent, comme les
+// workers jms, pendant qu'un thread lit tout le journal, comme GET /captures.
+// lancement : mvn -Pbenchmark test -DskipTests -Dbenchmark=RingBufferBenchmark
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RingBufferBenchmark {
+
+    private static final Object VALUE = new Object();
+
+    @State(Scope.Group)
+    public static class RingBufferState {
+        @Param({"100", "1000"})
+        public int capacity;
+        public RingBuffer<Object> buffer;
+
+        @Setup
+        public void setup() {
+            buffer = new RingBuffer<>(capacity);
+            for (int i = 0; i < capacity; i++) {
+                buffer.add(VALUE);
+            }
+        }
+    }
+
+    @State(Scope.Group)
+    public static class SynchronizedListState {
+        @Param({"100", "1000"})
+        public int capacity;
+        public SynchronizedLog log;
+
+        @Setup
+        public void setup() {
+            log = new SynchronizedLog(capacity);
+            for (int i = 0; i < capacity; i++) {
+                log.add(VALUE);
+            }
+        }
+    }
+
+    @Benchmark
+    @Group("ringBuffer")
+    @GroupThreads(3)
+    public void ringBufferAdd(RingBufferState state) {
+        state.buffer.add(VALUE);
+    }
+
+    @Benchmark
+    @Group("ringBuffer")
+    @GroupThreads(1)
+    public List<Object> ringBufferSnapshot(RingBufferState state) {
+        return state.buffer.snapshot(0);
+    }
+
+    @Benchmark
+    @Group("synchronizedList")
+    @GroupThreads(3)
+    public void synchronizedListAdd(SynchronizedListState state) {
+        state.log.add(VALUE);
+    }
+
+    @Benchmark
+    @Group("synchronizedList")
+    @GroupThreads(1)
+    public List<Object> synchronizedListSnapshot(SynchronizedListState state) {
+        return state.log.snapshot();
+    }
+
+    // le journal de MessageLogService avant le RingBuffer
+    public static final class SynchronizedLog {
+        private final int capacity;
+        private final List<Object> messages = Collections.synchronizedList(new ArrayList<>());
+
+        SynchronizedLog(int capacity) {
+            this.capacity = capacity;
+        }
+
+        void add(Object message) {
+            synchronized (messages) {
+                messages.add(message);
+                if (messages.size() > capacity) {
+                    messages.remove(0);
+                }
+            }
+        }
+
+        List<Object> snapshot() {
+            synchronized (messages) {
+                List<Object> result = new ArrayList<>(messages);
+                Collections.reverse(result);
+                return result;
+            }
+        }
+    }
+}
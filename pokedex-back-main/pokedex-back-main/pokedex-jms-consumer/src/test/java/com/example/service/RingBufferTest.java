@@ -0,0 +1,169 @@
+package com.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferTest {
+
+    @Test
+    void testSnapshotReturnsNewestFirstAndKeepsOnlyCapacity() {
+        // given
+        RingBuffer<Integer> buffer = new RingBuffer<>(3);
+
+        // when
+        for (int i = 1; i <= 5; i++) {
+            buffer.add(i);
+        }
+
+        // then
+        assertEquals(List.of(5, 4, 3), buffer.snapshot(0));
+        assertEquals(List.of(5, 4), buffer.snapshot(2));
+        assertEquals(3, buffer.size());
+        assertEquals(5L, buffer.totalAdded());
+        assertNull(buffer.get(1));
+        assertEquals(3, buffer.get(2));
+    }
+
+    @Test
+    void testAddAllKeepsOnlyTheLastCapacityElements() {
+        // given
+        RingBuffer<Integer> buffer = new RingBuffer<>(3);
+        buffer.add(0);
+
+        // when
+        buffer.addAll(Arrays.asList(1, 2, 3, 4, 5));
+
+        // then
+        assertEquals(List.of(5, 4, 3), buffer.snapshot(0));
+        assertEquals(6L, buffer.totalAdded());
+    }
+
+    @Test
+    void testReadAfterResumesFromTheCursor() {
+        // given
+        RingBuffer<String> buffer = new RingBuffer<>(10);
+        buffer.addAll(List.of("a", "b", "c", "d"));
+
+        // when
+        RingBuffer.Range<String> first = buffer.readAfter(-1, 2);
+        RingBuffer.Range<String> second = buffer.readAfter(first.getCursor(), 10);
+        RingBuffer.Range<String> empty = buffer.readAfter(second.getCursor(), 10);
+
+        // then
+        assertEquals(List.of("a", "b"), first.getValues());
+        assertArrayEquals(new long[]{0, 1}, first.getSequences());
+        assertEquals(List.of("c", "d"), second.getValues());
+        assertEquals(3L, second.getCursor());
+        assertTrue(empty.getValues().isEmpty());
+        assertEquals(3L, empty.getCursor());
+    }
+
+    @Test
+    void testReadAfterCountsOverwrittenElementsAsMissed() {
+        // given
+        RingBuffer<Integer> buffer = new RingBuffer<>(4);
+        for (int i = 0; i < 10; i++) {
+            buffer.add(i);
+        }
+
+        // when
+        RingBuffer.Range<Integer> range = buffer.readAfter(1, 100);
+
+        // then
+        assertEquals(4L, range.getMissed());
+        assertEquals(List.of(6, 7, 8, 9), range.getValues());
+        assertEquals(9L, range.getCursor());
+    }
+
+    @Test
+    void testAwaitAfterCompletesWhenANewerElementIsPublished() throws Exception {
+        // given
+        RingBuffer<Integer> buffer = new RingBuffer<>(4);
+        buffer.add(0);
+        CompletableFuture<Void> waiting = buffer.awaitAfter(0);
+        CompletableFuture<Void> alreadyAvailable = buffer.awaitAfter(-1);
+
+        // when
+        assertFalse(waiting.isDone());
+        buffer.add(1);
+
+        // then
+        waiting.get(1, TimeUnit.SECONDS);
+        assertTrue(alreadyAvailable.isDone());
+    }
+
+    @Test
+    void testConcurrentWritersNeverLetAnOlderElementReplaceANewerOne() throws Exception {
+        // given : chaque ecrivain ajoute ses valeurs dans l'ordre, un lecteur verifie en parallele
+        // que chaque lecture voit les valeurs d'un ecrivain dans l'ordre de leurs sequences
+        int writers = 4;
+        int perWriter = 50_000;
+        RingBuffer<long[]> buffer = new RingBuffer<>(64);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[writers];
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            threads[w] = new Thread(() -> {
+                awaitQuietly(start);
+                for (long i = 0; i < perWriter; i++) {
+                    buffer.add(new long[]{writer, i});
+                }
+            });
+            threads[w].start();
+        }
+        Thread reader = new Thread(() -> {
+            awaitQuietly(start);
+            long cursor = -1;
+            while (buffer.totalAdded() < (long) writers * perWriter && failure.get() == null) {
+                RingBuffer.Range<long[]> range = buffer.readAfter(cursor, 64);
+                long[] last = new long[writers];
+                Arrays.fill(last, -1);
+                long previousSequence = cursor;
+                for (int i = 0; i < range.getValues().size(); i++) {
+                    long[] value = range.getValues().get(i);
+                    long sequence = range.getSequences()[i];
+                    if (sequence <= previousSequence || value[1] <= last[(int) value[0]]) {
+                        failure.set("out of order at sequence " + sequence);
+                    }
+                    previousSequence = sequence;
+                    last[(int) value[0]] = value[1];
+                }
+                cursor = range.getCursor();
+            }
+        });
+        reader.start();
+
+        // when
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        reader.join();
+
+        // then
+        assertNull(failure.get());
+        assertEquals((long) writers * perWriter, buffer.totalAdded());
+        List<long[]> snapshot = buffer.snapshot(0);
+        assertEquals(64, snapshot.size());
+        for (long[] value : snapshot) {
+            assertNotNull(value);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
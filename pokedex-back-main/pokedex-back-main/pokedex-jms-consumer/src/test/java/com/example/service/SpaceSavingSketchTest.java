@@ -0,0 +1,76 @@
+package com.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingSketchTest {
+
+    @Test
+    void testCountsStayWithinTheirErrorBounds() {
+        // given : un flux tres desequilibre, beaucoup plus de cles que de compteurs
+        SpaceSavingSketch sketch = new SpaceSavingSketch(50);
+        Map<Long, Long> exact = new HashMap<>();
+        Random random = new Random(7);
+
+        // when
+        for (int i = 0; i < 100_000; i++) {
+            // loi a peu pres zipf : la cle k sort avec une probabilite ~1/k
+            long key = (long) Math.floor(Math.pow(2000, random.nextDouble()));
+            sketch.offer(key);
+            exact.merge(key, 1L, Long::sum);
+        }
+
+        // then
+        assertEquals(100_000L, sketch.getObserved());
+        assertEquals(2_000L, sketch.getErrorBound());
+        for (SpaceSavingSketch.Entry entry : sketch.top(50)) {
+            long trueCount = exact.getOrDefault(entry.getKey(), 0L);
+            assertTrue(entry.getCount() - entry.getError() <= trueCount, "lower bound of key " + entry.getKey());
+            assertTrue(trueCount <= entry.getCount(), "upper bound of key " + entry.getKey());
+            assertTrue(entry.getError() <= sketch.getErrorBound(), "error of key " + entry.getKey());
+        }
+        // toute cle vue plus de observed / capacity fois est gardee
+        for (Map.Entry<Long, Long> count : exact.entrySet()) {
+            if (count.getValue() > sketch.getErrorBound()) {
+                assertTrue(contains(sketch.top(50), count.getKey()), "heavy hitter " + count.getKey());
+            }
+        }
+    }
+
+    @Test
+    void testTopIsExactWhileKeysFitInTheSketch() {
+        // given
+        SpaceSavingSketch sketch = new SpaceSavingSketch(10);
+
+        // when
+        for (int key = 1; key <= 4; key++) {
+            for (int i = 0; i < key * 10; i++) {
+                sketch.offer(key);
+            }
+        }
+
+        // then
+        SpaceSavingSketch.Entry[] top = sketch.top(2);
+        assertEquals(2, top.length);
+        assertEquals(4L, top[0].getKey());
+        assertEquals(40L, top[0].getCount());
+        assertEquals(0L, top[0].getError());
+        assertEquals(3L, top[1].getKey());
+        assertEquals(30L, top[1].getCount());
+        assertEquals(4, sketch.size());
+    }
+
+    private static boolean contains(SpaceSavingSketch.Entry[] entries, long key) {
+        for (SpaceSavingSketch.Entry entry : entries) {
+            if (entry.getKey() == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
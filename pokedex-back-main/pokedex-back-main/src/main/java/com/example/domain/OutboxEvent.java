@@ -0,0 +1,44 @@
+package com.example.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// evenement jms en attente d'envoi, ecrit dans la meme transaction que la donnee metier
+@Entity
+@Table(name = "outbox_events")
+@Getter
+@Setter
+@NoArgsConstructor
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String queueName;
+
+    @Column(nullable = false)
+    private byte[] payload;
+
+    @Column(nullable = false)
+    private String description;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private Integer attempts;
+
+    public OutboxEvent(String queueName, byte[] payload, String description) {
+        this.queueName = queueName;
+        this.payload = payload;
+        this.description = description;
+        this.createdAt = LocalDateTime.now();
+        this.attempts = 0;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// compteurs du regroupement des captures en messages batch
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchStats {
+    private Integer maxBatchSize;
+    private Long maxBatchDelayMillis;
+    private Long batches;
+    private Long events;
+    private Double eventsPerMessage;
+    private Integer lastBatchSize;
+    private Integer largestBatchSize;
+    private Long sizeFlushes;
+    private Long timeFlushes;
+    private Long shutdownFlushes;
+    private Integer pendingEvents;
+}
@@ -22,6 +22,17 @@ public class CaptureMessage implements Serializable {
     private Long pokemonId;
     private String pokemonName;
     private LocalDateTime captureDate;
+    // id stable de la capture, attribue une seule fois a la production : un message renvoye
+    // ou relivre garde le meme id, ce qui permet au consumer de le dedoublonner
+    private Long eventId;
+    
+    public CaptureMessage(Long trainerId, String trainerName, Long pokemonId, String pokemonName, LocalDateTime captureDate) {
+        this.trainerId = trainerId;
+        this.trainerName = trainerName;
+        this.pokemonId = pokemonId;
+        this.pokemonName = pokemonName;
+        this.captureDate = captureDate;
+    }
     
     public CaptureMessage(Long trainerId, String trainerName, Long pokemonId, String pokemonName) {
         this.trainerId = trainerId;
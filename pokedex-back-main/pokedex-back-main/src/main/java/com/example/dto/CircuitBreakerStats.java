@@ -0,0 +1,25 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// etat et transitions du disjoncteur place devant le broker jms
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CircuitBreakerStats {
+    private String state;
+    private Integer failureThreshold;
+    private Integer consecutiveFailures;
+    private Long openedCount;
+    private Long halfOpenedCount;
+    private Long closedCount;
+    private Long rejectedCalls;
+    private Long probes;
+    private Long failedProbes;
+    private Long totalOpenMillis;
+    private Long lastTransitionAt;
+}
@@ -0,0 +1,26 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// compteurs du pool de sessions jms partage par les producers
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class JmsPoolStats {
+    private Integer poolSize;
+    private Integer openSessions;
+    private Integer idleSessions;
+    private Integer activeSessions;
+    private Integer cachedProducers;
+    private Long borrowCount;
+    private Double averageWaitMillis;
+    private Double maxWaitMillis;
+    private Long borrowTimeouts;
+    private Long reconnectCount;
+    private Long connectionFailures;
+    private Boolean connected;
+}
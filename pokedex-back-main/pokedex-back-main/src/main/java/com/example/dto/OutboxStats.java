@@ -0,0 +1,23 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// compteurs du relais outbox (profondeur du backlog, debit de vidage, latence par batch)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxStats {
+    private Long backlog;
+    private Long relayedEvents;
+    private Long failedEvents;
+    private Long batches;
+    private Integer lastBatchSize;
+    private Double lastBatchMillis;
+    private Double averageBatchMillis;
+    private Double maxBatchMillis;
+    private Double lastDrainEventsPerSecond;
+}
@@ -0,0 +1,25 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// compteurs de publication des evenements jms (envois, accuses, echecs, retries)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PublishStats {
+    private Boolean asyncMode;
+    private Long submitted;
+    private Long acknowledged;
+    private Long failedAttempts;
+    private Long retried;
+    private Long exhausted;
+    private Long spooled;
+    private Long shortCircuited;
+    private Long inFlight;
+    private Double averageAckMillis;
+    private Double maxAckMillis;
+}
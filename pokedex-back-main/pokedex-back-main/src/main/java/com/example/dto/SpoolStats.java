@@ -0,0 +1,24 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// compteurs du spool disque utilise quand le broker est injoignable
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SpoolStats {
+    private Boolean enabled;
+    private String fsyncPolicy;
+    private Long capacityBytes;
+    private Long usedBytes;
+    private Integer pendingEvents;
+    private Long spooledEvents;
+    private Long replayedEvents;
+    private Long rejectedEvents;
+    private Long replayFailures;
+    private Long corruptedRecords;
+}
@@ -0,0 +1,221 @@
+package com.example.messaging;
+
+import com.example.dto.BatchStats;
+import com.example.dto.CaptureMessage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Singleton;
+import jakarta.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+// regroupe les captures en un seul message jms des que N captures sont en attente
+// ou que la plus ancienne attend depuis T millisecondes, voie par voie de trainers
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class CaptureBatcher {
+
+    private static final Logger logger = Logger.getLogger(CaptureBatcher.class.getName());
+
+    enum FlushReason {
+        SIZE,
+        TIME,
+        SHUTDOWN
+    }
+
+    @Inject
+    private EventPublisher eventPublisher;
+
+    private final int maxBatchSize;
+    private final long maxBatchDelayMs;
+
+    private ScheduledExecutorService timer;
+
+    // les captures sont reparties en voies par trainer : un trainer tombe toujours dans la
+    // meme voie, et la voie sert de JMSXGroupID pour que le consumer garde son ordre
+    private final Lane[] lanes;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder events = new LongAdder();
+    private final LongAdder sizeFlushes = new LongAdder();
+    private final LongAdder timeFlushes = new LongAdder();
+    private final LongAdder shutdownFlushes = new LongAdder();
+    private final AtomicInteger largestBatchSize = new AtomicInteger();
+    private volatile int lastBatchSize;
+
+    public CaptureBatcher() {
+        this(null,
+                Integer.getInteger("pokedex.jms.batch.maxSize", 50),
+                Long.getLong("pokedex.jms.batch.maxDelayMs", 20L),
+                Integer.getInteger("pokedex.jms.batch.lanes", 16));
+    }
+
+    CaptureBatcher(EventPublisher eventPublisher, int maxBatchSize, long maxBatchDelayMs, int laneCount) {
+        this.eventPublisher = eventPublisher;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelayMs = maxBatchDelayMs;
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(i);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jms-capture-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // le future se termine quand le batch contenant la capture a ete accuse par le broker
+    public CompletableFuture<Void> submit(CaptureMessage message) {
+        PendingCapture capture = new PendingCapture(message);
+        Lane lane = laneFor(message.getTrainerId());
+        long scheduleBatch = -1;
+        synchronized (lane) {
+            lane.pending.add(capture);
+            if (lane.pending.size() >= maxBatchSize) {
+                flush(lane, lane.takePending(), FlushReason.SIZE);
+            } else if (lane.pending.size() == 1) {
+                scheduleBatch = lane.batchNumber;
+            }
+        }
+
+        if (scheduleBatch >= 0) {
+            long batch = scheduleBatch;
+            try {
+                timer.schedule(() -> flushOnTimeout(lane, batch), maxBatchDelayMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                flushOnTimeout(lane, batch);
+            }
+        }
+        return capture.acknowledgement;
+    }
+
+    private Lane laneFor(Long trainerId) {
+        return lanes[trainerId == null ? 0 : (int) Math.floorMod(trainerId, (long) lanes.length)];
+    }
+
+    private void flushOnTimeout(Lane lane, long batch) {
+        synchronized (lane) {
+            if (batch == lane.batchNumber && !lane.pending.isEmpty()) {
+                flush(lane, lane.takePending(), FlushReason.TIME);
+            }
+        }
+    }
+
+    // appele sous le verrou de la voie : les batchs d'une voie arrivent a l'EventPublisher
+    // dans l'ordre ou ils ont ete formes, et il les envoie un par un dans cet ordre
+    private void flush(Lane lane, List<PendingCapture> batch, FlushReason reason) {
+        List<CaptureMessage> messages = new ArrayList<>(batch.size());
+        for (PendingCapture capture : batch) {
+            messages.add(capture.message);
+        }
+        byte[] payload = MessageCodec.encodeCaptureBatch(messages);
+
+        recordFlush(batch.size(), reason);
+        eventPublisher.publish(
+                CaptureMessageProducer.QUEUE_NAME,
+                lane.groupId,
+                payload,
+                "capture batch of " + batch.size() + " (" + reason.name().toLowerCase() + ")"
+        ).whenComplete((ignored, error) -> {
+            for (PendingCapture capture : batch) {
+                if (error == null) {
+                    capture.acknowledgement.complete(null);
+                } else {
+                    capture.acknowledgement.completeExceptionally(error);
+                }
+            }
+        });
+    }
+
+    private void recordFlush(int size, FlushReason reason) {
+        batches.increment();
+        events.add(size);
+        lastBatchSize = size;
+        largestBatchSize.accumulateAndGet(size, Math::max);
+        switch (reason) {
+            case SIZE -> sizeFlushes.increment();
+            case TIME -> timeFlushes.increment();
+            case SHUTDOWN -> shutdownFlushes.increment();
+        }
+    }
+
+    public BatchStats getStats() {
+        long batchCount = batches.sum();
+        long eventCount = events.sum();
+        int pendingEvents = 0;
+        for (Lane lane : lanes) {
+            synchronized (lane) {
+                pendingEvents += lane.pending.size();
+            }
+        }
+        return new BatchStats(
+                maxBatchSize,
+                maxBatchDelayMs,
+                batchCount,
+                eventCount,
+                batchCount == 0 ? 0.0 : eventCount / (double) batchCount,
+                lastBatchSize,
+                largestBatchSize.get(),
+                sizeFlushes.sum(),
+                timeFlushes.sum(),
+                shutdownFlushes.sum(),
+                pendingEvents
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Lane lane : lanes) {
+            synchronized (lane) {
+                if (!lane.pending.isEmpty()) {
+                    logger.info("flushing " + lane.pending.size() + " pending captures of " + lane.groupId + " before shutdown");
+                    flush(lane, lane.takePending(), FlushReason.SHUTDOWN);
+                }
+            }
+        }
+        timer.shutdownNow();
+    }
+
+    private final class Lane {
+        private final String groupId;
+        private List<PendingCapture> pending = new ArrayList<>();
+        // identifie le batch en cours pour que le timer d'un batch deja parti ne vide pas le suivant
+        private long batchNumber;
+
+        private Lane(int index) {
+            this.groupId = CaptureMessageProducer.QUEUE_NAME + "-" + index;
+        }
+
+        private List<PendingCapture> takePending() {
+            List<PendingCapture> taken = pending;
+            pending = new ArrayList<>(maxBatchSize);
+            batchNumber++;
+            return taken;
+        }
+    }
+
+    private static final class PendingCapture {
+        private final CaptureMessage message;
+        private final CompletableFuture<Void> acknowledgement = new CompletableFuture<>();
+
+        private PendingCapture(CaptureMessage message) {
+            this.message = message;
+        }
+    }
+}
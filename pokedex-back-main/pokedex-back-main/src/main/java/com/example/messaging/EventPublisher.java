@@ -0,0 +1,319 @@
+package com.example.messaging;
+
+import com.example.dto.PublishStats;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Singleton;
+import jakarta.inject.Inject;
+
+import javax.jms.BytesMessage;
+import javax.jms.CompletionListener;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// publie les evenements jms sans bloquer le thread appelant : l'envoi part sur un executor
+// dedie, l'accuse du broker arrive dans un CompletionListener et les echecs sont rejoues
+// avec un backoff exponentiel, puis mis dans le spool disque au lieu d'etre perdus.
+// les evenements d'un meme groupe (JMSXGroupID) partent un par un, dans l'ordre de publish :
+// le suivant attend l'accuse, le spool ou l'abandon du precedent
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class EventPublisher {
+
+    private static final Logger logger = Logger.getLogger(EventPublisher.class.getName());
+    private static final long MAX_RETRY_BACKOFF_MS = 10_000L;
+    static final String GROUP_ID_PROPERTY = "JMSXGroupID";
+
+    @Inject
+    private JmsConnectionPool jmsConnectionPool;
+
+    @Inject
+    private EventSpool eventSpool;
+
+    @Inject
+    private JmsCircuitBreaker circuitBreaker;
+
+    private final boolean asyncMode;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+
+    private ScheduledExecutorService executor;
+
+    // file d'attente par groupe, la tete est la seule publication du groupe en vol
+    private final Map<String, Deque<Publication>> groups = new HashMap<>();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder acknowledged = new LongAdder();
+    private final LongAdder failedAttempts = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    private final LongAdder spooled = new LongAdder();
+    private final LongAdder shortCircuited = new LongAdder();
+    private final AtomicLong inFlight = new AtomicLong();
+    private final LongAdder totalAckNanos = new LongAdder();
+    private final AtomicLong maxAckNanos = new AtomicLong();
+
+    public EventPublisher() {
+        this(null, null, null,
+                Boolean.parseBoolean(System.getProperty("pokedex.jms.async", "true")),
+                Integer.getInteger("pokedex.jms.publish.maxAttempts", 5),
+                Long.getLong("pokedex.jms.publish.retryBackoffMs", 200L));
+    }
+
+    EventPublisher(JmsConnectionPool jmsConnectionPool, EventSpool eventSpool, JmsCircuitBreaker circuitBreaker,
+                   boolean asyncMode, int maxAttempts, long retryBackoffMs) {
+        this.jmsConnectionPool = jmsConnectionPool;
+        this.eventSpool = eventSpool;
+        this.circuitBreaker = circuitBreaker;
+        this.asyncMode = asyncMode;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+    }
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "jms-event-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // le future se termine quand le broker a accuse reception (ou que l'evenement a ete
+    // mis dans le spool local), ou en erreur une fois toutes les tentatives epuisees
+    public CompletableFuture<Void> publish(String queueName, byte[] payload, String description) {
+        return publish(queueName, null, payload, description);
+    }
+
+    // groupId renseigne JMSXGroupID : artemis livre alors tous les messages du groupe au meme
+    // consumer, dans l'ordre d'envoi
+    public CompletableFuture<Void> publish(String queueName, String groupId, byte[] payload, String description) {
+        Publication publication = new Publication(queueName, groupId, payload, description);
+        submitted.increment();
+        inFlight.incrementAndGet();
+        publication.result.whenComplete((ignored, error) -> inFlight.decrementAndGet());
+
+        if (groupId == null) {
+            start(publication);
+            return publication.result;
+        }
+        boolean head;
+        synchronized (groups) {
+            Deque<Publication> queue = groups.computeIfAbsent(groupId, key -> new ArrayDeque<>());
+            queue.add(publication);
+            head = queue.size() == 1;
+        }
+        publication.result.whenComplete((ignored, error) -> onGroupCompleted(publication, error));
+        if (head) {
+            start(publication);
+        }
+        return publication.result;
+    }
+
+    private void start(Publication publication) {
+        if (asyncMode) {
+            schedule(() -> attempt(publication, 1), 0, publication.result);
+        } else {
+            attempt(publication, 1);
+        }
+    }
+
+    // la tete du groupe est terminee : on lance la suivante. si elle a echoue, les suivantes
+    // echouent aussi plutot que de passer devant elle ; l'outbox les renverra dans l'ordre
+    private void onGroupCompleted(Publication publication, Throwable error) {
+        Publication next = null;
+        List<Publication> abandoned = null;
+        synchronized (groups) {
+            Deque<Publication> queue = groups.get(publication.groupId);
+            if (queue == null || queue.peek() != publication) {
+                // publication deja retiree avec les suivantes d'une tete en echec
+                return;
+            }
+            queue.poll();
+            if (error != null && !queue.isEmpty()) {
+                abandoned = new ArrayList<>(queue);
+                queue.clear();
+            }
+            if (queue.isEmpty()) {
+                groups.remove(publication.groupId);
+            } else {
+                next = queue.peek();
+            }
+        }
+        if (abandoned != null) {
+            logger.warning(abandoned.size() + " jms messages of " + publication.groupId
+                    + " abandoned to keep the group order after " + publication.description + " failed");
+            for (Publication waiting : abandoned) {
+                exhausted.increment();
+                waiting.result.completeExceptionally(error);
+            }
+        }
+        if (next != null) {
+            start(next);
+        }
+    }
+
+    private void attempt(Publication publication, int attemptNumber) {
+        // un evenement plus ancien du groupe attend dans le spool : celui-ci passe derriere lui
+        // au lieu d'arriver avant sur le broker
+        if (publication.groupId != null && eventSpool != null && eventSpool.hasPending(publication.groupId)) {
+            giveUp(publication, attemptNumber - 1, new JMSException(publication.groupId + " has spooled events waiting for replay"));
+            return;
+        }
+        // circuit ouvert : on ne paie pas le timeout de connexion, l'evenement part
+        // directement dans le spool
+        if (!circuitBreaker.allowRequest()) {
+            shortCircuited.increment();
+            giveUp(publication, attemptNumber - 1, new JMSException("jms circuit breaker is open"));
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            if (asyncMode) {
+                jmsConnectionPool.sendAsync(publication.queueName, publication::createMessage, new CompletionListener() {
+                    @Override
+                    public void onCompletion(Message message) {
+                        onAcknowledged(start, publication.result);
+                    }
+
+                    @Override
+                    public void onException(Message message, Exception exception) {
+                        onFailure(publication, attemptNumber, exception);
+                    }
+                });
+            } else {
+                jmsConnectionPool.send(publication.queueName, publication::createMessage);
+                onAcknowledged(start, publication.result);
+            }
+        } catch (Exception e) {
+            onFailure(publication, attemptNumber, e);
+        }
+    }
+
+    private void onAcknowledged(long start, CompletableFuture<Void> result) {
+        circuitBreaker.recordSuccess();
+        long ackNanos = System.nanoTime() - start;
+        totalAckNanos.add(ackNanos);
+        maxAckNanos.accumulateAndGet(ackNanos, Math::max);
+        acknowledged.increment();
+        result.complete(null);
+    }
+
+    private void onFailure(Publication publication, int attemptNumber, Exception error) {
+        failedAttempts.increment();
+        circuitBreaker.recordFailure();
+        if (attemptNumber >= maxAttempts) {
+            giveUp(publication, attemptNumber, error);
+            return;
+        }
+
+        long delay = Math.min(retryBackoffMs << (attemptNumber - 1), MAX_RETRY_BACKOFF_MS);
+        logger.log(Level.WARNING, "unable to send jms message for " + publication.description
+                + " (attempt " + attemptNumber + "), retrying in " + delay + " ms: " + error.getMessage());
+        retried.increment();
+        schedule(() -> attempt(publication, attemptNumber + 1), delay, publication.result);
+    }
+
+    // le broker reste injoignable : l'evenement part dans le spool disque, il sera rejoue
+    // par EventSpool quand le broker reviendra
+    private void giveUp(Publication publication, int attemptNumber, Exception error) {
+        if (eventSpool != null && eventSpool.append(publication.queueName, publication.groupId, publication.payload)) {
+            spooled.increment();
+            logger.log(Level.FINE, "broker unreachable after " + attemptNumber + " attempts, "
+                    + publication.description + " spooled to disk for replay");
+            publication.result.complete(null);
+            return;
+        }
+        exhausted.increment();
+        logger.log(Level.SEVERE, "giving up jms message for " + publication.description + " after " + attemptNumber + " attempts", error);
+        publication.result.completeExceptionally(error);
+    }
+
+    private void schedule(Runnable task, long delayMs, CompletableFuture<Void> result) {
+        try {
+            executor.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // l'application est en train de s'arreter
+            exhausted.increment();
+            result.completeExceptionally(e);
+        }
+    }
+
+    public PublishStats getStats() {
+        long acks = acknowledged.sum();
+        double averageAckMillis = acks == 0 ? 0.0 : totalAckNanos.sum() / (double) acks / 1_000_000.0;
+        return new PublishStats(
+                asyncMode,
+                submitted.sum(),
+                acks,
+                failedAttempts.sum(),
+                retried.sum(),
+                exhausted.sum(),
+                spooled.sum(),
+                shortCircuited.sum(),
+                inFlight.get(),
+                averageAckMillis,
+                maxAckNanos.get() / 1_000_000.0
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warning("jms event publisher stopped with " + inFlight.get() + " events still in flight");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    static Message createBytesMessage(Session session, String groupId, byte[] payload) throws JMSException {
+        BytesMessage message = session.createBytesMessage();
+        message.writeBytes(payload);
+        if (groupId != null) {
+            message.setStringProperty(GROUP_ID_PROPERTY, groupId);
+        }
+        return message;
+    }
+
+    private static final class Publication {
+        private final String queueName;
+        private final String groupId;
+        private final byte[] payload;
+        private final String description;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        private Publication(String queueName, String groupId, byte[] payload, String description) {
+            this.queueName = queueName;
+            this.groupId = groupId;
+            this.payload = payload;
+            this.description = description;
+        }
+
+        private Message createMessage(Session session) throws JMSException {
+            return createBytesMessage(session, groupId, payload);
+        }
+    }
+}
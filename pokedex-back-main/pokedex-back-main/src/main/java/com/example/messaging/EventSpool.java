@@ -0,0 +1,453 @@
+package com.example.messaging;
+
+import com.example.dto.SpoolStats;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.inject.Inject;
+
+import javax.jms.JMSException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+// spool local des evenements que le broker n'a pas pu accepter : un fichier mappe en memoire
+// de taille fixe ou les messages sont ajoutes a la suite, puis rejoues dans l'ordre quand
+// artemis redevient joignable. le fichier est circulaire : arrive a la fin, l'ecriture repart
+// apres l'en-tete dans la place deja rejouee, meme si le spool ne se vide jamais completement.
+// le fichier est verrouille (FileLock) : une seule instance peut l'utiliser
+//
+// format : en-tete [magic][version][readPos][writePos] puis des enregistrements
+// [taille payload][crc32][taille queue][taille groupe][queue][groupe][payload] ; une taille
+// payload de -1 (ou moins d'un en-tete avant la fin du fichier) marque le retour au debut
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class EventSpool {
+
+    private static final Logger logger = Logger.getLogger(EventSpool.class.getName());
+
+    private static final int MAGIC = 0x504B5350;
+    private static final int VERSION = 2;
+    private static final int READ_POS_OFFSET = 8;
+    private static final int WRITE_POS_OFFSET = 16;
+    private static final int DATA_START = 32;
+    private static final int RECORD_HEADER_SIZE = 12;
+    private static final int WRAP_MARKER = -1;
+
+    public enum FsyncPolicy {
+        // force sur disque a chaque ajout
+        ALWAYS,
+        // force sur disque a chaque passage du replayer (toutes les secondes)
+        BATCH,
+        // laisse le systeme ecrire les pages quand il le souhaite
+        NONE
+    }
+
+    @Inject
+    private JmsConnectionPool jmsConnectionPool;
+
+    @Inject
+    private JmsCircuitBreaker circuitBreaker;
+
+    private final Path file;
+    private final int capacity;
+    private final FsyncPolicy fsyncPolicy;
+    private final int replayBatchSize;
+
+    private FileChannel channel;
+    private FileLock lock;
+    private MappedByteBuffer buffer;
+    private int readPos;
+    private int writePos;
+    private int pendingEvents;
+    // nombre d'evenements en attente par JMSXGroupID, pour que l'EventPublisher n'envoie pas
+    // un evenement d'un groupe avant ceux du meme groupe qui sont encore ici
+    private final Map<String, Integer> pendingGroups = new HashMap<>();
+    private boolean dirty;
+
+    // le timer peut se declencher alors que le passage precedent n'est pas fini
+    private final AtomicBoolean replaying = new AtomicBoolean();
+
+    private final LongAdder spooledEvents = new LongAdder();
+    private final LongAdder replayedEvents = new LongAdder();
+    private final LongAdder rejectedEvents = new LongAdder();
+    private final LongAdder replayFailures = new LongAdder();
+    private final LongAdder corruptedRecords = new LongAdder();
+
+    public EventSpool() {
+        this(null, null,
+                Paths.get(System.getProperty("pokedex.spool.dir",
+                        Paths.get(System.getProperty("user.home"), ".pokedex", "spool").toString()), "events.spool"),
+                Integer.getInteger("pokedex.spool.sizeMb", 64) * 1024L * 1024L,
+                FsyncPolicy.valueOf(System.getProperty("pokedex.spool.fsync", FsyncPolicy.BATCH.name())),
+                Integer.getInteger("pokedex.spool.replayBatchSize", 500));
+    }
+
+    EventSpool(JmsConnectionPool jmsConnectionPool, JmsCircuitBreaker circuitBreaker, Path file, long capacityBytes,
+               FsyncPolicy fsyncPolicy, int replayBatchSize) {
+        this.jmsConnectionPool = jmsConnectionPool;
+        this.circuitBreaker = circuitBreaker;
+        this.file = file;
+        // un MappedByteBuffer est adresse sur un int
+        this.capacity = (int) Math.min(capacityBytes, Integer.MAX_VALUE);
+        this.fsyncPolicy = fsyncPolicy;
+        this.replayBatchSize = replayBatchSize;
+    }
+
+    @PostConstruct
+    public synchronized void init() {
+        try {
+            Files.createDirectories(file.getParent());
+            channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // le verrou est garde tant que le channel est ouvert : deux instances sur la meme
+            // machine ne doivent pas ecrire dans le meme fichier
+            lock = channel.tryLock();
+            if (lock == null) {
+                logger.severe("event spool " + file + " is used by another instance, events will not be spooled"
+                        + " (set pokedex.spool.dir to a directory of its own)");
+                closeChannel();
+                return;
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.SEVERE, "unable to open event spool " + file + ", events will not be spooled", e);
+            closeChannel();
+            return;
+        }
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            if (buffer.getInt(0) == MAGIC) {
+                logger.warning("event spool " + file + " uses format version " + buffer.getInt(4)
+                        + ", discarding its content");
+            }
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            reset();
+            buffer.force();
+        } else {
+            readPos = (int) buffer.getLong(READ_POS_OFFSET);
+            writePos = (int) buffer.getLong(WRITE_POS_OFFSET);
+            if (readPos < DATA_START || readPos > capacity || writePos < DATA_START || writePos > capacity) {
+                logger.severe("event spool " + file + " has invalid positions, discarding its content");
+                reset();
+            } else if (readPos == writePos) {
+                reset();
+            } else {
+                pendingEvents = countRecords();
+            }
+        }
+        if (pendingEvents > 0) {
+            logger.info("event spool " + file + " holds " + pendingEvents + " events waiting for replay");
+        }
+    }
+
+    // ajoute un evenement a la fin du spool, false si le spool est indisponible ou plein
+    public boolean append(String queueName, String groupId, byte[] payload) {
+        byte[] queue = queueName.getBytes(StandardCharsets.UTF_8);
+        byte[] group = groupId == null ? new byte[0] : groupId.getBytes(StandardCharsets.UTF_8);
+        int recordSize = RECORD_HEADER_SIZE + queue.length + group.length + payload.length;
+        synchronized (this) {
+            if (buffer == null) {
+                rejectedEvents.increment();
+                return false;
+            }
+            int position = reserve(recordSize);
+            if (position < 0) {
+                rejectedEvents.increment();
+                logger.warning("event spool is full (" + usedBytes() + " bytes pending), event for "
+                        + queueName + " rejected");
+                return false;
+            }
+
+            buffer.putInt(position, payload.length);
+            buffer.putInt(position + 4, (int) checksum(queue, group, payload));
+            buffer.putShort(position + 8, (short) queue.length);
+            buffer.putShort(position + 10, (short) group.length);
+            buffer.put(position + RECORD_HEADER_SIZE, queue);
+            buffer.put(position + RECORD_HEADER_SIZE + queue.length, group);
+            buffer.put(position + RECORD_HEADER_SIZE + queue.length + group.length, payload);
+            // la position d'ecriture n'avance qu'une fois l'enregistrement complet
+            writePos = position + recordSize;
+            buffer.putLong(WRITE_POS_OFFSET, writePos);
+            pendingEvents++;
+            if (groupId != null) {
+                pendingGroups.merge(groupId, 1, Integer::sum);
+            }
+            spooledEvents.increment();
+
+            if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                buffer.force();
+            } else {
+                dirty = true;
+            }
+            return true;
+        }
+    }
+
+    // rejoue le spool dans l'ordre d'ajout, on s'arrete au premier echec pour garder l'ordre
+    @Schedule(second = "*", minute = "*", hour = "*", persistent = false)
+    public void replay() {
+        if (!replaying.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            syncIfNeeded();
+            // tant que le circuit est ouvert le sondage du disjoncteur suffit
+            if (circuitBreaker.getState() != JmsCircuitBreaker.State.CLOSED) {
+                return;
+            }
+            for (int i = 0; i < replayBatchSize; i++) {
+                SpooledEvent event = peek();
+                if (event == null) {
+                    break;
+                }
+                try {
+                    jmsConnectionPool.send(event.queueName,
+                            session -> EventPublisher.createBytesMessage(session, event.groupId, event.payload));
+                } catch (JMSException | RuntimeException e) {
+                    circuitBreaker.recordFailure();
+                    replayFailures.increment();
+                    logger.log(Level.FINE, "broker still unreachable, spool replay postponed", e);
+                    break;
+                }
+                circuitBreaker.recordSuccess();
+                commit(event);
+                replayedEvents.increment();
+            }
+        } finally {
+            replaying.set(false);
+        }
+    }
+
+    // position ou ecrire un enregistrement de recordSize octets, -1 s'il n'y a pas la place.
+    // quand la fin du fichier est atteinte, on repart apres l'en-tete si le rejeu y a libere
+    // assez de place ; l'inegalite est stricte car readPos == writePos veut dire spool vide
+    private int reserve(int recordSize) {
+        if (writePos >= readPos) {
+            if (writePos + recordSize <= capacity) {
+                return writePos;
+            }
+            if (DATA_START + recordSize < readPos) {
+                if (writePos + 4 <= capacity) {
+                    buffer.putInt(writePos, WRAP_MARKER);
+                }
+                return DATA_START;
+            }
+            return -1;
+        }
+        return writePos + recordSize < readPos ? writePos : -1;
+    }
+
+    // vrai si la lecture doit repartir apres l'en-tete : seulement quand l'ecriture est deja
+    // repartie au debut (writePos < position)
+    private boolean isWrapPoint(int position) {
+        return writePos < position
+                && (position + RECORD_HEADER_SIZE > capacity || buffer.getInt(position) == WRAP_MARKER);
+    }
+
+    // octets occupes entre la lecture et l'ecriture, fin de fichier inutilisee comprise
+    private int usedBytes() {
+        return writePos >= readPos ? writePos - readPos : capacity - readPos + writePos - DATA_START;
+    }
+
+    private synchronized SpooledEvent peek() {
+        while (buffer != null && readPos != writePos) {
+            if (isWrapPoint(readPos)) {
+                readPos = DATA_START;
+                buffer.putLong(READ_POS_OFFSET, readPos);
+                continue;
+            }
+            int position = readPos;
+            int limit = writePos > position ? writePos : capacity;
+            int payloadLength = buffer.getInt(position);
+            int checksum = buffer.getInt(position + 4);
+            int queueLength = buffer.getShort(position + 8) & 0xFFFF;
+            int groupLength = buffer.getShort(position + 10) & 0xFFFF;
+            int end = position + RECORD_HEADER_SIZE + queueLength + groupLength + payloadLength;
+            if (payloadLength < 0 || end > limit) {
+                discardCorrupted(writePos);
+                return null;
+            }
+
+            byte[] queue = new byte[queueLength];
+            byte[] group = new byte[groupLength];
+            byte[] payload = new byte[payloadLength];
+            buffer.get(position + RECORD_HEADER_SIZE, queue);
+            buffer.get(position + RECORD_HEADER_SIZE + queueLength, group);
+            buffer.get(position + RECORD_HEADER_SIZE + queueLength + groupLength, payload);
+            if ((int) checksum(queue, group, payload) != checksum) {
+                // l'enregistrement est illisible mais sa taille est coherente, on le saute
+                discardCorrupted(end);
+                continue;
+            }
+            return new SpooledEvent(new String(queue, StandardCharsets.UTF_8),
+                    groupLength == 0 ? null : new String(group, StandardCharsets.UTF_8), payload, end);
+        }
+        return null;
+    }
+
+    private synchronized void commit(SpooledEvent event) {
+        if (buffer == null) {
+            // spool ferme pendant l'envoi
+            return;
+        }
+        readPos = event.end;
+        pendingEvents--;
+        if (event.groupId != null) {
+            pendingGroups.computeIfPresent(event.groupId, (group, count) -> count > 1 ? count - 1 : null);
+        }
+        if (readPos == writePos) {
+            // spool vide : on repart du debut pour recuperer toute la place
+            reset();
+        } else {
+            buffer.putLong(READ_POS_OFFSET, readPos);
+        }
+        dirty = true;
+    }
+
+    private void discardCorrupted(int nextPosition) {
+        corruptedRecords.increment();
+        logger.severe("corrupted record at offset " + readPos + " in event spool " + file + ", skipping it");
+        readPos = nextPosition;
+        pendingEvents = countRecords();
+        if (readPos == writePos) {
+            reset();
+        } else {
+            buffer.putLong(READ_POS_OFFSET, readPos);
+        }
+    }
+
+    private synchronized void syncIfNeeded() {
+        if (buffer != null && dirty && fsyncPolicy == FsyncPolicy.BATCH) {
+            buffer.force();
+            dirty = false;
+        }
+    }
+
+    // vrai si des evenements de ce groupe attendent encore d'etre rejoues
+    public synchronized boolean hasPending(String groupId) {
+        return pendingGroups.containsKey(groupId);
+    }
+
+    private void reset() {
+        readPos = DATA_START;
+        writePos = DATA_START;
+        pendingEvents = 0;
+        pendingGroups.clear();
+        buffer.putLong(READ_POS_OFFSET, readPos);
+        buffer.putLong(WRITE_POS_OFFSET, writePos);
+    }
+
+    // compte les enregistrements en attente et leurs groupes
+    private int countRecords() {
+        pendingGroups.clear();
+        int count = 0;
+        int position = readPos;
+        while (position != writePos) {
+            if (isWrapPoint(position)) {
+                position = DATA_START;
+                continue;
+            }
+            int limit = writePos > position ? writePos : capacity;
+            if (position + RECORD_HEADER_SIZE > limit) {
+                break;
+            }
+            int payloadLength = buffer.getInt(position);
+            int queueLength = buffer.getShort(position + 8) & 0xFFFF;
+            int groupLength = buffer.getShort(position + 10) & 0xFFFF;
+            int end = position + RECORD_HEADER_SIZE + queueLength + groupLength + payloadLength;
+            if (payloadLength < 0 || end > limit) {
+                break;
+            }
+            if (groupLength > 0) {
+                byte[] group = new byte[groupLength];
+                buffer.get(position + RECORD_HEADER_SIZE + queueLength, group);
+                pendingGroups.merge(new String(group, StandardCharsets.UTF_8), 1, Integer::sum);
+            }
+            position = end;
+            count++;
+        }
+        return count;
+    }
+
+    private static long checksum(byte[] queue, byte[] group, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(queue);
+        crc.update(group);
+        crc.update(payload);
+        return crc.getValue();
+    }
+
+    public synchronized SpoolStats getStats() {
+        return new SpoolStats(
+                buffer != null,
+                fsyncPolicy.name(),
+                (long) capacity,
+                buffer == null ? 0L : (long) usedBytes(),
+                pendingEvents,
+                spooledEvents.sum(),
+                replayedEvents.sum(),
+                rejectedEvents.sum(),
+                replayFailures.sum(),
+                corruptedRecords.sum()
+        );
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (buffer != null && fsyncPolicy != FsyncPolicy.NONE) {
+            buffer.force();
+        }
+        if (pendingEvents > 0) {
+            logger.info("event spool closed with " + pendingEvents + " events waiting for replay");
+        }
+        closeChannel();
+    }
+
+    // fermer le channel libere aussi le verrou ; le mapping reste valide jusqu'au gc
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.log(Level.FINE, "error closing event spool " + file, e);
+            }
+        }
+        channel = null;
+        lock = null;
+        buffer = null;
+    }
+
+    private static final class SpooledEvent {
+        private final String queueName;
+        private final String groupId;
+        private final byte[] payload;
+        private final int end;
+
+        private SpooledEvent(String queueName, String groupId, byte[] payload, int end) {
+            this.queueName = queueName;
+            this.groupId = groupId;
+            this.payload = payload;
+            this.end = end;
+        }
+    }
+}
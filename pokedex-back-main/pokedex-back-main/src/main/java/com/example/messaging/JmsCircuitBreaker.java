@@ -0,0 +1,172 @@
+package com.example.messaging;
+
+import com.example.dto.CircuitBreakerStats;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Singleton;
+import jakarta.inject.Inject;
+
+import javax.jms.JMSException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// disjoncteur devant le broker : apres plusieurs echecs consecutifs les envois ne tentent
+// plus de joindre artemis (et ne paient plus le timeout de connexion), un thread de fond
+// sonde le broker et referme le circuit des qu'il repond
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class JmsCircuitBreaker {
+
+    private static final Logger logger = Logger.getLogger(JmsCircuitBreaker.class.getName());
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    @Inject
+    private JmsConnectionPool jmsConnectionPool;
+
+    private final int failureThreshold;
+    private final long openDurationMs;
+    private final long probeIntervalMs;
+
+    private ScheduledExecutorService prober;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAtNanos;
+    private volatile long lastTransitionMillis = System.currentTimeMillis();
+
+    private final LongAdder openedCount = new LongAdder();
+    private final LongAdder halfOpenedCount = new LongAdder();
+    private final LongAdder closedCount = new LongAdder();
+    private final LongAdder rejectedCalls = new LongAdder();
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder failedProbes = new LongAdder();
+    private final LongAdder totalOpenNanos = new LongAdder();
+
+    public JmsCircuitBreaker() {
+        this(null,
+                Integer.getInteger("pokedex.jms.breaker.failureThreshold", 5),
+                Long.getLong("pokedex.jms.breaker.openMs", 5000L),
+                Long.getLong("pokedex.jms.breaker.probeIntervalMs", 1000L));
+    }
+
+    JmsCircuitBreaker(JmsConnectionPool jmsConnectionPool, int failureThreshold, long openDurationMs, long probeIntervalMs) {
+        this.jmsConnectionPool = jmsConnectionPool;
+        this.failureThreshold = failureThreshold;
+        this.openDurationMs = openDurationMs;
+        this.probeIntervalMs = probeIntervalMs;
+    }
+
+    @PostConstruct
+    public void init() {
+        prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jms-circuit-breaker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        prober.scheduleWithFixedDelay(this::probe, probeIntervalMs, probeIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    // false quand le circuit est ouvert (ou en cours de sondage) : l'appelant doit passer
+    // directement par son chemin de repli
+    public boolean allowRequest() {
+        if (state.get() == State.CLOSED) {
+            return true;
+        }
+        rejectedCalls.increment();
+        return false;
+    }
+
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+    }
+
+    public void recordFailure() {
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold && state.compareAndSet(State.CLOSED, State.OPEN)) {
+            // seul le passage CLOSED -> OPEN compte comme une ouverture, les sondages rates ont
+            // leur propre compteur
+            openedCount.increment();
+            onOpened("jms circuit breaker opened after " + consecutiveFailures.get() + " consecutive failures");
+        }
+    }
+
+    // sonde le broker une fois le delai d'ouverture ecoule, seul le thread de fond passe le
+    // circuit en HALF_OPEN donc un seul sondage a la fois
+    void probe() {
+        if (state.get() != State.OPEN || System.nanoTime() - openedAtNanos < TimeUnit.MILLISECONDS.toNanos(openDurationMs)) {
+            return;
+        }
+        if (!state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+            return;
+        }
+        halfOpenedCount.increment();
+        lastTransitionMillis = System.currentTimeMillis();
+        probes.increment();
+        try {
+            jmsConnectionPool.checkConnection();
+        } catch (JMSException | RuntimeException e) {
+            failedProbes.increment();
+            // le temps deja passe ouvert est compte avant de relancer le delai
+            totalOpenNanos.add(System.nanoTime() - openedAtNanos);
+            state.set(State.OPEN);
+            onOpened("jms circuit breaker still open, probe failed: " + e.getMessage());
+            return;
+        }
+        totalOpenNanos.add(System.nanoTime() - openedAtNanos);
+        consecutiveFailures.set(0);
+        state.set(State.CLOSED);
+        closedCount.increment();
+        lastTransitionMillis = System.currentTimeMillis();
+        logger.info("jms broker reachable again, circuit breaker closed");
+    }
+
+    private void onOpened(String reason) {
+        openedAtNanos = System.nanoTime();
+        lastTransitionMillis = System.currentTimeMillis();
+        logger.log(Level.WARNING, reason + ", next probe in " + openDurationMs + " ms");
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public CircuitBreakerStats getStats() {
+        State current = state.get();
+        long openNanos = totalOpenNanos.sum();
+        if (current != State.CLOSED) {
+            openNanos += System.nanoTime() - openedAtNanos;
+        }
+        return new CircuitBreakerStats(
+                current.name(),
+                failureThreshold,
+                consecutiveFailures.get(),
+                openedCount.sum(),
+                halfOpenedCount.sum(),
+                closedCount.sum(),
+                rejectedCalls.sum(),
+                probes.sum(),
+                failedProbes.sum(),
+                openNanos / 1_000_000L,
+                lastTransitionMillis
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (prober != null) {
+            prober.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.messaging;
+
+import com.example.dto.JmsPoolStats;
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Singleton;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+
+import javax.jms.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// pool partage par les producers : une seule connexion longue duree vers artemis,
+// un nombre borne de sessions reutilisees et un producer cache par queue et par session
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class JmsConnectionPool {
+
+    private static final Logger logger = Logger.getLogger(JmsConnectionPool.class.getName());
+    private static final String BROKER_URL = "tcp://localhost:61616";
+    // une fenetre de confirmation est necessaire pour que artemis rappelle le CompletionListener
+    // de maniere asynchrone au lieu de bloquer l'envoi
+    // le timeout de connexion est court pour qu'un broker arrete soit detecte vite
+    private static final String BROKER_OPTIONS = "?confirmationWindowSize=1048576&connectTimeoutMillis="
+            + Long.getLong("pokedex.jms.connectTimeoutMs", 2000L);
+    private static final int DEFAULT_POOL_SIZE = Integer.getInteger("pokedex.jms.pool.size", 8);
+    private static final long DEFAULT_BORROW_TIMEOUT_MS = Long.getLong("pokedex.jms.pool.borrowTimeoutMs", 5000L);
+
+    private final ConnectionFactory connectionFactory;
+    private final int poolSize;
+    private final long borrowTimeoutMs;
+
+    // une session jms n'est pas thread-safe : le semaphore garantit qu'une session
+    // n'est utilisee que par un seul appel ejb a la fois
+    private final Semaphore permits;
+    private final BlockingQueue<PooledSession> idleSessions = new LinkedBlockingQueue<>();
+    private final Object connectionLock = new Object();
+
+    private volatile Connection connection;
+    // incremente a chaque perte de connexion, les sessions d'une ancienne generation sont jetees
+    private volatile long generation;
+    private boolean everConnected;
+
+    private final AtomicInteger openSessions = new AtomicInteger();
+    private final AtomicInteger cachedProducers = new AtomicInteger();
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder borrowTimeouts = new LongAdder();
+    private final LongAdder reconnectCount = new LongAdder();
+    private final LongAdder connectionFailures = new LongAdder();
+
+    public JmsConnectionPool() {
+        this(new ActiveMQConnectionFactory(BROKER_URL + BROKER_OPTIONS), DEFAULT_POOL_SIZE, DEFAULT_BORROW_TIMEOUT_MS);
+    }
+
+    JmsConnectionPool(ConnectionFactory connectionFactory, int poolSize, long borrowTimeoutMs) {
+        this.connectionFactory = connectionFactory;
+        this.poolSize = poolSize;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.permits = new Semaphore(poolSize, true);
+    }
+
+    // envoie un message sur la queue en utilisant une session du pool
+    public void send(String queueName, MessageCreator creator) throws JMSException {
+        PooledSession pooled = borrow();
+        boolean broken = true;
+        try {
+            MessageProducer producer = pooled.producer(queueName);
+            producer.send(creator.createMessage(pooled.session));
+            broken = false;
+        } finally {
+            release(pooled, broken);
+        }
+    }
+
+    // envoi asynchrone jms 2.0 : rend la main des que le message est parti, l'accuse de
+    // reception du broker (ou l'erreur) arrive plus tard dans le listener
+    public void sendAsync(String queueName, MessageCreator creator, CompletionListener listener) throws JMSException {
+        PooledSession pooled = borrow();
+        boolean broken = true;
+        try {
+            MessageProducer producer = pooled.producer(queueName);
+            producer.send(creator.createMessage(pooled.session), listener);
+            broken = false;
+        } finally {
+            release(pooled, broken);
+        }
+    }
+
+    // ouvre la connexion si besoin et cree une session : sert de sonde au disjoncteur
+    public void checkConnection() throws JMSException {
+        release(borrow(), false);
+    }
+
+    PooledSession borrow() throws JMSException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                borrowTimeouts.increment();
+                throw new JMSException("timed out after " + borrowTimeoutMs + " ms waiting for a pooled jms session");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JMSException("interrupted while waiting for a pooled jms session");
+        }
+        recordWait(System.nanoTime() - start);
+        borrowCount.increment();
+
+        try {
+            PooledSession pooled;
+            while ((pooled = idleSessions.poll()) != null) {
+                if (pooled.generation == generation) {
+                    return pooled;
+                }
+                // session creee sur une connexion qui a ete perdue
+                destroy(pooled);
+            }
+            long currentGeneration = generation;
+            Session session = getConnection().createSession(false, Session.AUTO_ACKNOWLEDGE);
+            openSessions.incrementAndGet();
+            return new PooledSession(session, currentGeneration);
+        } catch (JMSException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    void release(PooledSession pooled, boolean broken) {
+        try {
+            if (broken || pooled.generation != generation) {
+                destroy(pooled);
+            } else {
+                idleSessions.offer(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private Connection getConnection() throws JMSException {
+        Connection current = connection;
+        if (current != null) {
+            return current;
+        }
+        synchronized (connectionLock) {
+            if (connection == null) {
+                try {
+                    Connection created = connectionFactory.createConnection();
+                    long connectionGeneration = generation;
+                    created.setExceptionListener(e -> onConnectionFailure(connectionGeneration, e));
+                    created.start();
+                    if (everConnected) {
+                        reconnectCount.increment();
+                        logger.info("jms connection re-established to " + BROKER_URL);
+                    }
+                    everConnected = true;
+                    connection = created;
+                } catch (JMSException | RuntimeException e) {
+                    connectionFailures.increment();
+                    throw e;
+                }
+            }
+            return connection;
+        }
+    }
+
+    // appele par le client artemis quand la connexion tombe : on la jette pour que
+    // le prochain emprunt en ouvre une nouvelle
+    private void onConnectionFailure(long failedGeneration, JMSException e) {
+        logger.log(Level.WARNING, "jms connection lost, it will be re-opened on next send", e);
+        Connection failed;
+        synchronized (connectionLock) {
+            if (failedGeneration != generation) {
+                return;
+            }
+            failed = connection;
+            connection = null;
+            generation++;
+        }
+        connectionFailures.increment();
+
+        PooledSession pooled;
+        while ((pooled = idleSessions.poll()) != null) {
+            destroy(pooled);
+        }
+        closeQuietly(failed);
+    }
+
+    private void destroy(PooledSession pooled) {
+        openSessions.decrementAndGet();
+        cachedProducers.addAndGet(-pooled.producers.size());
+        try {
+            pooled.session.close();
+        } catch (JMSException | RuntimeException e) {
+            logger.log(Level.FINE, "error closing pooled jms session", e);
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    private void closeQuietly(Connection toClose) {
+        if (toClose == null) {
+            return;
+        }
+        try {
+            toClose.close();
+        } catch (JMSException | RuntimeException e) {
+            logger.log(Level.FINE, "error closing jms connection", e);
+        }
+    }
+
+    public JmsPoolStats getStats() {
+        long borrows = borrowCount.sum();
+        double averageWaitMillis = borrows == 0 ? 0.0 : totalWaitNanos.sum() / (double) borrows / 1_000_000.0;
+        return new JmsPoolStats(
+                poolSize,
+                openSessions.get(),
+                idleSessions.size(),
+                poolSize - permits.availablePermits(),
+                cachedProducers.get(),
+                borrows,
+                averageWaitMillis,
+                maxWaitNanos.get() / 1_000_000.0,
+                borrowTimeouts.sum(),
+                reconnectCount.sum(),
+                connectionFailures.sum(),
+                connection != null
+        );
+    }
+
+    @PreDestroy
+    public void close() {
+        PooledSession pooled;
+        while ((pooled = idleSessions.poll()) != null) {
+            destroy(pooled);
+        }
+        synchronized (connectionLock) {
+            closeQuietly(connection);
+            connection = null;
+            generation++;
+        }
+        logger.info("jms connection pool closed");
+    }
+
+    // session empruntee avec ses producers deja crees, un par queue
+    final class PooledSession {
+        private final Session session;
+        private final long generation;
+        private final Map<String, MessageProducer> producers = new HashMap<>();
+
+        private PooledSession(Session session, long generation) {
+            this.session = session;
+            this.generation = generation;
+        }
+
+        Session getSession() {
+            return session;
+        }
+
+        MessageProducer producer(String queueName) throws JMSException {
+            MessageProducer producer = producers.get(queueName);
+            if (producer == null) {
+                producer = session.createProducer(session.createQueue(queueName));
+                producers.put(queueName, producer);
+                cachedProducers.incrementAndGet();
+            }
+            return producer;
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.example.messaging;
+
+import com.example.dto.CaptureMessage;
+import com.example.dto.TrainerMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// format binaire versionne des messages jms, envoyes en BytesMessage a la place de la
+// serialisation java. ce fichier est identique dans pokedex-back-main et pokedex-jms-consumer :
+// toute modification du format doit etre faite des deux cotes et incrementer VERSION.
+//
+// entete : MAGIC (1 octet) | version (1 octet) | type (1 octet)
+// capture : champs presents (1 octet) | trainerId | trainerName | pokemonId | pokemonName | captureDate
+//           | eventId (version 3, id stable attribue a la production pour le dedoublonnage)
+// trainer : champs presents (1 octet) | trainerId | trainerName | trainerEmail | registrationDate
+// batch de captures (version 2) : nombre de noms | noms | nombre de captures | captures dont les
+// noms sont remplaces par leur index dans la table de noms
+// les ids et les dates (epoch millis utc) sont des varints zigzag, les textes sont en utf-8
+// prefixes par leur longueur, un champ null est simplement absent du masque.
+// chaque message est ecrit dans la plus petite version qui le represente (1 pour un message
+// simple, 2 pour un batch, 3 des qu'une capture porte un eventId) pour les consumers pas
+// encore mis a jour
+public final class MessageCodec {
+
+    public static final byte MAGIC = (byte) 0xB7;
+    public static final byte VERSION = 3;
+    public static final byte TYPE_CAPTURE = 1;
+    public static final byte TYPE_TRAINER = 2;
+    public static final byte TYPE_CAPTURE_BATCH = 3;
+
+    private static final byte VERSION_SINGLE = 1;
+    private static final byte VERSION_BATCH = 2;
+
+    private static final int HEADER_SIZE = 3;
+    private static final int MAX_STRING_BYTES = 64 * 1024;
+    private static final int MAX_INTERNED_NAMES = 10_000;
+
+    // les memes noms de trainers et de pokemons reviennent sans cesse : on garde une seule
+    // instance de chaque nom decode
+    private static final Map<String, String> INTERNED_NAMES = new ConcurrentHashMap<>();
+
+    private MessageCodec() {}
+
+    public static byte[] encodeCapture(CaptureMessage message) {
+        Writer writer = new Writer(message.getEventId() != null ? VERSION : VERSION_SINGLE, TYPE_CAPTURE, 56);
+        int fields = presence(message.getTrainerId(), message.getTrainerName(),
+                message.getPokemonId(), message.getPokemonName(), message.getCaptureDate(), message.getEventId());
+        writer.writeByte(fields);
+        if (message.getTrainerId() != null) writer.writeVarLong(message.getTrainerId());
+        if (message.getTrainerName() != null) writer.writeString(message.getTrainerName());
+        if (message.getPokemonId() != null) writer.writeVarLong(message.getPokemonId());
+        if (message.getPokemonName() != null) writer.writeString(message.getPokemonName());
+        if (message.getCaptureDate() != null) writer.writeVarLong(toEpochMillis(message.getCaptureDate()));
+        if (message.getEventId() != null) writer.writeVarLong(message.getEventId());
+        return writer.toByteArray();
+    }
+
+    // plusieurs captures dans un seul message : chaque nom distinct n'est ecrit qu'une fois
+    public static byte[] encodeCaptureBatch(List<CaptureMessage> messages) {
+        Map<String, Integer> nameIndexes = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        boolean withEventIds = false;
+        for (CaptureMessage message : messages) {
+            indexName(message.getTrainerName(), nameIndexes, names);
+            indexName(message.getPokemonName(), nameIndexes, names);
+            withEventIds |= message.getEventId() != null;
+        }
+
+        Writer writer = new Writer(withEventIds ? VERSION : VERSION_BATCH, TYPE_CAPTURE_BATCH,
+                16 + names.size() * 12 + messages.size() * (withEventIds ? 24 : 16));
+        writer.writeVarLong(names.size());
+        for (String name : names) {
+            writer.writeString(name);
+        }
+        writer.writeVarLong(messages.size());
+        for (CaptureMessage message : messages) {
+            int fields = presence(message.getTrainerId(), message.getTrainerName(),
+                    message.getPokemonId(), message.getPokemonName(), message.getCaptureDate(), message.getEventId());
+            writer.writeByte(fields);
+            if (message.getTrainerId() != null) writer.writeVarLong(message.getTrainerId());
+            if (message.getTrainerName() != null) writer.writeVarLong(nameIndexes.get(message.getTrainerName()));
+            if (message.getPokemonId() != null) writer.writeVarLong(message.getPokemonId());
+            if (message.getPokemonName() != null) writer.writeVarLong(nameIndexes.get(message.getPokemonName()));
+            if (message.getCaptureDate() != null) writer.writeVarLong(toEpochMillis(message.getCaptureDate()));
+            if (message.getEventId() != null) writer.writeVarLong(message.getEventId());
+        }
+        return writer.toByteArray();
+    }
+
+    public static byte[] encodeTrainer(TrainerMessage message) {
+        Writer writer = new Writer(VERSION_SINGLE, TYPE_TRAINER, 64);
+        int fields = presence(message.getTrainerId(), message.getTrainerName(),
+                message.getTrainerEmail(), message.getRegistrationDate());
+        writer.writeByte(fields);
+        if (message.getTrainerId() != null) writer.writeVarLong(message.getTrainerId());
+        if (message.getTrainerName() != null) writer.writeString(message.getTrainerName());
+        if (message.getTrainerEmail() != null) writer.writeString(message.getTrainerEmail());
+        if (message.getRegistrationDate() != null) writer.writeVarLong(toEpochMillis(message.getRegistrationDate()));
+        return writer.toByteArray();
+    }
+
+    // verifie l'entete et retourne le type du message
+    public static byte readType(byte[] bytes) {
+        if (bytes == null || bytes.length < HEADER_SIZE) {
+            throw new MalformedMessageException(Reason.TRUNCATED, "message shorter than the header");
+        }
+        if (bytes[0] != MAGIC) {
+            throw new MalformedMessageException(Reason.BAD_MAGIC, "not a pokedex message (magic " + (bytes[0] & 0xFF) + ")");
+        }
+        if (bytes[1] < 1 || bytes[1] > VERSION) {
+            throw new MalformedMessageException(Reason.UNSUPPORTED_VERSION, "unsupported format version " + bytes[1]);
+        }
+        byte type = bytes[2];
+        if (type != TYPE_CAPTURE && type != TYPE_TRAINER && type != TYPE_CAPTURE_BATCH) {
+            throw new MalformedMessageException(Reason.UNKNOWN_TYPE, "unknown message type " + type);
+        }
+        return type;
+    }
+
+    public static CaptureMessage decodeCapture(byte[] bytes) {
+        Reader reader = new Reader(bytes, TYPE_CAPTURE);
+        int fields = reader.readByte();
+        CaptureMessage message = new CaptureMessage();
+        if ((fields & 1) != 0) message.setTrainerId(reader.readVarLong());
+        if ((fields & 2) != 0) message.setTrainerName(intern(reader.readString()));
+        if ((fields & 4) != 0) message.setPokemonId(reader.readVarLong());
+        if ((fields & 8) != 0) message.setPokemonName(intern(reader.readString()));
+        if ((fields & 16) != 0) message.setCaptureDate(fromEpochMillis(reader.readVarLong()));
+        if ((fields & 32) != 0) message.setEventId(reader.readVarLong());
+        reader.expectEnd();
+        return message;
+    }
+
+    public static List<CaptureMessage> decodeCaptureBatch(byte[] bytes) {
+        Reader reader = new Reader(bytes, TYPE_CAPTURE_BATCH);
+        int nameCount = reader.readCount();
+        String[] names = new String[nameCount];
+        for (int i = 0; i < nameCount; i++) {
+            names[i] = intern(reader.readString());
+        }
+        int count = reader.readCount();
+        List<CaptureMessage> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int fields = reader.readByte();
+            CaptureMessage message = new CaptureMessage();
+            if ((fields & 1) != 0) message.setTrainerId(reader.readVarLong());
+            if ((fields & 2) != 0) message.setTrainerName(reader.readName(names));
+            if ((fields & 4) != 0) message.setPokemonId(reader.readVarLong());
+            if ((fields & 8) != 0) message.setPokemonName(reader.readName(names));
+            if ((fields & 16) != 0) message.setCaptureDate(fromEpochMillis(reader.readVarLong()));
+            if ((fields & 32) != 0) message.setEventId(reader.readVarLong());
+            messages.add(message);
+        }
+        reader.expectEnd();
+        return messages;
+    }
+
+    // decode un message de la queue captures, qu'il contienne une capture ou un batch
+    public static List<CaptureMessage> decodeCaptures(byte[] bytes) {
+        if (readType(bytes) == TYPE_CAPTURE_BATCH) {
+            return decodeCaptureBatch(bytes);
+        }
+        return Collections.singletonList(decodeCapture(bytes));
+    }
+
+    public static TrainerMessage decodeTrainer(byte[] bytes) {
+        Reader reader = new Reader(bytes, TYPE_TRAINER);
+        int fields = reader.readByte();
+        TrainerMessage message = new TrainerMessage();
+        if ((fields & 1) != 0) message.setTrainerId(reader.readVarLong());
+        if ((fields & 2) != 0) message.setTrainerName(intern(reader.readString()));
+        if ((fields & 4) != 0) message.setTrainerEmail(reader.readString());
+        if ((fields & 8) != 0) message.setRegistrationDate(fromEpochMillis(reader.readVarLong()));
+        reader.expectEnd();
+        return message;
+    }
+
+    private static int presence(Object... values) {
+        int fields = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                fields |= 1 << i;
+            }
+        }
+        return fields;
+    }
+
+    private static void indexName(String name, Map<String, Integer> nameIndexes, List<String> names) {
+        if (name != null && !nameIndexes.containsKey(name)) {
+            nameIndexes.put(name, names.size());
+            names.add(name);
+        }
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime fromEpochMillis(long epochMillis) {
+        return LocalDateTime.ofEpochSecond(
+                Math.floorDiv(epochMillis, 1000L),
+                (int) Math.floorMod(epochMillis, 1000L) * 1_000_000,
+                ZoneOffset.UTC
+        );
+    }
+
+    private static String intern(String name) {
+        String interned = INTERNED_NAMES.get(name);
+        if (interned != null) {
+            return interned;
+        }
+        if (INTERNED_NAMES.size() >= MAX_INTERNED_NAMES) {
+            return name;
+        }
+        interned = INTERNED_NAMES.putIfAbsent(name, name);
+        return interned != null ? interned : name;
+    }
+
+    public enum Reason {
+        BAD_MAGIC,
+        UNSUPPORTED_VERSION,
+        UNKNOWN_TYPE,
+        TRUNCATED,
+        INVALID_FIELD
+    }
+
+    // message illisible : la raison permet de classer l'erreur sans analyser le texte
+    public static class MalformedMessageException extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        private final Reason reason;
+
+        public MalformedMessageException(Reason reason, String message) {
+            super(message);
+            this.reason = reason;
+        }
+
+        public Reason getReason() {
+            return reason;
+        }
+    }
+
+    private static final class Writer {
+        private byte[] buffer;
+        private int position;
+
+        private Writer(byte version, byte type, int expectedSize) {
+            buffer = new byte[expectedSize];
+            buffer[0] = MAGIC;
+            buffer[1] = version;
+            buffer[2] = type;
+            position = HEADER_SIZE;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (position + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+            }
+        }
+
+        private void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeVarLong(long value) {
+            long zigzag = (value << 1) ^ (value >> 63);
+            ensureCapacity(10);
+            while ((zigzag & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            buffer[position++] = (byte) zigzag;
+        }
+
+        private void writeString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(utf8.length);
+            ensureCapacity(utf8.length);
+            System.arraycopy(utf8, 0, buffer, position, utf8.length);
+            position += utf8.length;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buffer;
+        private int position;
+
+        private Reader(byte[] buffer, byte expectedType) {
+            byte type = readType(buffer);
+            if (type != expectedType) {
+                throw new MalformedMessageException(Reason.UNKNOWN_TYPE,
+                        "expected message type " + expectedType + " but got " + type);
+            }
+            this.buffer = buffer;
+            this.position = HEADER_SIZE;
+        }
+
+        private int readByte() {
+            if (position >= buffer.length) {
+                throw new MalformedMessageException(Reason.TRUNCATED, "unexpected end of message");
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        private long readVarLong() {
+            long zigzag = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                zigzag |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+            }
+            throw new MalformedMessageException(Reason.INVALID_FIELD, "varint longer than 10 bytes");
+        }
+
+        // un nombre d'elements ne peut pas depasser le nombre d'octets restants
+        private int readCount() {
+            long count = readVarLong();
+            if (count < 0 || count > buffer.length - position) {
+                throw new MalformedMessageException(Reason.INVALID_FIELD, "invalid element count " + count);
+            }
+            return (int) count;
+        }
+
+        private String readName(String[] names) {
+            long index = readVarLong();
+            if (index < 0 || index >= names.length) {
+                throw new MalformedMessageException(Reason.INVALID_FIELD, "invalid name index " + index);
+            }
+            return names[(int) index];
+        }
+
+        private String readString() {
+            long length = readVarLong();
+            if (length < 0 || length > MAX_STRING_BYTES) {
+                throw new MalformedMessageException(Reason.INVALID_FIELD, "invalid string length " + length);
+            }
+            if (position + length > buffer.length) {
+                throw new MalformedMessageException(Reason.TRUNCATED, "string runs past the end of the message");
+            }
+            String value = new String(buffer, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            return value;
+        }
+
+        private void expectEnd() {
+            if (position != buffer.length) {
+                throw new MalformedMessageException(Reason.INVALID_FIELD,
+                        (buffer.length - position) + " unexpected trailing bytes");
+            }
+        }
+    }
+}
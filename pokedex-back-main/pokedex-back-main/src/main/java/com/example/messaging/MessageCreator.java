@@ -0,0 +1,12 @@
+package com.example.messaging;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+
+// construit le message jms a envoyer a partir de la session empruntee au pool
+@FunctionalInterface
+public interface MessageCreator {
+
+    Message createMessage(Session session) throws JMSException;
+}
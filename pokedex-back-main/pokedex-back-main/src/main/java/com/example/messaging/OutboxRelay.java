@@ -0,0 +1,171 @@
+package com.example.messaging;
+
+import com.example.domain.OutboxEvent;
+import com.example.dto.OutboxStats;
+import com.example.service.OutboxService;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// vide la table outbox vers les queues artemis par batchs : une ligne n'est supprimee
+// qu'apres l'accuse du broker, un echec la laisse en place pour le passage suivant
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class OutboxRelay {
+
+    private static final Logger logger = Logger.getLogger(OutboxRelay.class.getName());
+    private static final int BATCH_SIZE = Integer.getInteger("pokedex.outbox.batchSize", 100);
+    private static final long ACK_TIMEOUT_MS = Long.getLong("pokedex.outbox.ackTimeoutMs", 30_000L);
+
+    @Inject
+    private OutboxService outboxService;
+
+    @Inject
+    private EventPublisher eventPublisher;
+
+    @Inject
+    private CaptureBatcher captureBatcher;
+
+    // le timer peut se declencher alors que le passage precedent n'est pas fini
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private volatile long backlog;
+    private volatile int lastBatchSize;
+    private volatile long lastBatchNanos;
+    private volatile double lastDrainEventsPerSecond;
+    private final LongAdder relayedEvents = new LongAdder();
+    private final LongAdder failedEvents = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder totalBatchNanos = new LongAdder();
+    private final AtomicLong maxBatchNanos = new AtomicLong();
+
+    // chaque appel a OutboxService tourne dans sa propre transaction, on ne garde pas
+    // de transaction ouverte pendant l'attente des accuses du broker
+    @Schedule(second = "*", minute = "*", hour = "*", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void drain() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            long drained = 0;
+            while (true) {
+                List<OutboxEvent> batch = outboxService.findPendingEvents(BATCH_SIZE);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                int relayed = relayBatch(batch);
+                drained += relayed;
+                // on s'arrete au premier echec pour ne pas marteler un broker indisponible
+                if (relayed < batch.size() || batch.size() < BATCH_SIZE) {
+                    break;
+                }
+            }
+            if (drained > 0) {
+                double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+                lastDrainEventsPerSecond = drained / Math.max(seconds, 0.001);
+            }
+            backlog = outboxService.countPendingEvents();
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "outbox relay pass failed", e);
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    int relayBatch(List<OutboxEvent> batch) {
+        long start = System.nanoTime();
+
+        List<CompletableFuture<Void>> acknowledgements = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            acknowledgements.add(relay(event));
+        }
+
+        List<Long> relayedIds = new ArrayList<>(batch.size());
+        List<Long> failedIds = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ACK_TIMEOUT_MS);
+        for (int i = 0; i < batch.size(); i++) {
+            Long id = batch.get(i).getId();
+            try {
+                acknowledgements.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                relayedIds.add(id);
+            } catch (ExecutionException | TimeoutException e) {
+                failedIds.add(id);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failedIds.add(id);
+            }
+        }
+
+        outboxService.deleteEvents(relayedIds);
+        if (!relayedIds.isEmpty()) {
+            logger.info("jms messages sent - " + relayedIds.size() + " outbox events relayed to artemis");
+        }
+        if (!failedIds.isEmpty()) {
+            outboxService.markFailedAttempt(failedIds);
+            logger.warning(failedIds.size() + " outbox events not acknowledged by the broker, they will be retried");
+        }
+
+        long batchNanos = System.nanoTime() - start;
+        batches.increment();
+        relayedEvents.add(relayedIds.size());
+        failedEvents.add(failedIds.size());
+        totalBatchNanos.add(batchNanos);
+        maxBatchNanos.accumulateAndGet(batchNanos, Math::max);
+        lastBatchNanos = batchNanos;
+        lastBatchSize = batch.size();
+        return relayedIds.size();
+    }
+
+    // les captures passent par le batcher pour etre regroupees, le reste est envoye tel quel
+    private CompletableFuture<Void> relay(OutboxEvent event) {
+        byte[] payload = event.getPayload();
+        if (CaptureMessageProducer.QUEUE_NAME.equals(event.getQueueName())) {
+            try {
+                return captureBatcher.submit(MessageCodec.decodeCapture(payload));
+            } catch (MessageCodec.MalformedMessageException e) {
+                logger.warning("outbox event " + event.getId() + " is not a single capture, sending it unbatched: " + e.getMessage());
+            }
+        }
+        return eventPublisher.publish(
+                event.getQueueName(),
+                payload,
+                event.getDescription()
+        );
+    }
+
+    public OutboxStats getStats() {
+        long batchCount = batches.sum();
+        double averageBatchMillis = batchCount == 0 ? 0.0 : totalBatchNanos.sum() / (double) batchCount / 1_000_000.0;
+        return new OutboxStats(
+                backlog,
+                relayedEvents.sum(),
+                failedEvents.sum(),
+                batchCount,
+                lastBatchSize,
+                lastBatchNanos / 1_000_000.0,
+                averageBatchMillis,
+                maxBatchNanos.get() / 1_000_000.0,
+                lastDrainEventsPerSecond
+        );
+    }
+}
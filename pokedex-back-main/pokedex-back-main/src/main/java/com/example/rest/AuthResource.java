@@ -4,8 +4,6 @@ import com.example.domain.Trainer;
 import com.example.dto.AuthResponse;
 import com.example.dto.LoginRequest;
 import com.example.dto.RegisterRequest;
-import com.example.dto.TrainerMessage;
-import com.example.messaging.TrainerMessageProducer;
 import com.example.service.AuthService;
 import jakarta.inject.Inject;
 import jakarta.servlet.http.HttpServletRequest;
@@ -22,9 +20,6 @@ public class AuthResource {
     @Inject
     private AuthService authService;
 
-    @Inject
-    private TrainerMessageProducer trainerMessageProducer;
-
     @Context
     private HttpServletRequest httpRequest;
 
@@ -43,14 +38,6 @@ public class AuthResource {
                     request.getPassword()
             );
 
-            // envoyer un message jms pour la creation du trainer
-            TrainerMessage trainerMessage = new TrainerMessage(
-                    trainer.getId(),
-                    trainer.getName(),
-                    trainer.getEmail()
-            );
-            trainerMessageProducer.sendTrainerCreatedMessage(trainerMessage);
-
             AuthResponse response = new AuthResponse(
                     trainer.getId(),
                     trainer.getEmail(),
@@ -0,0 +1,72 @@
+package com.example.rest;
+
+import com.example.messaging.CaptureBatcher;
+import com.example.messaging.EventPublisher;
+import com.example.messaging.EventSpool;
+import com.example.messaging.JmsCircuitBreaker;
+import com.example.messaging.JmsConnectionPool;
+import com.example.messaging.OutboxRelay;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+// expose les compteurs du sous-systeme de messaging (pool jms, publication, outbox, batchs, spool, disjoncteur)
+@Path("/messaging")
+@Produces(MediaType.APPLICATION_JSON)
+public class MessagingResource {
+
+    @Inject
+    private JmsConnectionPool jmsConnectionPool;
+
+    @Inject
+    private EventPublisher eventPublisher;
+
+    @Inject
+    private OutboxRelay outboxRelay;
+
+    @Inject
+    private CaptureBatcher captureBatcher;
+
+    @Inject
+    private EventSpool eventSpool;
+
+    @Inject
+    private JmsCircuitBreaker circuitBreaker;
+
+    @GET
+    @Path("/pool")
+    public Response getPoolStats() {
+        return Response.ok(jmsConnectionPool.getStats()).build();
+    }
+
+    @GET
+    @Path("/publisher")
+    public Response getPublisherStats() {
+        return Response.ok(eventPublisher.getStats()).build();
+    }
+
+    @GET
+    @Path("/outbox")
+    public Response getOutboxStats() {
+        return Response.ok(outboxRelay.getStats()).build();
+    }
+
+    @GET
+    @Path("/batcher")
+    public Response getBatcherStats() {
+        return Response.ok(captureBatcher.getStats()).build();
+    }
+
+    @GET
+    @Path("/spool")
+    public Response getSpoolStats() {
+        return Response.ok(eventSpool.getStats()).build();
+    }
+
+    @GET
+    @Path("/breaker")
+    public Response getCircuitBreakerStats() {
+        return Response.ok(circuitBreaker.getStats()).build();
+    }
+}
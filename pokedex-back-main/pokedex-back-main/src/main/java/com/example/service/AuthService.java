@@ -1,7 +1,10 @@
 package com.example.service;
 
 import com.example.domain.Trainer;
+import com.example.dto.TrainerMessage;
+import com.example.messaging.TrainerMessageProducer;
 import jakarta.ejb.Stateless;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.criteria.CriteriaBuilder;
@@ -16,6 +19,9 @@ public class AuthService {
     @PersistenceContext
     private EntityManager em;
 
+    @Inject
+    private TrainerMessageProducer trainerMessageProducer;
+
     public Trainer register(String name, String email, String password) {
         // vérifier si l'email existe déjà
         Trainer existing = findTrainerByEmail(email);
@@ -29,6 +35,14 @@ public class AuthService {
         // créer le trainer avec le mot de passe hashé
         Trainer trainer = new Trainer(name, email, hashedPassword);
         em.persist(trainer);
+
+        // message jms de creation du trainer, ecrit dans la meme transaction que le trainer
+        TrainerMessage trainerMessage = new TrainerMessage(
+                trainer.getId(),
+                trainer.getName(),
+                trainer.getEmail()
+        );
+        trainerMessageProducer.sendTrainerCreatedMessage(trainerMessage);
         return trainer;
     }
 
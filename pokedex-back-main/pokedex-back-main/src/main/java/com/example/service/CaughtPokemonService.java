@@ -24,6 +24,21 @@ public class CaughtPokemonService {
     @Inject
     private CaptureMessageProducer captureMessageProducer;
 
+    // ajoute l'eventId aux messages de capture pour le dedoublonnage du consumer. ces messages
+    // sont ecrits en version 3 du format, qu'un consumer plus ancien met en quarantaine : le
+    // couper (pokedex.jms.captures.eventIds=false) tant que des consumers anciens tournent
+    private final boolean sendEventIds;
+
+    public CaughtPokemonService() {
+        this(null, null, Boolean.parseBoolean(System.getProperty("pokedex.jms.captures.eventIds", "true")));
+    }
+
+    CaughtPokemonService(EntityManager em, CaptureMessageProducer captureMessageProducer, boolean sendEventIds) {
+        this.em = em;
+        this.captureMessageProducer = captureMessageProducer;
+        this.sendEventIds = sendEventIds;
+    }
+
     public CaughtPokemon createCaughtPokemon(Long trainerId, Long pokemonId) {
         Trainer trainer = em.find(Trainer.class, trainerId);
         if (trainer == null) {
@@ -37,14 +52,26 @@ public class CaughtPokemonService {
         
         CaughtPokemon caughtPokemon = new CaughtPokemon(trainer, pokemon);
         em.persist(caughtPokemon);
+        if (sendEventIds) {
+            // l'id IDENTITY n'est attribue qu'a l'insert : eclipselink le repousse au flush
+            em.flush();
+        }
         
-        // envoyer un message jms pour la capture
+        // message jms de capture, ecrit dans la meme transaction que la capture. l'id de la
+        // capture sert d'eventId : il est fige dans l'outbox et reste le meme si le relais
+        // renvoie le message
         CaptureMessage captureMessage = new CaptureMessage(
                 trainer.getId(),
                 trainer.getName(),
                 pokemon.getId(),
                 pokemon.getName()
         );
+        if (sendEventIds) {
+            if (caughtPokemon.getId() == null) {
+                throw new IllegalStateException("Capture id not assigned after flush");
+            }
+            captureMessage.setEventId(caughtPokemon.getId());
+        }
         captureMessageProducer.sendCaptureMessage(captureMessage);
         
         return caughtPokemon;
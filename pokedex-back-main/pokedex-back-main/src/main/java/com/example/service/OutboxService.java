@@ -0,0 +1,63 @@
+package com.example.service;
+
+import com.example.domain.OutboxEvent;
+import jakarta.ejb.Stateless;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+
+import java.util.Collection;
+import java.util.List;
+
+// table outbox : les evenements sont ecrits dans la transaction de l'appelant,
+// puis envoyes au broker par OutboxRelay
+@Stateless
+public class OutboxService {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    // le payload est deja encode par MessageCodec
+    public OutboxEvent enqueue(String queueName, byte[] payload, String description) {
+        OutboxEvent outboxEvent = new OutboxEvent(queueName, payload, description);
+        em.persist(outboxEvent);
+        return outboxEvent;
+    }
+
+    // evenements les plus anciens d'abord pour garder l'ordre de production
+    public List<OutboxEvent> findPendingEvents(int limit) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<OutboxEvent> cq = cb.createQuery(OutboxEvent.class);
+        Root<OutboxEvent> root = cq.from(OutboxEvent.class);
+        cq.select(root);
+        cq.orderBy(cb.asc(root.get("id")));
+        return em.createQuery(cq).setMaxResults(limit).getResultList();
+    }
+
+    public long countPendingEvents() {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+        cq.select(cb.count(cq.from(OutboxEvent.class)));
+        return em.createQuery(cq).getSingleResult();
+    }
+
+    public int deleteEvents(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return em.createQuery("DELETE FROM OutboxEvent e WHERE e.id IN :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    public int markFailedAttempt(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return em.createQuery("UPDATE OutboxEvent e SET e.attempts = e.attempts + 1 WHERE e.id IN :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.messaging;
+
+import com.example.dto.BatchStats;
+import com.example.dto.CaptureMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.jms.JMSException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CaptureBatcherTest {
+
+    @Mock
+    private EventPublisher eventPublisher;
+
+    private CaptureBatcher batcher;
+
+    @AfterEach
+    void tearDown() {
+        batcher.shutdown();
+    }
+
+    private CaptureBatcher createBatcher(int maxBatchSize, long maxBatchDelayMs) {
+        batcher = new CaptureBatcher(eventPublisher, maxBatchSize, maxBatchDelayMs, 4);
+        batcher.init();
+        return batcher;
+    }
+
+    private CaptureMessage capture(long pokemonId) {
+        return capture(1L, pokemonId);
+    }
+
+    private CaptureMessage capture(long trainerId, long pokemonId) {
+        return new CaptureMessage(trainerId, "Trainer " + trainerId, pokemonId, "Pokemon " + pokemonId);
+    }
+
+    @Test
+    void testFlushWhenBatchIsFull() throws Exception {
+        // given
+        createBatcher(3, 60_000L);
+        when(eventPublisher.publish(eq("captures"), anyString(), any(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        // when
+        CompletableFuture<Void> first = batcher.submit(capture(1L));
+        CompletableFuture<Void> second = batcher.submit(capture(2L));
+        assertFalse(first.isDone());
+        CompletableFuture<Void> third = batcher.submit(capture(3L));
+
+        // then
+        CompletableFuture.allOf(first, second, third).get(1, TimeUnit.SECONDS);
+        verify(eventPublisher, times(1)).publish(eq("captures"), anyString(), any(), anyString());
+
+        BatchStats stats = batcher.getStats();
+        assertEquals(1L, stats.getBatches());
+        assertEquals(3L, stats.getEvents());
+        assertEquals(3.0, stats.getEventsPerMessage());
+        assertEquals(1L, stats.getSizeFlushes());
+        assertEquals(0L, stats.getTimeFlushes());
+        assertEquals(0, stats.getPendingEvents());
+    }
+
+    @Test
+    void testFlushWhenDelayExpires() throws Exception {
+        // given
+        createBatcher(100, 10L);
+        when(eventPublisher.publish(eq("captures"), anyString(), any(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        // when
+        CompletableFuture<Void> first = batcher.submit(capture(1L));
+        CompletableFuture<Void> second = batcher.submit(capture(2L));
+
+        // then
+        CompletableFuture.allOf(first, second).get(1, TimeUnit.SECONDS);
+        BatchStats stats = batcher.getStats();
+        assertEquals(1L, stats.getTimeFlushes());
+        assertEquals(2, stats.getLastBatchSize());
+    }
+
+    @Test
+    void testBatchFailureFailsEveryCapture() {
+        // given
+        createBatcher(2, 60_000L);
+        when(eventPublisher.publish(eq("captures"), anyString(), any(), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new JMSException("broker down")));
+
+        // when
+        CompletableFuture<Void> first = batcher.submit(capture(1L));
+        CompletableFuture<Void> second = batcher.submit(capture(2L));
+
+        // then
+        assertThrows(ExecutionException.class, () -> first.get(1, TimeUnit.SECONDS));
+        assertThrows(ExecutionException.class, () -> second.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testTrainersAreBatchedInTheirOwnGroup() throws Exception {
+        // given
+        createBatcher(2, 60_000L);
+        when(eventPublisher.publish(eq("captures"), anyString(), any(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        // when
+        CompletableFuture<Void> first = batcher.submit(capture(1L, 10L));
+        CompletableFuture<Void> other = batcher.submit(capture(2L, 20L));
+        CompletableFuture<Void> second = batcher.submit(capture(5L, 11L));
+
+        // then
+        CompletableFuture.allOf(first, second).get(1, TimeUnit.SECONDS);
+        assertFalse(other.isDone());
+        verify(eventPublisher, times(1)).publish(eq("captures"), eq("captures-1"), any(), anyString());
+        assertEquals(1, batcher.getStats().getPendingEvents());
+    }
+}
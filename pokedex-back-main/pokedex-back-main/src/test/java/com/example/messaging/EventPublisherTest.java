@@ -0,0 +1,226 @@
+package com.example.messaging;
+
+import com.example.dto.PublishStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.jms.BytesMessage;
+import javax.jms.CompletionListener;
+import javax.jms.JMSException;
+import javax.jms.Session;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EventPublisherTest {
+
+    @Mock
+    private JmsConnectionPool jmsConnectionPool;
+
+    @Mock
+    private EventSpool eventSpool;
+
+    private JmsCircuitBreaker circuitBreaker;
+
+    private EventPublisher publisher;
+
+    @AfterEach
+    void tearDown() {
+        publisher.shutdown();
+    }
+
+    private EventPublisher createPublisher(boolean asyncMode, int maxAttempts) {
+        return createPublisher(asyncMode, maxAttempts, 100);
+    }
+
+    private EventPublisher createPublisher(boolean asyncMode, int maxAttempts, int failureThreshold) {
+        circuitBreaker = new JmsCircuitBreaker(jmsConnectionPool, failureThreshold, 60_000L, 1000L);
+        publisher = new EventPublisher(jmsConnectionPool, eventSpool, circuitBreaker, asyncMode, maxAttempts, 1L);
+        publisher.init();
+        return publisher;
+    }
+
+    @Test
+    void testAsyncPublishCompletesOnBrokerAcknowledgement() throws Exception {
+        // given
+        createPublisher(true, 3);
+        ArgumentCaptor<CompletionListener> listener = ArgumentCaptor.forClass(CompletionListener.class);
+
+        // when
+        CompletableFuture<Void> result = publisher.publish("captures", new byte[]{1, 2, 3}, "test");
+
+        // then
+        verify(jmsConnectionPool, timeout(1000)).sendAsync(eq("captures"), any(), listener.capture());
+        assertFalse(result.isDone());
+
+        listener.getValue().onCompletion(null);
+        result.get(1, TimeUnit.SECONDS);
+
+        PublishStats stats = publisher.getStats();
+        assertEquals(1L, stats.getSubmitted());
+        assertEquals(1L, stats.getAcknowledged());
+        assertEquals(0L, stats.getInFlight());
+    }
+
+    @Test
+    void testFailedSendIsRetried() throws Exception {
+        // given
+        createPublisher(false, 3);
+        doThrow(new JMSException("broker down")).doNothing().when(jmsConnectionPool).send(eq("trainers"), any());
+
+        // when
+        CompletableFuture<Void> result = publisher.publish("trainers", new byte[]{1, 2, 3}, "test");
+        result.get(1, TimeUnit.SECONDS);
+
+        // then
+        verify(jmsConnectionPool, times(2)).send(eq("trainers"), any());
+        PublishStats stats = publisher.getStats();
+        assertEquals(1L, stats.getFailedAttempts());
+        assertEquals(1L, stats.getRetried());
+        assertEquals(1L, stats.getAcknowledged());
+        assertEquals(0L, stats.getExhausted());
+    }
+
+    @Test
+    void testPublishFailsAfterMaxAttempts() throws Exception {
+        // given
+        createPublisher(false, 2);
+        doThrow(new JMSException("broker down")).when(jmsConnectionPool).send(eq("captures"), any());
+
+        // when
+        CompletableFuture<Void> result = publisher.publish("captures", new byte[]{1, 2, 3}, "test");
+
+        // then
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> result.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(JMSException.class, exception.getCause());
+        verify(jmsConnectionPool, times(2)).send(eq("captures"), any());
+        assertEquals(1L, publisher.getStats().getExhausted());
+    }
+
+    @Test
+    void testExhaustedEventIsSpooled() throws Exception {
+        // given
+        createPublisher(false, 2);
+        byte[] payload = {1, 2, 3};
+        doThrow(new JMSException("broker down")).when(jmsConnectionPool).send(eq("captures"), any());
+        when(eventSpool.append("captures", null, payload)).thenReturn(true);
+
+        // when
+        CompletableFuture<Void> result = publisher.publish("captures", payload, "test");
+        result.get(1, TimeUnit.SECONDS);
+
+        // then
+        verify(eventSpool, times(1)).append("captures", null, payload);
+        PublishStats stats = publisher.getStats();
+        assertEquals(1L, stats.getSpooled());
+        assertEquals(0L, stats.getExhausted());
+    }
+
+    @Test
+    void testOpenCircuitSkipsBrokerAndSpools() throws Exception {
+        // given
+        createPublisher(false, 1, 1);
+        doThrow(new JMSException("broker down")).when(jmsConnectionPool).send(eq("captures"), any());
+        when(eventSpool.append(eq("captures"), any(), any())).thenReturn(true);
+        publisher.publish("captures", new byte[]{1}, "first").get(1, TimeUnit.SECONDS);
+
+        // when
+        CompletableFuture<Void> result = publisher.publish("captures", new byte[]{2}, "second");
+        result.get(1, TimeUnit.SECONDS);
+
+        // then
+        assertEquals(JmsCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        verify(jmsConnectionPool, times(1)).send(eq("captures"), any());
+        verify(eventSpool, times(2)).append(eq("captures"), any(), any());
+        assertEquals(1L, publisher.getStats().getShortCircuited());
+    }
+
+    @Test
+    void testGroupIdIsSetOnMessage() throws Exception {
+        // given
+        createPublisher(false, 1);
+        ArgumentCaptor<MessageCreator> creator = ArgumentCaptor.forClass(MessageCreator.class);
+        Session session = mock(Session.class);
+        BytesMessage message = mock(BytesMessage.class);
+        when(session.createBytesMessage()).thenReturn(message);
+
+        // when
+        publisher.publish("captures", "captures-7", new byte[]{1}, "test").get(1, TimeUnit.SECONDS);
+
+        // then
+        verify(jmsConnectionPool).send(eq("captures"), creator.capture());
+        creator.getValue().createMessage(session);
+        verify(message).setStringProperty("JMSXGroupID", "captures-7");
+    }
+
+    @Test
+    void testGroupSendsOneMessageAtATime() throws Exception {
+        // given
+        createPublisher(true, 3);
+        ArgumentCaptor<CompletionListener> listener = ArgumentCaptor.forClass(CompletionListener.class);
+        CompletableFuture<Void> first = publisher.publish("captures", "captures-1", new byte[]{1}, "first");
+
+        // when
+        CompletableFuture<Void> second = publisher.publish("captures", "captures-1", new byte[]{2}, "second");
+        CompletableFuture<Void> otherGroup = publisher.publish("captures", "captures-2", new byte[]{3}, "other");
+
+        // then
+        verify(jmsConnectionPool, timeout(1000).times(2)).sendAsync(eq("captures"), any(), listener.capture());
+        Thread.sleep(50);
+        verify(jmsConnectionPool, times(2)).sendAsync(eq("captures"), any(), any());
+        assertFalse(second.isDone());
+
+        listener.getAllValues().get(0).onCompletion(null);
+        listener.getAllValues().get(1).onCompletion(null);
+        verify(jmsConnectionPool, timeout(1000).times(3)).sendAsync(eq("captures"), any(), listener.capture());
+        listener.getAllValues().get(listener.getAllValues().size() - 1).onCompletion(null);
+        first.get(1, TimeUnit.SECONDS);
+        second.get(1, TimeUnit.SECONDS);
+        otherGroup.get(1, TimeUnit.SECONDS);
+        assertEquals(0L, publisher.getStats().getInFlight());
+    }
+
+    @Test
+    void testFailedGroupHeadFailsTheMessagesQueuedBehindIt() throws Exception {
+        // given
+        createPublisher(true, 1);
+        ArgumentCaptor<CompletionListener> listener = ArgumentCaptor.forClass(CompletionListener.class);
+        CompletableFuture<Void> first = publisher.publish("captures", "captures-1", new byte[]{1}, "first");
+        CompletableFuture<Void> second = publisher.publish("captures", "captures-1", new byte[]{2}, "second");
+        verify(jmsConnectionPool, timeout(1000)).sendAsync(eq("captures"), any(), listener.capture());
+
+        // when
+        listener.getValue().onException(null, new JMSException("broker down"));
+
+        // then
+        assertThrows(ExecutionException.class, () -> first.get(1, TimeUnit.SECONDS));
+        assertThrows(ExecutionException.class, () -> second.get(1, TimeUnit.SECONDS));
+        verify(jmsConnectionPool, times(1)).sendAsync(eq("captures"), any(), any());
+        assertEquals(2L, publisher.getStats().getExhausted());
+    }
+
+    @Test
+    void testGroupWithSpooledEventsIsSpooledBehindThem() throws Exception {
+        // given
+        createPublisher(false, 3);
+        when(eventSpool.hasPending("captures-1")).thenReturn(true);
+        when(eventSpool.append("captures", "captures-1", new byte[]{1})).thenReturn(true);
+
+        // when
+        publisher.publish("captures", "captures-1", new byte[]{1}, "test").get(1, TimeUnit.SECONDS);
+
+        // then
+        verify(jmsConnectionPool, never()).send(anyString(), any());
+        verify(eventSpool).append("captures", "captures-1", new byte[]{1});
+        assertEquals(1L, publisher.getStats().getSpooled());
+    }
+}
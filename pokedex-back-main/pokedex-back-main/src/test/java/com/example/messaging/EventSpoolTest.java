@@ -0,0 +1,228 @@
+package com.example.messaging;
+
+import com.example.dto.SpoolStats;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Session;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EventSpoolTest {
+
+    @Mock
+    private JmsConnectionPool jmsConnectionPool;
+
+    @TempDir
+    Path tempDir;
+
+    private EventSpool createSpool(long capacityBytes) {
+        JmsCircuitBreaker circuitBreaker = new JmsCircuitBreaker(jmsConnectionPool, 100, 1000L, 1000L);
+        EventSpool spool = new EventSpool(jmsConnectionPool, circuitBreaker, tempDir.resolve("events.spool"),
+                capacityBytes, EventSpool.FsyncPolicy.BATCH, 100);
+        spool.init();
+        return spool;
+    }
+
+    private static byte[] payload(int first) {
+        byte[] payload = new byte[18];
+        payload[0] = (byte) first;
+        return payload;
+    }
+
+    @Test
+    void testReplaySendsSpooledEventsInOrder() throws Exception {
+        // given
+        EventSpool spool = createSpool(4096);
+        spool.append("captures", null, new byte[]{1});
+        spool.append("trainers", null, new byte[]{2});
+
+        // when
+        spool.replay();
+
+        // then
+        InOrder inOrder = inOrder(jmsConnectionPool);
+        inOrder.verify(jmsConnectionPool).send(eq("captures"), any());
+        inOrder.verify(jmsConnectionPool).send(eq("trainers"), any());
+        SpoolStats stats = spool.getStats();
+        assertEquals(2L, stats.getSpooledEvents());
+        assertEquals(2L, stats.getReplayedEvents());
+        assertEquals(0, stats.getPendingEvents());
+        assertEquals(0L, stats.getUsedBytes());
+    }
+
+    @Test
+    void testReplayRestoresPayloadAndGroup() throws Exception {
+        // given
+        EventSpool spool = createSpool(4096);
+        byte[] payload = {4, 5, 6};
+        spool.append("captures", "captures-3", payload);
+        ArgumentCaptor<MessageCreator> creator = ArgumentCaptor.forClass(MessageCreator.class);
+        Session session = mock(Session.class);
+        BytesMessage message = mock(BytesMessage.class);
+        when(session.createBytesMessage()).thenReturn(message);
+
+        // when
+        spool.replay();
+
+        // then
+        verify(jmsConnectionPool).send(eq("captures"), creator.capture());
+        creator.getValue().createMessage(session);
+        verify(message).writeBytes(payload);
+        verify(message).setStringProperty("JMSXGroupID", "captures-3");
+    }
+
+    @Test
+    void testReplayStopsWhileBrokerIsDown() throws Exception {
+        // given
+        EventSpool spool = createSpool(4096);
+        spool.append("captures", null, new byte[]{1});
+        spool.append("captures", null, new byte[]{2});
+        doThrow(new JMSException("broker down")).when(jmsConnectionPool).send(anyString(), any());
+
+        // when
+        spool.replay();
+
+        // then
+        verify(jmsConnectionPool, times(1)).send(anyString(), any());
+        SpoolStats stats = spool.getStats();
+        assertEquals(2, stats.getPendingEvents());
+        assertEquals(1L, stats.getReplayFailures());
+        assertEquals(0L, stats.getReplayedEvents());
+    }
+
+    @Test
+    void testAppendIsRejectedWhenSpoolIsFull() {
+        // given
+        EventSpool spool = createSpool(64);
+
+        // when
+        boolean first = spool.append("captures", null, new byte[10]);
+        boolean second = spool.append("captures", null, new byte[10]);
+
+        // then
+        assertTrue(first);
+        assertFalse(second);
+        assertEquals(1L, spool.getStats().getRejectedEvents());
+    }
+
+    @Test
+    void testPendingEventsSurviveRestart() throws Exception {
+        // given
+        EventSpool spool = createSpool(4096);
+        spool.append("captures", null, new byte[]{1, 2});
+        spool.append("trainers", null, new byte[]{3});
+        spool.close();
+
+        // when
+        EventSpool reopened = createSpool(4096);
+        reopened.replay();
+
+        // then
+        verify(jmsConnectionPool, times(1)).send(eq("captures"), any());
+        verify(jmsConnectionPool, times(1)).send(eq("trainers"), any());
+        assertEquals(0, reopened.getStats().getPendingEvents());
+    }
+
+    @Test
+    void testAppendReusesSpaceFreedByReplay() throws Exception {
+        // given : 3 enregistrements de 38 octets remplissent le spool
+        EventSpool spool = createSpool(160);
+        assertTrue(spool.append("captures", null, payload(1)));
+        assertTrue(spool.append("captures", null, payload(2)));
+        assertTrue(spool.append("captures", null, payload(3)));
+        assertFalse(spool.append("captures", null, new byte[18]));
+        ArgumentCaptor<MessageCreator> creator = ArgumentCaptor.forClass(MessageCreator.class);
+        doNothing().doNothing().doThrow(new JMSException("broker down")).when(jmsConnectionPool).send(anyString(), any());
+        spool.replay();
+
+        // when : le spool n'est pas vide mais la place du debut est liberee
+        boolean wrapped = spool.append("captures", null, payload(4));
+        reset(jmsConnectionPool);
+        spool.replay();
+
+        // then
+        assertTrue(wrapped);
+        verify(jmsConnectionPool, times(2)).send(eq("captures"), creator.capture());
+        Session session = mock(Session.class);
+        BytesMessage message = mock(BytesMessage.class);
+        when(session.createBytesMessage()).thenReturn(message);
+        for (MessageCreator messageCreator : creator.getAllValues()) {
+            messageCreator.createMessage(session);
+        }
+        ArgumentCaptor<byte[]> payloads = ArgumentCaptor.forClass(byte[].class);
+        verify(message, times(2)).writeBytes(payloads.capture());
+        assertEquals(3, payloads.getAllValues().get(0)[0]);
+        assertEquals(4, payloads.getAllValues().get(1)[0]);
+        assertEquals(0, spool.getStats().getPendingEvents());
+    }
+
+    @Test
+    void testWrappedEventsSurviveRestart() throws Exception {
+        // given
+        EventSpool spool = createSpool(160);
+        spool.append("captures", null, new byte[18]);
+        spool.append("captures", null, new byte[18]);
+        spool.append("trainers", null, new byte[18]);
+        doNothing().doNothing().doThrow(new JMSException("broker down")).when(jmsConnectionPool).send(anyString(), any());
+        spool.replay();
+        spool.append("trainers", null, new byte[18]);
+        spool.close();
+        reset(jmsConnectionPool);
+
+        // when
+        EventSpool reopened = createSpool(160);
+        reopened.replay();
+
+        // then
+        verify(jmsConnectionPool, times(2)).send(eq("trainers"), any());
+        verify(jmsConnectionPool, never()).send(eq("captures"), any());
+        assertEquals(0, reopened.getStats().getPendingEvents());
+    }
+
+    @Test
+    void testSpoolFileIsUsedByOneInstanceOnly() {
+        // given
+        EventSpool first = createSpool(4096);
+
+        // when
+        EventSpool second = createSpool(4096);
+
+        // then
+        assertTrue(first.getStats().getEnabled());
+        assertFalse(second.getStats().getEnabled());
+        assertFalse(second.append("captures", null, new byte[]{1}));
+        assertTrue(first.append("captures", null, new byte[]{1}));
+    }
+
+    @Test
+    void testPendingGroupsFollowAppendAndReplay() {
+        // given
+        EventSpool spool = createSpool(4096);
+        spool.append("captures", "captures-1", new byte[]{1});
+        spool.append("captures", "captures-1", new byte[]{2});
+        spool.append("trainers", null, new byte[]{3});
+        spool.close();
+
+        // when
+        EventSpool reopened = createSpool(4096);
+        boolean pendingBeforeReplay = reopened.hasPending("captures-1");
+        reopened.replay();
+
+        // then
+        assertTrue(pendingBeforeReplay);
+        assertFalse(reopened.hasPending("captures-1"));
+        assertFalse(reopened.hasPending("captures-2"));
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.messaging;
+
+import com.example.dto.CircuitBreakerStats;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.jms.JMSException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JmsCircuitBreakerTest {
+
+    @Mock
+    private JmsConnectionPool jmsConnectionPool;
+
+    @Test
+    void testCircuitOpensAfterConsecutiveFailures() {
+        // given
+        JmsCircuitBreaker circuitBreaker = new JmsCircuitBreaker(jmsConnectionPool, 3, 1000L, 100L);
+
+        // when
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        boolean allowedBeforeThreshold = circuitBreaker.allowRequest();
+        circuitBreaker.recordFailure();
+
+        // then
+        assertTrue(allowedBeforeThreshold);
+        assertEquals(JmsCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.allowRequest());
+        CircuitBreakerStats stats = circuitBreaker.getStats();
+        assertEquals(1L, stats.getOpenedCount());
+        assertEquals(1L, stats.getRejectedCalls());
+    }
+
+    @Test
+    void testSuccessResetsFailureCount() {
+        // given
+        JmsCircuitBreaker circuitBreaker = new JmsCircuitBreaker(jmsConnectionPool, 2, 1000L, 100L);
+
+        // when
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordSuccess();
+        circuitBreaker.recordFailure();
+
+        // then
+        assertEquals(JmsCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void testSuccessfulProbeClosesCircuit() throws Exception {
+        // given
+        JmsCircuitBreaker circuitBreaker = new JmsCircuitBreaker(jmsConnectionPool, 1, 0L, 100L);
+        circuitBreaker.recordFailure();
+
+        // when
+        circuitBreaker.probe();
+
+        // then
+        verify(jmsConnectionPool, times(1)).checkConnection();
+        assertEquals(JmsCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        CircuitBreakerStats stats = circuitBreaker.getStats();
+        assertEquals(1L, stats.getHalfOpenedCount());
+        assertEquals(1L, stats.getClosedCount());
+    }
+
+    @Test
+    void testFailedProbeReopensCircuit() throws Exception {
+        // given
+        JmsCircuitBreaker circuitBreaker = new JmsCircuitBreaker(jmsConnectionPool, 1, 0L, 100L);
+        doThrow(new JMSException("broker down")).when(jmsConnectionPool).checkConnection();
+        circuitBreaker.recordFailure();
+
+        // when
+        circuitBreaker.probe();
+        circuitBreaker.probe();
+
+        // then : les sondages rates ne comptent pas comme de nouvelles ouvertures
+        assertEquals(JmsCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        CircuitBreakerStats stats = circuitBreaker.getStats();
+        assertEquals(1L, stats.getOpenedCount());
+        assertEquals(2L, stats.getFailedProbes());
+        assertEquals(2L, stats.getHalfOpenedCount());
+    }
+
+    @Test
+    void testProbeWaitsForOpenDuration() throws Exception {
+        // given
+        JmsCircuitBreaker circuitBreaker = new JmsCircuitBreaker(jmsConnectionPool, 1, 60_000L, 100L);
+        circuitBreaker.recordFailure();
+
+        // when
+        circuitBreaker.probe();
+
+        // then
+        verify(jmsConnectionPool, never()).checkConnection();
+        assertEquals(JmsCircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.messaging;
+
+import com.example.dto.JmsPoolStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.jms.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JmsConnectionPoolTest {
+
+    @Mock
+    private ConnectionFactory connectionFactory;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private Session session;
+
+    @Mock
+    private Queue queue;
+
+    @Mock
+    private MessageProducer producer;
+
+    @Mock
+    private ObjectMessage message;
+
+    private JmsConnectionPool pool;
+
+    @BeforeEach
+    void setUp() throws JMSException {
+        pool = new JmsConnectionPool(connectionFactory, 2, 50);
+        lenient().when(connectionFactory.createConnection()).thenReturn(connection);
+        lenient().when(connection.createSession(false, Session.AUTO_ACKNOWLEDGE)).thenReturn(session);
+        lenient().when(session.createQueue("captures")).thenReturn(queue);
+        lenient().when(session.createProducer(queue)).thenReturn(producer);
+    }
+
+    @Test
+    void testSendReusesConnectionSessionAndProducer() throws JMSException {
+        // when
+        pool.send("captures", s -> message);
+        pool.send("captures", s -> message);
+
+        // then
+        verify(connectionFactory, times(1)).createConnection();
+        verify(connection, times(1)).createSession(false, Session.AUTO_ACKNOWLEDGE);
+        verify(session, times(1)).createProducer(queue);
+        verify(producer, times(2)).send(message);
+
+        JmsPoolStats stats = pool.getStats();
+        assertEquals(1, stats.getOpenSessions());
+        assertEquals(1, stats.getIdleSessions());
+        assertEquals(0, stats.getActiveSessions());
+        assertEquals(1, stats.getCachedProducers());
+        assertEquals(2L, stats.getBorrowCount());
+        assertTrue(stats.getConnected());
+    }
+
+    @Test
+    void testFailedSendDiscardsSession() throws JMSException {
+        // given
+        doThrow(new JMSException("broken")).doNothing().when(producer).send(message);
+
+        // when
+        assertThrows(JMSException.class, () -> pool.send("captures", s -> message));
+        pool.send("captures", s -> message);
+
+        // then
+        verify(session, times(1)).close();
+        verify(connection, times(2)).createSession(false, Session.AUTO_ACKNOWLEDGE);
+        assertEquals(1, pool.getStats().getOpenSessions());
+    }
+
+    @Test
+    void testBorrowTimesOutWhenPoolIsExhausted() throws JMSException {
+        // given
+        JmsConnectionPool.PooledSession first = pool.borrow();
+        JmsConnectionPool.PooledSession second = pool.borrow();
+
+        // when & then
+        assertThrows(JMSException.class, () -> pool.borrow());
+        assertEquals(1L, pool.getStats().getBorrowTimeouts());
+
+        pool.release(first, false);
+        pool.release(second, false);
+        assertEquals(2, pool.getStats().getIdleSessions());
+    }
+
+    @Test
+    void testConnectionLossTriggersReconnect() throws JMSException {
+        // given
+        ArgumentCaptor<ExceptionListener> listener = ArgumentCaptor.forClass(ExceptionListener.class);
+        pool.send("captures", s -> message);
+        verify(connection).setExceptionListener(listener.capture());
+
+        // when
+        listener.getValue().onException(new JMSException("connection lost"));
+        pool.send("captures", s -> message);
+
+        // then
+        verify(connection, times(1)).close();
+        verify(connectionFactory, times(2)).createConnection();
+        assertEquals(1L, pool.getStats().getReconnectCount());
+        assertEquals(1L, pool.getStats().getConnectionFailures());
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.messaging;
+
+import com.example.dto.CaptureMessage;
+import com.example.dto.TrainerMessage;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageCodecTest {
+
+    @Test
+    void testCaptureRoundTrip() {
+        // given
+        LocalDateTime captureDate = LocalDateTime.of(2026, 1, 21, 10, 30, 0, 123_000_000);
+        CaptureMessage message = new CaptureMessage(1L, "Ash Ketchum", 25L, "Pikachu", captureDate);
+
+        // when
+        byte[] bytes = MessageCodec.encodeCapture(message);
+        CaptureMessage decoded = MessageCodec.decodeCapture(bytes);
+
+        // then
+        assertEquals(MessageCodec.TYPE_CAPTURE, MessageCodec.readType(bytes));
+        assertEquals(1L, decoded.getTrainerId());
+        assertEquals("Ash Ketchum", decoded.getTrainerName());
+        assertEquals(25L, decoded.getPokemonId());
+        assertEquals("Pikachu", decoded.getPokemonName());
+        assertEquals(captureDate, decoded.getCaptureDate());
+    }
+
+    @Test
+    void testTrainerRoundTripWithNullFields() {
+        // given
+        TrainerMessage message = new TrainerMessage(7L, "Misty", null, null);
+
+        // when
+        TrainerMessage decoded = MessageCodec.decodeTrainer(MessageCodec.encodeTrainer(message));
+
+        // then
+        assertEquals(7L, decoded.getTrainerId());
+        assertEquals("Misty", decoded.getTrainerName());
+        assertNull(decoded.getTrainerEmail());
+        assertNull(decoded.getRegistrationDate());
+    }
+
+    @Test
+    void testCaptureBatchRoundTrip() {
+        // given
+        LocalDateTime captureDate = LocalDateTime.of(2026, 1, 21, 10, 30);
+        List<CaptureMessage> messages = List.of(
+                new CaptureMessage(1L, "Ash", 25L, "Pikachu", captureDate),
+                new CaptureMessage(2L, "Misty", 25L, "Pikachu", captureDate.plusSeconds(1)),
+                new CaptureMessage(1L, "Ash", 7L, null, null)
+        );
+
+        // when
+        byte[] bytes = MessageCodec.encodeCaptureBatch(messages);
+        List<CaptureMessage> decoded = MessageCodec.decodeCaptures(bytes);
+
+        // then
+        assertEquals(MessageCodec.TYPE_CAPTURE_BATCH, MessageCodec.readType(bytes));
+        assertEquals(3, decoded.size());
+        assertEquals("Misty", decoded.get(1).getTrainerName());
+        assertEquals("Pikachu", decoded.get(1).getPokemonName());
+        assertEquals(captureDate.plusSeconds(1), decoded.get(1).getCaptureDate());
+        assertEquals(7L, decoded.get(2).getPokemonId());
+        assertNull(decoded.get(2).getPokemonName());
+        assertNull(decoded.get(2).getCaptureDate());
+        // les noms repetes ne sont ecrits qu'une fois
+        assertTrue(bytes.length < 3 * MessageCodec.encodeCapture(messages.get(0)).length);
+    }
+
+    @Test
+    void testEventIdRoundTripAndVersion() {
+        // given
+        CaptureMessage withId = new CaptureMessage(1L, "Ash", 25L, "Pikachu", LocalDateTime.of(2026, 1, 21, 10, 30));
+        withId.setEventId(123_456_789L);
+        CaptureMessage withoutId = new CaptureMessage(2L, "Misty", 7L, "Squirtle", null);
+
+        // when
+        byte[] single = MessageCodec.encodeCapture(withId);
+        byte[] legacySingle = MessageCodec.encodeCapture(withoutId);
+        byte[] batch = MessageCodec.encodeCaptureBatch(List.of(withId, withoutId));
+        byte[] legacyBatch = MessageCodec.encodeCaptureBatch(List.of(withoutId));
+        List<CaptureMessage> decodedBatch = MessageCodec.decodeCaptures(batch);
+
+        // then
+        assertEquals(123_456_789L, MessageCodec.decodeCapture(single).getEventId());
+        assertNull(MessageCodec.decodeCapture(legacySingle).getEventId());
+        assertEquals(123_456_789L, decodedBatch.get(0).getEventId());
+        assertNull(decodedBatch.get(1).getEventId());
+        // la version 3 n'est utilisee que si un eventId est present
+        assertEquals(MessageCodec.VERSION, single[1]);
+        assertEquals(MessageCodec.VERSION, batch[1]);
+        assertEquals(1, legacySingle[1]);
+        assertEquals(2, legacyBatch[1]);
+    }
+
+    @Test
+    void testDecodeCapturesAcceptsSingleCapture() {
+        // when
+        List<CaptureMessage> decoded = MessageCodec.decodeCaptures(
+                MessageCodec.encodeCapture(new CaptureMessage(1L, "Ash", 25L, "Pikachu")));
+
+        // then
+        assertEquals(1, decoded.size());
+        assertEquals("Ash", decoded.get(0).getTrainerName());
+    }
+
+    @Test
+    void testDecodedNamesAreInterned() {
+        // given
+        byte[] first = MessageCodec.encodeCapture(new CaptureMessage(1L, "Ash", 25L, "Pikachu"));
+        byte[] second = MessageCodec.encodeCapture(new CaptureMessage(2L, "Red", 25L, "Pikachu"));
+
+        // when & then
+        assertSame(MessageCodec.decodeCapture(first).getPokemonName(),
+                MessageCodec.decodeCapture(second).getPokemonName());
+    }
+
+    @Test
+    void testEncodingIsMuchSmallerThanJavaSerialization() throws Exception {
+        // given
+        CaptureMessage message = new CaptureMessage(1L, "Ash Ketchum", 25L, "Pikachu");
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(serialized)) {
+            out.writeObject(message);
+        }
+
+        // when
+        byte[] encoded = MessageCodec.encodeCapture(message);
+
+        // then
+        assertTrue(encoded.length * 10 < serialized.size(),
+                "encoded " + encoded.length + " bytes vs serialized " + serialized.size() + " bytes");
+    }
+
+    @Test
+    void testMalformedMessagesAreRejected() {
+        byte[] valid = MessageCodec.encodeCapture(new CaptureMessage(1L, "Ash", 25L, "Pikachu"));
+
+        byte[] badMagic = valid.clone();
+        badMagic[0] = (byte) 0xAC;
+        assertEquals(MessageCodec.Reason.BAD_MAGIC, assertThrows(MessageCodec.MalformedMessageException.class,
+                () -> MessageCodec.decodeCapture(badMagic)).getReason());
+
+        byte[] futureVersion = valid.clone();
+        futureVersion[1] = (byte) (MessageCodec.VERSION + 1);
+        assertEquals(MessageCodec.Reason.UNSUPPORTED_VERSION, assertThrows(MessageCodec.MalformedMessageException.class,
+                () -> MessageCodec.decodeCapture(futureVersion)).getReason());
+
+        byte[] truncated = Arrays.copyOf(valid, valid.length - 3);
+        assertEquals(MessageCodec.Reason.TRUNCATED, assertThrows(MessageCodec.MalformedMessageException.class,
+                () -> MessageCodec.decodeCapture(truncated)).getReason());
+
+        assertEquals(MessageCodec.Reason.UNKNOWN_TYPE, assertThrows(MessageCodec.MalformedMessageException.class,
+                () -> MessageCodec.decodeTrainer(valid)).getReason());
+    }
+}
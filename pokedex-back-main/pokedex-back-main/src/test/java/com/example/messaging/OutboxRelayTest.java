@@ -0,0 +1,115 @@
+package com.example.messaging;
+
+import com.example.domain.OutboxEvent;
+import com.example.dto.CaptureMessage;
+import com.example.dto.TrainerMessage;
+import com.example.dto.OutboxStats;
+import com.example.service.OutboxService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.jms.JMSException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private EventPublisher eventPublisher;
+
+    @Mock
+    private CaptureBatcher captureBatcher;
+
+    @InjectMocks
+    private OutboxRelay outboxRelay;
+
+    private OutboxEvent event(long id, String queueName) {
+        byte[] payload = "captures".equals(queueName)
+                ? MessageCodec.encodeCapture(new CaptureMessage(1L, "Ash", id, "Pokemon " + id))
+                : MessageCodec.encodeTrainer(new TrainerMessage(id, "Trainer " + id, "trainer" + id + "@pokemon.com"));
+        OutboxEvent event = new OutboxEvent(queueName, payload, "event " + id);
+        event.setId(id);
+        return event;
+    }
+
+    @Test
+    void testDrainDeletesAcknowledgedEvents() {
+        // given
+        List<OutboxEvent> batch = List.of(event(1L, "captures"), event(2L, "trainers"));
+        when(outboxService.findPendingEvents(anyInt())).thenReturn(batch);
+        when(captureBatcher.submit(any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(eventPublisher.publish(anyString(), any(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(outboxService.countPendingEvents()).thenReturn(0L);
+
+        // when
+        outboxRelay.drain();
+
+        // then
+        ArgumentCaptor<CaptureMessage> capture = ArgumentCaptor.forClass(CaptureMessage.class);
+        verify(captureBatcher, times(1)).submit(capture.capture());
+        assertEquals(1L, capture.getValue().getPokemonId());
+        verify(eventPublisher, never()).publish(eq("captures"), any(), anyString());
+        verify(eventPublisher, times(1)).publish(eq("trainers"), any(), eq("event 2"));
+        verify(outboxService, times(1)).deleteEvents(List.of(1L, 2L));
+        verify(outboxService, never()).markFailedAttempt(any());
+
+        OutboxStats stats = outboxRelay.getStats();
+        assertEquals(2L, stats.getRelayedEvents());
+        assertEquals(1L, stats.getBatches());
+        assertEquals(2, stats.getLastBatchSize());
+        assertEquals(0L, stats.getBacklog());
+    }
+
+    @Test
+    void testDrainKeepsFailedEventsInOutbox() {
+        // given
+        List<OutboxEvent> batch = List.of(event(1L, "captures"), event(2L, "captures"));
+        when(outboxService.findPendingEvents(anyInt())).thenReturn(batch);
+        when(captureBatcher.submit(any()))
+                .thenReturn(CompletableFuture.completedFuture(null))
+                .thenReturn(CompletableFuture.failedFuture(new JMSException("broker down")));
+        when(outboxService.countPendingEvents()).thenReturn(1L);
+
+        // when
+        outboxRelay.drain();
+
+        // then
+        verify(outboxService, times(1)).deleteEvents(List.of(1L));
+        verify(outboxService, times(1)).markFailedAttempt(List.of(2L));
+        verify(outboxService, times(1)).findPendingEvents(anyInt());
+
+        OutboxStats stats = outboxRelay.getStats();
+        assertEquals(1L, stats.getRelayedEvents());
+        assertEquals(1L, stats.getFailedEvents());
+        assertEquals(1L, stats.getBacklog());
+    }
+
+    @Test
+    void testDrainWithEmptyOutbox() {
+        // given
+        when(outboxService.findPendingEvents(anyInt())).thenReturn(Collections.emptyList());
+
+        // when
+        outboxRelay.drain();
+
+        // then
+        verify(eventPublisher, never()).publish(anyString(), any(), anyString());
+        verify(captureBatcher, never()).submit(any());
+        verify(outboxService, never()).deleteEvents(any());
+        assertEquals(0L, outboxRelay.getStats().getBatches());
+    }
+}
@@ -4,7 +4,6 @@ import com.example.domain.Trainer;
 import com.example.dto.AuthResponse;
 import com.example.dto.LoginRequest;
 import com.example.dto.RegisterRequest;
-import com.example.messaging.TrainerMessageProducer;
 import com.example.service.AuthService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
@@ -25,9 +24,6 @@ class AuthResourceTest {
     @Mock
     private AuthService authService;
 
-    @Mock
-    private TrainerMessageProducer trainerMessageProducer;
-
     @Mock
     private HttpServletRequest httpRequest;
 
@@ -45,7 +41,6 @@ class AuthResourceTest {
         trainer.setId(1L);
 
         when(authService.register("Ash", "ash@pokemon.com", "pikachu123")).thenReturn(trainer);
-        doNothing().when(trainerMessageProducer).sendTrainerCreatedMessage(any());
 
         // when
         Response response = authResource.register(request);
@@ -59,7 +54,6 @@ class AuthResourceTest {
         assertEquals("Ash", body.getName());
 
         verify(authService, times(1)).register("Ash", "ash@pokemon.com", "pikachu123");
-        verify(trainerMessageProducer, times(1)).sendTrainerCreatedMessage(any());
     }
 
     @Test
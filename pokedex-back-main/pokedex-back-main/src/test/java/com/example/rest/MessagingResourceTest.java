@@ -0,0 +1,138 @@
+package com.example.rest;
+
+import com.example.dto.BatchStats;
+import com.example.dto.CircuitBreakerStats;
+import com.example.dto.JmsPoolStats;
+import com.example.dto.OutboxStats;
+import com.example.dto.PublishStats;
+import com.example.dto.SpoolStats;
+import com.example.messaging.CaptureBatcher;
+import com.example.messaging.EventPublisher;
+import com.example.messaging.EventSpool;
+import com.example.messaging.JmsCircuitBreaker;
+import com.example.messaging.JmsConnectionPool;
+import com.example.messaging.OutboxRelay;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessagingResourceTest {
+
+    @Mock
+    private JmsConnectionPool jmsConnectionPool;
+
+    @Mock
+    private EventPublisher eventPublisher;
+
+    @Mock
+    private OutboxRelay outboxRelay;
+
+    @Mock
+    private CaptureBatcher captureBatcher;
+
+    @Mock
+    private EventSpool eventSpool;
+
+    @Mock
+    private JmsCircuitBreaker circuitBreaker;
+
+    @InjectMocks
+    private MessagingResource messagingResource;
+
+    @Test
+    void testGetPoolStats() {
+        // given
+        JmsPoolStats stats = new JmsPoolStats(8, 2, 2, 0, 2, 10L, 0.1, 1.5, 0L, 1L, 1L, true);
+        when(jmsConnectionPool.getStats()).thenReturn(stats);
+
+        // when
+        Response response = messagingResource.getPoolStats();
+
+        // then
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals(stats, response.getEntity());
+        verify(jmsConnectionPool, times(1)).getStats();
+    }
+
+    @Test
+    void testGetPublisherStats() {
+        // given
+        PublishStats stats = new PublishStats(true, 5L, 4L, 1L, 1L, 0L, 0L, 0L, 1L, 2.0, 3.0);
+        when(eventPublisher.getStats()).thenReturn(stats);
+
+        // when
+        Response response = messagingResource.getPublisherStats();
+
+        // then
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals(stats, response.getEntity());
+        verify(eventPublisher, times(1)).getStats();
+    }
+
+    @Test
+    void testGetOutboxStats() {
+        // given
+        OutboxStats stats = new OutboxStats(3L, 100L, 2L, 4L, 25, 12.0, 10.0, 15.0, 2000.0);
+        when(outboxRelay.getStats()).thenReturn(stats);
+
+        // when
+        Response response = messagingResource.getOutboxStats();
+
+        // then
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals(stats, response.getEntity());
+        verify(outboxRelay, times(1)).getStats();
+    }
+
+    @Test
+    void testGetBatcherStats() {
+        // given
+        BatchStats stats = new BatchStats(50, 20L, 2L, 60L, 30.0, 10, 50, 1L, 1L, 0L, 0);
+        when(captureBatcher.getStats()).thenReturn(stats);
+
+        // when
+        Response response = messagingResource.getBatcherStats();
+
+        // then
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals(stats, response.getEntity());
+        verify(captureBatcher, times(1)).getStats();
+    }
+
+    @Test
+    void testGetSpoolStats() {
+        // given
+        SpoolStats stats = new SpoolStats(true, "BATCH", 1024L, 64L, 2, 5L, 3L, 0L, 1L, 0L);
+        when(eventSpool.getStats()).thenReturn(stats);
+
+        // when
+        Response response = messagingResource.getSpoolStats();
+
+        // then
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals(stats, response.getEntity());
+        verify(eventSpool, times(1)).getStats();
+    }
+
+    @Test
+    void testGetCircuitBreakerStats() {
+        // given
+        CircuitBreakerStats stats = new CircuitBreakerStats("OPEN", 5, 5, 1L, 0L, 0L, 12L, 0L, 0L, 800L, 1700000000000L);
+        when(circuitBreaker.getStats()).thenReturn(stats);
+
+        // when
+        Response response = messagingResource.getCircuitBreakerStats();
+
+        // then
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals(stats, response.getEntity());
+        verify(circuitBreaker, times(1)).getStats();
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.service;
 
 import com.example.domain.Trainer;
+import com.example.dto.TrainerMessage;
+import com.example.messaging.TrainerMessageProducer;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.TypedQuery;
@@ -11,6 +13,7 @@ import jakarta.persistence.criteria.Root;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mindrot.jbcrypt.BCrypt;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -25,6 +28,9 @@ class AuthServiceTest {
     @Mock
     private EntityManager em;
 
+    @Mock
+    private TrainerMessageProducer trainerMessageProducer;
+
     @Mock
     private CriteriaBuilder cb;
 
@@ -77,6 +83,10 @@ class AuthServiceTest {
         assertTrue(BCrypt.checkpw(password, result.getPassword()));
 
         verify(em, times(1)).persist(any(Trainer.class));
+        ArgumentCaptor<TrainerMessage> message = ArgumentCaptor.forClass(TrainerMessage.class);
+        verify(trainerMessageProducer, times(1)).sendTrainerCreatedMessage(message.capture());
+        assertEquals(1L, message.getValue().getTrainerId());
+        assertEquals(email, message.getValue().getTrainerEmail());
     }
 
     @Test
@@ -102,6 +112,7 @@ class AuthServiceTest {
         assertEquals("Email already exists: " + email, ex.getMessage());
 
         verify(em, never()).persist(any(Trainer.class));
+        verify(trainerMessageProducer, never()).sendTrainerCreatedMessage(any());
     }
 
     @Test
@@ -12,9 +12,10 @@ import jakarta.persistence.criteria.Order;
 import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -55,9 +56,13 @@ class CaughtPokemonServiceTest {
     @Mock
     private TypedQuery<CaughtPokemon> typedQuery;
 
-    @InjectMocks
     private CaughtPokemonService caughtPokemonService;
 
+    @BeforeEach
+    void setUp() {
+        caughtPokemonService = new CaughtPokemonService(em, captureMessageProducer, false);
+    }
+
     @Test
     void testCreateCaughtPokemon() {
         // Given
@@ -91,7 +96,55 @@ class CaughtPokemonServiceTest {
         verify(em, times(1)).find(Trainer.class, trainerId);
         verify(em, times(1)).find(Pokemon.class, pokemonId);
         verify(em, times(1)).persist(any(CaughtPokemon.class));
-        verify(captureMessageProducer, times(1)).sendCaptureMessage(any());
+        verify(em, never()).flush();
+        verify(captureMessageProducer, times(1)).sendCaptureMessage(argThat(message -> message.getEventId() == null));
+    }
+
+    @Test
+    void testCreateCaughtPokemonWithEventIds() {
+        // Given : comme eclipselink avec IDENTITY, persist n'attribue pas l'id, seul le flush le fait
+        Trainer trainer = new Trainer("Ash", "ash@pokemon.com");
+        trainer.setId(1L);
+        Pokemon pokemon = new Pokemon(25, "Pikachu");
+        pokemon.setId(2L);
+        when(em.find(Trainer.class, 1L)).thenReturn(trainer);
+        when(em.find(Pokemon.class, 2L)).thenReturn(pokemon);
+        CaughtPokemon[] persisted = new CaughtPokemon[1];
+        doAnswer(invocation -> {
+            persisted[0] = invocation.getArgument(0);
+            return null;
+        }).when(em).persist(any(CaughtPokemon.class));
+        doAnswer(invocation -> {
+            persisted[0].setId(7L);
+            return null;
+        }).when(em).flush();
+        caughtPokemonService = new CaughtPokemonService(em, captureMessageProducer, true);
+
+        // When
+        CaughtPokemon result = caughtPokemonService.createCaughtPokemon(1L, 2L);
+
+        // Then
+        assertEquals(7L, result.getId());
+        InOrder inOrder = inOrder(em, captureMessageProducer);
+        inOrder.verify(em).persist(any(CaughtPokemon.class));
+        inOrder.verify(em).flush();
+        inOrder.verify(captureMessageProducer).sendCaptureMessage(argThat(message -> Long.valueOf(7L).equals(message.getEventId())));
+    }
+
+    @Test
+    void testCreateCaughtPokemonWithEventIdsFailsWithoutAnId() {
+        // Given : un flush qui n'attribue pas d'id ne doit pas envoyer une capture sans eventId
+        Trainer trainer = new Trainer("Ash", "ash@pokemon.com");
+        trainer.setId(1L);
+        Pokemon pokemon = new Pokemon(25, "Pikachu");
+        pokemon.setId(2L);
+        when(em.find(Trainer.class, 1L)).thenReturn(trainer);
+        when(em.find(Pokemon.class, 2L)).thenReturn(pokemon);
+        caughtPokemonService = new CaughtPokemonService(em, captureMessageProducer, true);
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> caughtPokemonService.createCaughtPokemon(1L, 2L));
+        verify(captureMessageProducer, never()).sendCaptureMessage(any());
     }
 
     @Test
@@ -0,0 +1,94 @@
+package com.example.service;
+
+import com.example.domain.OutboxEvent;
+import com.example.dto.CaptureMessage;
+import com.example.messaging.MessageCodec;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxServiceTest {
+
+    @Mock
+    private EntityManager em;
+
+    @Mock
+    private Query query;
+
+    @InjectMocks
+    private OutboxService outboxService;
+
+    @Test
+    void testEnqueuePersistsEncodedEvent() {
+        // given
+        CaptureMessage message = new CaptureMessage(1L, "Ash", 25L, "Pikachu");
+        byte[] payload = MessageCodec.encodeCapture(message);
+
+        // when
+        OutboxEvent result = outboxService.enqueue("captures", payload, "capture: Ash -> Pikachu");
+
+        // then
+        ArgumentCaptor<OutboxEvent> persisted = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(em, times(1)).persist(persisted.capture());
+        assertSame(result, persisted.getValue());
+        assertEquals("captures", result.getQueueName());
+        assertEquals(0, result.getAttempts());
+        assertNotNull(result.getCreatedAt());
+        assertSame(payload, result.getPayload());
+    }
+
+    @Test
+    void testDeleteEvents() {
+        // given
+        List<Long> ids = List.of(1L, 2L);
+        when(em.createQuery(anyString())).thenReturn(query);
+        when(query.setParameter("ids", ids)).thenReturn(query);
+        when(query.executeUpdate()).thenReturn(2);
+
+        // when
+        int deleted = outboxService.deleteEvents(ids);
+
+        // then
+        assertEquals(2, deleted);
+        verify(em, times(1)).createQuery("DELETE FROM OutboxEvent e WHERE e.id IN :ids");
+    }
+
+    @Test
+    void testDeleteEventsWithEmptyList() {
+        // when
+        int deleted = outboxService.deleteEvents(Collections.emptyList());
+
+        // then
+        assertEquals(0, deleted);
+        verify(em, never()).createQuery(anyString());
+    }
+
+    @Test
+    void testMarkFailedAttempt() {
+        // given
+        List<Long> ids = List.of(3L);
+        when(em.createQuery(anyString())).thenReturn(query);
+        when(query.setParameter("ids", ids)).thenReturn(query);
+        when(query.executeUpdate()).thenReturn(1);
+
+        // when
+        int updated = outboxService.markFailedAttempt(ids);
+
+        // then
+        assertEquals(1, updated);
+        verify(em, times(1)).createQuery("UPDATE OutboxEvent e SET e.attempts = e.attempts + 1 WHERE e.id IN :ids");
+    }
+}